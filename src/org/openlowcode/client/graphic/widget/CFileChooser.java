@@ -12,7 +12,6 @@ package org.openlowcode.client.graphic.widget;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 
 import org.openlowcode.tools.messages.MessageReader;
 import org.openlowcode.tools.messages.OLcRemoteException;
@@ -128,13 +127,8 @@ public class CFileChooser
 				throw new RuntimeException("File does not exist " + filepathfield.getText());
 			if (selectedfile.isDirectory())
 				throw new RuntimeException("path indicated a directory, not a file " + filepathfield.getText());
-			try {
-				byte[] array = Files.readAllBytes(selectedfile.toPath());
-
-				return new LargeBinaryDataElt(eltname, new SFile(selectedfile.getName(), array));
-			} catch (IOException e) {
-				throw new RuntimeException("Error while reading file " + e.getMessage());
-			}
+			// the file is read from disk only when it is sent to the server
+			return new LargeBinaryDataElt(eltname, new SFile(selectedfile.getName(), selectedfile));
 		}
 		throw new RuntimeException(
 				String.format("Unsupported extraction type %s for element name = %s and object data loc = ", type,
@@ -114,7 +114,7 @@ public class CFileDownload
 		try {
 
 			FileOutputStream fos = new FileOutputStream(defaultfile, false);
-			fos.write(largefile.getContent());
+			largefile.writeContent(fos);
 			fos.close();
 			Desktop.getDesktop().open(defaultfile);
 
@@ -11,7 +11,6 @@
 package org.openlowcode.client.runtime;
 
 import java.io.IOException;
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -22,10 +21,10 @@ import org.openlowcode.client.action.CActionData;
 import org.openlowcode.client.graphic.CPage;
 import org.openlowcode.client.graphic.CPageData;
 import org.openlowcode.client.runtime.PageActionManager.ActionSourceTransformer;
+import org.openlowcode.tools.messages.MessageChunkedInputStream;
 import org.openlowcode.tools.messages.MessageElement;
 import org.openlowcode.tools.messages.MessageError;
 import org.openlowcode.tools.messages.MessageReader;
-import org.openlowcode.tools.messages.MessageSimpleReader;
 import org.openlowcode.tools.messages.OLcRemoteException;
 import org.openlowcode.tools.misc.NiceFormatters;
 
@@ -560,23 +559,42 @@ public class ClientSession {
 			return feedback;
 		}
 		activedisplay.updateStatusBar("receives INLINEDATA for action = " + action + ", starting reading");
-		reader.returnNextStartStructure("ENCRES");
-		byte[] encryptedmessage = reader.returnNextLargeBinary("RESMES").getContent();
-		String decryptedmessage = localconnectiontoserver.decryptwithaeskey(encryptedmessage);
-		logger.warning(" -------------- Decryptedmessage ------------------------");
-		logger.warning(decryptedmessage);
-		MessageSimpleReader specificmessagereader = new MessageSimpleReader(new StringReader(decryptedmessage));
-		specificmessagereader.setAESCommunicator(localconnectiontoserver.getAESCommunicator());
-		MessageElement messagefirstelement = specificmessagereader.getNextElement();
-		
-		reader.returnNextEndStructure("ENCRES");
-		reader.returnNextEndMessage();
-
-		specificmessagereader.returnNextStartStructure("INLINEDATA");
-		CPageData newdata = new CPageData(specificmessagereader);
-		specificmessagereader.returnNextEndStructure("INLINEDATA");
-		specificmessagereader.returnNextEndMessage();
-		specificmessagereader.close();
+		String encryptedstructure = reader.returnNextStartStructure();
+		CPageData newdata;
+		if (encryptedstructure.compareTo("RESSTR") == 0) {
+			// streamed response: the inline data is read while the response is decrypted
+			MessageChunkedInputStream encryptedstream = new MessageChunkedInputStream(reader, "RESSTR", "CNK");
+			try {
+				MessageReader specificmessagereader = localconnectiontoserver.decryptwithaeskey(encryptedstream);
+				specificmessagereader.returnNextMessageStart();
+				specificmessagereader.returnNextStartStructure("INLINEDATA");
+				newdata = new CPageData(specificmessagereader);
+				specificmessagereader.returnNextEndStructure("INLINEDATA");
+				specificmessagereader.returnNextEndMessage();
+				encryptedstream.close();
+				reader.returnNextEndMessage();
+			} catch (IOException e) {
+				// an error sent by the server in the middle of the streamed response
+				if (e.getCause() instanceof OLcRemoteException)
+					throw (OLcRemoteException) e.getCause();
+				throw e;
+			}
+		} else {
+			if (encryptedstructure.compareTo("ENCRES") != 0)
+				throw new RuntimeException("Expected structure ENCRES or RESSTR for inline data, got "
+						+ encryptedstructure + " at path " + reader.getCurrentElementPath());
+			byte[] encryptedmessage = reader.returnNextLargeBinary("RESMES").getContent();
+			MessageReader specificmessagereader = localconnectiontoserver.decryptwithaeskey(encryptedmessage);
+			MessageElement messagefirstelement = specificmessagereader.getNextElement();
+
+			reader.returnNextEndStructure("ENCRES");
+			reader.returnNextEndMessage();
+
+			specificmessagereader.returnNextStartStructure("INLINEDATA");
+			newdata = new CPageData(specificmessagereader);
+			specificmessagereader.returnNextEndStructure("INLINEDATA");
+			specificmessagereader.returnNextEndMessage();
+		}
 		String extrastatusmessage = "";
 		if (newdata.getMessage() != null)
 			if (newdata.getMessage().length() > 0)
@@ -641,20 +659,34 @@ public class ClientSession {
 
 		if (message.compareTo("ENCRES") == 0) {
 			byte[] encryptedmessage = reader.returnNextLargeBinary("RESMES").getContent();
-			String decryptedmessage = localconnectiontoserver.decryptwithaeskey(encryptedmessage);
-			logger.warning(" -------------- Decryptedmessage ------------------------");
-			logger.warning(decryptedmessage);
-			MessageSimpleReader specificmessagereader = new MessageSimpleReader(new StringReader(decryptedmessage));
-			specificmessagereader.setAESCommunicator(localconnectiontoserver.getAESCommunicator());
+			MessageReader specificmessagereader = localconnectiontoserver.decryptwithaeskey(encryptedmessage);
 			MessageElement messagefirstelement = specificmessagereader.getNextElement();
 			DisplayPageFeedback feedback = displayPage(messagefirstelement, localconnectiontoserver,
 					specificmessagereader, activedisplay, starttime, showtechdetails, module, action, openinnewtab);
-			specificmessagereader.close();
 			reader.returnNextEndStructure("ENCRES");
 			reader.returnNextEndMessage();
 			return feedback;
 		}
 
+		if (message.compareTo("RESSTR") == 0) {
+			MessageChunkedInputStream encryptedstream = new MessageChunkedInputStream(reader, "RESSTR", "CNK");
+			try {
+				MessageReader specificmessagereader = localconnectiontoserver.decryptwithaeskey(encryptedstream);
+				MessageElement messagefirstelement = specificmessagereader.getNextElement();
+				DisplayPageFeedback feedback = displayPage(messagefirstelement, localconnectiontoserver,
+						specificmessagereader, activedisplay, starttime, showtechdetails, module, action,
+						openinnewtab);
+				encryptedstream.close();
+				reader.returnNextEndMessage();
+				return feedback;
+			} catch (IOException e) {
+				// an error sent by the server in the middle of the streamed response
+				if (e.getCause() instanceof OLcRemoteException)
+					throw (OLcRemoteException) e.getCause();
+				throw e;
+			}
+		}
+
 		if (message.compareTo("DISPLAYPAGE") == 0) {
 			// processing cid
 			HashMap<String, String> attributes = this.readRequestAttributes(reader);
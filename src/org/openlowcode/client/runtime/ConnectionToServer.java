@@ -12,9 +12,11 @@ package org.openlowcode.client.runtime;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.CharArrayWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.net.Socket;
 import java.nio.charset.Charset;
@@ -22,6 +24,7 @@ import java.util.logging.Logger;
 
 import org.openlowcode.tools.enc.AESCommunicator;
 import org.openlowcode.tools.messages.MessageBufferedWriter;
+import org.openlowcode.tools.messages.MessageChunkedOutputStream;
 import org.openlowcode.tools.messages.MessageElement;
 import org.openlowcode.tools.messages.MessageReader;
 import org.openlowcode.tools.messages.MessageSimpleReader;
@@ -54,8 +57,26 @@ public class ConnectionToServer {
 		return aescommunicator;
 	}
 	
-	public String decryptwithaeskey(byte[] encryptedcontent) throws Exception {
-		return aescommunicator.decryptandunzip(encryptedcontent);
+	/**
+	 * @param encryptedcontent an encrypted message received from the server
+	 * @return a reader on the decrypted message, in the wire format negotiated with
+	 *         the server
+	 * @throws Exception if any error is encountered during decryption
+	 * @since 2.0
+	 */
+	public MessageReader decryptwithaeskey(byte[] encryptedcontent) throws Exception {
+		return aescommunicator.getDecryptedMessageReader(encryptedcontent);
+	}
+
+	/**
+	 * @param encryptedstream stream of an encrypted message received from the
+	 *                        server in chunks
+	 * @return a reader on the message, decrypted while it is read, in the wire
+	 *         format negotiated with the server
+	 * @since 2.0
+	 */
+	public MessageReader decryptwithaeskey(InputStream encryptedstream) {
+		return aescommunicator.getDecryptedMessageReader(encryptedstream);
 	}
 	
 	/**
@@ -91,20 +112,26 @@ public class ConnectionToServer {
 				if (clientsocket == null) {
 					initConnection();
 				}
-				CharArrayWriter encryptedmessageloc = new CharArrayWriter();
-				MessageBufferedWriter writertoencrypt = new MessageBufferedWriter(new BufferedWriter(encryptedmessageloc), false); 
-				writertoencrypt.setAESCommunicator(aescommunicator);
-				writertoserver.apply(writertoencrypt);
-				writertoencrypt.flushMessage();
-				String messagetoencrypt = encryptedmessageloc.toString();
-				writertoencrypt.close();
-				byte[]encodedmessagetosend = aescommunicator.zipandencrypt(messagetoencrypt);
-				writer.startNewMessage();
-				writer.startStructure("ENCMES");
-				writer.addLongBinaryField("ENCMES",new SFile("ENC",encodedmessagetosend));
-				writer.endStructure("ENCMES");
-				writer.endMessage();
-				
+				if (aescommunicator.isBinaryWireFormat()) {
+					// message is encrypted and sent chunk by chunk while it is written
+					OutputStream encryptedstream = aescommunicator.getEncryptingStream(new MessageChunkedOutputStream(
+							writer, "ENCSTR", "CNK", MessageChunkedOutputStream.DEFAULT_CHUNK_SIZE));
+					MessageWriter writertoencrypt = aescommunicator.getMessageWriterToEncrypt(encryptedstream);
+					writertoserver.apply(writertoencrypt);
+					writertoencrypt.flushMessage();
+					encryptedstream.close();
+				} else {
+					ByteArrayOutputStream encryptedmessageloc = new ByteArrayOutputStream();
+					MessageWriter writertoencrypt = aescommunicator.getMessageWriterToEncrypt(encryptedmessageloc);
+					writertoserver.apply(writertoencrypt);
+					writertoencrypt.flushMessage();
+					byte[]encodedmessagetosend = aescommunicator.zipandencrypt(encryptedmessageloc.toByteArray());
+					writer.startNewMessage();
+					writer.startStructure("ENCMES");
+					writer.addLongBinaryField("ENCMES",new SFile("ENC",encodedmessagetosend));
+					writer.endStructure("ENCMES");
+					writer.endMessage();
+				}
 				
 				
 				sent = true;
@@ -127,6 +127,40 @@ public abstract class ActionDefinition
 		this.noaddress = true;
 	}
 
+	private boolean streamedinlineoutput = false;
+
+	/**
+	 * When called inline, the action will send its result to the client while it
+	 * is read from the database, instead of building an array first. This is
+	 * only possible for an action without address with a single array of
+	 * objects as output, and is typically used for search actions. The action
+	 * class then implements a streamed version of the action logic.
+	 * 
+	 * @since 2.0
+	 */
+	public void setStreamedInlineOutput() {
+		this.streamedinlineoutput = true;
+	}
+
+	/**
+	 * @return the object argument streamed as output of the action if it is
+	 *         streamed, null else
+	 * @since 2.0
+	 */
+	private ObjectArgument getStreamedOutputObject() {
+		if (!this.streamedinlineoutput)
+			return null;
+		if (this.outputarguments.getSize() == 1)
+			if (!this.isAddressGenerated(this.getInputArguments()))
+				if (this.outputarguments.get(0) instanceof ArrayArgument) {
+					ArgumentContent payload = ((ArrayArgument) this.outputarguments.get(0)).getPayload();
+					if (payload instanceof ObjectArgument)
+						return (ObjectArgument) payload;
+				}
+		throw new RuntimeException("Action " + this.getName()
+				+ " cannot stream its output, it should have no address and a single array of objects as output");
+	}
+
 	private ArrayList<String> businessrules;
 
 	/**
@@ -302,178 +336,514 @@ public abstract class ActionDefinition
 	}
 
 	/**
-	 * generates the abstract class of the action to file. This provides a framework
-	 * for user to add their code to
+	 * generates the code reading and checking the input arguments of the action
+	 * from the action data sent by the client
 	 * 
-	 * @param sg     source generator
-	 * @param module parent module
-	 * @throws IOException if anything bad happens while writing the file.
+	 * @param sg source generator
+	 * @throws IOException if anything bad happens while writing the source code
+	 * @since 2.0
 	 */
-	public void generateToFile(SourceGenerator sg, Module module) throws IOException {
-		String actionclass = StringFormatter.formatForJavaClass(this.getName());
-		Privilege[] privilegesforaction = this.module.getPrivilegesForAction(this);
-		boolean hasoptioninputargument = false;
-		for (int i = 0; i < this.getInputArguments().getSize(); i++) {
-			ArgumentContent inputargument = this.getInputArguments().get(i);
-			if (inputargument.isOptional())
-				hasoptioninputargument = true;
-		}
-
-		boolean isoutputobject = false;
-		if (outputarguments.getSize() > 0)
-			isoutputobject = true;
-		if (outputarguments.getSize() == 0)
-			if (this.isAddressGenerated(this.getInputArguments()))
-				isoutputobject = true;
-		boolean severaloutputobjects = false;
-		if (outputarguments.getSize() > 1)
-			severaloutputobjects = true;
-		// address requires presence of
-		if (this.isAddressGenerated(this.getInputArguments()))
-			severaloutputobjects = true;
-		// generateoutputinnerclass
-		sg.bl();
+	private void generateInputValidation(SourceGenerator sg) throws IOException {
+		sg.wl("		if (actionattributes.size()!=" + this.getInputArguments().getSize()
+				+ ") throw new RuntimeException(String.format(\"action " + this.getName() + " is supposed to have "
+				+ this.getInputArguments().getSize()
+				+ " attributes, but %d attribute(s) was found\",actionattributes.size()));");
 
-		sg.wl("package " + module.getPath() + ".action.generated;");
-		sg.bl();
-		if (!this.isAutogenerated()) {
-			sg.wl("/* <<<< Warning >>>> : You need to implement a concrete class in a separate file *!*! -----");
-			sg.wl(" > This is an automatically generated abstract class providing the interface to ");
-			sg.wl(" > the action you have to implement. Please create the class implementing ");
-			sg.wl(" > this abstract class at path: ");
-			sg.wl("    --> " + this.getModule().getPath() + ".action."
-					+ StringFormatter.formatForJavaClass(this.getName()) + "Action");
-			sg.wl(" > Please do NOT modify the current file, as it will be erased and generated again.");
-			sg.wl(" ----------------------------------------------------------------------------------------- */");
-		}
-		sg.bl();
-		if (this.isAddressGenerated(this.getInputArguments())) {
-			sg.wl("import org.openlowcode.tools.messages.MessageStringField;");
-		}
+		for (int i = 0; i < this.getInputArguments().getSize(); i++) {
+			boolean nullallowed = false;
+			ArgumentContent thisarg = this.getInputArguments().get(i);
+			sg.wl("		" + thisarg.getType() + " " + StringFormatter.formatForAttribute(thisarg.getName())
+					+ " = null;");
+			if (thisarg instanceof ArrayArgument) {
+				sg.wl("		if (actionattributes.getAttribute(" + i + ") instanceof ArrayDataElt) {");
+				sg.wl("			ArrayDataElt attribute" + i + " = (ArrayDataElt) actionattributes.getAttribute(" + i
+						+ ");");
 
-		sg.wl("import java.util.ArrayList;");
-		sg.wl("import java.util.Date;");
-		sg.wl("import org.openlowcode.server.data.storage.QueryFilter;");
-		sg.wl("import java.util.function.Function;");
-		sg.wl("import java.util.function.BiFunction;");
-		sg.wl("import org.openlowcode.server.data.storage.QueryCondition;");
-		sg.wl("import org.openlowcode.server.data.storage.TableAlias;");
-		for (int i = 0; i < privilegesforaction.length; i++) {
-			privilegesforaction[i].writeImport(sg, this);
-		}
-		sg.wl("import org.openlowcode.server.action.ActionExecution;");
-		sg.wl("import org.openlowcode.server.graphic.SPage;");
-		sg.wl("import org.openlowcode.server.runtime.OLcServer;");
-		sg.wl("import org.openlowcode.server.graphic.SPageData;");
-		sg.wl("import org.openlowcode.server.action.SActionData;");
-		sg.wl("import org.openlowcode.server.runtime.SModule;");
-		sg.wl("import org.openlowcode.server.security.ActionSecurityManager;");
-		sg.wl("import org.openlowcode.server.security.SecurityBuffer;");
+			} else {
+				sg.wl("		if (actionattributes.getAttribute(" + i + ") instanceof " + thisarg.getGenericDataEltName()
+						+ ") {");
+				sg.wl("			" + thisarg.getGenericDataEltName() + " attribute" + i + " = ("
+						+ thisarg.getGenericDataEltName() + ") actionattributes.getAttribute(" + i + ");");
 
-		sg.wl("import org.openlowcode.server.action.SActionInputDataRef;");
-		sg.wl("import org.openlowcode.server.graphic.widget.SActionDataLoc;");
-		if (hasoptioninputargument)
-			sg.wl("import org.openlowcode.server.action.SNullActionInputDataRef;");
-		sg.wl("import org.openlowcode.server.action.SActionOutputDataRef;");
-		sg.wl("import org.openlowcode.server.data.properties.DataObjectId;");
-		sg.wl("import org.openlowcode.server.action.SActionRef;");
-		sg.wl("import org.openlowcode.server.action.SInlineActionRef;");
-		sg.wl("import org.openlowcode.server.data.message.*;");
-		sg.wl("import org.openlowcode.tools.structure.*;");
-		sg.wl("import " + module.getPath() + ".data.*;");
-		for (int i = 0; i < this.getInputArguments().getSize(); i++)
-			getInputArguments().get(i).writeImports(sg, module);
-		for (int i = 0; i < this.outputarguments.getSize(); i++)
-			this.outputarguments.get(i).writeImports(sg, module);
-		for (int i = 0; i < this.getInputArguments().getSize(); i++) {
-			ArgumentContent thisargument = this.getInputArguments().get(i);
-			if (thisargument instanceof ArrayArgument) {
-				ArrayArgument thisarray = (ArrayArgument) thisargument;
-				thisargument = thisarray.getPayload();
-			}
-			if (thisargument instanceof ObjectArgument) {
-				ObjectArgument objectargument = (ObjectArgument) thisargument;
-				Module objectmodule = objectargument.getPayload().getOwnermodule();
-				if (objectmodule.getPath().compareTo(module.getPath()) != 0)
-					sg.wl("import " + objectmodule.getPath() + ".data."
-							+ StringFormatter.formatForJavaClass(objectargument.getPayload().getName()) + ";");
-			}
-			if (thisargument instanceof ObjectIdArgument) {
-				ObjectIdArgument objectidargument = (ObjectIdArgument) thisargument;
-				if (objectidargument.getObject() != null) {
-					Module objectmodule = objectidargument.getObject().getOwnermodule();
-					if (objectmodule.getPath().compareTo(module.getPath()) != 0)
-						sg.wl("import " + objectmodule.getPath() + ".data."
-								+ StringFormatter.formatForJavaClass(objectidargument.getObject().getName()) + ";");
-				}
 			}
-			if (thisargument instanceof ChoiceArgument) {
-				ChoiceArgument thischoiceargument = (ChoiceArgument) thisargument;
-				thischoiceargument.writeImports(sg, this.module);
-			}
-		}
-		for (int i = 0; i < this.outputarguments.getSize(); i++) {
-			ArgumentContent thisargument = this.outputarguments.get(i);
-			if (thisargument instanceof ArrayArgument) {
-				ArrayArgument thisarray = (ArrayArgument) thisargument;
-				thisargument = thisarray.getPayload();
+			boolean treated = false;
+			if (thisarg instanceof StringArgument) {
+				sg.wl("			if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName() + "\")==0) "
+						+ StringFormatter.formatForAttribute(thisarg.getName()) + " = attribute" + i
+						+ ".getPayload();");
+				treated = true;
 			}
-
-			if (thisargument instanceof ObjectArgument) {
-				ObjectArgument objectargument = (ObjectArgument) thisargument;
-				Module objectmodule = objectargument.getPayload().getOwnermodule();
-				if (objectmodule.getPath().compareTo(module.getPath()) != 0)
-					sg.wl("import " + objectmodule.getPath() + ".data."
-							+ StringFormatter.formatForJavaClass(objectargument.getPayload().getName()) + ";");
+			if (thisarg instanceof TimestampArgument) {
+				nullallowed = true;
+				sg.wl("			if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName() + "\")==0) "
+						+ StringFormatter.formatForAttribute(thisarg.getName()) + " = attribute" + i
+						+ ".getPayload();");
+				treated = true;
 			}
-			if (thisargument instanceof ObjectIdArgument) {
-				ObjectIdArgument objectidargument = (ObjectIdArgument) thisargument;
-				if (objectidargument.getObject() != null) {
-					Module objectmodule = objectidargument.getObject().getOwnermodule();
-					if (objectmodule.getPath().compareTo(module.getPath()) != 0)
-						sg.wl("import " + objectmodule.getPath() + ".data."
-								+ StringFormatter.formatForJavaClass(objectidargument.getObject().getName()) + ";");
+			if (thisarg instanceof ObjectArgument) {
+				ObjectArgument thisobjectarg = (ObjectArgument) thisarg;
+				sg.wl("		if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName() + "\")==0) {");
+				if (thisobjectarg.getMasterObject().hasId()) {
+					sg.wl("			if (attribute" + i + ".getUID().length()>0) "
+							+ StringFormatter.formatForAttribute(thisarg.getName()) + " = " + thisarg.getType()
+							+ ".readone(DataObjectId.generatefromDataObjectElt(attribute" + i + "," + thisarg.getType()
+							+ ".getDefinition()));");
+					sg.wl("			if (attribute" + i + ".getUID().length()==0) "
+							+ StringFormatter.formatForAttribute(thisarg.getName()) + " = new " + thisarg.getType()
+							+ "();");
+				} else {
+					sg.wl("			" + StringFormatter.formatForAttribute(thisarg.getName()) + " = new "
+							+ thisarg.getType() + "();");
 				}
+				sg.wl("			" + StringFormatter.formatForAttribute(thisarg.getName())
+						+ ".updateFromObjectContent(attribute" + i + ");");
+				sg.wl("		}");
+				treated = true;
 			}
-		}
+			if (thisarg instanceof ObjectIdArgument) {
+				ObjectIdArgument thisobjectidarg = (ObjectIdArgument) thisarg;
+				if (thisobjectidarg.getObject() != null) {
+					sg.wl("			if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName() + "\")==0) "
+							+ StringFormatter.formatForAttribute(thisarg.getName())
+							+ " = DataObjectId.generatefromDataObjectIdElt(attribute" + i + ","
+							+ thisobjectidarg.getObjectType() + ".getDefinition());");
+				} else {
+					sg.wl("			if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName() + "\")==0) "
+							+ StringFormatter.formatForAttribute(thisarg.getName())
+							+ " = DataObjectId.generatefromDataObjectIdElt(attribute" + i + ");");
 
-		sg.bl();
-		sg.wl("	 /**");
-		sg.wl("	  * @author " + module.getAuthor());
-		sg.wl("	  * Action " + actionclass + " from Open Lowcode module " + module.getAuthor() + "<br>");
-		if (this.specification != null) {
-			sg.wl("	  * <br>");
-			sg.wl("	  * Specifications<br>");
-			sg.wl("	  * <br>");
-			sg.wl("	  * " + this.specification + "<br>");
-			if (this.businessrules.size() > 0) {
-				sg.wl("	  * <br>");
-				sg.wl("	  * Business rules<br><ul>");
-				for (int i = 0; i < this.businessrules.size(); i++) {
-					sg.wl("	  *<li>" + this.businessrules.get(i) + "</li>");
 				}
-				sg.wl("	  *</ul>");
+				treated = true;
+			}
+			if (thisarg instanceof ChoiceArgument) {
+				// this argument has dedicated logic as it allows null value. Maybe this needs
+				// to be extended to other fields.
+				nullallowed = true;
+				ChoiceArgument thischoicearg = (ChoiceArgument) thisarg;
+				sg.wl("			if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName().toUpperCase()
+						+ "\")!=0) throw new RuntimeException(String.format( \" was expecting a " + thisarg.getType()
+						+ " attribute called " + thisarg.getName() + " as attribute " + i + " of action "
+						+ this.getName() + ", got %s \",actionattributes.getAttribute(" + i + ")));");
+				sg.wl("			if (attribute" + i + ".getStoredValue()!=null) if (attribute" + i
+						+ ".getStoredValue().length()>0) {");
+				sg.wl("				" + thisarg.getName().toLowerCase() + " = " + thischoicearg.getChoiceCategoryClass()
+						+ ".get().parseValueFromStorageCode(attribute" + i + ".getStoredValue());");
+				sg.wl("				if (" + StringFormatter.formatForAttribute(thisarg.getName())
+						+ " == null) throw new RuntimeException(String.format( \" was expecting a " + thisarg.getType()
+						+ " attribute called " + thisarg.getName() + " as attribute " + i + " of action "
+						+ this.getName() + ", got %s \",actionattributes.getAttribute(" + i + ")));");
+				sg.wl("			}");
+				treated = true;
 			}
 
-		}
-		sg.wl("	  */");
-		// *********************** defining interfaces
-		String interfaces = "";
-		boolean interfacepresent = false;
-		if (this.getSecurityobjectargument() != null) {
-			if (!interfacepresent) {
-				interfaces += " implements ";
-				interfacepresent = true;
-			} else {
-				interfaces += " , ";
+			if (thisarg instanceof MultipleChoiceArgument) {
+				MultipleChoiceArgument thismultipliechoicearg = (MultipleChoiceArgument) thisarg;
+				nullallowed = true;
+				sg.wl("			if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName().toUpperCase()
+						+ "\")==0) " + thisarg.getName().toLowerCase() + " = "
+						+ thismultipliechoicearg.getChoiceCategoryClass() + ".get().parseMultipleChoiceElt(attribute"
+						+ i + ");");
+				treated = true;
 			}
-			interfaces += "ActionSecurityObjectArgument";
-		}
-		// *********************** defining interfaces end
 
-		sg.wl("	public abstract class Abs" + actionclass + "Action extends ActionExecution " + interfaces + " {");
-		sg.bl();
-		// ************************* define formatted actions ******
+			if (thisarg instanceof LargeBinaryArgument) {
+
+				sg.wl("			if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName().toUpperCase()
+						+ "\")==0) {");
+				sg.wl("				" + thisarg.getName().toLowerCase() + " = attribute" + i + ".getPayload();");
+				sg.wl("			}");
+				treated = true;
+			}
+			if (thisarg instanceof IntegerArgument) {
+				sg.wl("			if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName().toUpperCase()
+						+ "\")==0) {");
+				sg.wl("				" + thisarg.getName().toLowerCase() + " = attribute" + i + ".getPayload();");
+				sg.wl("			}");
+				treated = true;
+			}
+			if (thisarg instanceof TimePeriodArgument) {
+				sg.wl("			if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName().toUpperCase()
+						+ "\")==0) {");
+				sg.wl("				" + thisarg.getName().toLowerCase() + " = attribute" + i + ".getPayload();");
+				sg.wl("			}");
+				treated = true;
+			}
+			if (thisarg instanceof ArrayArgument) {
+				ArrayArgument thisarrayarg = (ArrayArgument) thisarg;
+				if (thisarrayarg.getPayload() instanceof ObjectArgument) {
+					ObjectArgument thisobjectinarrayarg = (ObjectArgument) thisarrayarg.getPayload();
+					String objectvariable = StringFormatter.formatForAttribute(thisobjectinarrayarg.getType());
+					String objectclass = StringFormatter.formatForJavaClass(thisobjectinarrayarg.getType());
+
+					sg.wl("			if (attribute" + i + ".getArrayPayloadEltType() instanceof ObjectDataEltType) {");
+					sg.wl("				ArrayList<" + objectclass + "> inputlist = new  ArrayList<" + objectclass
+							+ ">();");
+					sg.wl("				for (int i=0;i<attribute" + i + ".getObjectNumber();i++) {");
+					sg.wl("					ObjectDataElt objectinarray = (ObjectDataElt) attribute" + i
+							+ ".getObjectAtIndex(i);");
+					sg.wl("					if (objectinarray.getName().compareTo(\""
+							+ thisobjectinarrayarg.getName().toUpperCase() + "\")==0) {");
+					sg.wl("						" + objectclass + " current" + objectvariable + " = null;");
+					if (thisobjectinarrayarg.getMasterObject().isUniqueIdentified()) {
+						sg.wl("						if (objectinarray.getUID().length()>0) current" + objectvariable
+								+ " = " + objectclass + ".readone(DataObjectId.generatefromDataObjectElt(objectinarray,"
+								+ objectclass + ".getDefinition()));");
+						sg.wl("						if (objectinarray.getUID().length()==0) current" + objectvariable
+								+ " = new " + objectclass + "();");
+					} else {
+						sg.wl("						current" + objectvariable + " = new " + objectclass + "();");
+					}
+					sg.wl("						current" + objectvariable + ".updateFromObjectContent(objectinarray);");
+					sg.wl("						inputlist.add(current" + objectvariable + ");");
+					sg.wl("					} else {");
+					sg.wl("						throw new RuntimeException(\" " + objectvariable
+							+ " attribute index \"+i+\"/\"+attribute" + i
+							+ ".getObjectNumber()+\" does not have the correct name, was expecting '"
+							+ thisobjectinarrayarg.getName().toUpperCase() + "', got \"+objectinarray.getName());");
+					sg.wl("					}");
+					sg.wl("				}");
+					sg.wl("				if (inputlist.size()>0) "
+							+ StringFormatter.formatForAttribute(thisarg.getName()) + " = inputlist.toArray(new "
+							+ objectclass + "[0]);");
+					sg.wl("				if (inputlist.size()==0) "
+							+ StringFormatter.formatForAttribute(thisarg.getName()) + " = new " + objectclass + "[0];");
+					sg.wl("			}");
+
+					treated = true;
+				}
+				if (thisarrayarg.getPayload() instanceof ObjectIdArgument) {
+					ObjectIdArgument thisobjectidinarray = (ObjectIdArgument) thisarrayarg.getPayload();
+					String argumentname = thisobjectidinarray.getName().toLowerCase();
+
+					sg.wl("		if (attribute" + i + ".getArrayPayloadEltType() instanceof ObjectIdDataEltType) {");
+					sg.wl("				ArrayList<DataObjectId<"
+							+ StringFormatter.formatForJavaClass(thisobjectidinarray.getObjectType()) + ">> listfor"
+							+ argumentname + " = new ArrayList<DataObjectId<"
+							+ StringFormatter.formatForJavaClass(thisobjectidinarray.getObjectType()) + ">>();");
+					sg.wl("				for (int i=0;i<attribute" + i + ".getObjectNumber();i++) {");
+					sg.wl("					ObjectIdDataElt thisobjectid = (ObjectIdDataElt) attribute" + i
+							+ ".getObjectAtIndex(i);");
+					sg.wl("					if (thisobjectid.getName().compareTo(\"" + argumentname.toUpperCase()
+							+ "\")==0) {");
+					sg.wl("					listfor" + argumentname
+							+ ".add(DataObjectId.generatefromDataObjectIdElt(thisobjectid,"
+							+ StringFormatter.formatForJavaClass(thisobjectidinarray.getObjectType())
+							+ ".getDefinition()));");
+					sg.wl("					} else {");
+					sg.wl("						throw new RuntimeException(String.format(\"was expecting an objectid attribute inside array called "
+							+ argumentname.toUpperCase() + " as attribute " + i + " of action " + this.getName()
+							+ ", got %s \",thisobjectid.getName()));");
+					sg.wl("					}");
+					sg.wl("				}");
+					sg.wl("				" + argumentname + " = (DataObjectId<"
+							+ StringFormatter.formatForJavaClass(thisobjectidinarray.getObjectType()) + ">[]) listfor"
+							+ argumentname + ".toArray(new DataObjectId[0]);");
+					sg.wl("			} else {");
+					sg.wl("				throw new RuntimeException(String.format(\"was expecting an ObjectId inside array called "
+							+ argumentname.toUpperCase() + " as attribute " + i + " of action " + this.getName()
+							+ ", got %s \",attribute" + i + ".getArrayPayloadEltType() ));");
+					sg.wl("				");
+					sg.wl("			}				");
+
+					treated = true;
+				}
+				
+				if (thisarrayarg.getPayload() instanceof ObjectMasterIdArgument) {
+					ObjectMasterIdArgument thisobjectidinarray = (ObjectMasterIdArgument) thisarrayarg.getPayload();
+					String argumentname = thisobjectidinarray.getName().toLowerCase();
+
+					sg.wl("		if (attribute" + i + ".getArrayPayloadEltType() instanceof ObjectMasterIdDataEltType) {");
+					sg.wl("				ArrayList<DataObjectMasterId<"
+							+ StringFormatter.formatForJavaClass(thisobjectidinarray.getObjectType()) + ">> listfor"
+							+ argumentname + " = new ArrayList<DataObjectMasterId<"
+							+ StringFormatter.formatForJavaClass(thisobjectidinarray.getObjectType()) + ">>();");
+					sg.wl("				for (int i=0;i<attribute" + i + ".getObjectNumber();i++) {");
+					sg.wl("					ObjectMasterIdDataElt thisobjectid = (ObjectMasterIdDataElt) attribute" + i
+							+ ".getObjectAtIndex(i);");
+					sg.wl("					if (thisobjectid.getName().compareTo(\"" + argumentname.toUpperCase()
+							+ "\")==0) {");
+					sg.wl("					listfor" + argumentname
+							+ ".add(DataObjectMasterId.generatefromDataObjectMasterIdElt(thisobjectid,"
+							+ StringFormatter.formatForJavaClass(thisobjectidinarray.getObjectType())
+							+ ".getDefinition()));");
+					sg.wl("					} else {");
+					sg.wl("						throw new RuntimeException(String.format(\"was expecting an objectid attribute inside array called "
+							+ argumentname.toUpperCase() + " as attribute " + i + " of action " + this.getName()
+							+ ", got %s \",thisobjectid.getName()));");
+					sg.wl("					}");
+					sg.wl("				}");
+					sg.wl("				" + argumentname + " = (DataObjectMasterId<"
+							+ StringFormatter.formatForJavaClass(thisobjectidinarray.getObjectType()) + ">[]) listfor"
+							+ argumentname + ".toArray(new DataObjectMasterId[0]);");
+					sg.wl("			} else {");
+					sg.wl("				throw new RuntimeException(String.format(\"was expecting an ObjectMasterId inside array called "
+							+ argumentname.toUpperCase() + " as attribute " + i + " of action " + this.getName()
+							+ ", got %s \",attribute" + i + ".getArrayPayloadEltType() ));");
+					sg.wl("				");
+					sg.wl("			}				");
+
+					treated = true;
+				}				
+				
+				if (thisarrayarg.getPayload() instanceof ChoiceArgument) {
+					ChoiceArgument thischoiceinarrayarg = (ChoiceArgument) thisarrayarg.getPayload();
+					String argumentname = thischoiceinarrayarg.getName().toLowerCase();
+
+					sg.wl("		if (attribute" + i + ".getArrayPayloadEltType() instanceof ChoiceDataEltType) {");
+					sg.wl("				ArrayList<ChoiceValue<" + thischoiceinarrayarg.getChoiceCategoryClass()
+							+ ">> listfor" + argumentname + " = new ArrayList<ChoiceValue<"
+							+ thischoiceinarrayarg.getChoiceCategoryClass() + ">>();");
+					sg.wl("				for (int i=0;i<attribute" + i + ".getObjectNumber();i++) {");
+					sg.wl("					ChoiceDataElt thischoice = (ChoiceDataElt) attribute" + i
+							+ ".getObjectAtIndex(i);");
+					sg.wl("					if (thischoice.getName().compareTo(\"" + argumentname.toUpperCase()
+							+ "\")==0) {");
+					sg.wl("					listfor" + argumentname + ".add("
+							+ thischoiceinarrayarg.getChoiceCategoryClass()
+							+ ".get().parseValueFromStorageCode(thischoice.getStoredValue()));");
+					sg.wl("					} else {");
+					sg.wl("						throw new RuntimeException(String.format(\"was expecting a Choice Attribute inside array called "
+							+ argumentname.toUpperCase() + " as attribute " + i + " of action " + this.getName()
+							+ ", got %s \",thischoice.getName()));");
+					sg.wl("					}");
+					sg.wl("				}");
+					sg.wl("				" + argumentname + " = listfor" + argumentname
+							+ ".toArray(new ChoiceValue[0]);");
+					sg.wl("			} else {");
+					sg.wl("				throw new RuntimeException(String.format(\"was expecting a Choice Attribute inside array called "
+							+ argumentname.toUpperCase() + " as attribute " + i + " of action " + this.getName()
+							+ ", got %s \",attribute" + i + ".getArrayPayloadEltType() ));");
+					sg.wl("				");
+					sg.wl("			}				");
+
+					treated = true;
+				}
+				
+				if (thisarrayarg.getPayload() instanceof StringArgument) {
+					StringArgument stringargument = (StringArgument) thisarrayarg.getPayload();
+					String argumentname = stringargument.getName().toLowerCase();
+
+					sg.wl("		if (attribute" + i + ".getArrayPayloadEltType() instanceof TextDataEltType) {");
+					sg.wl("				ArrayList<String> listfor" + argumentname + " = new ArrayList<String>();");
+					sg.wl("				for (int i=0;i<attribute" + i + ".getObjectNumber();i++) {");
+					sg.wl("					TextDataElt thistextelt = (TextDataElt) attribute" + i
+							+ ".getObjectAtIndex(i);");
+					sg.wl("					if (thistextelt.getName().compareTo(\"" + argumentname.toUpperCase()
+							+ "\")==0) {");
+					sg.wl("					listfor" + argumentname + ".add(thistextelt.getPayload());");
+					sg.wl("					} else {");
+					sg.wl("						throw new RuntimeException(String.format(\"was expecting a TextData element inside array called "
+							+ argumentname.toUpperCase() + " as attribute " + i + " of action " + this.getName()
+							+ ", got %s \",thistextelt.getName()));");
+					sg.wl("					}");
+					sg.wl("				}");
+					sg.wl("				" + argumentname + " = listfor" + argumentname
+							+ ".toArray(new String[0]);");
+					sg.wl("			} else {");
+					sg.wl("				throw new RuntimeException(String.format(\"was expecting a Text Attribute inside array called "
+							+ argumentname.toUpperCase() + " as attribute " + i + " of action " + this.getName()
+							+ ", got %s \",attribute" + i + ".getArrayPayloadEltType() ));");
+					sg.wl("				");
+					sg.wl("			}				");
+					
+					treated = true;
+				}
+				
+			}
+
+			if (!treated)
+				sg.wl(" #WARNING#, format not supported " + thisarg.getClass());
+
+			sg.wl("		}");
+			sg.wl("		");
+			if (!nullallowed)
+				sg.wl("		if (" + StringFormatter.formatForAttribute(thisarg.getName())
+						+ " == null) throw new RuntimeException(String.format( \" was expecting a " + thisarg.getType()
+						+ " attribute called " + thisarg.getName() + " as attribute " + i + " of action "
+						+ this.getName() + ", got %s \",actionattributes.getAttribute(" + i + ")));");
+			sg.wl("		");
+		}
+	}
+
+	/**
+	 * generates the abstract class of the action to file. This provides a framework
+	 * for user to add their code to
+	 * 
+	 * @param sg     source generator
+	 * @param module parent module
+	 * @throws IOException if anything bad happens while writing the file.
+	 */
+	public void generateToFile(SourceGenerator sg, Module module) throws IOException {
+		String actionclass = StringFormatter.formatForJavaClass(this.getName());
+		Privilege[] privilegesforaction = this.module.getPrivilegesForAction(this);
+		boolean hasoptioninputargument = false;
+		for (int i = 0; i < this.getInputArguments().getSize(); i++) {
+			ArgumentContent inputargument = this.getInputArguments().get(i);
+			if (inputargument.isOptional())
+				hasoptioninputargument = true;
+		}
+
+		boolean isoutputobject = false;
+		if (outputarguments.getSize() > 0)
+			isoutputobject = true;
+		if (outputarguments.getSize() == 0)
+			if (this.isAddressGenerated(this.getInputArguments()))
+				isoutputobject = true;
+		boolean severaloutputobjects = false;
+		if (outputarguments.getSize() > 1)
+			severaloutputobjects = true;
+		// address requires presence of
+		if (this.isAddressGenerated(this.getInputArguments()))
+			severaloutputobjects = true;
+		// generateoutputinnerclass
+		sg.bl();
+
+		sg.wl("package " + module.getPath() + ".action.generated;");
+		sg.bl();
+		if (!this.isAutogenerated()) {
+			sg.wl("/* <<<< Warning >>>> : You need to implement a concrete class in a separate file *!*! -----");
+			sg.wl(" > This is an automatically generated abstract class providing the interface to ");
+			sg.wl(" > the action you have to implement. Please create the class implementing ");
+			sg.wl(" > this abstract class at path: ");
+			sg.wl("    --> " + this.getModule().getPath() + ".action."
+					+ StringFormatter.formatForJavaClass(this.getName()) + "Action");
+			sg.wl(" > Please do NOT modify the current file, as it will be erased and generated again.");
+			sg.wl(" ----------------------------------------------------------------------------------------- */");
+		}
+		sg.bl();
+		if (this.isAddressGenerated(this.getInputArguments())) {
+			sg.wl("import org.openlowcode.tools.messages.MessageStringField;");
+		}
+
+		sg.wl("import java.util.ArrayList;");
+		sg.wl("import java.util.Date;");
+		sg.wl("import org.openlowcode.server.data.storage.QueryFilter;");
+		sg.wl("import java.util.function.Function;");
+		sg.wl("import java.util.function.BiFunction;");
+		sg.wl("import org.openlowcode.server.data.storage.QueryCondition;");
+		sg.wl("import org.openlowcode.server.data.storage.TableAlias;");
+		for (int i = 0; i < privilegesforaction.length; i++) {
+			privilegesforaction[i].writeImport(sg, this);
+		}
+		sg.wl("import org.openlowcode.server.action.ActionExecution;");
+		sg.wl("import org.openlowcode.server.graphic.SPage;");
+		sg.wl("import org.openlowcode.server.runtime.OLcServer;");
+		sg.wl("import org.openlowcode.server.graphic.SPageData;");
+		sg.wl("import org.openlowcode.server.action.SActionData;");
+		sg.wl("import org.openlowcode.server.runtime.SModule;");
+		sg.wl("import org.openlowcode.server.security.ActionSecurityManager;");
+		sg.wl("import org.openlowcode.server.security.SecurityBuffer;");
+
+		sg.wl("import org.openlowcode.server.action.SActionInputDataRef;");
+		sg.wl("import org.openlowcode.server.graphic.widget.SActionDataLoc;");
+		if (hasoptioninputargument)
+			sg.wl("import org.openlowcode.server.action.SNullActionInputDataRef;");
+		sg.wl("import org.openlowcode.server.action.SActionOutputDataRef;");
+		sg.wl("import org.openlowcode.server.data.properties.DataObjectId;");
+		sg.wl("import org.openlowcode.server.action.SActionRef;");
+		sg.wl("import org.openlowcode.server.action.SInlineActionRef;");
+		sg.wl("import org.openlowcode.server.data.message.*;");
+		sg.wl("import org.openlowcode.tools.structure.*;");
+		sg.wl("import " + module.getPath() + ".data.*;");
+		ObjectArgument streamedoutputobject = this.getStreamedOutputObject();
+		if (streamedoutputobject != null) {
+			sg.wl("import java.util.Iterator;");
+			sg.wl("import java.util.function.Consumer;");
+			sg.wl("import org.openlowcode.server.data.DataObjectCursor;");
+		}
+		for (int i = 0; i < this.getInputArguments().getSize(); i++)
+			getInputArguments().get(i).writeImports(sg, module);
+		for (int i = 0; i < this.outputarguments.getSize(); i++)
+			this.outputarguments.get(i).writeImports(sg, module);
+		for (int i = 0; i < this.getInputArguments().getSize(); i++) {
+			ArgumentContent thisargument = this.getInputArguments().get(i);
+			if (thisargument instanceof ArrayArgument) {
+				ArrayArgument thisarray = (ArrayArgument) thisargument;
+				thisargument = thisarray.getPayload();
+			}
+			if (thisargument instanceof ObjectArgument) {
+				ObjectArgument objectargument = (ObjectArgument) thisargument;
+				Module objectmodule = objectargument.getPayload().getOwnermodule();
+				if (objectmodule.getPath().compareTo(module.getPath()) != 0)
+					sg.wl("import " + objectmodule.getPath() + ".data."
+							+ StringFormatter.formatForJavaClass(objectargument.getPayload().getName()) + ";");
+			}
+			if (thisargument instanceof ObjectIdArgument) {
+				ObjectIdArgument objectidargument = (ObjectIdArgument) thisargument;
+				if (objectidargument.getObject() != null) {
+					Module objectmodule = objectidargument.getObject().getOwnermodule();
+					if (objectmodule.getPath().compareTo(module.getPath()) != 0)
+						sg.wl("import " + objectmodule.getPath() + ".data."
+								+ StringFormatter.formatForJavaClass(objectidargument.getObject().getName()) + ";");
+				}
+			}
+			if (thisargument instanceof ChoiceArgument) {
+				ChoiceArgument thischoiceargument = (ChoiceArgument) thisargument;
+				thischoiceargument.writeImports(sg, this.module);
+			}
+		}
+		for (int i = 0; i < this.outputarguments.getSize(); i++) {
+			ArgumentContent thisargument = this.outputarguments.get(i);
+			if (thisargument instanceof ArrayArgument) {
+				ArrayArgument thisarray = (ArrayArgument) thisargument;
+				thisargument = thisarray.getPayload();
+			}
+
+			if (thisargument instanceof ObjectArgument) {
+				ObjectArgument objectargument = (ObjectArgument) thisargument;
+				Module objectmodule = objectargument.getPayload().getOwnermodule();
+				if (objectmodule.getPath().compareTo(module.getPath()) != 0)
+					sg.wl("import " + objectmodule.getPath() + ".data."
+							+ StringFormatter.formatForJavaClass(objectargument.getPayload().getName()) + ";");
+			}
+			if (thisargument instanceof ObjectIdArgument) {
+				ObjectIdArgument objectidargument = (ObjectIdArgument) thisargument;
+				if (objectidargument.getObject() != null) {
+					Module objectmodule = objectidargument.getObject().getOwnermodule();
+					if (objectmodule.getPath().compareTo(module.getPath()) != 0)
+						sg.wl("import " + objectmodule.getPath() + ".data."
+								+ StringFormatter.formatForJavaClass(objectidargument.getObject().getName()) + ";");
+				}
+			}
+		}
+
+		sg.bl();
+		sg.wl("	 /**");
+		sg.wl("	  * @author " + module.getAuthor());
+		sg.wl("	  * Action " + actionclass + " from Open Lowcode module " + module.getAuthor() + "<br>");
+		if (this.specification != null) {
+			sg.wl("	  * <br>");
+			sg.wl("	  * Specifications<br>");
+			sg.wl("	  * <br>");
+			sg.wl("	  * " + this.specification + "<br>");
+			if (this.businessrules.size() > 0) {
+				sg.wl("	  * <br>");
+				sg.wl("	  * Business rules<br><ul>");
+				for (int i = 0; i < this.businessrules.size(); i++) {
+					sg.wl("	  *<li>" + this.businessrules.get(i) + "</li>");
+				}
+				sg.wl("	  *</ul>");
+			}
+
+		}
+		sg.wl("	  */");
+		// *********************** defining interfaces
+		String interfaces = "";
+		boolean interfacepresent = false;
+		if (this.getSecurityobjectargument() != null) {
+			if (!interfacepresent) {
+				interfaces += " implements ";
+				interfacepresent = true;
+			} else {
+				interfaces += " , ";
+			}
+			interfaces += "ActionSecurityObjectArgument";
+		}
+		// *********************** defining interfaces end
+
+		sg.wl("	public abstract class Abs" + actionclass + "Action extends ActionExecution " + interfaces + " {");
+		sg.bl();
+		// ************************* define formatted actions ******
 
 		sg.wl("	public class ActionRef extends SActionRef {");
 		sg.wl("		protected ActionRef() {");
@@ -787,6 +1157,19 @@ public abstract class ActionDefinition
 		}
 		sg.wl((this.getInputArguments().getSize() > 0 ? "," : "") + "Function<TableAlias,QueryFilter> datafilter) ;");
 		sg.bl();
+		if (streamedoutputobject != null) {
+			sg.w("	public abstract Iterator<" + streamedoutputobject.getType() + "> executeStreamedActionLogic(");
+			for (int i = 0; i < this.getInputArguments().getSize(); i++) {
+				ArgumentContent thisarg = this.getInputArguments().get(i);
+				if (i > 0)
+					sg.w(",");
+				sg.w("	" + thisarg.getType() + " " + StringFormatter.formatForAttribute(thisarg.getName()));
+
+			}
+			sg.wl((this.getInputArguments().getSize() > 0 ? "," : "")
+					+ "Function<TableAlias,QueryFilter> datafilter,Consumer<String> usermessage) ;");
+			sg.bl();
+		}
 
 		for (int i = 0; i < this.getInputArguments().getSize(); i++) {
 			ArgumentContent thisarg = this.getInputArguments().get(i);
@@ -844,458 +1227,154 @@ public abstract class ActionDefinition
 				// only one attribute, use the raw type
 				sg.wl("		" + inputattribute + " = validateInputAndExecuteAction(actionattributes,null);");
 				sg.wl("		OLcServer.getServer().executeTriggerList();");
-				sg.wl("		return choosePage("
-						+ StringFormatter.formatForAttribute(this.outputarguments.get(0).getName()) + ");");
-			}
-		}
-
-		sg.wl("	}");
-
-		sg.wl("");
-		sg.wl("	public SPage executeActionFromGUI(SActionData actionattributes,Function<TableAlias,QueryFilter> datafilter)");
-		sg.wl("			 {");
-		if (!isoutputobject) {
-			// no output attribute
-			sg.wl("		validateInputAndExecuteAction(actionattributes,datafilter);");
-			sg.wl("		OLcServer.getServer().executeTriggerList();");
-			sg.wl("		 return choosePage();");
-		} else {
-			if (severaloutputobjects) {
-				// several attributes, use the output object
-
-				sg.wl("		ActionOutputData outputdata = validateInputAndExecuteAction(actionattributes,datafilter);");
-				sg.wl("		OLcServer.getServer().executeTriggerList();");
-				sg.wl("		SPage page = choosePage(outputdata);");
-
-				if (this.isAddressGenerated(this.getInputArguments())) {
-					sg.wl("		if (page!=null) page.setAddress(outputdata.getAddress());");
-				}
-				sg.wl("		return page;");
-
-//				sg.wl("		return choosePage(validateInputAndExecutAction(actionattributes));");
-			} else {
-				// only one attribute, use the raw type
-				sg.wl("		" + inputattribute + " = validateInputAndExecuteAction(actionattributes,datafilter);");
-				sg.wl("		OLcServer.getServer().executeTriggerList();");
-				sg.wl("		return choosePage("
-						+ StringFormatter.formatForAttribute(this.outputarguments.get(0).getName()) + ");");
-
-			}
-		}
-
-		sg.wl("	}");
-		sg.wl("	");
-		sg.wl("	@Override");
-		sg.wl("	public SPageData executeInlineAction(SActionData actionattributes)");
-		sg.wl("		 {");
-		sg.wl("		SPageData returndata = executeInlineAction(actionattributes,null);");
-		sg.wl("		if (!this.isPopup()) returndata.setMessage(this.getMessage());");
-		sg.wl("		if (this.isPopup()) returndata.setPopupMessage(this.getMessage());");
-		sg.wl("		return returndata;");
-		sg.wl("	}");
-		sg.wl("");
-
-		String outputtype = "ActionOutputData";
-		if (isoutputobject)
-			if (!severaloutputobjects)
-				outputtype = outputarguments.get(0).getType();
-		if (!isoutputobject)
-			outputtype = "void";
-		sg.bl();
-
-		sg.wl("	@Override");
-		sg.wl("	public SPageData executeInlineAction(SActionData actionattributes,Function<TableAlias,QueryFilter> datafilter)");
-		sg.wl("		 {");
-
-		for (int i = 0; i < this.outputarguments.getSize(); i++) {
-			sg.wl(" // drop outputargument " + i + " - " + this.outputarguments.get(i).getName());
-		}
-		if (isoutputobject) {
-			sg.wl("		" + outputtype + " output = validateInputAndExecuteAction(actionattributes,datafilter);");
-		} else {
-			sg.wl("		validateInputAndExecuteAction(actionattributes,datafilter);");
-		}
-		sg.wl("		SPageData pagedata = new SPageData();");
-		sg.wl("		if (!this.isPopup()) pagedata.setMessage(this.getMessage());");
-		sg.wl("		if (this.isPopup()) pagedata.setPopupMessage(this.getMessage());");
-
-		if (isoutputobject) {
-			if (this.outputarguments.getSize() == 1) {
-				ArgumentContent thisarg = outputarguments.get(0);
-				if (thisarg instanceof ArrayArgument) {
-					ArrayArgument arrayargument = (ArrayArgument) thisarg;
-					sg.wl("		" + arrayargument.getGenericDataEltName() + " resultelement = new ArrayDataElt(\""
-							+ arrayargument.getName() + "\",new "
-							+ arrayargument.getPayload().getPreciseDataEltTypeNameWithArgument() + ");");
-					if (severaloutputobjects) {
-						sg.wl("		for (int i=0;i<output.get" + StringFormatter.formatForJavaClass(thisarg.getName())
-								+ "().length;i++) {");
-						sg.wl("			resultelement.addElement(new "
-								+ arrayargument.getPayload().getPreciseDataEltName() + "(\"" + arrayargument.getName()
-								+ "\",output.get" + StringFormatter.formatForJavaClass(thisarg.getName()) + "()[i]));");
-
-					} else {
-						sg.wl("		for (int i=0;i<output.length;i++) {");
-						sg.wl("			resultelement.addElement(new "
-								+ arrayargument.getPayload().getPreciseDataEltName() + "(\"" + arrayargument.getName()
-								+ "\",output[i]));");
-					}
-					sg.wl("		}");
-				}
-				if (thisarg instanceof NodeTreeArgument) {
-					NodeTreeArgument treeargument = (NodeTreeArgument) thisarg;
-					if (severaloutputobjects) {
-						sg.wl("		ObjectTreeDataElt<TObjectDataElt<" + treeargument.getPayload().getType()
-								+ ">> resultelement = output.get"
-								+ StringFormatter.formatForJavaClass(thisarg.getName())
-								+ "().generateObjectTreeDataElt(\"" + thisarg.getName() + "\");");
-					} else {
-						sg.wl("		ObjectTreeDataElt<TObjectDataElt<" + treeargument.getPayload().getType()
-								+ ">> resultelement = output.generateObjectTreeDataElt(\"" + thisarg.getName()
-								+ "\");");
-					}
-				}
-				if ((!(thisarg instanceof NodeTreeArgument)) && (!(thisarg instanceof ArrayArgument))) {
-					if (severaloutputobjects) {
-						sg.wl("		" + thisarg.getPreciseDataEltName() + " resultelement = new  "
-								+ thisarg.getPreciseDataEltName() + "(\"" + thisarg.getName() + "\",output.get"
-								+ StringFormatter.formatForJavaClass(thisarg.getName()) + "());");
-					} else {
-						sg.wl("		" + thisarg.getPreciseDataEltName() + " resultelement = new  "
-								+ thisarg.getPreciseDataEltName() + "(\"" + thisarg.getName() + "\",output);");
-					}
-				}
-
-				sg.wl("		pagedata.addDataElt(resultelement);");
-			}
-
-		}
-
-		sg.wl("		return pagedata;");
-		sg.wl("	}");
-
-		sg.bl();
-		sg.wl("	private " + outputtype
-				+ " validateInputAndExecuteAction(SActionData actionattributes,Function<TableAlias,QueryFilter> datafilter)  {");
-		sg.wl("		if (actionattributes.size()!=" + this.getInputArguments().getSize()
-				+ ") throw new RuntimeException(String.format(\"action " + this.getName() + " is supposed to have "
-				+ this.getInputArguments().getSize()
-				+ " attributes, but %d attribute(s) was found\",actionattributes.size()));");
-
-		for (int i = 0; i < this.getInputArguments().getSize(); i++) {
-			boolean nullallowed = false;
-			ArgumentContent thisarg = this.getInputArguments().get(i);
-			sg.wl("		" + thisarg.getType() + " " + StringFormatter.formatForAttribute(thisarg.getName())
-					+ " = null;");
-			if (thisarg instanceof ArrayArgument) {
-				sg.wl("		if (actionattributes.getAttribute(" + i + ") instanceof ArrayDataElt) {");
-				sg.wl("			ArrayDataElt attribute" + i + " = (ArrayDataElt) actionattributes.getAttribute(" + i
-						+ ");");
-
-			} else {
-				sg.wl("		if (actionattributes.getAttribute(" + i + ") instanceof " + thisarg.getGenericDataEltName()
-						+ ") {");
-				sg.wl("			" + thisarg.getGenericDataEltName() + " attribute" + i + " = ("
-						+ thisarg.getGenericDataEltName() + ") actionattributes.getAttribute(" + i + ");");
-
-			}
-			boolean treated = false;
-			if (thisarg instanceof StringArgument) {
-				sg.wl("			if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName() + "\")==0) "
-						+ StringFormatter.formatForAttribute(thisarg.getName()) + " = attribute" + i
-						+ ".getPayload();");
-				treated = true;
-			}
-			if (thisarg instanceof TimestampArgument) {
-				nullallowed = true;
-				sg.wl("			if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName() + "\")==0) "
-						+ StringFormatter.formatForAttribute(thisarg.getName()) + " = attribute" + i
-						+ ".getPayload();");
-				treated = true;
-			}
-			if (thisarg instanceof ObjectArgument) {
-				ObjectArgument thisobjectarg = (ObjectArgument) thisarg;
-				sg.wl("		if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName() + "\")==0) {");
-				if (thisobjectarg.getMasterObject().hasId()) {
-					sg.wl("			if (attribute" + i + ".getUID().length()>0) "
-							+ StringFormatter.formatForAttribute(thisarg.getName()) + " = " + thisarg.getType()
-							+ ".readone(DataObjectId.generatefromDataObjectElt(attribute" + i + "," + thisarg.getType()
-							+ ".getDefinition()));");
-					sg.wl("			if (attribute" + i + ".getUID().length()==0) "
-							+ StringFormatter.formatForAttribute(thisarg.getName()) + " = new " + thisarg.getType()
-							+ "();");
-				} else {
-					sg.wl("			" + StringFormatter.formatForAttribute(thisarg.getName()) + " = new "
-							+ thisarg.getType() + "();");
-				}
-				sg.wl("			" + StringFormatter.formatForAttribute(thisarg.getName())
-						+ ".updateFromObjectContent(attribute" + i + ");");
-				sg.wl("		}");
-				treated = true;
-			}
-			if (thisarg instanceof ObjectIdArgument) {
-				ObjectIdArgument thisobjectidarg = (ObjectIdArgument) thisarg;
-				if (thisobjectidarg.getObject() != null) {
-					sg.wl("			if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName() + "\")==0) "
-							+ StringFormatter.formatForAttribute(thisarg.getName())
-							+ " = DataObjectId.generatefromDataObjectIdElt(attribute" + i + ","
-							+ thisobjectidarg.getObjectType() + ".getDefinition());");
-				} else {
-					sg.wl("			if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName() + "\")==0) "
-							+ StringFormatter.formatForAttribute(thisarg.getName())
-							+ " = DataObjectId.generatefromDataObjectIdElt(attribute" + i + ");");
-
-				}
-				treated = true;
-			}
-			if (thisarg instanceof ChoiceArgument) {
-				// this argument has dedicated logic as it allows null value. Maybe this needs
-				// to be extended to other fields.
-				nullallowed = true;
-				ChoiceArgument thischoicearg = (ChoiceArgument) thisarg;
-				sg.wl("			if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName().toUpperCase()
-						+ "\")!=0) throw new RuntimeException(String.format( \" was expecting a " + thisarg.getType()
-						+ " attribute called " + thisarg.getName() + " as attribute " + i + " of action "
-						+ this.getName() + ", got %s \",actionattributes.getAttribute(" + i + ")));");
-				sg.wl("			if (attribute" + i + ".getStoredValue()!=null) if (attribute" + i
-						+ ".getStoredValue().length()>0) {");
-				sg.wl("				" + thisarg.getName().toLowerCase() + " = " + thischoicearg.getChoiceCategoryClass()
-						+ ".get().parseValueFromStorageCode(attribute" + i + ".getStoredValue());");
-				sg.wl("				if (" + StringFormatter.formatForAttribute(thisarg.getName())
-						+ " == null) throw new RuntimeException(String.format( \" was expecting a " + thisarg.getType()
-						+ " attribute called " + thisarg.getName() + " as attribute " + i + " of action "
-						+ this.getName() + ", got %s \",actionattributes.getAttribute(" + i + ")));");
-				sg.wl("			}");
-				treated = true;
-			}
-
-			if (thisarg instanceof MultipleChoiceArgument) {
-				MultipleChoiceArgument thismultipliechoicearg = (MultipleChoiceArgument) thisarg;
-				nullallowed = true;
-				sg.wl("			if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName().toUpperCase()
-						+ "\")==0) " + thisarg.getName().toLowerCase() + " = "
-						+ thismultipliechoicearg.getChoiceCategoryClass() + ".get().parseMultipleChoiceElt(attribute"
-						+ i + ");");
-				treated = true;
-			}
-
-			if (thisarg instanceof LargeBinaryArgument) {
-
-				sg.wl("			if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName().toUpperCase()
-						+ "\")==0) {");
-				sg.wl("				" + thisarg.getName().toLowerCase() + " = attribute" + i + ".getPayload();");
-				sg.wl("			}");
-				treated = true;
-			}
-			if (thisarg instanceof IntegerArgument) {
-				sg.wl("			if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName().toUpperCase()
-						+ "\")==0) {");
-				sg.wl("				" + thisarg.getName().toLowerCase() + " = attribute" + i + ".getPayload();");
-				sg.wl("			}");
-				treated = true;
-			}
-			if (thisarg instanceof TimePeriodArgument) {
-				sg.wl("			if (attribute" + i + ".getName().compareTo(\"" + thisarg.getName().toUpperCase()
-						+ "\")==0) {");
-				sg.wl("				" + thisarg.getName().toLowerCase() + " = attribute" + i + ".getPayload();");
-				sg.wl("			}");
-				treated = true;
+				sg.wl("		return choosePage("
+						+ StringFormatter.formatForAttribute(this.outputarguments.get(0).getName()) + ");");
 			}
-			if (thisarg instanceof ArrayArgument) {
-				ArrayArgument thisarrayarg = (ArrayArgument) thisarg;
-				if (thisarrayarg.getPayload() instanceof ObjectArgument) {
-					ObjectArgument thisobjectinarrayarg = (ObjectArgument) thisarrayarg.getPayload();
-					String objectvariable = StringFormatter.formatForAttribute(thisobjectinarrayarg.getType());
-					String objectclass = StringFormatter.formatForJavaClass(thisobjectinarrayarg.getType());
+		}
 
-					sg.wl("			if (attribute" + i + ".getArrayPayloadEltType() instanceof ObjectDataEltType) {");
-					sg.wl("				ArrayList<" + objectclass + "> inputlist = new  ArrayList<" + objectclass
-							+ ">();");
-					sg.wl("				for (int i=0;i<attribute" + i + ".getObjectNumber();i++) {");
-					sg.wl("					ObjectDataElt objectinarray = (ObjectDataElt) attribute" + i
-							+ ".getObjectAtIndex(i);");
-					sg.wl("					if (objectinarray.getName().compareTo(\""
-							+ thisobjectinarrayarg.getName().toUpperCase() + "\")==0) {");
-					sg.wl("						" + objectclass + " current" + objectvariable + " = null;");
-					if (thisobjectinarrayarg.getMasterObject().isUniqueIdentified()) {
-						sg.wl("						if (objectinarray.getUID().length()>0) current" + objectvariable
-								+ " = " + objectclass + ".readone(DataObjectId.generatefromDataObjectElt(objectinarray,"
-								+ objectclass + ".getDefinition()));");
-						sg.wl("						if (objectinarray.getUID().length()==0) current" + objectvariable
-								+ " = new " + objectclass + "();");
-					} else {
-						sg.wl("						current" + objectvariable + " = new " + objectclass + "();");
-					}
-					sg.wl("						current" + objectvariable + ".updateFromObjectContent(objectinarray);");
-					sg.wl("						inputlist.add(current" + objectvariable + ");");
-					sg.wl("					} else {");
-					sg.wl("						throw new RuntimeException(\" " + objectvariable
-							+ " attribute index \"+i+\"/\"+attribute" + i
-							+ ".getObjectNumber()+\" does not have the correct name, was expecting '"
-							+ thisobjectinarrayarg.getName().toUpperCase() + "', got \"+objectinarray.getName());");
-					sg.wl("					}");
-					sg.wl("				}");
-					sg.wl("				if (inputlist.size()>0) "
-							+ StringFormatter.formatForAttribute(thisarg.getName()) + " = inputlist.toArray(new "
-							+ objectclass + "[0]);");
-					sg.wl("				if (inputlist.size()==0) "
-							+ StringFormatter.formatForAttribute(thisarg.getName()) + " = new " + objectclass + "[0];");
-					sg.wl("			}");
+		sg.wl("	}");
 
-					treated = true;
-				}
-				if (thisarrayarg.getPayload() instanceof ObjectIdArgument) {
-					ObjectIdArgument thisobjectidinarray = (ObjectIdArgument) thisarrayarg.getPayload();
-					String argumentname = thisobjectidinarray.getName().toLowerCase();
+		sg.wl("");
+		sg.wl("	public SPage executeActionFromGUI(SActionData actionattributes,Function<TableAlias,QueryFilter> datafilter)");
+		sg.wl("			 {");
+		if (!isoutputobject) {
+			// no output attribute
+			sg.wl("		validateInputAndExecuteAction(actionattributes,datafilter);");
+			sg.wl("		OLcServer.getServer().executeTriggerList();");
+			sg.wl("		 return choosePage();");
+		} else {
+			if (severaloutputobjects) {
+				// several attributes, use the output object
 
-					sg.wl("		if (attribute" + i + ".getArrayPayloadEltType() instanceof ObjectIdDataEltType) {");
-					sg.wl("				ArrayList<DataObjectId<"
-							+ StringFormatter.formatForJavaClass(thisobjectidinarray.getObjectType()) + ">> listfor"
-							+ argumentname + " = new ArrayList<DataObjectId<"
-							+ StringFormatter.formatForJavaClass(thisobjectidinarray.getObjectType()) + ">>();");
-					sg.wl("				for (int i=0;i<attribute" + i + ".getObjectNumber();i++) {");
-					sg.wl("					ObjectIdDataElt thisobjectid = (ObjectIdDataElt) attribute" + i
-							+ ".getObjectAtIndex(i);");
-					sg.wl("					if (thisobjectid.getName().compareTo(\"" + argumentname.toUpperCase()
-							+ "\")==0) {");
-					sg.wl("					listfor" + argumentname
-							+ ".add(DataObjectId.generatefromDataObjectIdElt(thisobjectid,"
-							+ StringFormatter.formatForJavaClass(thisobjectidinarray.getObjectType())
-							+ ".getDefinition()));");
-					sg.wl("					} else {");
-					sg.wl("						throw new RuntimeException(String.format(\"was expecting an objectid attribute inside array called "
-							+ argumentname.toUpperCase() + " as attribute " + i + " of action " + this.getName()
-							+ ", got %s \",thisobjectid.getName()));");
-					sg.wl("					}");
-					sg.wl("				}");
-					sg.wl("				" + argumentname + " = (DataObjectId<"
-							+ StringFormatter.formatForJavaClass(thisobjectidinarray.getObjectType()) + ">[]) listfor"
-							+ argumentname + ".toArray(new DataObjectId[0]);");
-					sg.wl("			} else {");
-					sg.wl("				throw new RuntimeException(String.format(\"was expecting an ObjectId inside array called "
-							+ argumentname.toUpperCase() + " as attribute " + i + " of action " + this.getName()
-							+ ", got %s \",attribute" + i + ".getArrayPayloadEltType() ));");
-					sg.wl("				");
-					sg.wl("			}				");
+				sg.wl("		ActionOutputData outputdata = validateInputAndExecuteAction(actionattributes,datafilter);");
+				sg.wl("		OLcServer.getServer().executeTriggerList();");
+				sg.wl("		SPage page = choosePage(outputdata);");
 
-					treated = true;
+				if (this.isAddressGenerated(this.getInputArguments())) {
+					sg.wl("		if (page!=null) page.setAddress(outputdata.getAddress());");
 				}
-				
-				if (thisarrayarg.getPayload() instanceof ObjectMasterIdArgument) {
-					ObjectMasterIdArgument thisobjectidinarray = (ObjectMasterIdArgument) thisarrayarg.getPayload();
-					String argumentname = thisobjectidinarray.getName().toLowerCase();
+				sg.wl("		return page;");
 
-					sg.wl("		if (attribute" + i + ".getArrayPayloadEltType() instanceof ObjectMasterIdDataEltType) {");
-					sg.wl("				ArrayList<DataObjectMasterId<"
-							+ StringFormatter.formatForJavaClass(thisobjectidinarray.getObjectType()) + ">> listfor"
-							+ argumentname + " = new ArrayList<DataObjectMasterId<"
-							+ StringFormatter.formatForJavaClass(thisobjectidinarray.getObjectType()) + ">>();");
-					sg.wl("				for (int i=0;i<attribute" + i + ".getObjectNumber();i++) {");
-					sg.wl("					ObjectMasterIdDataElt thisobjectid = (ObjectMasterIdDataElt) attribute" + i
-							+ ".getObjectAtIndex(i);");
-					sg.wl("					if (thisobjectid.getName().compareTo(\"" + argumentname.toUpperCase()
-							+ "\")==0) {");
-					sg.wl("					listfor" + argumentname
-							+ ".add(DataObjectMasterId.generatefromDataObjectMasterIdElt(thisobjectid,"
-							+ StringFormatter.formatForJavaClass(thisobjectidinarray.getObjectType())
-							+ ".getDefinition()));");
-					sg.wl("					} else {");
-					sg.wl("						throw new RuntimeException(String.format(\"was expecting an objectid attribute inside array called "
-							+ argumentname.toUpperCase() + " as attribute " + i + " of action " + this.getName()
-							+ ", got %s \",thisobjectid.getName()));");
-					sg.wl("					}");
-					sg.wl("				}");
-					sg.wl("				" + argumentname + " = (DataObjectMasterId<"
-							+ StringFormatter.formatForJavaClass(thisobjectidinarray.getObjectType()) + ">[]) listfor"
-							+ argumentname + ".toArray(new DataObjectMasterId[0]);");
-					sg.wl("			} else {");
-					sg.wl("				throw new RuntimeException(String.format(\"was expecting an ObjectMasterId inside array called "
-							+ argumentname.toUpperCase() + " as attribute " + i + " of action " + this.getName()
-							+ ", got %s \",attribute" + i + ".getArrayPayloadEltType() ));");
-					sg.wl("				");
-					sg.wl("			}				");
+//				sg.wl("		return choosePage(validateInputAndExecutAction(actionattributes));");
+			} else {
+				// only one attribute, use the raw type
+				sg.wl("		" + inputattribute + " = validateInputAndExecuteAction(actionattributes,datafilter);");
+				sg.wl("		OLcServer.getServer().executeTriggerList();");
+				sg.wl("		return choosePage("
+						+ StringFormatter.formatForAttribute(this.outputarguments.get(0).getName()) + ");");
 
-					treated = true;
-				}				
-				
-				if (thisarrayarg.getPayload() instanceof ChoiceArgument) {
-					ChoiceArgument thischoiceinarrayarg = (ChoiceArgument) thisarrayarg.getPayload();
-					String argumentname = thischoiceinarrayarg.getName().toLowerCase();
+			}
+		}
 
-					sg.wl("		if (attribute" + i + ".getArrayPayloadEltType() instanceof ChoiceDataEltType) {");
-					sg.wl("				ArrayList<ChoiceValue<" + thischoiceinarrayarg.getChoiceCategoryClass()
-							+ ">> listfor" + argumentname + " = new ArrayList<ChoiceValue<"
-							+ thischoiceinarrayarg.getChoiceCategoryClass() + ">>();");
-					sg.wl("				for (int i=0;i<attribute" + i + ".getObjectNumber();i++) {");
-					sg.wl("					ChoiceDataElt thischoice = (ChoiceDataElt) attribute" + i
-							+ ".getObjectAtIndex(i);");
-					sg.wl("					if (thischoice.getName().compareTo(\"" + argumentname.toUpperCase()
-							+ "\")==0) {");
-					sg.wl("					listfor" + argumentname + ".add("
-							+ thischoiceinarrayarg.getChoiceCategoryClass()
-							+ ".get().parseValueFromStorageCode(thischoice.getStoredValue()));");
-					sg.wl("					} else {");
-					sg.wl("						throw new RuntimeException(String.format(\"was expecting a Choice Attribute inside array called "
-							+ argumentname.toUpperCase() + " as attribute " + i + " of action " + this.getName()
-							+ ", got %s \",thischoice.getName()));");
-					sg.wl("					}");
-					sg.wl("				}");
-					sg.wl("				" + argumentname + " = listfor" + argumentname
-							+ ".toArray(new ChoiceValue[0]);");
-					sg.wl("			} else {");
-					sg.wl("				throw new RuntimeException(String.format(\"was expecting a Choice Attribute inside array called "
-							+ argumentname.toUpperCase() + " as attribute " + i + " of action " + this.getName()
-							+ ", got %s \",attribute" + i + ".getArrayPayloadEltType() ));");
-					sg.wl("				");
-					sg.wl("			}				");
+		sg.wl("	}");
+		sg.wl("	");
+		sg.wl("	@Override");
+		sg.wl("	public SPageData executeInlineAction(SActionData actionattributes)");
+		sg.wl("		 {");
+		sg.wl("		SPageData returndata = executeInlineAction(actionattributes,null);");
+		sg.wl("		if (!this.isPopup()) returndata.setMessage(this.getMessage());");
+		sg.wl("		if (this.isPopup()) returndata.setPopupMessage(this.getMessage());");
+		sg.wl("		return returndata;");
+		sg.wl("	}");
+		sg.wl("");
 
-					treated = true;
-				}
-				
-				if (thisarrayarg.getPayload() instanceof StringArgument) {
-					StringArgument stringargument = (StringArgument) thisarrayarg.getPayload();
-					String argumentname = stringargument.getName().toLowerCase();
+		String outputtype = "ActionOutputData";
+		if (isoutputobject)
+			if (!severaloutputobjects)
+				outputtype = outputarguments.get(0).getType();
+		if (!isoutputobject)
+			outputtype = "void";
+		sg.bl();
 
-					sg.wl("		if (attribute" + i + ".getArrayPayloadEltType() instanceof TextDataEltType) {");
-					sg.wl("				ArrayList<String> listfor" + argumentname + " = new ArrayList<String>();");
-					sg.wl("				for (int i=0;i<attribute" + i + ".getObjectNumber();i++) {");
-					sg.wl("					TextDataElt thistextelt = (TextDataElt) attribute" + i
-							+ ".getObjectAtIndex(i);");
-					sg.wl("					if (thistextelt.getName().compareTo(\"" + argumentname.toUpperCase()
-							+ "\")==0) {");
-					sg.wl("					listfor" + argumentname + ".add(thistextelt.getPayload());");
-					sg.wl("					} else {");
-					sg.wl("						throw new RuntimeException(String.format(\"was expecting a TextData element inside array called "
-							+ argumentname.toUpperCase() + " as attribute " + i + " of action " + this.getName()
-							+ ", got %s \",thistextelt.getName()));");
-					sg.wl("					}");
-					sg.wl("				}");
-					sg.wl("				" + argumentname + " = listfor" + argumentname
-							+ ".toArray(new String[0]);");
-					sg.wl("			} else {");
-					sg.wl("				throw new RuntimeException(String.format(\"was expecting a Text Attribute inside array called "
-							+ argumentname.toUpperCase() + " as attribute " + i + " of action " + this.getName()
-							+ ", got %s \",attribute" + i + ".getArrayPayloadEltType() ));");
-					sg.wl("				");
-					sg.wl("			}				");
-					
-					treated = true;
-				}
-				
+		sg.wl("	@Override");
+		sg.wl("	public SPageData executeInlineAction(SActionData actionattributes,Function<TableAlias,QueryFilter> datafilter)");
+		sg.wl("		 {");
+
+		for (int i = 0; i < this.outputarguments.getSize(); i++) {
+			sg.wl(" // drop outputargument " + i + " - " + this.outputarguments.get(i).getName());
+		}
+		if (streamedoutputobject != null) {
+			// objects are read from the database while the page data is sent
+			sg.wl("		SPageData pagedata = new SPageData();");
+			sg.wl("		if (!this.isPopup()) pagedata.setMessage(this.getMessage());");
+			sg.wl("		if (this.isPopup()) pagedata.setPopupMessage(this.getMessage());");
+			sg.wl("		Iterator<" + streamedoutputobject.getType()
+					+ "> output = validateInputAndStreamAction(actionattributes,datafilter,pagedata::appendMessage);");
+			sg.wl("		pagedata.addDataElt(DataObjectCursor.toStreamedArrayDataElt(\""
+					+ this.outputarguments.get(0).getName() + "\"," + streamedoutputobject.getType()
+					+ ".getDefinition(),output));");
+			sg.wl("		return pagedata;");
+			sg.wl("	}");
+		} else {
+			if (isoutputobject) {
+				sg.wl("		" + outputtype + " output = validateInputAndExecuteAction(actionattributes,datafilter);");
+			} else {
+				sg.wl("		validateInputAndExecuteAction(actionattributes,datafilter);");
 			}
+			sg.wl("		SPageData pagedata = new SPageData();");
+			sg.wl("		if (!this.isPopup()) pagedata.setMessage(this.getMessage());");
+			sg.wl("		if (this.isPopup()) pagedata.setPopupMessage(this.getMessage());");
 
-			if (!treated)
-				sg.wl(" #WARNING#, format not supported " + thisarg.getClass());
+			if (isoutputobject) {
+				if (this.outputarguments.getSize() == 1) {
+					ArgumentContent thisarg = outputarguments.get(0);
+					if (thisarg instanceof ArrayArgument) {
+						ArrayArgument arrayargument = (ArrayArgument) thisarg;
+						sg.wl("		" + arrayargument.getGenericDataEltName() + " resultelement = new ArrayDataElt(\""
+								+ arrayargument.getName() + "\",new "
+								+ arrayargument.getPayload().getPreciseDataEltTypeNameWithArgument() + ");");
+						if (severaloutputobjects) {
+							sg.wl("		for (int i=0;i<output.get" + StringFormatter.formatForJavaClass(thisarg.getName())
+									+ "().length;i++) {");
+							sg.wl("			resultelement.addElement(new "
+									+ arrayargument.getPayload().getPreciseDataEltName() + "(\"" + arrayargument.getName()
+									+ "\",output.get" + StringFormatter.formatForJavaClass(thisarg.getName()) + "()[i]));");
+
+						} else {
+							sg.wl("		for (int i=0;i<output.length;i++) {");
+							sg.wl("			resultelement.addElement(new "
+									+ arrayargument.getPayload().getPreciseDataEltName() + "(\"" + arrayargument.getName()
+									+ "\",output[i]));");
+						}
+						sg.wl("		}");
+					}
+					if (thisarg instanceof NodeTreeArgument) {
+						NodeTreeArgument treeargument = (NodeTreeArgument) thisarg;
+						if (severaloutputobjects) {
+							sg.wl("		ObjectTreeDataElt<TObjectDataElt<" + treeargument.getPayload().getType()
+									+ ">> resultelement = output.get"
+									+ StringFormatter.formatForJavaClass(thisarg.getName())
+									+ "().generateObjectTreeDataElt(\"" + thisarg.getName() + "\");");
+						} else {
+							sg.wl("		ObjectTreeDataElt<TObjectDataElt<" + treeargument.getPayload().getType()
+									+ ">> resultelement = output.generateObjectTreeDataElt(\"" + thisarg.getName()
+									+ "\");");
+						}
+					}
+					if ((!(thisarg instanceof NodeTreeArgument)) && (!(thisarg instanceof ArrayArgument))) {
+						if (severaloutputobjects) {
+							sg.wl("		" + thisarg.getPreciseDataEltName() + " resultelement = new  "
+									+ thisarg.getPreciseDataEltName() + "(\"" + thisarg.getName() + "\",output.get"
+									+ StringFormatter.formatForJavaClass(thisarg.getName()) + "());");
+						} else {
+							sg.wl("		" + thisarg.getPreciseDataEltName() + " resultelement = new  "
+									+ thisarg.getPreciseDataEltName() + "(\"" + thisarg.getName() + "\",output);");
+						}
+					}
 
-			sg.wl("		}");
-			sg.wl("		");
-			if (!nullallowed)
-				sg.wl("		if (" + StringFormatter.formatForAttribute(thisarg.getName())
-						+ " == null) throw new RuntimeException(String.format( \" was expecting a " + thisarg.getType()
-						+ " attribute called " + thisarg.getName() + " as attribute " + i + " of action "
-						+ this.getName() + ", got %s \",actionattributes.getAttribute(" + i + ")));");
-			sg.wl("		");
+					sg.wl("		pagedata.addDataElt(resultelement);");
+				}
+
+			}
+
+			sg.wl("		return pagedata;");
+			sg.wl("	}");
 		}
+
+		sg.bl();
+		sg.wl("	private " + outputtype
+				+ " validateInputAndExecuteAction(SActionData actionattributes,Function<TableAlias,QueryFilter> datafilter)  {");
+		generateInputValidation(sg);
 		String allinputarguments = "";
 		for (int i = 0; i < this.getInputArguments().getSize(); i++) {
 			ArgumentContent thisarg = this.getInputArguments().get(i);
@@ -1321,6 +1400,15 @@ public abstract class ActionDefinition
 		}
 
 		sg.wl("	}");
+		if (streamedoutputobject != null) {
+			sg.bl();
+			sg.wl("	private Iterator<" + streamedoutputobject.getType()
+					+ "> validateInputAndStreamAction(SActionData actionattributes,Function<TableAlias,QueryFilter> datafilter,Consumer<String> usermessage)  {");
+			generateInputValidation(sg);
+			sg.wl("		return executeStreamedActionLogic(" + allinputarguments
+					+ (this.getInputArguments().getSize() > 0 ? "," : "") + "datafilter,usermessage);");
+			sg.wl("	}");
+		}
 
 		sg.w("		public SPage executeAndShowPage(");
 		for (int i = 0; i < this.getInputArguments().getSize(); i++) {
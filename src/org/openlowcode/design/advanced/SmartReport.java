@@ -500,6 +500,7 @@ public class SmartReport
 		sg.wl("");
 		sg.wl("	public AtgLaunchexcelreportfor" + reportvariablename + "Action(SModule parent) {");
 		sg.wl("		super(parent);");
+		sg.wl("		this.setReadOnly(true);");
 		sg.wl("	}");
 		sg.wl("");
 		sg.wl("	@Override");
@@ -624,6 +625,7 @@ public class SmartReport
 		sg.wl("");
 		sg.wl("	public AtgLaunchreportfor" + reportvariablename + "Action(SModule parent) {");
 		sg.wl("		super(parent);");
+		sg.wl("		this.setReadOnly(true);");
 		sg.wl("");
 		sg.wl("	}");
 		sg.wl("");
@@ -4374,6 +4374,14 @@ public class DataObjectDefinition
 				sg.wl("");
 			}
 		}
+		if (this.getPropertyByName("STOREDOBJECT") != null) {
+			sg.wl("	public static DataObjectCursor<" + classname + "> streamallactive(QueryFilter additionalcondition) {");
+			sg.wl("		return StoredobjectQueryHelper.get().streamallactive(additionalcondition,");
+			sg.wl("				definition,");
+			sg.wl("				definition.getStoredobjectDefinition());");
+			sg.wl("	}");
+			sg.wl("");
+		}
 		for (int i = 0; i < this.propertylistincludinglegacy.getSize(); i++) {
 			Property<?> property = this.propertylistincludinglegacy.get(i);
 
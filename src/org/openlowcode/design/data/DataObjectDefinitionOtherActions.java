@@ -863,7 +863,7 @@ public class DataObjectDefinitionOtherActions {
 		sg.wl("		if (attachment.getGenericlinkforownerid().getId().compareTo(" + objectvariable
 				+ ".getId())!=0) throw new RuntimeException(\"object and attachment parent id not consistent\");");
 		sg.wl("		Binaryfile file = Binaryfile.readone(attachment.getLinkedtoparentforcontentid());");
-		sg.wl("		return new ActionOutputData(new SFile(file.getFilename(),file.getFilecontent().getContent()));");
+		sg.wl("		return new ActionOutputData(new SFile(file.getFilename(),file.getFilecontent()));");
 		sg.wl("	}");
 		sg.wl("");
 		sg.wl("	@Override");
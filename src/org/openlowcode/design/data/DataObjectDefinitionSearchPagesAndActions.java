@@ -207,6 +207,7 @@ public class DataObjectDefinitionSearchPagesAndActions {
 	protected ActionDefinition generateSearchAction() {
 		DynamicActionDefinition searchaction = new DynamicActionDefinition("SEARCH" + object.getName(), true);
 		searchaction.forceNoAddress();
+		searchaction.setStreamedInlineOutput();
 		generateNormalSearchAttributesForObject(object, searchaction);
 		searchaction.addOutputArgumentAsAccessCriteria(
 				new ArrayArgument(new ObjectArgument("SEARCHRESULTFOR" + object.getName(), object)));
@@ -247,11 +248,6 @@ public class DataObjectDefinitionSearchPagesAndActions {
 		sg.wl("");
 		sg.wl("import java.util.ArrayList;");
 		sg.wl("import java.util.Date;");
-		if (canorder) {
-			sg.wl("import java.util.Arrays;");
-			sg.wl("import java.util.Collections;");
-			sg.wl("import java.util.List;");
-		}
 		sg.wl("");
 		sg.wl("import " + module.getPath() + ".action.generated.Abs" + actionname + ";");
 		sg.wl("");
@@ -337,6 +333,7 @@ public class DataObjectDefinitionSearchPagesAndActions {
 
 		sg.wl("	public Atg" + actionname + "(SModule parent) {");
 		sg.wl("		super(parent);");
+		sg.wl("		this.setReadOnly(true);");
 		sg.wl("	}");
 		sg.wl("");
 		sg.wl("	");
@@ -389,20 +386,8 @@ public class DataObjectDefinitionSearchPagesAndActions {
 		sg.wl("			");
 		sg.wl("		");
 		sg.wl("");
-		sg.wl("		" + objectclass + "[] result = " + objectclass
-				+ ".getallactive(new QueryFilter(finalquerycondition,(additionalcondition!=null?additionalcondition.getAliases():null)));");
+		generateLimitedSearchQuery(linkobject.getRightobjectforlink(), objectclass, canorder, sg);
 		sg.wl("		AtgMassupdate" + objectattribute + "Action.get().freezeUnauthorizedObjects(result);");
-		if (canorder) {
-
-			sg.wl("		List<" + objectclass + "> resultlist = Arrays.asList(result);");
-			if (linkobject.getRightobjectforlink().getPropertyByName("UPDATELOG") != null) {
-				sg.wl("		Collections.sort(resultlist,(a,b)->(b.getUpdatetime().compareTo(a.getUpdatetime())));");
-			} else {
-				sg.wl("		Collections.sort(resultlist,(a,b)->(b.getCreatetime().compareTo(a.getCreatetime())));");
-			}
-			sg.wl("		result = resultlist.toArray(new " + objectclass + "[0]);");
-
-		}
 
 		if (isaddress) {
 			sg.wl("		return new ActionOutputData(result);");
@@ -549,6 +534,7 @@ public class DataObjectDefinitionSearchPagesAndActions {
 		sg.wl("");
 		sg.wl("	public Atg" + actionname + "(SModule parent) {");
 		sg.wl("		super(parent);");
+		sg.wl("		this.setReadOnly(true);");
 		sg.wl("	}");
 		sg.wl("");
 		sg.wl("	");
@@ -740,6 +726,7 @@ public class DataObjectDefinitionSearchPagesAndActions {
 		sg.wl("");
 		sg.wl("	public Atg" + actionname + "(SModule parent) {");
 		sg.wl("		super(parent);");
+		sg.wl("		this.setReadOnly(true);");
 		sg.wl("	}");
 		sg.wl("");
 		sg.wl("	");
@@ -910,6 +897,7 @@ public class DataObjectDefinitionSearchPagesAndActions {
 		sg.wl("");
 		sg.wl("	public Atg" + actionname + "(SModule parent) {");
 		sg.wl("		super(parent);");
+		sg.wl("		this.setReadOnly(true);");
 		sg.wl("	}");
 		sg.wl("");
 		sg.wl("	");
@@ -968,6 +956,41 @@ public class DataObjectDefinitionSearchPagesAndActions {
 
 
 	
+	private void generateSearchArgumentsForCall(
+			DataObjectDefinition object,
+			SourceGenerator sg,
+			boolean hasattributebefore) throws IOException {
+		boolean first = !hasattributebefore;
+		SearchWidgetDefinition[] searchwidgets = object.getSearchWidgets();
+		for (int i = 0; i < searchwidgets.length; i++) {
+			SearchWidgetDefinition widget = searchwidgets[i];
+			if (widget.isPrimary()) {
+				Element element = widget.getElement();
+				if (element instanceof ExternalElement) {
+					ExternalElement externalelement = (ExternalElement) element;
+					element = externalelement.getReferencedPropertyElement();
+				}
+				if (element instanceof StringStoredElement) {
+					if (first) {
+						first = false;
+					} else {
+						sg.w(",");
+					}
+					sg.w(searchwidgets[i].getFieldname().toLowerCase());
+				}
+				if (element instanceof TimestampStoredElement) {
+					if (first) {
+						first = false;
+					} else {
+						sg.w(",");
+					}
+					sg.w(searchwidgets[i].getFieldname().toLowerCase() + "from,"
+							+ searchwidgets[i].getFieldname().toLowerCase() + "to");
+				}
+			}
+		}
+	}
+
 	private void generateSearchArgumentsForAction(
 			DataObjectDefinition object,
 			SourceGenerator sg,
@@ -1078,13 +1101,11 @@ public class DataObjectDefinitionSearchPagesAndActions {
 		sg.wl("");
 		sg.wl("import java.util.ArrayList;");
 		sg.wl("import java.util.Date;");
-		if (canorder) {
-			sg.wl("import java.util.Arrays;");
-			sg.wl("import java.util.Collections;");
-			sg.wl("import java.util.List;");
-		}
+		sg.wl("import java.util.Iterator;");
+		sg.wl("import java.util.function.Consumer;");
 		sg.wl("import java.util.function.Function;");
 		sg.wl("import org.openlowcode.server.data.storage.QueryFilter;");
+		sg.wl("import org.openlowcode.server.data.DataObjectCursor;");
 		sg.wl("");
 		sg.wl("import " + module.getPath() + ".action.generated.Abs" + actionname + ";");
 		sg.wl("import " + module.getPath() + ".page.generated.AtgSearch" + objectattribute + "Page;");
@@ -1124,6 +1145,7 @@ public class DataObjectDefinitionSearchPagesAndActions {
 		sg.wl("");
 		sg.wl("	public Atg" + actionname + "(SModule parent) {");
 		sg.wl("		super(parent);");
+		sg.wl("		this.setReadOnly(true);");
 		sg.wl("	}");
 		sg.wl("");
 		sg.wl("	");
@@ -1149,6 +1171,39 @@ public class DataObjectDefinitionSearchPagesAndActions {
 		}
 		generateSearchArgumentsForAction(object, sg, false);
 
+		sg.wl("			" + (searchwidgets.length > 0 ? "," : "") + "Function<TableAlias,QueryFilter> datafilter)  {");
+		sg.w("		QueryFilter searchfilter = generateSearchFilter(");
+		generateSearchArgumentsForCall(object, sg, false);
+		sg.wl((searchwidgets.length > 0 ? "," : "") + "datafilter);");
+		sg.wl("		" + objectclass + "[] result = " + objectclass
+				+ ".getallactive(StoredobjectQueryHelper.limitSearch(searchfilter));");
+		sg.wl("		result = StoredobjectQueryHelper.truncateSearchResult(result,\"" + objectclass + "\");");
+		sg.wl("		AtgMassupdate" + objectattribute + "Action.get().freezeUnauthorizedObjects(result);");
+		if (isaddress) {
+			sg.wl("		return new ActionOutputData(result);");
+		} else {
+			sg.wl("		return result;");
+		}
+		sg.wl("	}");
+		sg.wl("");
+
+		sg.wl("	@Override");
+		sg.w("	public Iterator<" + objectclass + "> executeStreamedActionLogic(");
+		generateSearchArgumentsForAction(object, sg, false);
+		sg.wl("			" + (searchwidgets.length > 0 ? "," : "")
+				+ "Function<TableAlias,QueryFilter> datafilter,Consumer<String> usermessage)  {");
+		sg.w("		QueryFilter searchfilter = generateSearchFilter(");
+		generateSearchArgumentsForCall(object, sg, false);
+		sg.wl((searchwidgets.length > 0 ? "," : "") + "datafilter);");
+		sg.wl("		DataObjectCursor<" + objectclass + "> result = " + objectclass
+				+ ".streamallactive(StoredobjectQueryHelper.limitSearch(searchfilter));");
+		sg.wl("		return AtgMassupdate" + objectattribute + "Action.get().freezeUnauthorizedObjects(");
+		sg.wl("				StoredobjectQueryHelper.truncateSearchResult(result,\"" + objectclass + "\",usermessage));");
+		sg.wl("	}");
+		sg.wl("");
+
+		sg.w("	private QueryFilter generateSearchFilter(");
+		generateSearchArgumentsForAction(object, sg, false);
 		sg.wl("			" + (searchwidgets.length > 0 ? "," : "") + "Function<TableAlias,QueryFilter> datafilter)  {");
 		sg.wl("");
 		sg.wl("		ArrayList<QueryCondition> andconditions = new ArrayList<QueryCondition>();");
@@ -1170,25 +1225,8 @@ public class DataObjectDefinitionSearchPagesAndActions {
 		sg.wl("			");
 		sg.wl("		");
 		sg.wl("");
-		sg.wl("		" + objectclass + "[] result = " + objectclass
-				+ ".getallactive(new QueryFilter(finalquerycondition,(additionalcondition!=null?additionalcondition.getAliases():null)));");
-		sg.wl("		AtgMassupdate" + objectattribute + "Action.get().freezeUnauthorizedObjects(result);");
-		if (canorder) {
-
-			sg.wl("		List<" + objectclass + "> resultlist = Arrays.asList(result);");
-			if (object.getPropertyByName("UPDATELOG") != null) {
-				sg.wl("		Collections.sort(resultlist,(a,b)->(b.getUpdatetime().compareTo(a.getUpdatetime())));");
-			} else {
-				sg.wl("		Collections.sort(resultlist,(a,b)->(b.getCreatetime().compareTo(a.getCreatetime())));");
-			}
-			sg.wl("		result = resultlist.toArray(new " + objectclass + "[0]);");
-
-		}
-		if (isaddress) {
-			sg.wl("		return new ActionOutputData(result);");
-		} else {
-			sg.wl("		return result;");
-		}
+		generateSearchFilter(object, canorder, sg);
+		sg.wl("		return searchfilter;");
 		sg.wl("	}");
 		sg.wl("");
 
@@ -1204,6 +1242,53 @@ public class DataObjectDefinitionSearchPagesAndActions {
 		sg.close();
 	}
 
+	/**
+	 * generates the query of a search action on all active objects. Sorting on
+	 * update or creation time and limitation of the number of results are done by
+	 * the database.
+	 * 
+	 * @param searchedobject the object searched
+	 * @param objectclass    java class of the object searched
+	 * @param canorder       true if the object has an update log or creation log
+	 * @param sg             source generator
+	 * @throws IOException if anything bad happens while writing the file
+	 * @since 2.0
+	 */
+	private static void generateLimitedSearchQuery(
+			DataObjectDefinition searchedobject,
+			String objectclass,
+			boolean canorder,
+			SourceGenerator sg) throws IOException {
+		generateSearchFilter(searchedobject, canorder, sg);
+		sg.wl("		" + objectclass + "[] result = " + objectclass
+				+ ".getallactive(StoredobjectQueryHelper.limitSearch(searchfilter));");
+		sg.wl("		result = StoredobjectQueryHelper.truncateSearchResult(result,\"" + objectclass + "\");");
+	}
+
+	/**
+	 * generates the query filter of a search action on all active objects,
+	 * sorting on update or creation time if possible.
+	 * 
+	 * @param searchedobject the object searched
+	 * @param canorder       true if the object has an update log or creation log
+	 * @param sg             source generator
+	 * @throws IOException if anything bad happens while writing the file
+	 * @since 2.0
+	 */
+	private static void generateSearchFilter(
+			DataObjectDefinition searchedobject,
+			boolean canorder,
+			SourceGenerator sg) throws IOException {
+		sg.wl("		QueryFilter searchfilter = new QueryFilter(finalquerycondition,(additionalcondition!=null?additionalcondition.getAliases():null));");
+		if (canorder) {
+			if (searchedobject.getPropertyByName("UPDATELOG") != null) {
+				sg.wl("		searchfilter.addOrder(QueryOrder.get(alias,\"UPDATETIME\",false));");
+			} else {
+				sg.wl("		searchfilter.addOrder(QueryOrder.get(alias,\"CREATETIME\",false));");
+			}
+		}
+	}
+
 	private void generateSearchcriteria(SearchWidgetDefinition[] searchwidgets, String objectclass, SourceGenerator sg)
 			throws IOException {
 
@@ -1876,6 +1961,7 @@ public class DataObjectDefinitionSearchPagesAndActions {
 		sg.wl("");
 		sg.wl("	public AtgLaunchsearch" + objectvariable + "Action(SModule parent) {");
 		sg.wl("		super(parent);");
+		sg.wl("		this.setReadOnly(true);");
 		sg.wl("	");
 		sg.wl("	}");
 		sg.wl("");
@@ -132,6 +132,7 @@ public class DataObjectDefinitionShowAction {
 		sg.wl("import org.openlowcode.server.data.storage.TableAlias;");
 		sg.wl("import org.openlowcode.server.data.properties.DataObjectId;");
 		sg.wl("import org.openlowcode.server.data.NodeTree;");
+		sg.wl("import org.openlowcode.server.action.ParallelFetch;");
 		if (dataobject.getPropertyByName("TYPED") != null) {
 			Typed typed = (Typed) dataobject.getPropertyByName("TYPED");
 			SimpleChoiceCategory choice = typed.getTypes();
@@ -213,12 +214,18 @@ public class DataObjectDefinitionShowAction {
 
 		ArrayList<String> extravariableforaction = new ArrayList<String>();
 		ArrayList<String> extraargumentfordata = new ArrayList<String>();
+		// independent fetches are started here, and their results are got before building output data
+		sg.wl("		ParallelFetch parallelfetch = new ParallelFetch();");
+		ArrayList<String> joinlines = new ArrayList<String>();
 
 		if (hasworkflow) {
 
 			sg.wl("		DataObjectId genericid = DataObjectId.generateDataObjectId(id.getId(),id.getObjectId());");
-			sg.wl("		Task[] activetasks = ActivetaskcomplexqueryAction.get().executeActionLogic(genericid,null).getTask();");
-			sg.wl("		Task[] alltasks = Task.getallforgenericidfortaskobject(DataObjectId.generateDataObjectId(id.getId(), id.getObjectId()),null);");
+			writeParallelFetch(sg, "Task[]", "activetasks",
+					"ActivetaskcomplexqueryAction.get().executeActionLogic(genericid,null).getTask()", joinlines);
+			writeParallelFetch(sg, "Task[]", "alltasks",
+					"Task.getallforgenericidfortaskobject(DataObjectId.generateDataObjectId(id.getId(), id.getObjectId()),null)",
+					joinlines);
 			extravariableforaction.add("activetasks");
 			extravariableforaction.add("alltasks");
 			extraargumentfordata.add("Youractivetasks");
@@ -308,7 +315,8 @@ public class DataObjectDefinitionShowAction {
 			Property<?> dataobjectproperty = dataobject.propertylist.get(i);
 			if (dataobjectproperty instanceof FileContent) {
 
-				sg.wl("		Objattachment[] attachments = " + objectvariable + ".getattachments(null);");
+				writeParallelFetch(sg, "Objattachment[]", "attachments", objectvariable + ".getattachments(null)",
+						joinlines);
 
 				extravariableforaction.add("attachments");
 				extraargumentfordata.add("Attachments");
@@ -328,12 +336,13 @@ public class DataObjectDefinitionShowAction {
 				String dataobjectchildobjectclass = StringFormatter.formatForJavaClass(childobject.getName());
 				String dataobjectextravariable = "extradatafor"
 						+ StringFormatter.formatForJavaClass(dataobjectlinkedfromchildren.getName());
-				sg.wl("		" + dataobjectchildobjectclass + "[] " + dataobjectextravariable + " = "
-						+ dataobjectchildobjectclass + ".getallchildrenfor"
-						+ StringFormatter.formatForAttribute(
-								dataobjectlinkedfromchildren.getOriginObjectProperty().getInstancename())
-						+ "(id,null);");
-				sg.wl("		AtgMassupdate" + StringFormatter.formatForAttribute(childobject.getName())
+				writeParallelFetch(sg, dataobjectchildobjectclass + "[]", dataobjectextravariable,
+						dataobjectchildobjectclass + ".getallchildrenfor"
+								+ StringFormatter.formatForAttribute(
+										dataobjectlinkedfromchildren.getOriginObjectProperty().getInstancename())
+								+ "(id,null)",
+						joinlines);
+				joinlines.add("		AtgMassupdate" + StringFormatter.formatForAttribute(childobject.getName())
 						+ "Action.get().freezeUnauthorizedObjects(" + dataobjectextravariable + ");");
 				extravariableforaction.add(dataobjectextravariable);
 				extraargumentfordata.add(StringFormatter.formatForJavaClass(dataobjectlinkedfromchildren.getName()));
@@ -348,9 +357,9 @@ public class DataObjectDefinitionShowAction {
 				String dataobjectlinkobjectclass = StringFormatter.formatForJavaClass(linkedobject.getName());
 				String dataobjectextravariable = "extradatafor"
 						+ StringFormatter.formatForJavaClass(dataobjectleftforlink.getName());
-				sg.wl("		" + dataobjectlinkobjectclass + "[] " + dataobjectextravariable + " = "
-						+ dataobjectlinkobjectclass + ".getalllinksfromleftid(id,null);");
-				sg.wl("		AtgMassupdate" + StringFormatter.formatForAttribute(linkedobject.getName())
+				writeParallelFetch(sg, dataobjectlinkobjectclass + "[]", dataobjectextravariable,
+						dataobjectlinkobjectclass + ".getalllinksfromleftid(id,null)", joinlines);
+				joinlines.add("		AtgMassupdate" + StringFormatter.formatForAttribute(linkedobject.getName())
 						+ "Action.get().freezeUnauthorizedObjects(" + dataobjectextravariable + ");");
 				extravariableforaction.add(dataobjectextravariable);
 				extraargumentfordata.add("Leftforlinkfor" + linkedobject.getName().toLowerCase());
@@ -367,8 +376,8 @@ public class DataObjectDefinitionShowAction {
 				String dataobjectlinkobjectclass = StringFormatter.formatForJavaClass(linkedobject.getName());
 				String dataobjectextravariable = "extradatafor"
 						+ StringFormatter.formatForJavaClass(dataobjectrightforlink.getName());
-				sg.wl("		" + dataobjectlinkobjectclass + "[] " + dataobjectextravariable + " = "
-						+ dataobjectlinkobjectclass + ".getalllinksfromrightid(id,null);");
+				writeParallelFetch(sg, dataobjectlinkobjectclass + "[]", dataobjectextravariable,
+						dataobjectlinkobjectclass + ".getalllinksfromrightid(id,null)", joinlines);
 				extravariableforaction.add(dataobjectextravariable);
 				extraargumentfordata.add("Rightforlinkfor" + linkedobject.getName().toLowerCase());
 				String dataobjectblankextravariable = "blankforaddfor"
@@ -386,9 +395,9 @@ public class DataObjectDefinitionShowAction {
 				String dataobjectlinkobjectclass = StringFormatter.formatForJavaClass(linkedobject.getName());
 				String dataobjectextravariable = "extradatafor"
 						+ StringFormatter.formatForJavaClass(dataobjectleftforlink.getName());
-				sg.wl("		" + dataobjectlinkobjectclass + "[] " + dataobjectextravariable + " = "
-						+ dataobjectlinkobjectclass + ".getalllinksfromleftid(id,null);");
-				sg.wl("		AtgMassupdate" + StringFormatter.formatForAttribute(linkedobject.getName())
+				writeParallelFetch(sg, dataobjectlinkobjectclass + "[]", dataobjectextravariable,
+						dataobjectlinkobjectclass + ".getalllinksfromleftid(id,null)", joinlines);
+				joinlines.add("		AtgMassupdate" + StringFormatter.formatForAttribute(linkedobject.getName())
 						+ "Action.get().freezeUnauthorizedObjects(" + dataobjectextravariable + ");");
 				extravariableforaction.add(dataobjectextravariable);
 				extraargumentfordata.add("Leftforlinktomasterfor" + linkedobject.getName().toLowerCase());
@@ -406,9 +415,9 @@ public class DataObjectDefinitionShowAction {
 				String dataobjectlinkobjectclass = StringFormatter.formatForJavaClass(linkedobject.getName());
 				String dataobjectextravariable = "extradatafor"
 						+ StringFormatter.formatForJavaClass(dataobjectrightforlink.getName());
-				sg.wl("		" + dataobjectlinkobjectclass + "[] " + dataobjectextravariable + " = "
-						+ dataobjectlinkobjectclass + ".getalllinksfromrightmsid(" + objectvariable
-						+ ".getMasterid(),null);");
+				writeParallelFetch(sg, dataobjectlinkobjectclass + "[]", dataobjectextravariable,
+						dataobjectlinkobjectclass + ".getalllinksfromrightmsid(" + objectvariable + ".getMasterid(),null)",
+						joinlines);
 				extravariableforaction.add(dataobjectextravariable);
 				extraargumentfordata.add("Rightforlinktomasterfor" + linkedobject.getName().toLowerCase());
 				String dataobjectblankextravariable = "blankforaddfor"
@@ -431,23 +440,25 @@ public class DataObjectDefinitionShowAction {
 				if (hasautolink.getLinkObjectProperty().isSymetricLink()) {
 					String dataobjectleftextravariable = "lefthasautolinkfor"
 							+ StringFormatter.formatForJavaClass(hasautolink.getName());
-					sg.wl("		" + dataobjectlinkobjectclass + "[] " + dataobjectleftextravariable + " = "
-							+ dataobjectlinkobjectclass + ".getalllinksfromleftid(id,null);");
+					writeParallelFetch(sg, dataobjectlinkobjectclass + "[]", dataobjectleftextravariable,
+							dataobjectlinkobjectclass + ".getalllinksfromleftid(id,null)", joinlines);
 					extravariableforaction.add(dataobjectleftextravariable);
 				} else {
 					if (hasautolink.getLinkObjectProperty().isShowLinkTree()) {
 						String dataobjectleftextravariable = "lefthasautolinkfor"
 								+ StringFormatter.formatForJavaClass(hasautolink.getName());
-						sg.wl("		NodeTree<" + dataobjectlinkobjectclass + "> " + dataobjectleftextravariable
-								+ " = AtgShowautolinktreefor" + dataobjectlinkobjectvariable
-								+ "Action.get().executeActionLogic(id,null).get" + dataobjectlinkobjectclass
-								+ "tree();");
+						writeParallelFetch(sg, "NodeTree<" + dataobjectlinkobjectclass + ">",
+								dataobjectleftextravariable,
+								"AtgShowautolinktreefor" + dataobjectlinkobjectvariable
+										+ "Action.get().executeActionLogic(id,null).get" + dataobjectlinkobjectclass
+										+ "tree()",
+								joinlines);
 						extravariableforaction.add(dataobjectleftextravariable);
 					} else {
 						String dataobjectleftextravariable = "lefthasautolinkfor"
 								+ StringFormatter.formatForJavaClass(hasautolink.getName());
-						sg.wl("		" + dataobjectlinkobjectclass + "[] " + dataobjectleftextravariable + " = "
-								+ dataobjectlinkobjectclass + ".getalllinksfromleftid(id,null);");
+						writeParallelFetch(sg, dataobjectlinkobjectclass + "[]", dataobjectleftextravariable,
+								dataobjectlinkobjectclass + ".getalllinksfromleftid(id,null)", joinlines);
 						extravariableforaction.add(dataobjectleftextravariable);
 
 					}
@@ -463,8 +474,8 @@ public class DataObjectDefinitionShowAction {
 				String dataobjectrightextravariable = "extradataforright"
 						+ StringFormatter.formatForJavaClass(hasautolink.getName());
 
-				sg.wl("		" + dataobjectlinkobjectclass + "[] " + dataobjectrightextravariable + " = "
-						+ dataobjectlinkobjectclass + ".getalllinksfromrightid(id,null);");
+				writeParallelFetch(sg, dataobjectlinkobjectclass + "[]", dataobjectrightextravariable,
+						dataobjectlinkobjectclass + ".getalllinksfromrightid(id,null)", joinlines);
 				extravariableforaction.add(dataobjectrightextravariable);
 				extraargumentfordata.add("Righthasautolinkfor" + linkedobject.getName().toLowerCase());
 			}
@@ -482,6 +493,8 @@ public class DataObjectDefinitionShowAction {
 			}
 		}
 		}
+		for (int i = 0; i < joinlines.size(); i++)
+			sg.wl(joinlines.get(i));
 		sg.wl("		");
 		/* if (isextraobject) { */
 // ActionOutputData is used only if output has more than one argument
@@ -540,4 +553,28 @@ public class DataObjectDefinitionShowAction {
 		sg.close();
 
 	}
+
+	/**
+	 * writes the declaration of a data fetch executed in parallel with the other
+	 * fetches of the action, and keeps the line getting its result, to be written
+	 * before the output data is built
+	 * 
+	 * @param sg         source generator
+	 * @param type       java type of the result of the fetch
+	 * @param variable   name of the variable holding the result
+	 * @param expression java expression performing the fetch
+	 * @param joinlines  lines getting the results of the fetches
+	 * @throws IOException if any exception is encountered writing the file
+	 * @since 2.0
+	 */
+	private static void writeParallelFetch(
+			SourceGenerator sg,
+			String type,
+			String variable,
+			String expression,
+			ArrayList<String> joinlines) throws IOException {
+		sg.wl("		ParallelFetch.Fetch<" + type + "> " + variable + "fetch = parallelfetch.fetch(() -> " + expression
+				+ ");");
+		joinlines.add("		" + type + " " + variable + " = " + variable + "fetch.get();");
+	}
 }
@@ -29,6 +29,7 @@ public class SequenceDefinition
 		extends
 		Named {
 	private Module parentmodule;
+	private int blocksize;
 
 	/**
 	 * creates a sequence with the given name
@@ -37,7 +38,34 @@ public class SequenceDefinition
 	 */
 	public SequenceDefinition(String name) {
 		super(name);
+		this.blocksize = 1;
+	}
+
+	/**
+	 * sets the number of values the server reserves at each access to the
+	 * database. Values are then given from memory, which is much faster when
+	 * many values are used (e.g. automatic numbers during a bulk load). Values
+	 * reserved and not used when the server stops are lost, so this should only
+	 * be used when gaps in the sequence are acceptable.
+	 * 
+	 * @param blocksize number of values reserved (default is 1, meaning no
+	 *                  reservation)
+	 * @since 2.0
+	 */
+	public void setBlockSize(int blocksize) {
+		if (blocksize < 1)
+			throw new RuntimeException("Block size for sequence " + this.getName() + " should be at least 1, got "
+					+ blocksize);
+		this.blocksize = blocksize;
+	}
 
+	/**
+	 * @return the number of values the server reserves at each access to the
+	 *         database
+	 * @since 2.0
+	 */
+	public int getBlockSize() {
+		return this.blocksize;
 	}
 
 	/**
@@ -73,7 +101,11 @@ public class SequenceDefinition
 		sg.wl("	private static " + idclass + "Sequence singleton = new " + idclass + "Sequence();");
 		sg.wl("	");
 		sg.wl("	private " + idclass + "Sequence() {");
-		sg.wl("		super(\"" + this.getName().toUpperCase() + "\");");
+		if (this.blocksize > 1) {
+			sg.wl("		super(\"" + this.getName().toUpperCase() + "\"," + this.blocksize + ");");
+		} else {
+			sg.wl("		super(\"" + this.getName().toUpperCase() + "\");");
+		}
 		sg.wl("	}");
 		sg.wl("	public static " + idclass + "Sequence get() {");
 		sg.wl("	return singleton;");
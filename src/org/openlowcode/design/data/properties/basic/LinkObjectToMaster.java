@@ -308,6 +308,11 @@ Property<LinkObjectToMaster<E, F>> {
 				new MethodArgument("rightobjectmsid", new ObjectMasterIdArgument("rightobject", this.rightobjectforlink)));
 		this.addDataAccessMethod(getpotentialleftobjects);
 
+		DataAccessMethod getrightobject = new DataAccessMethod("GETRIGHTOBJECT",
+				new ObjectArgument("rightobject", this.rightobjectforlink), false, true);
+		getrightobject.addInputArgument(new MethodArgument("object", new ObjectArgument("object", parent)));
+		this.addDataAccessMethod(getrightobject);
+
 		DataAccessMethod setleftobject = new DataAccessMethod("SETLEFTOBJECT", null, false);
 		setleftobject.addInputArgument(new MethodArgument("object", new ObjectArgument("object", this.parent)));
 		setleftobject.addInputArgument(
@@ -420,7 +420,7 @@ public class LinkedToParent<E extends DataObjectDefinition>
 		}
 
 		DataAccessMethod getparent = new DataAccessMethod("GETPARENT",
-				new ObjectArgument("parent", parentobjectforlink), false);
+				new ObjectArgument("parent", parentobjectforlink), false, true);
 		getparent.addInputArgument(new MethodArgument("object", new ObjectArgument("object", this.parent)));
 		DataAccessMethod setparent = new DataAccessMethod("SETPARENT", null, false);
 		setparent.addInputArgument(new MethodArgument("object", new ObjectArgument("object", this.parent)));
@@ -73,6 +73,19 @@ public class ParentLocationHelperDefinition
 		sg.wl("		return parent.getLocationdomainid();");
 		sg.wl("	}");
 		sg.wl("");
+		sg.wl("	@Override");
+		sg.wl("	@SuppressWarnings(\"unchecked\")");
+		sg.wl("	public DataObjectId<Domain>[] getObjectLocation(" + objectclass + "[] object)  {");
+		sg.wl("		" + locatedparentclass + "[] parents = " + objectclass + ".getparentfor"
+				+ parentlinkforlocation.getInstancename().toLowerCase() + "(object);");
+		sg.wl("		DataObjectId<Domain>[] locations = new DataObjectId[object.length];");
+		sg.wl("		for (int i=0;i<object.length;i++) {");
+		sg.wl("			if (parents[i]==null) throw new RuntimeException(\"Parent not set at time of insert or update, so location could not be set\");");
+		sg.wl("			locations[i] = parents[i].getLocationdomainid();");
+		sg.wl("		}");
+		sg.wl("		return locations;");
+		sg.wl("	}");
+		sg.wl("");
 		sg.wl("}");
 
 		sg.close();
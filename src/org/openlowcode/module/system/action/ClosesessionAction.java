@@ -52,6 +52,7 @@ public class ClosesessionAction
 		AndQueryCondition selectactiveonipandcid = new AndQueryCondition();
 		String ip = OLcServer.getServer().getIpForConnection();
 		String cid = OLcServer.getServer().getCidForConnection();
+		OLcServer.getServer().getSecuritymanager().invalidateSession(ip, cid);
 		selectactiveonipandcid.addCondition(new SimpleQueryCondition<String>(null,
 				Usersession.getDefinition().getClientipFieldSchema(), new QueryOperatorEqual<String>(), ip));
 		selectactiveonipandcid.addCondition(new SimpleQueryCondition<String>(null,
@@ -51,9 +51,9 @@ public class GetfileAction
 			Function<TableAlias, QueryFilter> datafilter) {
 		logger.info("try to get file id = " + fileid.getId());
 		Binaryfile file = Binaryfile.readone(fileid);
-		SFile fileobject = new SFile(file.getFilename(), file.getFilecontent().getContent());
-		logger.info(
-				"found file  name = " + file.getFilename() + " length = " + file.getFilecontent().getContent().length);
+		// content is not copied, so that large files stored on disk are streamed to the client
+		SFile fileobject = new SFile(file.getFilename(), file.getFilecontent());
+		logger.info("found file  name = " + file.getFilename() + " length = " + fileobject.getLength());
 
 		return new ActionOutputData(fileobject);
 	}
@@ -0,0 +1,125 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.module.system.action;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.function.Function;
+
+import org.openlowcode.module.system.action.generated.AbsProbedatabasequeriesAction;
+import org.openlowcode.module.system.data.Querystatistic;
+import org.openlowcode.module.system.data.Slowquery;
+import org.openlowcode.module.system.page.ProbedatabasequeriesPage;
+import org.openlowcode.server.data.DataObjectCache;
+import org.openlowcode.server.data.storage.QueryFilter;
+import org.openlowcode.server.data.storage.TableAlias;
+import org.openlowcode.server.data.storage.jdbcpool.PreparedStatementCache;
+import org.openlowcode.server.data.storage.standardjdbc.SQLStatistics;
+import org.openlowcode.server.data.storage.standardjdbc.SelectQueryShape;
+import org.openlowcode.server.graphic.SPage;
+import org.openlowcode.server.runtime.SModule;
+
+/**
+ * An action to show statistics on database queries executed since server
+ * start, and the most recent slow queries
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ *
+ * @since 2.0
+ */
+public class ProbedatabasequeriesAction
+		extends
+		AbsProbedatabasequeriesAction {
+
+	/**
+	 * creates the action to probe database queries
+	 * 
+	 * @param parent parent module
+	 */
+	public ProbedatabasequeriesAction(SModule parent) {
+		super(parent);
+	}
+
+	@Override
+	public ActionOutputData executeActionLogic(Function<TableAlias, QueryFilter> datafilter) {
+		SQLStatistics.StatementStatistics[] allstatistics = SQLStatistics.getAllStatistics();
+		Querystatistic[] statistics = new Querystatistic[allstatistics.length];
+		for (int i = 0; i < allstatistics.length; i++) {
+			SQLStatistics.StatementStatistics thisstatistics = allstatistics[i];
+			Querystatistic statistic = new Querystatistic();
+			statistic.setShape(truncateAtLength(thisstatistics.getShape(), 1024));
+			statistic.setExecutions(new BigDecimal(thisstatistics.getExecutions()));
+			statistic.setTotaltime(new BigDecimal(thisstatistics.getTotalNanos() / 1000000l));
+			if (thisstatistics.getExecutions() > 0)
+				statistic.setAveragetime(new BigDecimal(thisstatistics.getTotalNanos())
+						.divide(new BigDecimal(thisstatistics.getExecutions() * 1000000l), 3, RoundingMode.HALF_UP));
+			statistic.setMaxtime(new BigDecimal(thisstatistics.getMaxNanos() / 1000000l));
+			statistic.setHistogram(truncateAtLength(thisstatistics.getHistogramText(), 256));
+			statistic.setRowcount(new BigDecimal(thisstatistics.getRows()));
+			statistic.setRelaunches(new BigDecimal(thisstatistics.getRelaunches()));
+			statistic.setErrors(new BigDecimal(thisstatistics.getErrors()));
+			statistics[i] = statistic;
+		}
+		SQLStatistics.SlowQuery[] allslowqueries = SQLStatistics.getSlowQueries();
+		Slowquery[] slowqueries = new Slowquery[allslowqueries.length];
+		for (int i = 0; i < allslowqueries.length; i++) {
+			SQLStatistics.SlowQuery thisslowquery = allslowqueries[i];
+			Slowquery slowquery = new Slowquery();
+			slowquery.setExecuted(thisslowquery.getExecuted());
+			slowquery.setDuration(new BigDecimal(thisslowquery.getDurationMs()));
+			slowquery.setShape(truncateAtLength(thisslowquery.getShape(), 1024));
+			if (thisslowquery.getRowCount() >= 0)
+				slowquery.setRowcount(new BigDecimal(thisslowquery.getRowCount()));
+			slowquery.setRelaunches(new BigDecimal(thisslowquery.getRelaunches()));
+			slowquery.setThread(truncateAtLength(thisslowquery.getThreadName(), 256));
+			slowqueries[i] = slowquery;
+		}
+		return new ActionOutputData(statistics, slowqueries, truncateAtLength(generateSummary(), 4000));
+	}
+
+	/**
+	 * @return a summary of the slow query settings and of the caches used to
+	 *         access the database
+	 */
+	private String generateSummary() {
+		StringBuffer summary = new StringBuffer();
+		summary.append("Slow query threshold: " + SQLStatistics.getSlowQueryThreshold() + "ms, "
+				+ SQLStatistics.getSlowQueryCount() + " slow queries since server start.\n");
+		summary.append("Prepared statement cache: " + PreparedStatementCache.getHits() + " hits, "
+				+ PreparedStatementCache.getMisses() + " misses, " + PreparedStatementCache.getEvictions()
+				+ " evictions.\n");
+		summary.append("Select query text cache: " + SelectQueryShape.getHits() + " hits, "
+				+ SelectQueryShape.getMisses() + " misses.\n");
+		List<DataObjectCache<?>> caches = DataObjectCache.getAllCaches();
+		for (int i = 0; i < caches.size(); i++) {
+			DataObjectCache<?> cache = caches.get(i);
+			summary.append("Object cache " + cache.getDefinition().getName() + ": " + cache.getSize() + "/"
+					+ cache.getMaxSize() + " objects, " + cache.getHits() + " hits, " + cache.getMisses()
+					+ " misses.\n");
+		}
+		return summary.toString();
+	}
+
+	private String truncateAtLength(String origin, int length) {
+		if (origin.length() > length)
+			return origin.substring(0, length - 3) + "...";
+		return origin;
+	}
+
+	@Override
+	public SPage choosePage(ActionOutputData logicoutput) {
+		return new ProbedatabasequeriesPage(logicoutput.getStatistics(), logicoutput.getSlowqueries(),
+				logicoutput.getSummary());
+	}
+
+}
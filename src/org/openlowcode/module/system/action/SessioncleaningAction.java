@@ -19,6 +19,7 @@ import org.openlowcode.module.system.data.Usersession;
 import org.openlowcode.server.data.storage.QueryFilter;
 import org.openlowcode.server.data.storage.TableAlias;
 import org.openlowcode.server.graphic.SPage;
+import org.openlowcode.server.runtime.OLcServer;
 import org.openlowcode.server.runtime.SModule;
 /**
  * Action to clean sessions older than a provided nmber of days
@@ -52,6 +53,8 @@ public class SessioncleaningAction
 				sessionstodelete.add(thissession);
 		}
 		Usersession[] sessionstodeletearray = sessionstodelete.toArray(new Usersession[0]);
+		// sessions kept in memory are read again from the database after cleaning
+		OLcServer.getServer().getSecuritymanager().invalidateAllSessions();
 		Usersession.delete(sessionstodeletearray);
 	}
 
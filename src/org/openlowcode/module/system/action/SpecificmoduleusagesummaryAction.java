@@ -21,14 +21,23 @@ import java.util.logging.Logger;
 
 import org.openlowcode.module.system.action.generated.AbsSpecificmoduleusagesummaryAction;
 import org.openlowcode.module.system.data.Appuser;
+import org.openlowcode.module.system.data.AppuserDefinition;
 import org.openlowcode.module.system.data.Basicdiagramrecord;
-import org.openlowcode.module.system.data.Moduleusage;
 import org.openlowcode.module.system.data.ModuleusageDefinition;
 import org.openlowcode.module.system.data.choice.BooleanChoiceDefinition;
 import org.openlowcode.module.system.data.choice.ReportingfrequencyChoiceDefinition;
 import org.openlowcode.module.system.page.ModuleusagesummaryPage;
 import org.openlowcode.server.data.ChoiceValue;
+import org.openlowcode.server.data.QueryHelper;
+import org.openlowcode.server.data.properties.LinkedtoparentQueryHelper;
+import org.openlowcode.server.data.properties.NumberedQueryHelper;
 import org.openlowcode.server.data.properties.StoredobjectQueryHelper;
+import org.openlowcode.server.data.storage.AggregateProjection;
+import org.openlowcode.server.data.storage.AggregateQuery;
+import org.openlowcode.server.data.storage.AggregateRow;
+import org.openlowcode.server.data.storage.AndQueryCondition;
+import org.openlowcode.server.data.storage.OrQueryCondition;
+import org.openlowcode.server.data.storage.QueryCondition;
 import org.openlowcode.server.data.storage.QueryFilter;
 import org.openlowcode.server.data.storage.QueryOperatorGreaterThan;
 import org.openlowcode.server.data.storage.SimpleQueryCondition;
@@ -49,6 +58,7 @@ public class SpecificmoduleusagesummaryAction
 		AbsSpecificmoduleusagesummaryAction {
 	@SuppressWarnings("unused")
 	private static Logger logger = Logger.getLogger(SpecificmoduleusagesummaryAction.class.getName());
+	private static final String SESSIONUSER_PROPERTY = "LINKEDTOPARENTFORSESSIONUSER";
 
 	/**
 	 * Creates the action
@@ -98,38 +108,110 @@ public class SpecificmoduleusagesummaryAction
 						new QueryOperatorGreaterThan<Date>(),
 						new Date(new Date().getTime() - 86400000l * history.intValue()));
 			}
-		Moduleusage[] allusages = Moduleusage.getallactive(QueryFilter.get(timelimit));
-		ArrayList<Basicdiagramrecord> record = new ArrayList<Basicdiagramrecord>();
-		HashMap<String, Basicdiagramrecord> recordbykey = new HashMap<String, Basicdiagramrecord>();
-
-		for (int i = 0; i < allusages.length; i++) {
-			Moduleusage currentusage = allusages[i];
-			Date relevantdate = StandardUtil.getLastDateOfPeriod(currentusage.getDay(), frequency, calendar);
-			String key = "" + relevantdate.getTime() + "/" + currentusage.getModule();
-			boolean discard = false;
-			if (excludeadmin != null)
-				if (excludeadmin.equals(BooleanChoiceDefinition.get().YES)) {
-					Appuser user = currentusage.getparentforsessionuser();
-					if (user.getNr().endsWith("admin")) {
-
-						discard = true;
+		ModuleusageDefinition definition = ModuleusageDefinition.getModuleusageDefinition();
+		TableAlias alias = definition.getAlias(StoredobjectQueryHelper.maintablealiasforgetallactive);
+		// actions of admin users are summed separately and removed from the total
+		HashMap<String, BigDecimal> adminactionsbykey = new HashMap<String, BigDecimal>();
+		if (excludeadmin != null)
+			if (excludeadmin.equals(BooleanChoiceDefinition.get().YES)) {
+				QueryCondition adminusagecondition = getAdminUsageCondition(alias);
+				if (adminusagecondition != null) {
+					AggregateProjection<BigDecimal> adminactionsum = AggregateProjection.sum(alias,
+							definition.getActionnrFieldSchema());
+					AggregateRow adminrow = aggregateUsage(
+							(timelimit != null ? new AndQueryCondition(timelimit, adminusagecondition)
+									: adminusagecondition),
+							alias, adminactionsum);
+					while (adminrow.next()) {
+						String key = "" + adminrow.getValue(definition.getDayFieldSchema(), alias).getTime() + "/"
+								+ adminrow.getValue(definition.getModuleFieldSchema(), alias);
+						adminactionsbykey.put(key, adminrow.getValue(adminactionsum));
 					}
 				}
-			if (!discard) {
-				Basicdiagramrecord relevantrecord = recordbykey.get(key);
-				if (relevantrecord == null) {
-					relevantrecord = new Basicdiagramrecord();
-					record.add(relevantrecord);
-					recordbykey.put(key, relevantrecord);
-					relevantrecord.setRecorddate(relevantdate);
-					relevantrecord.setCategory(currentusage.getModule());
-					relevantrecord.setValue(new BigDecimal(0));
+			}
+		ArrayList<Basicdiagramrecord> record = new ArrayList<Basicdiagramrecord>();
+		HashMap<String, Basicdiagramrecord> recordbykey = new HashMap<String, Basicdiagramrecord>();
+		AggregateProjection<BigDecimal> actionsum = AggregateProjection.sum(alias,
+				definition.getActionnrFieldSchema());
+		AggregateRow usagerow = aggregateUsage(timelimit, alias, actionsum);
+		while (usagerow.next()) {
+			Date day = usagerow.getValue(definition.getDayFieldSchema(), alias);
+			String module = usagerow.getValue(definition.getModuleFieldSchema(), alias);
+			BigDecimal actions = usagerow.getValue(actionsum);
+			if (actions == null)
+				actions = new BigDecimal(0);
+			BigDecimal adminactions = adminactionsbykey.get("" + day.getTime() + "/" + module);
+			if (adminactions != null) {
+				actions = actions.subtract(adminactions);
+				// only admin users used the module this day
+				if (actions.signum() == 0)
+					continue;
+			}
+			Date relevantdate = StandardUtil.getLastDateOfPeriod(day, frequency, calendar);
+			String key = "" + relevantdate.getTime() + "/" + module;
+			Basicdiagramrecord relevantrecord = recordbykey.get(key);
+			if (relevantrecord == null) {
+				relevantrecord = new Basicdiagramrecord();
+				record.add(relevantrecord);
+				recordbykey.put(key, relevantrecord);
+				relevantrecord.setRecorddate(relevantdate);
+				relevantrecord.setCategory(module);
+				relevantrecord.setValue(new BigDecimal(0));
 
-				}
-				relevantrecord.setValue(relevantrecord.getValue().add(new BigDecimal(currentusage.getActionnr())));
 			}
+			relevantrecord.setValue(relevantrecord.getValue().add(actions));
 		}
 
 		return record;
 	}
+
+	/**
+	 * sums the number of actions of module usages by day and module in the
+	 * database
+	 * 
+	 * @param condition condition on module usages (may be null)
+	 * @param alias     alias of module usage in the query
+	 * @param actionsum sum of the number of actions, not yet used in a query
+	 * @return one row per day and module
+	 * @since 2.0
+	 */
+	private static AggregateRow aggregateUsage(
+			QueryCondition condition,
+			TableAlias alias,
+			AggregateProjection<BigDecimal> actionsum) {
+		ModuleusageDefinition definition = ModuleusageDefinition.getModuleusageDefinition();
+		AggregateQuery usagequery = StoredobjectQueryHelper.get().getallactiveaggregatequery(
+				QueryFilter.get(condition), definition, definition.getStoredobjectDefinition());
+		usagequery.addGrouping(alias, definition.getDayFieldSchema());
+		usagequery.addGrouping(alias, definition.getModuleFieldSchema());
+		usagequery.addProjection(actionsum);
+		return QueryHelper.getHelper().aggregate(usagequery);
+	}
+
+	/**
+	 * gets the condition on module usages of admin users (users with a number
+	 * ending with admin)
+	 * 
+	 * @param alias alias of module usage in the query
+	 * @return the condition, or null if there is no admin user
+	 * @since 2.0
+	 */
+	private static QueryCondition getAdminUsageCondition(TableAlias alias) {
+		AppuserDefinition userdefinition = AppuserDefinition.getAppuserDefinition();
+		Appuser[] users = Appuser.getallactive(QueryFilter.get(NumberedQueryHelper.get().getNrLikeQueryCondition(
+				userdefinition.getAlias(StoredobjectQueryHelper.maintablealiasforgetallactive), "%admin",
+				userdefinition)));
+		OrQueryCondition adminusagecondition = new OrQueryCondition();
+		int adminnumber = 0;
+		for (int i = 0; i < users.length; i++)
+			if (users[i].getNr().endsWith("admin")) {
+				adminusagecondition.addCondition(LinkedtoparentQueryHelper.get(SESSIONUSER_PROPERTY)
+						.getParentIdQueryCondition(alias, users[i].getId(),
+								ModuleusageDefinition.getModuleusageDefinition(), userdefinition));
+				adminnumber++;
+			}
+		if (adminnumber == 0)
+			return null;
+		return adminusagecondition;
+	}
 }
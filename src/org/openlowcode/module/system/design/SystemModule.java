@@ -1464,6 +1464,36 @@ public class SystemModule
 		probethreadspage.linkPageToAction(probethreads);
 		this.AddPage(probethreadspage);
 		
+		DataObjectDefinition querystatistic = new DataObjectDefinition("QUERYSTATISTIC","Query Statistic",this);
+		querystatistic.addField(new StringField("SHAPE", "Query", "SQL query with values masked", 1024, StringField.INDEXTYPE_NONE));
+		querystatistic.addField(new DecimalField("EXECUTIONS","Executions","",15,0,DecimalField.INDEXTYPE_NONE));
+		querystatistic.addField(new DecimalField("TOTALTIME","Total Time (ms)","",15,0,DecimalField.INDEXTYPE_NONE));
+		querystatistic.addField(new DecimalField("AVERAGETIME","Average Time (ms)","",15,3,DecimalField.INDEXTYPE_NONE));
+		querystatistic.addField(new DecimalField("MAXTIME","Max Time (ms)","",15,0,DecimalField.INDEXTYPE_NONE));
+		querystatistic.addField(new StringField("HISTOGRAM", "Time Histogram", "number of executions per duration", 256, StringField.INDEXTYPE_NONE));
+		querystatistic.addField(new DecimalField("ROWCOUNT","Rows","rows changed or read",15,0,DecimalField.INDEXTYPE_NONE));
+		querystatistic.addField(new DecimalField("RELAUNCHES","Relaunches","relaunches after SQL error",15,0,DecimalField.INDEXTYPE_NONE));
+		querystatistic.addField(new DecimalField("ERRORS","Errors","executions failed even after relaunches",15,0,DecimalField.INDEXTYPE_NONE));
+		
+		DataObjectDefinition slowquery = new DataObjectDefinition("SLOWQUERY","Slow Query",this);
+		slowquery.addField(new TimestampField("EXECUTED", "Executed", "time the execution finished", TimestampField.INDEXTYPE_NONE));
+		slowquery.addField(new DecimalField("DURATION","Duration (ms)","",15,0,DecimalField.INDEXTYPE_NONE));
+		slowquery.addField(new StringField("SHAPE", "Query", "SQL query with values masked", 1024, StringField.INDEXTYPE_NONE));
+		slowquery.addField(new DecimalField("ROWCOUNT","Rows","rows changed, empty for select queries",15,0,DecimalField.INDEXTYPE_NONE));
+		slowquery.addField(new DecimalField("RELAUNCHES","Relaunches","relaunches after SQL error",15,0,DecimalField.INDEXTYPE_NONE));
+		slowquery.addField(new StringField("THREAD", "Thread", "", 256, StringField.INDEXTYPE_NONE));
+		
+		StaticActionDefinition probequeries = new StaticActionDefinition("PROBEDATABASEQUERIES");
+		probequeries.setButtonlabel("Probe database queries");
+		probequeries.addOutputArgument(new ArrayArgument(new ObjectArgument("STATISTICS", querystatistic)));
+		probequeries.addOutputArgument(new ArrayArgument(new ObjectArgument("SLOWQUERIES", slowquery)));
+		probequeries.addOutputArgument(new StringArgument("SUMMARY", 4000));
+		this.addasMenuAction(probequeries);
+		
+		DynamicPageDefinition probequeriespage = new DynamicPageDefinition("PROBEDATABASEQUERIES");
+		probequeriespage.linkPageToAction(probequeries);
+		this.AddPage(probequeriespage);
+		
 		
 		DynamicActionDefinition confirmotp = new DynamicActionDefinition("CONFIRMOTP");
 		confirmotp.addInputArgument(new StringArgument("OTP", 64));
@@ -0,0 +1,71 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.module.system.page;
+
+import org.openlowcode.module.system.data.Querystatistic;
+import org.openlowcode.module.system.data.Slowquery;
+import org.openlowcode.module.system.page.generated.AbsProbedatabasequeriesPage;
+import org.openlowcode.server.graphic.SPageNode;
+import org.openlowcode.server.graphic.widget.SComponentBand;
+import org.openlowcode.server.graphic.widget.SObjectArray;
+import org.openlowcode.server.graphic.widget.SPageText;
+
+/**
+ * Shows statistics on database queries, and the most recent slow queries
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 2.0
+ *
+ */
+
+public class ProbedatabasequeriesPage
+		extends
+		AbsProbedatabasequeriesPage {
+
+	/**
+	 * creates the page to display database query statistics
+	 * 
+	 * @param statistics  statistics per query, by decreasing total time
+	 * @param slowqueries recent slow queries, the most recent first
+	 * @param summary     summary of settings and caches
+	 */
+	public ProbedatabasequeriesPage(Querystatistic[] statistics, Slowquery[] slowqueries, String summary) {
+		super(statistics, slowqueries, summary);
+
+	}
+
+	@Override
+	public String generateTitle(Querystatistic[] statistics, Slowquery[] slowqueries, String summary) {
+		return "Database Queries";
+	}
+
+	@Override
+	protected SPageNode getContent() {
+		SComponentBand mainband = new SComponentBand(SComponentBand.DIRECTION_DOWN, this);
+		mainband.addElement(new SPageText("Database Queries", SPageText.TYPE_TITLE, this));
+		mainband.addElement(new SPageText(this.getSummary(), SPageText.TYPE_NORMAL, this));
+		mainband.addElement(new SPageText("Statistics per Query", SPageText.TYPE_TITLE, this));
+		SObjectArray<Querystatistic> statisticarray = new SObjectArray<Querystatistic>("QUERYSTATISTIC",
+				this.getStatistics(), Querystatistic.getDefinition(), this);
+		statisticarray.forceRowHeight(3);
+		statisticarray.setRowsToDisplay(15);
+		mainband.addElement(statisticarray);
+		mainband.addElement(new SPageText("Recent Slow Queries", SPageText.TYPE_TITLE, this));
+		SObjectArray<Slowquery> slowqueryarray = new SObjectArray<Slowquery>("SLOWQUERY", this.getSlowqueries(),
+				Slowquery.getDefinition(), this);
+		slowqueryarray.forceRowHeight(3);
+		slowqueryarray.setRowsToDisplay(10);
+		mainband.addElement(slowqueryarray);
+		return mainband;
+	}
+
+}
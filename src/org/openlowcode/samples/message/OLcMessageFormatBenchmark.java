@@ -0,0 +1,197 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.samples.message;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.zip.Deflater;
+
+import org.openlowcode.tools.messages.MessageArrayEnd;
+import org.openlowcode.tools.messages.MessageArrayLine;
+import org.openlowcode.tools.messages.MessageArrayStart;
+import org.openlowcode.tools.messages.MessageBinaryReader;
+import org.openlowcode.tools.messages.MessageBinaryWriter;
+import org.openlowcode.tools.messages.MessageBufferedWriter;
+import org.openlowcode.tools.messages.MessageFieldSpec;
+import org.openlowcode.tools.messages.MessageFieldTypeBoolean;
+import org.openlowcode.tools.messages.MessageFieldTypeDate;
+import org.openlowcode.tools.messages.MessageFieldTypeDecimal;
+import org.openlowcode.tools.messages.MessageFieldTypeInteger;
+import org.openlowcode.tools.messages.MessageFieldTypeString;
+import org.openlowcode.tools.messages.MessageReader;
+import org.openlowcode.tools.messages.MessageSimpleReader;
+import org.openlowcode.tools.messages.MessageWriter;
+import org.openlowcode.tools.messages.SFile;
+
+/**
+ * This micro-benchmark compares the text and binary wire formats of OLc
+ * messages on a message typical of a search page: a list of objects with a
+ * compact array, a few structures, and an attachment. It prints the size of the
+ * message (raw and compressed as for encrypted messages), and the time to
+ * parse it.<br>
+ * Syntax: java OLcMessageFormatBenchmark [number of lines in the array]
+ *
+ * @author Open Lowcode SAS
+ * @since 2.0
+ */
+public class OLcMessageFormatBenchmark {
+	private static final int DEFAULT_LINES = 5000;
+	private static final int WARMUP = 20;
+	private static final int RUNS = 50;
+
+	public static void main(String[] args) {
+		try {
+			int lines = DEFAULT_LINES;
+			if (args.length > 0)
+				lines = Integer.parseInt(args[0]);
+			ByteArrayOutputStream textmessage = new ByteArrayOutputStream();
+			MessageBufferedWriter textwriter = new MessageBufferedWriter(
+					new BufferedWriter(new OutputStreamWriter(textmessage, StandardCharsets.UTF_8)), false);
+			writeMessage(textwriter, lines);
+			textwriter.close();
+			ByteArrayOutputStream binarymessage = new ByteArrayOutputStream();
+			MessageBinaryWriter binarywriter = new MessageBinaryWriter(binarymessage, false);
+			writeMessage(binarywriter, lines);
+			binarywriter.close();
+			byte[] text = textmessage.toByteArray();
+			byte[] binary = binarymessage.toByteArray();
+			long checktext = readMessage(text, false);
+			long checkbinary = readMessage(binary, true);
+			if (checktext != checkbinary)
+				throw new RuntimeException("Different content read in text (" + checktext + ") and binary ("
+						+ checkbinary + ") formats");
+			for (int i = 0; i < WARMUP; i++) {
+				readMessage(text, false);
+				readMessage(binary, true);
+			}
+			long textstart = System.nanoTime();
+			for (int i = 0; i < RUNS; i++)
+				readMessage(text, false);
+			long texttime = (System.nanoTime() - textstart) / RUNS / 1000;
+			long binarystart = System.nanoTime();
+			for (int i = 0; i < RUNS; i++)
+				readMessage(binary, true);
+			long binarytime = (System.nanoTime() - binarystart) / RUNS / 1000;
+			System.out.println(" -----------------------------------------------------------");
+			System.out.println(" Message format benchmark, array with " + lines + " lines");
+			System.out.println(String.format(" Text format   : %9d bytes, %9d compressed, parsed in %7d microseconds",
+					text.length, compressedSize(text), texttime));
+			System.out.println(String.format(" Binary format : %9d bytes, %9d compressed, parsed in %7d microseconds",
+					binary.length, compressedSize(binary), binarytime));
+			System.out.println(String.format(" Parse speed-up: %.1f", ((double) texttime) / binarytime));
+		} catch (Exception e) {
+			System.err.println("An error happended " + e.getMessage());
+			for (int i = 0; i < e.getStackTrace().length; i++) {
+				System.err.println("   - " + e.getStackTrace()[i]);
+			}
+		}
+	}
+
+	/**
+	 * writes the test message
+	 *
+	 * @param writer writer to use
+	 * @param lines  number of lines of the array
+	 * @throws Exception if anything bad happens
+	 */
+	private static void writeMessage(MessageWriter writer, int lines) throws Exception {
+		ArrayList<MessageFieldSpec> fields = new ArrayList<MessageFieldSpec>();
+		fields.add(new MessageFieldSpec("ID", MessageFieldTypeString.singleton));
+		fields.add(new MessageFieldSpec("NR", MessageFieldTypeString.singleton));
+		fields.add(new MessageFieldSpec("NAME", MessageFieldTypeString.singleton));
+		fields.add(new MessageFieldSpec("QUANTITY", MessageFieldTypeInteger.singleton));
+		fields.add(new MessageFieldSpec("PRICE", MessageFieldTypeDecimal.singleton));
+		fields.add(new MessageFieldSpec("CREATEDATE", MessageFieldTypeDate.singleton));
+		fields.add(new MessageFieldSpec("ACTIVE", MessageFieldTypeBoolean.singleton));
+		byte[] attachment = new byte[100000];
+		for (int i = 0; i < attachment.length; i++)
+			attachment[i] = (byte) (i * 31);
+		writer.startNewMessage();
+		writer.startStructure("DISPLAYPAGE");
+		writer.addStringField("NAME", "SEARCHPAGE");
+		writer.addIntegerField("SIZE", lines);
+		writer.startStructure("DATA");
+		MessageArrayStart arraystart = new MessageArrayStart("OBJECTS", fields);
+		writer.sendMessageElement(arraystart);
+		long basedate = 1577836800000L;
+		for (int i = 0; i < lines; i++) {
+			writer.sendMessageElement(new MessageArrayLine(arraystart,
+					new Object[] { "" + (100000 + i), "OBJ-" + i, "Object number " + i + " with \"quotes\"",
+							Integer.valueOf(i % 1000), new BigDecimal(i).movePointLeft(2),
+							new Date(basedate + i * 86400000L), Boolean.valueOf(i % 2 == 0) }));
+		}
+		writer.sendMessageElement(new MessageArrayEnd());
+		writer.endStructure("DATA");
+		writer.addLongBinaryField("ATTACHMENT", new SFile("attachment.bin", attachment));
+		writer.endStructure("DISPLAYPAGE");
+		writer.endMessage();
+	}
+
+	/**
+	 * reads the test message
+	 *
+	 * @param message the message
+	 * @param binary  true if the message is in binary format
+	 * @return a checksum of the content read
+	 * @throws Exception if anything bad happens
+	 */
+	private static long readMessage(byte[] message, boolean binary) throws Exception {
+		MessageReader reader;
+		if (binary) {
+			reader = new MessageBinaryReader(new ByteArrayInputStream(message));
+		} else {
+			reader = new MessageSimpleReader(new BufferedReader(
+					new InputStreamReader(new ByteArrayInputStream(message), StandardCharsets.UTF_8)));
+		}
+		long checksum = 0;
+		reader.returnNextMessageStart();
+		reader.returnNextStartStructure("DISPLAYPAGE");
+		checksum += reader.returnNextStringField("NAME").hashCode();
+		checksum += reader.returnNextIntegerField("SIZE");
+		reader.returnNextStartStructure("DATA");
+		reader.returnNextMessageStartArray("OBJECTS");
+		while (reader.hasArrayNextLine()) {
+			MessageArrayLine line = reader.getArrayNextLine();
+			for (int i = 0; i < line.getObjectNumber(); i++)
+				checksum += line.getPayloadAt(i).hashCode();
+		}
+		reader.returnNextEndStructure("DATA");
+		SFile attachment = reader.returnNextLargeBinary("ATTACHMENT");
+		checksum += attachment.getContent().length + attachment.getFileName().hashCode();
+		reader.returnNextEndStructure("DISPLAYPAGE");
+		reader.returnNextEndMessage();
+		return checksum;
+	}
+
+	/**
+	 * @param message a message
+	 * @return the size of the message after compression
+	 */
+	private static int compressedSize(byte[] message) {
+		Deflater deflater = new Deflater();
+		deflater.setInput(message);
+		deflater.finish();
+		byte[] buffer = new byte[4000];
+		int size = 0;
+		while (!deflater.finished())
+			size += deflater.deflate(buffer);
+		deflater.end();
+		return size;
+	}
+}
@@ -0,0 +1,166 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.samples.message;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+
+import org.openlowcode.tools.messages.MessageBufferedWriter;
+import org.openlowcode.tools.messages.MessageSimpleReader;
+import org.openlowcode.tools.messages.MessageStartDetector;
+import org.openlowcode.tools.messages.OLcRemoteException;
+
+/**
+ * This micro-benchmark measures the server-side overhead of detecting the start
+ * of a message on a socket. It compares the legacy technique (a new thread per
+ * message reading the message start, watched by a loop sleeping 3ms) with the
+ * {@link MessageStartDetector} blocking with timeout on the socket. Messages are
+ * exchanged on the loopback interface and do not require any network.<br>
+ * Syntax: java OLcMessageStartBenchmark [number of round trips]
+ *
+ * @author Open Lowcode SAS
+ * @since 2.0
+ */
+public class OLcMessageStartBenchmark {
+	private static final int WARMUP = 200;
+	private static final int DEFAULT_ROUNDTRIPS = 2000;
+
+	private static volatile int messagefound = 0;
+
+	public static void main(String[] args) {
+		try {
+			int roundtrips = DEFAULT_ROUNDTRIPS;
+			if (args.length > 0)
+				roundtrips = Integer.parseInt(args[0]);
+			System.out.println(" -----------------------------------------------------------");
+			System.out.println(" Message start detection benchmark, " + roundtrips + " round trips");
+			runBenchmark(true, WARMUP);
+			long legacy = runBenchmark(true, roundtrips);
+			runBenchmark(false, WARMUP);
+			long detector = runBenchmark(false, roundtrips);
+			System.out.println(String.format(" Watcher thread and sleep loop : %8d microseconds per request",
+					legacy / roundtrips / 1000));
+			System.out.println(String.format(" Message start detector        : %8d microseconds per request",
+					detector / roundtrips / 1000));
+		} catch (Exception e) {
+			System.err.println("An error happended " + e.getMessage());
+			for (int i = 0; i < e.getStackTrace().length; i++) {
+				System.err.println("   - " + e.getStackTrace()[i]);
+			}
+		}
+	}
+
+	/**
+	 * performs the given number of round trips between a client and a server
+	 *
+	 * @param legacy     true to use the watcher thread on server side, false to use
+	 *                   the message start detector
+	 * @param roundtrips number of round trips
+	 * @return total time in nanoseconds
+	 * @throws Exception if anything bad happens
+	 */
+	private static long runBenchmark(boolean legacy, int roundtrips) throws Exception {
+		ServerSocket serversocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+		Thread server = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Socket socket = serversocket.accept();
+					BufferedInputStream input = new BufferedInputStream(socket.getInputStream());
+					MessageSimpleReader reader = new MessageSimpleReader(
+							new BufferedReader(new InputStreamReader(input, Charset.forName("UTF-8"))));
+					MessageBufferedWriter writer = new MessageBufferedWriter(new BufferedWriter(
+							new OutputStreamWriter(socket.getOutputStream(), Charset.forName("UTF-8"))), false);
+					MessageStartDetector detector = new MessageStartDetector(socket, input, reader, 250);
+					for (int i = 0; i < roundtrips; i++) {
+						if (legacy) {
+							waitWithWatcherThread(reader);
+						} else {
+							detector.waitForMessageStart(() -> true);
+							reader.returnNextMessageStart();
+						}
+						reader.returnNextStartStructure("PING");
+						reader.returnNextEndStructure("PING");
+						reader.returnNextEndMessage();
+						writer.startNewMessage();
+						writer.startStructure("PONG");
+						writer.endStructure("PONG");
+						writer.endMessage();
+						writer.flushMessage();
+					}
+					socket.close();
+				} catch (Exception e) {
+					System.err.println("Error on server side " + e.getMessage());
+				}
+			}
+		};
+		server.start();
+		Socket client = new Socket(InetAddress.getLoopbackAddress(), serversocket.getLocalPort());
+		MessageSimpleReader reader = new MessageSimpleReader(
+				new BufferedReader(new InputStreamReader(client.getInputStream(), Charset.forName("UTF-8"))));
+		MessageBufferedWriter writer = new MessageBufferedWriter(
+				new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), Charset.forName("UTF-8"))),
+				false);
+		long start = System.nanoTime();
+		for (int i = 0; i < roundtrips; i++) {
+			writer.startNewMessage();
+			writer.startStructure("PING");
+			writer.endStructure("PING");
+			writer.endMessage();
+			writer.flushMessage();
+			reader.returnNextMessageStart();
+			reader.returnNextStartStructure("PONG");
+			reader.returnNextEndStructure("PONG");
+			reader.returnNextEndMessage();
+		}
+		long end = System.nanoTime();
+		server.join();
+		client.close();
+		serversocket.close();
+		return end - start;
+	}
+
+	/**
+	 * the legacy message start detection, with a new thread reading the message
+	 * start, and the calling thread checking every 3ms if it is finished
+	 *
+	 * @param reader reader on the socket
+	 * @throws InterruptedException if interrupted while sleeping
+	 */
+	private static void waitWithWatcherThread(MessageSimpleReader reader) throws InterruptedException {
+		messagefound = 0;
+		Thread checkstartmessage = new Thread() {
+
+			@Override
+			public void run() {
+				try {
+					reader.returnNextMessageStart();
+					messagefound = 1;
+				} catch (OLcRemoteException | IOException e) {
+					messagefound = 2;
+				}
+			}
+
+		};
+		checkstartmessage.start();
+		while (messagefound == 0) {
+			Thread.sleep(3);
+		}
+	}
+}
@@ -0,0 +1,237 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.samples.storage;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+/**
+ * This micro-benchmark compares the three ways rows can be inserted by a
+ * massive insert: one statement per row, a JDBC batch of single row
+ * statements (used by default), and statements with several rows of values
+ * (used on MariaDB). It prints the number of rows inserted per second for each
+ * way, on a table similar to the table of a data object.<br>
+ * By default, the benchmark runs on an embedded Derby database in memory, and
+ * the Derby jar has to be in the classpath. Another database, typically
+ * MariaDB, can be measured by giving its JDBC URL, the JDBC driver of the
+ * database being in the classpath. The table BENCHOBJECT is created for the
+ * benchmark, and dropped at the end.<br>
+ * Syntax: java OLcInsertBenchmark [number of rows] [rows per multi-row
+ * statement] [JDBC URL] [user] [password]<br>
+ * Example for MariaDB: java OLcInsertBenchmark 20000 100
+ * jdbc:mariadb://localhost:3306/benchmark olcuser olcpassword
+ *
+ * @author Open Lowcode SAS
+ * @since 2.0
+ */
+public class OLcInsertBenchmark {
+	private static final int DEFAULT_ROWS = 20000;
+	private static final int DEFAULT_ROWS_PER_STATEMENT = 100;
+	private static final int WARMUP = 2;
+	private static final int RUNS = 5;
+	private static final String DEFAULT_URL = "jdbc:derby:memory:olcinsertbenchmark;create=true";
+	private static final String TABLE = "BENCHOBJECT";
+	private static final String[] FIELDS = new String[] { "ID", "NR", "NAME", "QUANTITY", "AMOUNT", "CREATETIME" };
+
+	/**
+	 * a way to insert rows
+	 */
+	private interface InsertMethod {
+		/**
+		 * @param connection connection to the database
+		 * @param rows       number of rows to insert
+		 * @throws SQLException if any database error is encountered
+		 */
+		public void insert(Connection connection, int rows) throws SQLException;
+	}
+
+	public static void main(String[] args) {
+		try {
+			int rows = DEFAULT_ROWS;
+			if (args.length > 0)
+				rows = Integer.parseInt(args[0]);
+			int rowsperstatement = DEFAULT_ROWS_PER_STATEMENT;
+			if (args.length > 1)
+				rowsperstatement = Integer.parseInt(args[1]);
+			final int finalrowsperstatement = rowsperstatement;
+			String url = DEFAULT_URL;
+			if (args.length > 2)
+				url = args[2];
+			Connection connection;
+			if (args.length > 3) {
+				connection = DriverManager.getConnection(url, args[3], (args.length > 4 ? args[4] : ""));
+			} else {
+				connection = DriverManager.getConnection(url);
+			}
+			String databasename = connection.getMetaData().getDatabaseProductName() + " "
+					+ connection.getMetaData().getDatabaseProductVersion();
+			Statement createstatement = connection.createStatement();
+			createstatement.execute("CREATE TABLE " + TABLE + " (ID VARCHAR(200), NR VARCHAR(64), NAME VARCHAR(200), "
+					+ "QUANTITY INTEGER, AMOUNT DECIMAL(16,2), CREATETIME TIMESTAMP)");
+			createstatement.close();
+			try {
+				System.out.println("Insert of " + rows + " rows on " + databasename + " (" + url + "), "
+						+ rowsperstatement + " rows per multi-row statement");
+				measure(connection, "single row statements", rows, (c, r) -> singleRowInsert(c, r));
+				measure(connection, "JDBC batch", rows, (c, r) -> batchInsert(c, r));
+				measure(connection, "multi-row statements", rows,
+						(c, r) -> multiRowInsert(c, r, finalrowsperstatement));
+			} finally {
+				Statement dropstatement = connection.createStatement();
+				dropstatement.execute("DROP TABLE " + TABLE);
+				dropstatement.close();
+				connection.close();
+			}
+		} catch (Exception e) {
+			System.err.println("Error in benchmark " + e.getClass().getName() + " - " + e.getMessage());
+			e.printStackTrace(System.err);
+		}
+	}
+
+	/**
+	 * inserts several times the rows with the method, and prints the number of
+	 * rows inserted per second. Each run is committed and the table emptied
+	 * afterwards
+	 * 
+	 * @param connection connection to the database
+	 * @param label      label of the method
+	 * @param rows       number of rows to insert
+	 * @param method     the method to insert rows
+	 * @throws SQLException if any database error is encountered
+	 */
+	private static void measure(Connection connection, String label, int rows, InsertMethod method)
+			throws SQLException {
+		connection.setAutoCommit(false);
+		long totaltime = 0;
+		for (int i = 0; i < WARMUP + RUNS; i++) {
+			long starttime = System.nanoTime();
+			method.insert(connection, rows);
+			connection.commit();
+			long duration = System.nanoTime() - starttime;
+			if (i >= WARMUP)
+				totaltime += duration;
+			Statement deletestatement = connection.createStatement();
+			int deleted = deletestatement.executeUpdate("DELETE FROM " + TABLE);
+			deletestatement.close();
+			connection.commit();
+			if (deleted != rows)
+				throw new RuntimeException("Inserted " + deleted + " rows with " + label + ", expected " + rows);
+		}
+		connection.setAutoCommit(true);
+		double averageinms = totaltime / (RUNS * 1000000.0);
+		System.out.println(String.format("  %-24s %10.1f ms %12.0f rows/s", label, averageinms,
+				rows * 1000.0 / averageinms));
+	}
+
+	/**
+	 * @param rownumber number of rows inserted by the statement
+	 * @return the insert statement, as generated for a massive insert
+	 */
+	private static String getInsertQuery(int rownumber) {
+		StringBuffer query = new StringBuffer();
+		query.append(" INSERT INTO ");
+		query.append(TABLE);
+		query.append(" ( ");
+		for (int i = 0; i < FIELDS.length; i++) {
+			if (i != 0)
+				query.append(",");
+			query.append(FIELDS[i]);
+		}
+		query.append(" ) VALUES ");
+		for (int row = 0; row < rownumber; row++) {
+			if (row != 0)
+				query.append(",");
+			query.append("(");
+			for (int i = 0; i < FIELDS.length; i++) {
+				if (i != 0)
+					query.append(",");
+				query.append("?");
+			}
+			query.append(")");
+		}
+		return query.toString();
+	}
+
+	/**
+	 * sets the values of a row on the statement
+	 * 
+	 * @param ps    prepared statement
+	 * @param index index of the parameter for the first field of the row
+	 * @param row   index of the row
+	 * @return the index of the next parameter
+	 * @throws SQLException if any database error is encountered
+	 */
+	private static int setRow(PreparedStatement ps, int index, int row) throws SQLException {
+		ps.setString(index, "BENCHOBJECT:" + row);
+		ps.setString(index + 1, "BO-" + row);
+		ps.setString(index + 2, "Benchmark object number " + row);
+		ps.setInt(index + 3, row % 1000);
+		ps.setBigDecimal(index + 4, new BigDecimal(row).movePointLeft(2));
+		ps.setTimestamp(index + 5, new Timestamp(System.currentTimeMillis()));
+		return index + FIELDS.length;
+	}
+
+	private static void singleRowInsert(Connection connection, int rows) throws SQLException {
+		PreparedStatement ps = connection.prepareStatement(getInsertQuery(1));
+		try {
+			for (int row = 0; row < rows; row++) {
+				setRow(ps, 1, row);
+				ps.executeUpdate();
+			}
+		} finally {
+			ps.close();
+		}
+	}
+
+	private static void batchInsert(Connection connection, int rows) throws SQLException {
+		PreparedStatement ps = connection.prepareStatement(getInsertQuery(1));
+		try {
+			for (int row = 0; row < rows; row++) {
+				setRow(ps, 1, row);
+				ps.addBatch();
+			}
+			ps.executeBatch();
+		} finally {
+			ps.close();
+		}
+	}
+
+	private static void multiRowInsert(Connection connection, int rows, int rowsperstatement) throws SQLException {
+		int remainder = rows % rowsperstatement;
+		PreparedStatement ps = connection.prepareStatement(getInsertQuery(rowsperstatement));
+		try {
+			for (int chunkstart = 0; chunkstart < rows - remainder; chunkstart += rowsperstatement) {
+				int index = 1;
+				for (int row = chunkstart; row < chunkstart + rowsperstatement; row++)
+					index = setRow(ps, index, row);
+				ps.executeUpdate();
+			}
+		} finally {
+			ps.close();
+		}
+		if (remainder > 0) {
+			PreparedStatement remainderps = connection.prepareStatement(getInsertQuery(remainder));
+			try {
+				int index = 1;
+				for (int row = rows - remainder; row < rows; row++)
+					index = setRow(remainderps, index, row);
+				remainderps.executeUpdate();
+			} finally {
+				remainderps.close();
+			}
+		}
+	}
+}
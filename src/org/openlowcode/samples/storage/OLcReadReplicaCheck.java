@@ -0,0 +1,213 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.samples.storage;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.openlowcode.server.data.Sequence;
+import org.openlowcode.server.data.storage.JDBCstorage;
+import org.openlowcode.server.data.storage.PersistenceGateway;
+import org.openlowcode.server.data.storage.PersistentStorage;
+import org.openlowcode.server.data.storage.derbyjdbc.DerbyJDBCStorage;
+import org.openlowcode.server.data.storage.jdbcpool.ConcurrentConnectionPool;
+
+/**
+ * This check verifies the routing of database accesses when a read replica is
+ * declared, using two embedded Derby databases in memory as main database and
+ * read replica. It goes through the database accesses of an action declared
+ * as read-only (with ActionExecution.setReadOnly), in the same way as the
+ * server does, and checks that:
+ * <ul>
+ * <li>reads of a read-only action are done on the read replica, without
+ * transaction</li>
+ * <li>sequence values are taken on the main database, and do not stop the
+ * action from reading on the read replica</li>
+ * <li>a write of a read-only action is done on the main database, in a
+ * transaction committed at the end of the action, and the action then reads
+ * on the main database</li>
+ * <li>an action not declared as read-only only uses the main database</li>
+ * </ul>
+ * The same check can be run on a MariaDB pair by changing the URLs and the
+ * database type. The Derby jar has to be in the classpath. The program exits
+ * with status 1 if a check fails.<br>
+ * Syntax: java OLcReadReplicaCheck
+ *
+ * @author Open Lowcode SAS
+ * @since 2.0
+ */
+public class OLcReadReplicaCheck {
+	private static final String PRIMARY_URL = "jdbc:derby:memory:olcprimary";
+	private static final String REPLICA_URL = "jdbc:derby:memory:olcreplica";
+	private static final String SEQUENCE = "OLCCHECK";
+	private static final String WRITTEN_SEQUENCE = "OLCWRITE";
+	private static final int PRIMARY_FIRST_VALUE = 1;
+	private static final int REPLICA_FIRST_VALUE = 1000;
+
+	public static void main(String[] args) {
+		try {
+			initDatabase(PRIMARY_URL, PRIMARY_FIRST_VALUE);
+			// a different value on the replica shows where the sequence was read
+			initDatabase(REPLICA_URL, REPLICA_FIRST_VALUE);
+			PersistenceGateway.setconnectionpool(PersistenceGateway.DBTYPE_DERBY,
+					new ConcurrentConnectionPool(PRIMARY_URL, null, null, 1, 3));
+			PersistenceGateway.setSequencePool(new ConcurrentConnectionPool(PRIMARY_URL, null, null, 1, 1));
+			PersistenceGateway.setReadReplicaPool(new ConcurrentConnectionPool(REPLICA_URL, null, null, 1, 3));
+			checkReadOnlyActionReads();
+			checkReadOnlyActionSequences();
+			checkReadOnlyActionWrites();
+			checkStandardAction();
+			System.out.println("All read replica routing checks passed");
+		} catch (Exception e) {
+			System.err.println("Read replica routing check failed " + e.getClass().getName() + " - " + e.getMessage());
+			e.printStackTrace(System.err);
+			System.exit(1);
+		} finally {
+			PersistenceGateway.releaseForThread();
+		}
+	}
+
+	/**
+	 * reads of a read-only action are done on the read replica
+	 */
+	private static void checkReadOnlyActionReads() throws SQLException {
+		startReadOnlyAction();
+		PersistentStorage storage = PersistenceGateway.getStorage();
+		try {
+			check("read of read-only action on replica", getUrl(storage), REPLICA_URL);
+			check("no transaction for read-only action", PersistenceGateway.hasTransaction(), false);
+			check("sequence visible on replica", storage.isSequenceExisting(SEQUENCE), true);
+		} finally {
+			PersistenceGateway.checkinStorage(storage);
+		}
+		check("read-only action still reading on replica", PersistenceGateway.isReadingOnReplica(), true);
+		PersistenceGateway.endReadRouting();
+	}
+
+	/**
+	 * sequences used by a read-only action are taken on the main database, with
+	 * and without reservation of blocks
+	 */
+	private static void checkReadOnlyActionSequences() throws SQLException {
+		startReadOnlyAction();
+		check("sequence value taken on main database", new Sequence(SEQUENCE).getNextValue(), PRIMARY_FIRST_VALUE);
+		Sequence blocksequence = new Sequence(SEQUENCE, 10);
+		check("block of sequence taken on main database", blocksequence.getNextValue(), PRIMARY_FIRST_VALUE + 1);
+		check("read-only action still reading on replica after sequence", PersistenceGateway.isReadingOnReplica(),
+				true);
+		check("no transaction after sequence", PersistenceGateway.hasTransaction(), false);
+		PersistenceGateway.endReadRouting();
+		check("sequence not changed on replica", readSequence(REPLICA_URL, SEQUENCE), REPLICA_FIRST_VALUE);
+		check("sequence reserved on main database", readSequence(PRIMARY_URL, SEQUENCE), PRIMARY_FIRST_VALUE + 11);
+	}
+
+	/**
+	 * a write of a read-only action is routed to the main database, and further
+	 * reads of the action are done on the main database in the same transaction
+	 */
+	private static void checkReadOnlyActionWrites() throws SQLException {
+		startReadOnlyAction();
+		PersistentStorage storage = PersistenceGateway.getStorage();
+		check("storage before write on replica", getUrl(storage), REPLICA_URL);
+		storage.createSequence(WRITTEN_SEQUENCE, 1);
+		check("write of read-only action on main database", getUrl(storage), PRIMARY_URL);
+		check("transaction started at write", PersistenceGateway.isInTransaction(storage), true);
+		check("read-only action reading on main database after write", PersistenceGateway.isReadingOnReplica(),
+				false);
+		PersistentStorage afterwritestorage = PersistenceGateway.getStorage();
+		check("read after write in transaction", afterwritestorage == storage, true);
+		PersistenceGateway.checkinStorage(afterwritestorage);
+		PersistenceGateway.checkinStorage(storage);
+		PersistenceGateway.endReadRouting();
+		check("transaction committed at end of action", PersistenceGateway.hasTransaction(), false);
+		check("write committed on main database", readSequence(PRIMARY_URL, WRITTEN_SEQUENCE), 1);
+		check("write not done on replica", readSequence(REPLICA_URL, WRITTEN_SEQUENCE), -1);
+	}
+
+	/**
+	 * an action not declared as read-only reads and writes on the main database
+	 */
+	private static void checkStandardAction() throws SQLException {
+		PersistenceGateway.startTransaction();
+		PersistentStorage storage = PersistenceGateway.getStorage();
+		check("read of standard action on main database", getUrl(storage), PRIMARY_URL);
+		check("standard action not reading on replica", PersistenceGateway.isReadingOnReplica(), false);
+		PersistenceGateway.checkinStorage(storage);
+		PersistenceGateway.commitTransaction();
+	}
+
+	/**
+	 * starts the database accesses of a read-only action as the server does when
+	 * a read replica is declared and transactions per action are enabled
+	 */
+	private static void startReadOnlyAction() {
+		PersistenceGateway.startReadRouting(true);
+	}
+
+	/**
+	 * creates the technical tables and the sequence of the check on a database
+	 *
+	 * @param url        URL of the database in memory
+	 * @param firstvalue first value of the sequence of the check
+	 */
+	private static void initDatabase(String url, int firstvalue) throws SQLException {
+		Connection connection = DriverManager.getConnection(url + ";create=true");
+		DerbyJDBCStorage storage = new DerbyJDBCStorage(connection);
+		storage.technicalInit();
+		storage.createSequence(SEQUENCE, firstvalue);
+		connection.close();
+	}
+
+	/**
+	 * @param url          URL of the database
+	 * @param sequencename name of the sequence
+	 * @return the next value of the sequence in the database, or -1 if the
+	 *         sequence does not exist
+	 */
+	private static int readSequence(String url, String sequencename) throws SQLException {
+		Connection connection = DriverManager.getConnection(url);
+		try {
+			PreparedStatement ps = connection.prepareStatement("SELECT SEQVALUE FROM GSEQUENCE WHERE SEQNAME = ?");
+			ps.setString(1, sequencename);
+			ResultSet rs = ps.executeQuery();
+			int value = -1;
+			if (rs.next())
+				value = rs.getInt(1);
+			rs.close();
+			ps.close();
+			return value;
+		} finally {
+			connection.close();
+		}
+	}
+
+	/**
+	 * @param storage a storage
+	 * @return the URL of the database of the connection of the storage
+	 */
+	private static String getUrl(PersistentStorage storage) throws SQLException {
+		return ((JDBCstorage) storage).getConnection().getMetaData().getURL();
+	}
+
+	/**
+	 * @param label    label of the check
+	 * @param actual   value got
+	 * @param expected value expected
+	 */
+	private static void check(String label, Object actual, Object expected) {
+		if (!expected.equals(actual))
+			throw new RuntimeException("Check '" + label + "' failed: expected " + expected + ", got " + actual);
+		System.out.println("  OK " + label);
+	}
+}
@@ -10,6 +10,9 @@
 
 package org.openlowcode.server.action;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.function.Function;
 import org.openlowcode.tools.misc.Named;
 import org.openlowcode.tools.structure.DataEltType;
@@ -42,6 +45,7 @@ public abstract class ActionExecution extends Named {
 
 	private String message;
 	private boolean popup = false;
+	private boolean readonly = false;
 	private SModule parent;
 
 	/**
@@ -82,6 +86,24 @@ public abstract class ActionExecution extends Named {
 		this.popup = popup;
 	}
 
+	/**
+	 * @return true if the action only reads data. Such an action can be executed
+	 *         on a read replica of the database if declared
+	 * @since 2.0
+	 */
+	public boolean isReadOnly() {
+		return readonly;
+	}
+
+	/**
+	 * @param readonly true if the action only reads data. A write done by the
+	 *                 action is still performed on the main database
+	 * @since 2.0
+	 */
+	public void setReadOnly(boolean readonly) {
+		this.readonly = readonly;
+	}
+
 	/**
 	 * @return the parent module
 	 */
@@ -147,6 +169,56 @@ public abstract class ActionExecution extends Named {
 
 	}
 
+	/**
+	 * number of objects checked together by
+	 * {@link #freezeUnauthorizedObjects(Iterator)}
+	 * 
+	 * @since 2.0
+	 */
+	public static final int STREAMED_SECURITY_BATCH = 200;
+
+	/**
+	 * will check according to action manager and freeze objects that are not
+	 * modified, as they are read from the iterator. Objects are checked by
+	 * batches of {@link #STREAMED_SECURITY_BATCH}, so that a big number of
+	 * objects can be streamed to the client without being held in memory at the
+	 * same time.
+	 * 
+	 * @param objects iterator on the objects to check, typically a cursor
+	 * @return an iterator giving back the same objects, checked
+	 * @since 2.0
+	 */
+	public <E extends DataObject<E>> Iterator<E> freezeUnauthorizedObjects(Iterator<E> objects) {
+		ArrayList<E> batch = new ArrayList<E>();
+		return new Iterator<E>() {
+			private int index = 0;
+
+			@Override
+			public boolean hasNext() {
+				if (index < batch.size())
+					return true;
+				batch.clear();
+				index = 0;
+				while ((batch.size() < STREAMED_SECURITY_BATCH) && (objects.hasNext()))
+					batch.add(objects.next());
+				if (batch.size() == 0)
+					return false;
+				freezeUnauthorizedObjects(batch.toArray(new DataObject<?>[0]));
+				return true;
+			}
+
+			@Override
+			public E next() {
+				if (!hasNext())
+					throw new NoSuchElementException("No more object to check for security");
+				E object = batch.get(index);
+				batch.set(index, null);
+				index++;
+				return object;
+			}
+		};
+	}
+
 	/**
 	 * The action is executed, and its result is shown in a page on the client
 	 * 
@@ -0,0 +1,318 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.server.action;
+
+import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import org.openlowcode.module.system.data.Appuser;
+import org.openlowcode.server.data.properties.DataObjectId;
+import org.openlowcode.server.data.storage.PersistenceGateway;
+import org.openlowcode.server.runtime.OLcServer;
+
+/**
+ * Independent data fetches of an action, executed concurrently on separate
+ * threads, each with its own pooled connection. An action declares its fetches
+ * with {@link #fetch(Supplier)}, and gets the results with
+ * {@link Fetch#get()} before building the page. At most a given number of
+ * fetches of the same action are executed at the same time, the thread of the
+ * action executing the fetches not yet started when it waits for their
+ * result.<br>
+ * Fetches are executed in the thread of the action, one after the other, if
+ * parallel fetch is disabled, if the action is itself a fetch, or if the
+ * action has written data in a transaction not yet committed (other
+ * connections would not see those changes).<br>
+ * A fetch thread only executes a fetch if it can get a connection immediately,
+ * and then uses this single connection for the whole fetch. If no connection is
+ * free, the fetch is given back to the thread of the action, so that fetch
+ * threads never wait for connections held by the actions waiting for them.<br>
+ * The user, ip and client id of the action are given to the fetch threads, as
+ * well as reads on the read replica. Fetches should only read data.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 2.0
+ */
+public class ParallelFetch {
+	private static Logger logger = Logger.getLogger(ParallelFetch.class.getName());
+	/**
+	 * default maximum number of fetches of an action executed at the same time
+	 */
+	public static final int DEFAULT_MAX_PARALLELISM = 4;
+	/**
+	 * default number of threads executing fetches for all actions
+	 */
+	public static final int DEFAULT_THREAD_NUMBER = 16;
+	private static int maxparallelism = DEFAULT_MAX_PARALLELISM;
+	private static int threadnumber = DEFAULT_THREAD_NUMBER;
+	private static ExecutorService executor;
+	private static ThreadLocal<Boolean> infetchthread = new ThreadLocal<Boolean>();
+
+	private boolean parallel;
+	private DataObjectId<Appuser> userid;
+	private String ip;
+	private String cid;
+	private boolean readonreplica;
+	private LinkedList<Fetch<?>> pendingfetches;
+	private int runningfetches;
+	private boolean noconnection;
+
+	/**
+	 * sets the limits of parallel fetch for the server
+	 *
+	 * @param maxparallelism maximum number of fetches of an action executed at
+	 *                       the same time. 1 disables parallel fetch
+	 * @param threadnumber   number of threads executing fetches for all actions
+	 */
+	public static synchronized void setParallelism(int maxparallelism, int threadnumber) {
+		if (maxparallelism < 1)
+			throw new RuntimeException("Maximum parallelism for data fetch should be at least 1, got " + maxparallelism);
+		if (threadnumber < 1)
+			throw new RuntimeException("Number of threads for data fetch should be at least 1, got " + threadnumber);
+		if (executor != null)
+			throw new RuntimeException("Parallelism for data fetch cannot be changed once fetch threads are started");
+		ParallelFetch.maxparallelism = maxparallelism;
+		ParallelFetch.threadnumber = threadnumber;
+	}
+
+	/**
+	 * @return the executor of the fetch threads, started at first use
+	 */
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			AtomicInteger threadindex = new AtomicInteger(0);
+			executor = Executors.newFixedThreadPool(threadnumber, (runnable) -> {
+				Thread thread = new Thread(runnable, "OLcParallelFetch-" + threadindex.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+			logger.info("Started " + threadnumber + " threads for parallel data fetch, max parallelism per action = "
+					+ maxparallelism);
+		}
+		return executor;
+	}
+
+	/**
+	 * removes the parallel fetch data bound to the current thread, so that the
+	 * thread can serve another connection
+	 * 
+	 * @since 2.0
+	 */
+	public static void clearForThread() {
+		infetchthread.remove();
+	}
+
+	/**
+	 * prepares parallel fetches for the current action, capturing the context of
+	 * the current thread
+	 */
+	public ParallelFetch() {
+		this.parallel = (maxparallelism > 1) && (infetchthread.get() == null)
+				&& (PersistenceGateway.canReadOnOtherConnections());
+		this.pendingfetches = new LinkedList<Fetch<?>>();
+		this.runningfetches = 0;
+		this.noconnection = false;
+		if (parallel) {
+			OLcServer server = OLcServer.getServer();
+			this.userid = server.getUserIdForConnection();
+			this.ip = server.getIpForConnection();
+			this.cid = server.getCidForConnection();
+			this.readonreplica = PersistenceGateway.isReadingOnReplica();
+		}
+	}
+
+	/**
+	 * declares a data fetch. It is started immediately if the maximum
+	 * parallelism is not reached
+	 *
+	 * @param supplier the fetch, only reading data
+	 * @return a handle to get the result of the fetch
+	 */
+	public <E extends Object> Fetch<E> fetch(Supplier<E> supplier) {
+		Fetch<E> fetch = new Fetch<E>(supplier);
+		if (!parallel) {
+			fetch.execute();
+			return fetch;
+		}
+		synchronized (this) {
+			pendingfetches.add(fetch);
+		}
+		startPendingFetches();
+		return fetch;
+	}
+
+	/**
+	 * starts pending fetches in the fetch threads as long as the maximum
+	 * parallelism is not reached
+	 */
+	private void startPendingFetches() {
+		while (true) {
+			Fetch<?> fetch;
+			synchronized (this) {
+				// remaining fetches are executed by the thread of the action
+				if (noconnection)
+					return;
+				if (runningfetches >= maxparallelism)
+					return;
+				fetch = pendingfetches.poll();
+				if (fetch == null)
+					return;
+				runningfetches++;
+			}
+			getExecutor().execute(() -> executeInFetchThread(fetch));
+		}
+	}
+
+	/**
+	 * executes a fetch in a fetch thread with the context of the action, and
+	 * cleans the thread afterwards. If no connection is free, the fetch is given
+	 * back to the thread of the action
+	 *
+	 * @param fetch the fetch to execute
+	 */
+	private void executeInFetchThread(Fetch<?> fetch) {
+		OLcServer server = OLcServer.getServer();
+		boolean executed = false;
+		try {
+			infetchthread.set(Boolean.TRUE);
+			server.setUserIdForConnection(userid);
+			server.setIpForConnection(ip);
+			server.setCidForConnection(cid);
+			if (readonreplica)
+				PersistenceGateway.startReadRouting(false);
+			if (PersistenceGateway.startTransactionIfConnectionAvailable()) {
+				executed = true;
+				fetch.execute();
+				PersistenceGateway.commitTransaction();
+			}
+		} finally {
+			PersistenceGateway.releaseForThread();
+			server.setUserIdForConnection(null);
+			server.removeIpConnectionReference();
+			server.removeCidConnectionReference();
+			infetchthread.remove();
+			synchronized (this) {
+				runningfetches--;
+				if (!executed) {
+					noconnection = true;
+					pendingfetches.addFirst(fetch);
+				}
+			}
+			if (executed) {
+				startPendingFetches();
+			} else {
+				logger.fine("No connection free for parallel fetch, fetch given back to the thread of the action");
+				fetch.giveBack();
+			}
+		}
+	}
+
+	/**
+	 * removes the fetch from pending fetches if it is still there
+	 *
+	 * @param fetch a fetch
+	 * @return true if the fetch was pending, and should be executed by the caller
+	 */
+	private synchronized boolean takePending(Fetch<?> fetch) {
+		return pendingfetches.remove(fetch);
+	}
+
+	/**
+	 * @param fetch a fetch
+	 * @return true if the fetch is pending
+	 */
+	private synchronized boolean isPending(Fetch<?> fetch) {
+		return pendingfetches.contains(fetch);
+	}
+
+	/**
+	 * a data fetch declared by an action
+	 *
+	 * @param <E> type of the result of the fetch
+	 */
+	public class Fetch<E extends Object> {
+		private Supplier<E> supplier;
+		private boolean done;
+		private E result;
+		private RuntimeException exception;
+
+		private Fetch(Supplier<E> supplier) {
+			this.supplier = supplier;
+			this.done = false;
+		}
+
+		/**
+		 * executes the fetch in the current thread and keeps the result or the
+		 * exception
+		 */
+		private void execute() {
+			E fetchresult = null;
+			RuntimeException fetchexception = null;
+			try {
+				fetchresult = supplier.get();
+			} catch (RuntimeException e) {
+				fetchexception = e;
+			} catch (Throwable t) {
+				fetchexception = new RuntimeException(
+						"Error during data fetch " + t.getClass().getName() + " - " + t.getMessage(), t);
+			}
+			synchronized (this) {
+				this.result = fetchresult;
+				this.exception = fetchexception;
+				this.done = true;
+				this.notifyAll();
+			}
+		}
+
+		/**
+		 * wakes up the thread waiting for the result of the fetch, as the fetch was
+		 * given back to be executed in this thread
+		 */
+		private synchronized void giveBack() {
+			this.notifyAll();
+		}
+
+		/**
+		 * gets the result of the fetch, waiting for it if it is executed in another
+		 * thread, or executing it in the current thread if it is not started yet or
+		 * given back by the fetch thread
+		 *
+		 * @return the result of the fetch
+		 */
+		public E get() {
+			while (true) {
+				if (takePending(this))
+					execute();
+				synchronized (this) {
+					if (done)
+						break;
+					// the fetch may be given back to this thread while waiting
+					if (isPending(this))
+						continue;
+					try {
+						this.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new RuntimeException("Interrupted while waiting for data fetch");
+					}
+				}
+			}
+			synchronized (this) {
+				if (exception != null)
+					throw exception;
+				return result;
+			}
+		}
+	}
+}
@@ -0,0 +1,316 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.server.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import org.openlowcode.server.data.storage.FieldSchema;
+import org.openlowcode.server.data.storage.PersistenceGateway;
+import org.openlowcode.server.data.storage.Row;
+import org.openlowcode.server.data.storage.StoredTableSchema;
+import org.openlowcode.server.data.storage.TableAlias;
+
+/**
+ * An optional cache of objects read by id, set-up per data object definition.
+ * It is relevant for reference objects that are read very often and seldom
+ * modified (e.g. users, domains).<br>
+ * The cache does not keep objects, but the values read from the database for
+ * each of them. A new object is generated from those values for each read, so
+ * callers can modify the objects they get as if they had been read from the
+ * database. The least recently used entries are evicted when the cache is
+ * full.<br>
+ * Entries are invalidated when the object is updated, refreshed or deleted
+ * through its unique identified property, and the whole cache is emptied when
+ * the table of the object is modified by other means (limited update, massive
+ * delete). Modifications done directly in the database, or by another server
+ * on the same database, are not seen by the cache.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 2.0
+ * @param <E> type of data object
+ */
+public class DataObjectCache<E extends DataObject<E>> {
+	private static Logger logger = Logger.getLogger(DataObjectCache.class.getName());
+	/**
+	 * name of the field holding the id of the object
+	 */
+	private static final String ID_FIELD = "ID";
+	private static ConcurrentHashMap<String, DataObjectCache<?>> cachesbytable = new ConcurrentHashMap<
+			String, DataObjectCache<?>>();
+
+	private DataObjectDefinition<E> definition;
+	private int maxsize;
+	private LinkedHashMap<String, HashMap<String, Object>> valuesbyid;
+	private long generation;
+	private AtomicLong hits = new AtomicLong(0);
+	private AtomicLong misses = new AtomicLong(0);
+	private AtomicLong evictions = new AtomicLong(0);
+	private AtomicLong invalidations = new AtomicLong(0);
+
+	/**
+	 * creates a cache for the data object definition
+	 *
+	 * @param definition definition of the data object
+	 * @param maxsize    maximum number of objects in the cache
+	 */
+	DataObjectCache(DataObjectDefinition<E> definition, int maxsize) {
+		if (maxsize <= 0)
+			throw new RuntimeException(
+					"Maximum size of cache for object " + definition.getName() + " should be positive: " + maxsize);
+		this.definition = definition;
+		this.maxsize = maxsize;
+		this.generation = 0;
+		this.valuesbyid = new LinkedHashMap<String, HashMap<String, Object>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, HashMap<String, Object>> eldest) {
+				if (size() <= DataObjectCache.this.maxsize)
+					return false;
+				evictions.incrementAndGet();
+				return true;
+			}
+		};
+		cachesbytable.put(definition.getTableschema().getName(), this);
+		logger.info("enabled cache for object " + definition.getName() + " with maximum size " + maxsize);
+	}
+
+	/**
+	 * gets an object from the cache
+	 *
+	 * @param id id of the object
+	 * @return a new object with the values in cache, or null if the object is not
+	 *         in cache
+	 */
+	public E get(String id) {
+		HashMap<String, Object> values;
+		synchronized (this) {
+			values = valuesbyid.get(id);
+		}
+		if (values == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return definition.generateFromRow(new CachedRow(values), null);
+	}
+
+	/**
+	 * @return the current generation of the cache. It should be read before
+	 *         querying the database, and given back to
+	 *         {@link #generateFromRow(Row, TableAlias, long)}, so that objects
+	 *         modified during the query are not put in cache
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * generates an object from the current line of a query, and keeps its values
+	 * in cache
+	 *
+	 * @param row        result of a query, positioned on a line
+	 * @param alias      alias of the object in the query
+	 * @param generation the generation of the cache before the query was launched
+	 * @return the object
+	 */
+	public E generateFromRow(Row row, TableAlias alias, long generation) {
+		RecordingRow recordingrow = new RecordingRow(row);
+		E object = definition.generateFromRow(recordingrow, alias);
+		Object id = recordingrow.values.get(ID_FIELD);
+		if (id instanceof String) {
+			synchronized (this) {
+				// an invalidation since the query started may concern this object
+				if (this.generation == generation)
+					valuesbyid.put((String) id, recordingrow.values);
+			}
+		}
+		return object;
+	}
+
+	/**
+	 * removes an object from the cache. If the current thread has a transaction,
+	 * the object is removed again when the transaction is committed
+	 *
+	 * @param id id of the object
+	 */
+	public synchronized void invalidate(String id) {
+		generation++;
+		invalidations.incrementAndGet();
+		valuesbyid.remove(id);
+		PersistenceGateway.registerCacheInvalidation(this, id);
+	}
+
+	/**
+	 * removes all objects from the cache
+	 */
+	public synchronized void invalidateAll() {
+		generation++;
+		invalidations.incrementAndGet();
+		valuesbyid.clear();
+	}
+
+	/**
+	 * removes all objects from the cache of the table, if any
+	 *
+	 * @param table a table modified without precise knowledge of the objects
+	 *              modified
+	 */
+	public static void invalidateTable(StoredTableSchema table) {
+		DataObjectCache<?> cache = cachesbytable.get(table.getName());
+		if (cache != null) {
+			cache.invalidateAll();
+			PersistenceGateway.registerCacheInvalidation(cache, null);
+		}
+	}
+
+	/**
+	 * @return all the caches currently set-up on the server
+	 */
+	public static List<DataObjectCache<?>> getAllCaches() {
+		return new ArrayList<DataObjectCache<?>>(cachesbytable.values());
+	}
+
+	/**
+	 * @return the definition of the object cached
+	 */
+	public DataObjectDefinition<E> getDefinition() {
+		return definition;
+	}
+
+	/**
+	 * @return the maximum number of objects in the cache
+	 */
+	public int getMaxSize() {
+		return maxsize;
+	}
+
+	/**
+	 * @return the current number of objects in the cache
+	 */
+	public synchronized int getSize() {
+		return valuesbyid.size();
+	}
+
+	/**
+	 * @return the number of reads answered by the cache
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of reads of objects not in cache
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of objects removed from the cache because it was full
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * @return the number of invalidations of one or all objects
+	 */
+	public long getInvalidations() {
+		return invalidations.get();
+	}
+
+	/**
+	 * @return the proportion of reads answered by the cache, between 0 and 1
+	 */
+	public double getHitRatio() {
+		long hitnumber = hits.get();
+		long total = hitnumber + misses.get();
+		if (total == 0)
+			return 0;
+		return ((double) hitnumber) / total;
+	}
+
+	@Override
+	public String toString() {
+		return "[CACHE " + definition.getName() + " size=" + getSize() + "/" + maxsize + ", hits=" + hits.get()
+				+ ", misses=" + misses.get() + ", evictions=" + evictions.get() + ", invalidations="
+				+ invalidations.get() + "]";
+	}
+
+	/**
+	 * a row keeping the values read from another row, by field name
+	 */
+	private static class RecordingRow
+			implements
+			Row {
+		private Row row;
+		private HashMap<String, Object> values;
+
+		private RecordingRow(Row row) {
+			this.row = row;
+			this.values = new HashMap<String, Object>();
+		}
+
+		@Override
+		public <F extends Object> F getValue(FieldSchema<F> fd, TableAlias objectalias) {
+			F value = row.getValue(fd, objectalias);
+			values.put(fd.getName(), value);
+			return value;
+		}
+
+		@Override
+		public boolean next() {
+			throw new RuntimeException("Recording row cannot be moved");
+		}
+
+		@Override
+		public void close() {
+			throw new RuntimeException("Recording row cannot be closed");
+		}
+	}
+
+	/**
+	 * a row giving back the values kept in cache
+	 */
+	private static class CachedRow
+			implements
+			Row {
+		private HashMap<String, Object> values;
+
+		private CachedRow(HashMap<String, Object> values) {
+			this.values = values;
+		}
+
+		@Override
+		public <F extends Object> F getValue(FieldSchema<F> fd, TableAlias objectalias) {
+			if (!values.containsKey(fd.getName()))
+				throw new RuntimeException("Field " + fd.getName() + " not in cache");
+			return fd.castToType(values.get(fd.getName()));
+		}
+
+		@Override
+		public boolean next() {
+			return false;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
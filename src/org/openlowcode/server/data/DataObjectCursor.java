@@ -0,0 +1,100 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.server.data;
+
+import java.util.Iterator;
+
+import org.openlowcode.server.data.message.TObjectDataElt;
+import org.openlowcode.server.data.message.TObjectDataEltType;
+import org.openlowcode.server.data.storage.PersistenceGateway;
+import org.openlowcode.server.data.storage.PersistentStorage;
+import org.openlowcode.server.data.storage.Row;
+import org.openlowcode.server.data.storage.TableAlias;
+import org.openlowcode.tools.structure.ArrayDataElt;
+
+/**
+ * A forward-only cursor on the result of a query, building data objects one by
+ * one as rows are read from the database. Contrary to methods returning an
+ * array, all objects are not held in memory at the same time. The cursor holds
+ * the storage of its query, and gives it back when it is closed. The cursor is
+ * closed automatically after the last row, and should be closed explicitly if
+ * not read until the end.<br>
+ * Note: objects are not checked for security when streamed, the caller is
+ * responsible for filtering the query.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 2.0
+ * @param <E> type of data object
+ */
+public class DataObjectCursor<E extends DataObject<E>>
+		extends
+		QueryCursor<E> {
+	private DataObjectDefinition<E> definition;
+
+	/**
+	 * creates a cursor on the result of a query
+	 *
+	 * @param row        the result of the query, positioned before the first row
+	 * @param definition definition of the data object
+	 * @param alias      alias of the data object in the query
+	 * @param storage    storage the query was executed on, got with
+	 *                   {@link PersistenceGateway#getStorageForCursor()}, given
+	 *                   back when the cursor is closed
+	 */
+	public DataObjectCursor(
+			Row row,
+			DataObjectDefinition<E> definition,
+			TableAlias alias,
+			PersistentStorage storage) {
+		super(row, (currentrow) -> definition.generateFromRow(currentrow, alias), storage);
+		this.definition = definition;
+	}
+
+	/**
+	 * creates an array data element that will read the objects from this cursor
+	 * while the array is written to the message sent to the client
+	 *
+	 * @param name name of the array element
+	 * @return a streamed array data element
+	 */
+	public ArrayDataElt<TObjectDataElt<E>> toStreamedArrayDataElt(String name) {
+		return toStreamedArrayDataElt(name, definition, this);
+	}
+
+	/**
+	 * creates an array data element that will read the objects from the iterator
+	 * while the array is written to the message sent to the client. The iterator
+	 * is typically a cursor, or a filter on a cursor
+	 *
+	 * @param name       name of the array element
+	 * @param definition definition of the data object
+	 * @param objects    iterator on the objects to send
+	 * @return a streamed array data element
+	 */
+	public static <E extends DataObject<E>> ArrayDataElt<TObjectDataElt<E>> toStreamedArrayDataElt(
+			String name,
+			DataObjectDefinition<E> definition,
+			Iterator<E> objects) {
+		return new ArrayDataElt<TObjectDataElt<E>>(name, new TObjectDataEltType<E>(definition),
+				new Iterator<TObjectDataElt<E>>() {
+
+					@Override
+					public boolean hasNext() {
+						return objects.hasNext();
+					}
+
+					@Override
+					public TObjectDataElt<E> next() {
+						return new TObjectDataElt<E>(name, objects.next());
+					}
+				});
+	}
+}
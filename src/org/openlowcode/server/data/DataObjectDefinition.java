@@ -83,6 +83,39 @@ public abstract class DataObjectDefinition<E extends DataObject<E>>
 	private HashMap<Integer, ArrayList<Pair<String, String>>> dynamicloaderinsertionorder;
 
 	private String preferedspreadsheettabname = null;
+	private DataObjectCache<E> objectcache = null;
+
+	/**
+	 * sets-up a cache for objects of this type read by id. This is relevant for
+	 * reference objects read very often and seldom modified
+	 * 
+	 * @param maxsize maximum number of objects kept in cache
+	 * @since 2.0
+	 */
+	public void enableObjectCache(int maxsize) {
+		this.objectcache = new DataObjectCache<E>(this, maxsize);
+	}
+
+	/**
+	 * @return the cache for objects of this type read by id, or null if no cache
+	 *         is set-up
+	 * @since 2.0
+	 */
+	public DataObjectCache<E> getObjectCache() {
+		return this.objectcache;
+	}
+
+	/**
+	 * removes the object from the cache, if a cache is set-up for this type of
+	 * object
+	 * 
+	 * @param id id of the object modified
+	 * @since 2.0
+	 */
+	public void invalidateCachedObject(String id) {
+		if (this.objectcache != null)
+			this.objectcache.invalidate(id);
+	}
 
 	/**
 	 * @return the prefered table row height
@@ -12,13 +12,18 @@ package org.openlowcode.server.data;
 
 import org.openlowcode.tools.misc.NamedList;
 
+import java.util.ArrayList;
+import java.util.logging.Logger;
+
 import org.openlowcode.server.data.storage.DeleteQuery;
 import org.openlowcode.server.data.storage.Field;
+import org.openlowcode.server.data.storage.LimitedFieldsUpdateQuery;
 import org.openlowcode.server.data.storage.MultipleTableRow;
 import org.openlowcode.server.data.storage.PersistenceGateway;
 import org.openlowcode.server.data.storage.PersistentStorage;
 import org.openlowcode.server.data.storage.QueryCondition;
 import org.openlowcode.server.data.storage.Row;
+import org.openlowcode.server.data.storage.SimpleEqualQueryCondition;
 import org.openlowcode.server.data.storage.StoredField;
 
 import org.openlowcode.server.data.storage.StoredTableRow;
@@ -35,6 +40,7 @@ import org.openlowcode.server.data.storage.UpdateQuery;
  *
  */
 public class DataObjectPayload {
+	private static Logger logger = Logger.getLogger(DataObjectPayload.class.getName());
 
 	@SuppressWarnings("rawtypes")
 	private NamedList<DataObjectField> fields;
@@ -215,6 +221,7 @@ public class DataObjectPayload {
 		store.insertOnDB(getStoredObject());
 
 		PersistenceGateway.checkinStorage(store);
+		markPersisted();
 
 	}
 
@@ -245,6 +252,8 @@ public class DataObjectPayload {
 			PersistentStorage store = PersistenceGateway.getStorage();
 			store.MassiveUpdateOnDB(multiplerow);
 			PersistenceGateway.checkinStorage(store);
+			for (int i = 0; i < payloads.length; i++)
+				payloads[i].markPersisted();
 		}
 	}
 
@@ -274,6 +283,8 @@ public class DataObjectPayload {
 			PersistentStorage store = PersistenceGateway.getStorage();
 			store.MassiveDeleteOnDB(multiplerow);
 			PersistenceGateway.checkinStorage(store);
+			// objects deleted are not known precisely
+			DataObjectCache.invalidateTable(payloads[0].schema);
 		}
 	}
 
@@ -295,19 +306,96 @@ public class DataObjectPayload {
 				PersistentStorage store = PersistenceGateway.getStorage();
 				store.MassiveInsertOnDB(multiplerow);
 				PersistenceGateway.checkinStorage(store);
+				for (int i = 0; i < payloads.length; i++)
+					payloads[i].markPersisted();
 			}
 	}
 
 	/**
-	 * performs an update in the persistence layer
+	 * performs an update in the persistence layer. If the values in the
+	 * persistent storage are known (object read from or written to the
+	 * database), only the modified fields are written, and no statement is sent
+	 * if no field is modified. Else, all fields are written.
 	 * 
 	 * @param condition this method should be called with a query condition ensuring
 	 *                  that the correct rows are updated
 	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public void update(QueryCondition condition) {
+		ArrayList<StoredField> dirtyfields = getDirtyFields();
+		if (dirtyfields == null) {
+			PersistentStorage store = PersistenceGateway.getStorage();
+			store.UpdateOnDB(new UpdateQuery(getStoredObject(), condition));
+			PersistenceGateway.checkinStorage(store);
+			markPersisted();
+			return;
+		}
+		if (dirtyfields.size() == 0) {
+			logger.fine("No field modified on " + schema.getName() + ", update skipped");
+			return;
+		}
+		LimitedFieldsUpdateQuery limitedupdatequery = new LimitedFieldsUpdateQuery(schema, condition);
+		for (int i = 0; i < dirtyfields.size(); i++) {
+			StoredField dirtyfield = dirtyfields.get(i);
+			limitedupdatequery.addFieldUpdate(
+					new SimpleEqualQueryCondition(null, dirtyfield.getFieldSchema(), dirtyfield.getPayload()));
+		}
 		PersistentStorage store = PersistenceGateway.getStorage();
-		store.UpdateOnDB(new UpdateQuery(getStoredObject(), condition));
+		store.LimitedFieldUpdateOnDB(limitedupdatequery);
 		PersistenceGateway.checkinStorage(store);
+		markPersisted();
+	}
+
+	/**
+	 * gets the fields modified compared to the values in the persistent storage
+	 * 
+	 * @return the list of modified fields, or null if the values in the
+	 *         persistent storage are not known for all fields
+	 * @since 2.0
+	 */
+	@SuppressWarnings("rawtypes")
+	private ArrayList<StoredField> getDirtyFields() {
+		ArrayList<StoredField> dirtyfields = new ArrayList<StoredField>();
+		for (int i = 0; i < fields.getSize(); i++) {
+			DataObjectField thisfield = fields.get(i);
+			for (int j = 0; j < thisfield.getFieldNumber(); j++) {
+				Field field = thisfield.getStoredField(j);
+				if (!(field instanceof StoredField))
+					return null;
+				StoredField storedfield = (StoredField) field;
+				if (!storedfield.isPersistedPayloadKnown())
+					return null;
+				if (storedfield.isDirty())
+					dirtyfields.add(storedfield);
+			}
+		}
+		for (int i = 0; i < properties.getSize(); i++) {
+			DataObjectProperty thisproperty = properties.get(i);
+			for (int j = 0; j < thisproperty.getFieldNumber(); j++) {
+				Field field = thisproperty.getStoredField(j);
+				if (field instanceof StoredField) {
+					StoredField storedfield = (StoredField) field;
+					if (!storedfield.isPersistedPayloadKnown())
+						return null;
+					if (storedfield.isDirty())
+						dirtyfields.add(storedfield);
+				}
+			}
+		}
+		return dirtyfields;
+	}
+
+	/**
+	 * records that the current values of all stored fields are the values in the
+	 * persistent storage
+	 * 
+	 * @since 2.0
+	 */
+	@SuppressWarnings("rawtypes")
+	private void markPersisted() {
+		NamedList<StoredField> storedfields = generateStoredFieldList();
+		for (int i = 0; i < storedfields.getSize(); i++)
+			storedfields.get(i).markPersisted();
 	}
 
 	/**
@@ -320,6 +408,8 @@ public class DataObjectPayload {
 		PersistentStorage store = PersistenceGateway.getStorage();
 		store.DeleteOnDB(new DeleteQuery(getStoredObject().getStoredTableSchema(), condition));
 		PersistenceGateway.checkinStorage(store);
+		// objects deleted are not known precisely
+		DataObjectCache.invalidateTable(schema);
 	}
 
 	/**
@@ -0,0 +1,136 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.server.data;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import org.openlowcode.server.data.storage.PersistenceGateway;
+import org.openlowcode.server.data.storage.PersistentStorage;
+import org.openlowcode.server.data.storage.Row;
+
+/**
+ * A forward-only cursor on the result of a query, building one element per row
+ * as rows are read from the database. The cursor holds the storage of its
+ * query, and gives it back when it is closed. The cursor is closed
+ * automatically after the last row, and should be closed explicitly if not read
+ * until the end.<br>
+ * Cursors opened by a thread are registered, so that the server can close the
+ * ones left opened at the end of a request with {@link #closeAllForThread()}.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 2.0
+ * @param <T> type of element built from each row
+ */
+public class QueryCursor<T>
+		implements
+		Iterator<T>,
+		AutoCloseable {
+	private static Logger logger = Logger.getLogger(QueryCursor.class.getName());
+	private static ThreadLocal<ArrayList<QueryCursor<?>>> threadcursors = new ThreadLocal<ArrayList<QueryCursor<?>>>();
+	private Row row;
+	private PersistentStorage storage;
+	private Function<Row, T> generator;
+	private boolean rowready;
+	private boolean finished;
+
+	/**
+	 * creates a cursor on the result of a query
+	 *
+	 * @param row       the result of the query, positioned before the first row
+	 * @param generator builds the element from the current row
+	 * @param storage   storage the query was executed on, got with
+	 *                  {@link PersistenceGateway#getStorageForCursor()}, given
+	 *                  back when the cursor is closed
+	 */
+	public QueryCursor(Row row, Function<Row, T> generator, PersistentStorage storage) {
+		this.row = row;
+		this.storage = storage;
+		this.generator = generator;
+		this.rowready = false;
+		this.finished = false;
+		ArrayList<QueryCursor<?>> cursors = threadcursors.get();
+		if (cursors == null) {
+			cursors = new ArrayList<QueryCursor<?>>();
+			threadcursors.set(cursors);
+		}
+		cursors.add(this);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (finished)
+			return false;
+		if (!rowready) {
+			if (row.next()) {
+				rowready = true;
+			} else {
+				close();
+			}
+		}
+		return rowready;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext())
+			throw new NoSuchElementException("No more element in cursor");
+		rowready = false;
+		return generator.apply(row);
+	}
+
+	/**
+	 * closes the query, and gives back the storage. This is only needed if the
+	 * cursor is not read until the end
+	 */
+	@Override
+	public void close() {
+		if (finished)
+			return;
+		finished = true;
+		rowready = false;
+		ArrayList<QueryCursor<?>> cursors = threadcursors.get();
+		if (cursors != null)
+			cursors.remove(this);
+		try {
+			row.close();
+		} finally {
+			PersistenceGateway.checkinCursorStorage(storage);
+		}
+	}
+
+	/**
+	 * closes all the cursors opened by the current thread that were not read until
+	 * the end or closed. This is called by the server at the end of each request,
+	 * including when the request failed while a cursor was being read.
+	 *
+	 * @return the number of cursors closed
+	 */
+	public static int closeAllForThread() {
+		ArrayList<QueryCursor<?>> cursors = threadcursors.get();
+		threadcursors.remove();
+		if (cursors == null)
+			return 0;
+		int closed = 0;
+		for (int i = 0; i < cursors.size(); i++) {
+			try {
+				cursors.get(i).close();
+				closed++;
+			} catch (RuntimeException e) {
+				logger.warning("Error while closing cursor left opened " + e.getMessage());
+			}
+		}
+		return closed;
+	}
+}
@@ -10,11 +10,16 @@
 
 package org.openlowcode.server.data;
 
+import java.util.function.Function;
+
+import org.openlowcode.server.data.storage.AggregateQuery;
+import org.openlowcode.server.data.storage.AggregateRow;
 import org.openlowcode.server.data.storage.LimitedFieldsUpdateQuery;
 import org.openlowcode.server.data.storage.PersistenceGateway;
 import org.openlowcode.server.data.storage.PersistentStorage;
 import org.openlowcode.server.data.storage.Row;
 import org.openlowcode.server.data.storage.SelectQuery;
+import org.openlowcode.server.data.storage.TableAlias;
 
 /**
  * A simple helper for a query accessing the persistence gateway
@@ -47,6 +52,70 @@ public class QueryHelper {
 		return row;
 
 	}
+
+	/**
+	 * executes the query through persistence gateway, and gives back a cursor
+	 * on the objects. The storage is kept by the cursor until it is closed or
+	 * read until the end, including after the end of the transaction of the
+	 * thread
+	 * 
+	 * @param sq         a select query
+	 * @param definition definition of the data object
+	 * @param alias      alias of the data object in the query
+	 * @return a cursor on the objects brought back by the query
+	 * @since 2.0
+	 */
+	public <E extends DataObject<E>> DataObjectCursor<E> stream(
+			SelectQuery sq,
+			DataObjectDefinition<E> definition,
+			TableAlias alias) {
+		PersistentStorage storage = PersistenceGateway.getStorageForCursor();
+		Row row;
+		try {
+			row = storage.selectOnDB(sq);
+		} catch (RuntimeException e) {
+			PersistenceGateway.checkinCursorStorage(storage);
+			throw e;
+		}
+		return new DataObjectCursor<E>(row, definition, alias, storage);
+	}
+
+	/**
+	 * executes the query through persistence gateway, and gives back a cursor
+	 * building one element per row, typically when several objects are read
+	 * from each row of a query with joins. The storage is kept by the cursor until
+	 * it is closed or read until the end
+	 * 
+	 * @param sq        a select query
+	 * @param generator builds the element from the current row
+	 * @return a cursor on the elements built from the rows of the query
+	 * @since 2.0
+	 */
+	public <T> QueryCursor<T> stream(SelectQuery sq, Function<Row, T> generator) {
+		PersistentStorage storage = PersistenceGateway.getStorageForCursor();
+		Row row;
+		try {
+			row = storage.selectOnDB(sq);
+		} catch (RuntimeException e) {
+			PersistenceGateway.checkinCursorStorage(storage);
+			throw e;
+		}
+		return new QueryCursor<T>(row, generator, storage);
+	}
+
+	/**
+	 * executes properly the aggregate query through persistence gateway
+	 * 
+	 * @param aq an aggregate query
+	 * @return one row per group
+	 * @since 2.0
+	 */
+	public AggregateRow aggregate(AggregateQuery aq) {
+		PersistentStorage storage = PersistenceGateway.getStorage();
+		AggregateRow row = storage.aggregateOnDB(aq);
+		PersistenceGateway.checkinStorage(storage);
+		return row;
+	}
 	
 	/**
 	 * Executes a limited update query thourhg the persistence gateway
@@ -58,5 +127,7 @@ public class QueryHelper {
 		PersistentStorage storage = PersistenceGateway.getStorage();
 		storage.LimitedFieldUpdateOnDB(limitedupdatequery);
 		PersistenceGateway.checkinStorage(storage);
+		// objects modified are not known precisely
+		DataObjectCache.invalidateTable(limitedupdatequery.getTableSchema());
 	}
 }
@@ -10,13 +10,24 @@
 
 package org.openlowcode.server.data;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.openlowcode.tools.misc.Named;
 
 import org.openlowcode.server.data.storage.PersistenceGateway;
 import org.openlowcode.server.data.storage.PersistentStorage;
 
 /**
- * An helper object to access to a persisted sequence
+ * An helper object to access to a persisted sequence. A sequence can reserve
+ * values by blocks in the database, and hand them out from memory. In this
+ * case, values not used when the server stops are lost, and, if several
+ * servers share the database, values are unique but not given in increasing
+ * order across servers.<br>
+ * As for database sequences, values are committed on a separate connection,
+ * and are not given back if the transaction of the thread is rolled back: a
+ * value (or a block of values) may already be used by other threads, and the
+ * sequence is not locked until the end of the transaction.
  * 
  * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
  *         SAS</a>
@@ -25,14 +36,72 @@ import org.openlowcode.server.data.storage.PersistentStorage;
 public class Sequence
 		extends
 		Named {
+	/**
+	 * a block of values reserved in the database. The end of the block never
+	 * changes, so that the next value and the end of the block are always read
+	 * consistently. The next value may go beyond the end once the block is
+	 * exhausted, those values are not given
+	 * 
+	 * @since 2.0
+	 */
+	private static class Block {
+		private final AtomicLong nextvalue;
+		private final long end;
+
+		private Block(long firstvalue, long end) {
+			this.nextvalue = new AtomicLong(firstvalue);
+			this.end = end;
+		}
+	}
+
+	private volatile int blocksize;
+	private final AtomicReference<Block> currentblock;
 
 	/**
-	 * creates an helper to access a sequence
+	 * creates an helper to access a sequence, getting values one by one from the
+	 * database
 	 * 
 	 * @param name name of the sequence
 	 */
 	public Sequence(String name) {
+		this(name, 1);
+	}
+
+	/**
+	 * creates an helper to access a sequence, reserving values by blocks in the
+	 * database
+	 * 
+	 * @param name      name of the sequence
+	 * @param blocksize number of values reserved at each access to the database.
+	 *                  1 means values are not reserved
+	 * @since 2.0
+	 */
+	public Sequence(String name, int blocksize) {
 		super(name.toUpperCase());
+		this.currentblock = new AtomicReference<Block>(new Block(0, 0));
+		setBlockSize(blocksize);
+	}
+
+	/**
+	 * sets the number of values reserved at each access to the database. It
+	 * applies when the current block is exhausted
+	 * 
+	 * @param blocksize number of values reserved at each access (at least 1)
+	 * @since 2.0
+	 */
+	public void setBlockSize(int blocksize) {
+		if (blocksize < 1)
+			throw new RuntimeException("Block size for sequence " + this.getName() + " should be at least 1, got "
+					+ blocksize);
+		this.blocksize = blocksize;
+	}
+
+	/**
+	 * @return the number of values reserved at each access to the database
+	 * @since 2.0
+	 */
+	public int getBlockSize() {
+		return this.blocksize;
 	}
 
 	/**
@@ -41,10 +110,39 @@ public class Sequence
 	 * @return the next sequence
 	 */
 	public int getNextValue() {
-		PersistentStorage storage = PersistenceGateway.getStorage();
-		int nextvalue = storage.getNextValue(this.getName());
+		while (true) {
+			Block block = currentblock.get();
+			if (block.nextvalue.get() < block.end) {
+				long value = block.nextvalue.getAndIncrement();
+				if (value < block.end)
+					return (int) value;
+			}
+			if (blocksize == 1) {
+				PersistentStorage storage = PersistenceGateway.getSequenceStorage();
+				int nextvalue = storage.getNextValue(this.getName());
+				PersistenceGateway.checkinStorage(storage);
+				return nextvalue;
+			}
+			reserveBlock(block);
+		}
+	}
+
+	/**
+	 * reserves a new block of values in the database, unless another thread
+	 * already replaced the exhausted block. The new block is published in a
+	 * single step, so that a thread always reads the next value and the end of
+	 * the same block
+	 * 
+	 * @param exhaustedblock the block found exhausted by the current thread
+	 */
+	private synchronized void reserveBlock(Block exhaustedblock) {
+		if (currentblock.get() != exhaustedblock)
+			return;
+		int reservedsize = blocksize;
+		PersistentStorage storage = PersistenceGateway.getSequenceStorage();
+		int firstvalue = storage.getNextValues(this.getName(), reservedsize);
 		PersistenceGateway.checkinStorage(storage);
-		return nextvalue;
+		currentblock.set(new Block(firstvalue, (long) firstvalue + reservedsize));
 	}
 
 	/**
@@ -11,6 +11,7 @@
 package org.openlowcode.server.data.properties;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Logger;
 
 import org.openlowcode.tools.misc.NamedList;
@@ -22,7 +23,7 @@ import org.openlowcode.server.data.TwoDataObjects;
 import org.openlowcode.server.data.properties.constraints.ConstraintOnAutolinkObject;
 import org.openlowcode.server.data.storage.AndQueryCondition;
 import org.openlowcode.server.data.storage.JoinQueryCondition;
-import org.openlowcode.server.data.storage.OrQueryCondition;
+import org.openlowcode.server.data.storage.InQueryCondition;
 import org.openlowcode.server.data.storage.QueryCondition;
 import org.openlowcode.server.data.storage.QueryFilter;
 import org.openlowcode.server.data.storage.QueryOperatorEqual;
@@ -41,7 +42,6 @@ import org.openlowcode.server.data.storage.TableAlias;
  */
 public class AutolinkobjectQueryHelper {
 
-	private static final int BATCH_QUERY_SIZE = 20;
 	private static final String BLANK_ID = "NEVERLAND";
 
 	private static Logger logger = Logger.getLogger(AutolinkobjectQueryHelper.class.getName());
@@ -101,6 +101,50 @@ public class AutolinkobjectQueryHelper {
 				(idvalue == null ? BLANK_ID : idvalue.getId()));
 	}
 
+	/**
+	 * generates a query condition filtering on several left object ids
+	 * 
+	 * @param alias                  table alias for the auto-link
+	 * @param idvalues               values of the left data object id (at most
+	 *                               {@link InQueryCondition#MAX_VALUES})
+	 * @param parentobjectdefinition definition of the data object holding the link
+	 * @param linkedobjectdefinition definition of the linked data object
+	 * @return the query condition performing the filter on left object id for the
+	 *         link
+	 * @since 2.0
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public <E extends DataObject<E> & AutolinkobjectInterface<E, F> & UniqueidentifiedInterface<E>, F extends DataObject<F> & HasidInterface<F>> QueryCondition getLeftidInQueryCondition(
+			TableAlias alias, List<String> idvalues, DataObjectDefinition<E> parentobjectdefinition,
+			DataObjectDefinition<F> linkedobjectdefinition) {
+		AutolinkobjectDefinition<E, F> definition = new AutolinkobjectDefinition(parentobjectdefinition,
+				parentobjectdefinition);
+		StoredFieldSchema<String> id = (StoredFieldSchema<String>) definition.getDefinition().lookupOnName("LFID");
+		return new InQueryCondition<String>(alias, id, idvalues);
+	}
+
+	/**
+	 * generates a query condition filtering on several right object ids
+	 * 
+	 * @param alias                  table alias for the auto-link
+	 * @param idvalues               values of the right data object id (at most
+	 *                               {@link InQueryCondition#MAX_VALUES})
+	 * @param parentobjectdefinition definition of the data object holding the link
+	 * @param linkedobjectdefinition definition of the linked data object
+	 * @return the query condition performing the filter on right object id for the
+	 *         link
+	 * @since 2.0
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public <E extends DataObject<E> & AutolinkobjectInterface<E, F> & UniqueidentifiedInterface<E>, F extends DataObject<F> & HasidInterface<F>> QueryCondition getRightidInQueryCondition(
+			TableAlias alias, List<String> idvalues, DataObjectDefinition<E> parentobjectdefinition,
+			DataObjectDefinition<F> linkedobjectdefinition) {
+		AutolinkobjectDefinition<E, F> definition = new AutolinkobjectDefinition(parentobjectdefinition,
+				linkedobjectdefinition);
+		StoredFieldSchema<String> id = (StoredFieldSchema<String>) definition.getDefinition().lookupOnName("RGID");
+		return new InQueryCondition<String>(alias, id, idvalues);
+	}
+
 	/**
 	 * generates a query condition filtering on the right object id
 	 * 
@@ -201,7 +245,7 @@ public class AutolinkobjectQueryHelper {
 		ArrayList<E> results = new ArrayList<E>();
 
 		// work by batches to ensure query is not too long
-		for (int i = 0; i < (leftid.length / BATCH_QUERY_SIZE) + 1; i++) {
+		for (int min = 0; min < leftid.length; min += InQueryCondition.MAX_VALUES) {
 			NamedList<TableAlias> aliaslist = new NamedList<TableAlias>();
 			TableAlias alias = parentobjectdefinition.getAlias("SINGLEOBJECT");
 			aliaslist.add(alias);
@@ -211,23 +255,8 @@ public class AutolinkobjectQueryHelper {
 						aliaslist.add(additionalcondition.getAliases()[k]);
 			QueryCondition objectuniversalcondition = parentobjectdefinition
 					.getUniversalQueryCondition(autolinkobjectDefinition, "SINGLEOBJECT");
-			OrQueryCondition uniqueidcondition = new OrQueryCondition();
-			int min = i * BATCH_QUERY_SIZE;
-			if (min<leftid.length) {
-			for (int j = min; j < min + BATCH_QUERY_SIZE; j++) {
-				QueryCondition thisuniqueidcondition = null;
-				if (j < leftid.length) {
-					thisuniqueidcondition = getLeftidQueryCondition(alias, leftid[j], parentobjectdefinition,
-							linkedobjectdefinition);
-				} else {
-					// all queries will have batch size conditions. If not enough id, a blank id is
-					// used
-					thisuniqueidcondition = getLeftidQueryCondition(alias, null, parentobjectdefinition,
-							linkedobjectdefinition);
-
-				}
-				uniqueidcondition.addCondition(thisuniqueidcondition);
-			}
+			QueryCondition uniqueidcondition = getLeftidInQueryCondition(alias,
+					HasidQueryHelper.getIdBatch(leftid, min), parentobjectdefinition, linkedobjectdefinition);
 
 			QueryCondition finalcondition = uniqueidcondition;
 			if (objectuniversalcondition != null) {
@@ -244,11 +273,11 @@ public class AutolinkobjectQueryHelper {
 				// put all results in a hasmap;
 				results.add(formattedanswer);
 			}
-		}}
+		}
 
 		if (autolinkobjectDefinition.isSymetricLink()) {
 
-			for (int i = 0; i < (leftid.length / BATCH_QUERY_SIZE) + 1; i++) {
+			for (int min = 0; min < leftid.length; min += InQueryCondition.MAX_VALUES) {
 				NamedList<TableAlias> aliaslist = new NamedList<TableAlias>();
 				TableAlias alias = parentobjectdefinition.getAlias("SINGLEOBJECT");
 				aliaslist.add(alias);
@@ -258,23 +287,8 @@ public class AutolinkobjectQueryHelper {
 							aliaslist.add(additionalcondition.getAliases()[k]);
 				QueryCondition objectuniversalcondition = parentobjectdefinition
 						.getUniversalQueryCondition(autolinkobjectDefinition, "SINGLEOBJECT");
-				OrQueryCondition uniqueidcondition = new OrQueryCondition();
-				int min = i * BATCH_QUERY_SIZE;
-				if (min<leftid.length) {
-				for (int j = min; j < min + BATCH_QUERY_SIZE; j++) {
-					QueryCondition thisuniqueidcondition = null;
-					if (j < leftid.length) {
-						thisuniqueidcondition = getRightidQueryCondition(alias, leftid[j], parentobjectdefinition,
-								linkedobjectdefinition);
-					} else {
-						// all queries will have batch size conditions. If not enough id, a blank id is
-						// used
-						thisuniqueidcondition = getRightidQueryCondition(alias, null, parentobjectdefinition,
-								linkedobjectdefinition);
-
-					}
-					uniqueidcondition.addCondition(thisuniqueidcondition);
-				}
+				QueryCondition uniqueidcondition = getRightidInQueryCondition(alias,
+						HasidQueryHelper.getIdBatch(leftid, min), parentobjectdefinition, linkedobjectdefinition);
 
 				QueryCondition finalcondition = uniqueidcondition;
 				if (objectuniversalcondition != null) {
@@ -293,7 +307,7 @@ public class AutolinkobjectQueryHelper {
 					// put all results in a hasmap;
 					results.add(formattedanswer);
 				}
-			}}
+			}
 				
 
 		}
@@ -363,7 +377,7 @@ public class AutolinkobjectQueryHelper {
 		ArrayList<E> results = new ArrayList<E>();
 
 		// work by batches to ensure query is not too long
-		for (int i = 0; i < (rightid.length / BATCH_QUERY_SIZE) + 1; i++) {
+		for (int min = 0; min < rightid.length; min += InQueryCondition.MAX_VALUES) {
 			NamedList<TableAlias> aliaslist = new NamedList<TableAlias>();
 			TableAlias alias = parentobjectdefinition.getAlias("SINGLEOBJECT");
 			aliaslist.add(alias);
@@ -374,24 +388,8 @@ public class AutolinkobjectQueryHelper {
 
 			QueryCondition objectuniversalcondition = parentobjectdefinition
 					.getUniversalQueryCondition(autolinkobjectDefinition, "SINGLEOBJECT");
-			OrQueryCondition uniqueidcondition = new OrQueryCondition();
-			int min = i * BATCH_QUERY_SIZE;
-			if (min<rightid.length) {
-			for (int j = min; j < min + BATCH_QUERY_SIZE; j++) {
-				QueryCondition thisuniqueidcondition = null;
-				if (j < rightid.length) {
-					thisuniqueidcondition = getRightidQueryCondition(alias, rightid[j], parentobjectdefinition,
-							linkedobjectdefinition);
-				} else {
-					// all queries will have batch size conditions. If not enough id, a blank id is
-					// used
-					thisuniqueidcondition = getRightidQueryCondition(alias, null, parentobjectdefinition,
-							linkedobjectdefinition);
-
-				}
-				uniqueidcondition.addCondition(thisuniqueidcondition);
-
-			}
+			QueryCondition uniqueidcondition = getRightidInQueryCondition(alias,
+					HasidQueryHelper.getIdBatch(rightid, min), parentobjectdefinition, linkedobjectdefinition);
 
 			QueryCondition finalcondition = uniqueidcondition;
 			if (objectuniversalcondition != null) {
@@ -410,7 +408,7 @@ public class AutolinkobjectQueryHelper {
 				// put all results in a hasmap;
 				results.add(formattedanswer);
 			}
-		}}
+		}
 
 		return results.toArray(parentobjectdefinition.generateArrayTemplate());
 	}
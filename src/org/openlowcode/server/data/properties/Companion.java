@@ -93,6 +93,7 @@ public class Companion<E extends DataObject<E> & HasidInterface<E>,F extends Dat
 		triggerlauncher.executeTriggerList(companionobject);
 
 		parentpayload.update(finalcondition);
+		definition.getParentObject().invalidateCachedObject(this.hasid.getId().getId());
 
 	}
 	
@@ -11,15 +11,21 @@
 package org.openlowcode.server.data.properties;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 import org.openlowcode.tools.misc.NamedList;
 
 import org.openlowcode.server.data.DataObject;
+import org.openlowcode.server.data.DataObjectCache;
 import org.openlowcode.server.data.DataObjectDefinition;
 import org.openlowcode.server.data.QueryHelper;
 import org.openlowcode.server.data.storage.AndQueryCondition;
-import org.openlowcode.server.data.storage.OrQueryCondition;
+import org.openlowcode.server.data.storage.InQueryCondition;
+import org.openlowcode.server.data.storage.PersistenceGateway;
 import org.openlowcode.server.data.storage.QueryCondition;
 import org.openlowcode.server.data.storage.QueryOperatorEqual;
 import org.openlowcode.server.data.storage.Row;
@@ -38,7 +44,6 @@ import org.openlowcode.server.data.storage.TableAlias;
  */
 public class HasidQueryHelper {
 	private static HasidQueryHelper singleton = new HasidQueryHelper();
-	private static final int BATCH_QUERY_SIZE = 20;
 	private static final String BLANK_ID = "NEVERLAND";
 
 	/**
@@ -67,7 +72,61 @@ public class HasidQueryHelper {
 	}
 
 	/**
-	 * Reads one element on the provided id
+	 * Generates a query condition to filter on several object ids
+	 * 
+	 * @param alias            alias of the object
+	 * @param idvalues         values of the ids (at most
+	 *                         {@link InQueryCondition#MAX_VALUES})
+	 * @param parentdefinition definition of the data object
+	 * @return the requested query condition
+	 * @since 2.0
+	 */
+	public static <E extends DataObject<E>> QueryCondition getIdInQueryCondition(TableAlias alias,
+			List<String> idvalues, DataObjectDefinition<E> parentdefinition) {
+		HasidDefinition<E> definition = new HasidDefinition<E>(parentdefinition);
+		@SuppressWarnings("unchecked")
+		StoredFieldSchema<String> id = (StoredFieldSchema<String>) definition.getDefinition().lookupOnName("ID");
+		return new InQueryCondition<String>(alias, id, idvalues);
+	}
+
+	/**
+	 * gets a batch of ids to query with an in condition
+	 * 
+	 * @param id  an array of data object ids
+	 * @param min index of the first id of the batch
+	 * @return the ids between min (included) and min +
+	 *         {@link InQueryCondition#MAX_VALUES} (excluded). Null ids are replaced
+	 *         by an id matching no object
+	 * @since 2.0
+	 */
+	static List<String> getIdBatch(DataObjectId<?>[] id, int min) {
+		ArrayList<String> batch = new ArrayList<String>();
+		for (int i = min; i < Math.min(min + InQueryCondition.MAX_VALUES, id.length); i++)
+			batch.add(id[i] == null ? BLANK_ID : id[i].getId());
+		return batch;
+	}
+
+	/**
+	 * gets the cache to use for reading objects by id. Objects read after the
+	 * thread has written in a transaction not yet committed may have uncommitted
+	 * values, and cached objects may not show changes of the thread, so the cache
+	 * is then not used
+	 * 
+	 * @param definition definition of the object type
+	 * @return the cache, or null if no cache should be used
+	 * @since 2.0
+	 */
+	private static <E extends DataObject<E>> DataObjectCache<E> getUsableCache(DataObjectDefinition<E> definition) {
+		if (PersistenceGateway.hasWrittenInTransaction())
+			return null;
+		return definition.getObjectCache();
+	}
+
+	/**
+	 * Reads one element on the provided id. If a cache is set-up for the object,
+	 * the object is read from the cache when present. The cache is not used once
+	 * the thread has written in a transaction not yet committed, and objects read
+	 * on the read replica are not put in cache
 	 * 
 	 * @param id                 unique id of the object
 	 * @param definition         definition of the object type
@@ -76,6 +135,14 @@ public class HasidQueryHelper {
 	 */
 	public <E extends DataObject<E>> E readone(DataObjectId<E> id, DataObjectDefinition<E> definition,
 			HasidDefinition<E> propertydefinition) {
+		DataObjectCache<E> cache = getUsableCache(definition);
+		long cachegeneration = 0;
+		if (cache != null) {
+			E cachedobject = cache.get(id.getId());
+			if (cachedobject != null)
+				return cachedobject;
+			cachegeneration = cache.getGeneration();
+		}
 		NamedList<TableAlias> aliaslist = new NamedList<TableAlias>();
 		TableAlias alias = definition.getAlias("SINGLEOBJECT");
 		aliaslist.add(alias);
@@ -89,11 +156,16 @@ public class HasidQueryHelper {
 		}
 
 		QueryCondition extendedcondition = definition.extendquery(aliaslist, alias, finalcondition);
+		// the read replica may lag behind the main database
+		boolean populatecache = ((cache != null) && (!PersistenceGateway.isReadingOnReplica()));
 		Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
 		boolean hasline = answer.next();
 		if (hasline) {
-			E formattedanswer = definition.generateFromRow(answer, alias);
+			E formattedanswer = (populatecache ? cache.generateFromRow(answer, alias, cachegeneration)
+					: definition.generateFromRow(answer, alias));
 			if (answer.next()) {
+				if (cache != null)
+					cache.invalidate(id.getId());
 				String firstobject = formattedanswer.dropToString();
 				E secondillegalanswer = definition.generateFromRow(answer, alias);
 				String secondillegalanswerdrop = secondillegalanswer.dropToString();
@@ -141,29 +213,34 @@ public class HasidQueryHelper {
 			boolean blowifabsent) {
 		ArrayList<E> results = new ArrayList<E>();
 		HashMap<String, E> resultsbyid = new HashMap<String, E>();
+		DataObjectCache<E> cache = getUsableCache(definition);
+		long cachegeneration = (cache != null ? cache.getGeneration() : 0);
+		// the read replica may lag behind the main database
+		boolean populatecache = ((cache != null) && (!PersistenceGateway.isReadingOnReplica()));
+		LinkedHashSet<String> distinctids = new LinkedHashSet<String>();
+		for (int i = 0; i < id.length; i++)
+			distinctids.add(id[i].getId());
+		ArrayList<String> idstoquery = new ArrayList<String>();
+		Iterator<String> distinctidsiterator = distinctids.iterator();
+		while (distinctidsiterator.hasNext()) {
+			String thisid = distinctidsiterator.next();
+			E cachedobject = (cache != null ? cache.get(thisid) : null);
+			if (cachedobject != null) {
+				resultsbyid.put(thisid, cachedobject);
+			} else {
+				idstoquery.add(thisid);
+			}
+		}
 		// work by batches to ensure query is not too long
-		for (int i = 0; i < (id.length / BATCH_QUERY_SIZE) + 1; i++) {
+		for (int min = 0; min < idstoquery.size(); min += InQueryCondition.MAX_VALUES) {
 			NamedList<TableAlias> aliaslist = new NamedList<TableAlias>();
 			TableAlias alias = definition.getAlias("SINGLEOBJECT");
 			aliaslist.add(alias);
 			QueryCondition objectuniversalcondition = definition.getUniversalQueryCondition(propertydefinition,
 					"SINGLEOBJECT");
-			OrQueryCondition uniqueidcondition = new OrQueryCondition();
-			int min = i * BATCH_QUERY_SIZE;
-			if (min < id.length) {
-			for (int j = min; j < min + BATCH_QUERY_SIZE; j++) {
-				QueryCondition thisuniqueidcondition = null;
-				if (j < id.length) {
-					thisuniqueidcondition = HasidQueryHelper.getIdQueryCondition(alias, id[j].getId(),
-							definition);
-				} else {
-					// all queries will have batch size conditions. If not enough id, a blank id is
-					// used
-					thisuniqueidcondition = HasidQueryHelper.getIdQueryCondition(alias, BLANK_ID,
-							definition);
-				}
-				uniqueidcondition.addCondition(thisuniqueidcondition);
-			}
+			QueryCondition uniqueidcondition = HasidQueryHelper.getIdInQueryCondition(alias,
+					idstoquery.subList(min, Math.min(min + InQueryCondition.MAX_VALUES, idstoquery.size())),
+					definition);
 
 			QueryCondition finalcondition = uniqueidcondition;
 			if (objectuniversalcondition != null) {
@@ -173,11 +250,11 @@ public class HasidQueryHelper {
 			QueryCondition extendedcondition = definition.extendquery(aliaslist, alias, finalcondition);
 			Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
 			while (answer.next()) {
-				E formattedanswer = definition.generateFromRow(answer, alias);
+				E formattedanswer = (populatecache ? cache.generateFromRow(answer, alias, cachegeneration)
+						: definition.generateFromRow(answer, alias));
 				// put all results in a hasmap;
 				resultsbyid.put(formattedanswer.getId().getId(), formattedanswer);
 			}
-			}
 		}
 		for (int i = 0; i < id.length; i++) {
 			DataObjectId<E> thisid = id[i];
@@ -204,4 +281,45 @@ public class HasidQueryHelper {
 		return readseveral(id, definition, propertydefinition, true);
 	}
 
+	/**
+	 * gets a list of objects for a list of ids that may contain null or empty ids,
+	 * typically the ids of parents or right objects of an array of objects.
+	 * Distinct ids are read in as few queries as possible, using the cache when
+	 * present.
+	 * 
+	 * @param id                 list of object ids, some of them may be null or
+	 *                           empty
+	 * @param definition         definition of the data object
+	 * @param propertydefinition definition of the unique identified property for
+	 *                           the object
+	 * @return an array of objects in the order of the ids provided, with a null
+	 *         element for a null or empty id, or for an object not found
+	 * @since 2.0
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public <E extends DataObject<E>> E[] readseveralallowingblank(DataObjectId<E>[] id,
+			DataObjectDefinition<E> definition, HasidDefinition<E> propertydefinition) {
+		E[] results = Arrays.copyOf(definition.generateArrayTemplate(), id.length);
+		ArrayList<DataObjectId<E>> idstoread = new ArrayList<DataObjectId<E>>();
+		ArrayList<Integer> positions = new ArrayList<Integer>();
+		for (int i = 0; i < id.length; i++) {
+			if (id[i] == null)
+				continue;
+			if (id[i].getId() == null)
+				continue;
+			if (id[i].getId().length() == 0)
+				continue;
+			idstoread.add(id[i]);
+			positions.add(i);
+		}
+		if (idstoread.size() == 0)
+			return results;
+		// objects referenced by id always have the HasId property
+		DataObject[] objects = readseveral(idstoread.toArray(new DataObjectId[0]), (DataObjectDefinition) definition,
+				(HasidDefinition) propertydefinition, false);
+		for (int i = 0; i < objects.length; i++)
+			results[positions.get(i)] = (E) objects[i];
+		return results;
+	}
+
 }
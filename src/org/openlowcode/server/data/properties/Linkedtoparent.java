@@ -221,6 +221,42 @@ public class Linkedtoparent<E extends DataObject<E> & UniqueidentifiedInterface<
 				linkedtoparentdefinition.getGenericsParentobjectforlinkProperty().getDependentDefinitionHasid());
 	}
 
+	/**
+	 * gets the parents of several objects. Distinct parents are read in as few
+	 * queries as possible instead of one query per object
+	 * 
+	 * @param object         current objects
+	 * @param linkedtoparent corresponding linked to parent properties
+	 * @return the parent of each object in the same order, null for an object
+	 *         without parent. An empty array is returned for an empty batch
+	 * @since 2.0
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E extends DataObject<E> & UniqueidentifiedInterface<E>, F extends DataObject<F>> F[] getparent(
+			E[] object, Linkedtoparent<E, F>[] linkedtoparent) {
+		if (object == null)
+			throw new RuntimeException("object batch is null");
+		if (linkedtoparent == null)
+			throw new RuntimeException("linkedtoparent batch is null");
+		if (object.length != linkedtoparent.length)
+			throw new RuntimeException("Linkedtoparent Array (" + linkedtoparent.length
+					+ ") is not same size as object Array (" + object.length + ")");
+		if (linkedtoparent.length == 0)
+			return (F[]) new DataObject<?>[0];
+		Linkedtoparent<E, F> firstproperty = linkedtoparent[0];
+		@SuppressWarnings("unchecked")
+		DataObjectId<F>[] parentid = new DataObjectId[linkedtoparent.length];
+		for (int i = 0; i < linkedtoparent.length; i++) {
+			String thisparentid = linkedtoparent[i].pridfield.getPayload();
+			if (thisparentid != null)
+				if (thisparentid.length() > 0)
+					parentid[i] = new DataObjectId<F>(thisparentid, firstproperty.parentdefinition);
+		}
+		return HasidQueryHelper.get().readseveralallowingblank(parentid, firstproperty.parentdefinition,
+				firstproperty.linkedtoparentdefinition.getGenericsParentobjectforlinkProperty()
+						.getDependentDefinitionHasid());
+	}
+
 	/**
 	 * gets the name of the parent (if it exists)
 	 * 
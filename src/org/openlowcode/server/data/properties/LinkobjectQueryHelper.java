@@ -11,18 +11,20 @@
 package org.openlowcode.server.data.properties;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import org.openlowcode.tools.misc.NamedList;
 
 import org.openlowcode.server.data.DataObject;
 import org.openlowcode.server.data.DataObjectDefinition;
+import org.openlowcode.server.data.QueryCursor;
 import org.openlowcode.server.data.QueryHelper;
 import org.openlowcode.server.data.ThreeDataObjects;
 import org.openlowcode.server.data.TwoDataObjects;
 import org.openlowcode.server.data.properties.constraints.ConstraintOnLinkObject;
 import org.openlowcode.server.data.storage.AndQueryCondition;
 import org.openlowcode.server.data.storage.JoinQueryCondition;
-import org.openlowcode.server.data.storage.OrQueryCondition;
+import org.openlowcode.server.data.storage.InQueryCondition;
 import org.openlowcode.server.data.storage.QueryCondition;
 import org.openlowcode.server.data.storage.QueryFilter;
 import org.openlowcode.server.data.storage.QueryOperatorEqual;
@@ -42,7 +44,6 @@ import org.openlowcode.server.data.storage.TableAlias;
  */
 public class LinkobjectQueryHelper {
 
-	private static final int BATCH_QUERY_SIZE = 20;
 	private static final String BLANK_ID = "NEVERLAND";
 	private static LinkobjectQueryHelper singleton = new LinkobjectQueryHelper();
 
@@ -98,6 +99,50 @@ public class LinkobjectQueryHelper {
 				(idvalue == null ? BLANK_ID : idvalue.getId()));
 	}
 
+	/**
+	 * generates a query condition on several left ids of the link
+	 * 
+	 * @param alias                  table alias to generate the id for
+	 * @param idvalues               values of the left id (at most
+	 *                               {@link InQueryCondition#MAX_VALUES})
+	 * @param parentobjectdefinition definition of the parent object
+	 * @param leftobjectdefinition   definition of the left object for the link
+	 * @param rightobjectdefinition  definition of the right object for the link
+	 * @return the query condition
+	 * @since 2.0
+	 */
+	public <E extends DataObject<E> & LinkobjectInterface<E, F, G>, F extends DataObject<F> & UniqueidentifiedInterface<F>, G extends DataObject<G> & UniqueidentifiedInterface<G>> QueryCondition getLeftidInQueryCondition(
+			TableAlias alias, List<String> idvalues, DataObjectDefinition<E> parentobjectdefinition,
+			DataObjectDefinition<F> leftobjectdefinition, DataObjectDefinition<G> rightobjectdefinition) {
+		LinkobjectDefinition<E, F, G> definition = new LinkobjectDefinition<E, F, G>(parentobjectdefinition,
+				leftobjectdefinition, rightobjectdefinition, false);
+		@SuppressWarnings("unchecked")
+		StoredFieldSchema<String> id = (StoredFieldSchema<String>) definition.getDefinition().lookupOnName("LFID");
+		return new InQueryCondition<String>(alias, id, idvalues);
+	}
+
+	/**
+	 * generates a query condition on several right ids of the link
+	 * 
+	 * @param alias                  table alias to generate the id for
+	 * @param idvalues               values of the right id (at most
+	 *                               {@link InQueryCondition#MAX_VALUES})
+	 * @param parentobjectdefinition definition of the parent object
+	 * @param leftobjectdefinition   definition of the left object for the link
+	 * @param rightobjectdefinition  definition of the right object for the link
+	 * @return the query condition
+	 * @since 2.0
+	 */
+	public <E extends DataObject<E> & LinkobjectInterface<E, F, G>, F extends DataObject<F> & UniqueidentifiedInterface<F>, G extends DataObject<G> & UniqueidentifiedInterface<G>> QueryCondition getRightidInQueryCondition(
+			TableAlias alias, List<String> idvalues, DataObjectDefinition<E> parentobjectdefinition,
+			DataObjectDefinition<F> leftobjectdefinition, DataObjectDefinition<G> rightobjectdefinition) {
+		LinkobjectDefinition<E, F, G> definition = new LinkobjectDefinition<E, F, G>(parentobjectdefinition,
+				leftobjectdefinition, rightobjectdefinition, false);
+		@SuppressWarnings("unchecked")
+		StoredFieldSchema<String> id = (StoredFieldSchema<String>) definition.getDefinition().lookupOnName("RGID");
+		return new InQueryCondition<String>(alias, id, idvalues);
+	}
+
 	/**
 	 * generates a query condition on the right id of the link
 	 * 
@@ -183,29 +228,15 @@ public class LinkobjectQueryHelper {
 		ArrayList<E> results = new ArrayList<E>();
 
 		// work by batches to ensure query is not too long
-		for (int i = 0; i < (leftid.length / BATCH_QUERY_SIZE) + 1; i++) {
+		for (int min = 0; min < leftid.length; min += InQueryCondition.MAX_VALUES) {
 			NamedList<TableAlias> aliaslist = new NamedList<TableAlias>();
 			TableAlias alias = parentobjectdefinition.getAlias("SINGLEOBJECT");
 			aliaslist.add(alias);
 			QueryCondition objectuniversalcondition = parentobjectdefinition
 					.getUniversalQueryCondition(propertydefinition, "SINGLEOBJECT");
-			OrQueryCondition uniqueidcondition = new OrQueryCondition();
-			int min = i * BATCH_QUERY_SIZE;
-			if (min < leftid.length) {
-			for (int j = min; j < min + BATCH_QUERY_SIZE; j++) {
-				QueryCondition thisuniqueidcondition = null;
-				if (j < leftid.length) {
-					thisuniqueidcondition = getLeftidQueryCondition(alias, leftid[j], parentobjectdefinition,
-							leftobjectdefinition, rightobjectdefinition);
-				} else {
-					// all queries will have batch size conditions. If not enough id, a blank id is
-					// used
-					thisuniqueidcondition = getLeftidQueryCondition(alias, null, parentobjectdefinition,
-							leftobjectdefinition, rightobjectdefinition);
-
-				}
-				uniqueidcondition.addCondition(thisuniqueidcondition);
-			}
+			QueryCondition uniqueidcondition = getLeftidInQueryCondition(alias,
+					HasidQueryHelper.getIdBatch(leftid, min), parentobjectdefinition, leftobjectdefinition,
+					rightobjectdefinition);
 
 			QueryCondition finalcondition = uniqueidcondition;
 			if (objectuniversalcondition != null) {
@@ -219,7 +250,6 @@ public class LinkobjectQueryHelper {
 				// put all results in a hasmap;
 				results.add(formattedanswer);
 			}
-			}
 		}
 
 		return results.toArray(parentobjectdefinition.generateArrayTemplate());
@@ -245,7 +275,7 @@ public class LinkobjectQueryHelper {
 		ArrayList<E> results = new ArrayList<E>();
 
 		// work by batches to ensure query is not too long
-		for (int i = 0; i < (rightid.length / BATCH_QUERY_SIZE) + 1; i++) {
+		for (int min = 0; min < rightid.length; min += InQueryCondition.MAX_VALUES) {
 			NamedList<TableAlias> aliaslist = new NamedList<TableAlias>();
 			TableAlias alias = parentobjectdefinition.getAlias("SINGLEOBJECT");
 			aliaslist.add(alias);
@@ -259,23 +289,9 @@ public class LinkobjectQueryHelper {
 				if (additionalcondition.getCondition() != null)
 					objectuniversalcondition = new AndQueryCondition(objectuniversalcondition,
 							additionalcondition.getCondition());
-			OrQueryCondition uniqueidcondition = new OrQueryCondition();
-			int min = i * BATCH_QUERY_SIZE;
-			if (min<rightid.length) {
-			for (int j = min; j < min + BATCH_QUERY_SIZE; j++) {
-				QueryCondition thisuniqueidcondition = null;
-				if (j < rightid.length) {
-					thisuniqueidcondition = getRightidQueryCondition(alias, rightid[j], parentobjectdefinition,
-							leftobjectdefinition, rightobjectdefinition);
-				} else {
-					// all queries will have batch size conditions. If not enough id, a blank id is
-					// used
-					thisuniqueidcondition = getRightidQueryCondition(alias, null, parentobjectdefinition,
-							leftobjectdefinition, rightobjectdefinition);
-
-				}
-				uniqueidcondition.addCondition(thisuniqueidcondition);
-			}
+			QueryCondition uniqueidcondition = getRightidInQueryCondition(alias,
+					HasidQueryHelper.getIdBatch(rightid, min), parentobjectdefinition, leftobjectdefinition,
+					rightobjectdefinition);
 
 			QueryCondition finalcondition = uniqueidcondition;
 			if (objectuniversalcondition != null) {
@@ -289,7 +305,7 @@ public class LinkobjectQueryHelper {
 				// put all results in a hasmap;
 				results.add(formattedanswer);
 			}
-		}}
+		}
 
 		return results.toArray(parentobjectdefinition.generateArrayTemplate());
 	}
@@ -741,30 +757,16 @@ public class LinkobjectQueryHelper {
 		ArrayList<TwoDataObjects<F, G>> results = new ArrayList<TwoDataObjects<F, G>>();
 
 		// work by batches to ensure query is not too long
-		for (int i = 0; i < (leftid.length / BATCH_QUERY_SIZE) + 1; i++) {
+		for (int min = 0; min < leftid.length; min += InQueryCondition.MAX_VALUES) {
 			NamedList<TableAlias> aliaslist = new NamedList<TableAlias>();
 			TableAlias linkalias = linkobjectdefinition.getAlias(LINKSANDBOTHOBJECTS_LINKOBJECTALIAS);
 			TableAlias rightobjectalias = rightobjectdefinition.getAlias(LINKSANDBOTHOBJECTS_RIGHTOBJECTALIAS);
 			aliaslist.add(linkalias);
 			aliaslist.add(rightobjectalias);
 
-			OrQueryCondition uniqueidcondition = new OrQueryCondition();
-			int min = i * BATCH_QUERY_SIZE;
-			if (min<leftid.length) {
-			for (int j = min; j < min + BATCH_QUERY_SIZE; j++) {
-				QueryCondition thisuniqueidcondition = null;
-				if (j < leftid.length) {
-					thisuniqueidcondition = getLeftidQueryCondition(linkalias, leftid[j], linkobjectdefinition,
-							leftobjectdefinition, rightobjectdefinition);
-				} else {
-					// all queries will have batch size conditions. If not enough id, a blank id is
-					// used
-					thisuniqueidcondition = getLeftidQueryCondition(linkalias, null, linkobjectdefinition,
-							leftobjectdefinition, rightobjectdefinition);
-
-				}
-				uniqueidcondition.addCondition(thisuniqueidcondition);
-			}
+			QueryCondition uniqueidcondition = getLeftidInQueryCondition(linkalias,
+					HasidQueryHelper.getIdBatch(leftid, min), linkobjectdefinition, leftobjectdefinition,
+					rightobjectdefinition);
 
 			AndQueryCondition joinquerycondition = new AndQueryCondition();
 			joinquerycondition.addCondition(uniqueidcondition);
@@ -791,13 +793,18 @@ public class LinkobjectQueryHelper {
 			if (linkuniversalcondition != null)
 				extendedconditionforright = new AndQueryCondition(extendedconditionforright, linkuniversalcondition);
 
-			Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedconditionforright));
-			while (answer.next()) {
-				F objectone = linkobjectdefinition.generateFromRow(answer, linkalias);
-				G objecttwo = rightobjectdefinition.generateFromRow(answer, rightobjectalias);
-				results.add(new TwoDataObjects<F, G>(objectone, objecttwo));
+			SelectQuery query = new SelectQuery(aliaslist, extendedconditionforright);
+			query.setStreaming(true);
+			QueryCursor<TwoDataObjects<F, G>> cursor = QueryHelper.getHelper().stream(query,
+					(row) -> new TwoDataObjects<F, G>(linkobjectdefinition.generateFromRow(row, linkalias),
+							rightobjectdefinition.generateFromRow(row, rightobjectalias)));
+			try {
+				while (cursor.hasNext())
+					results.add(cursor.next());
+			} finally {
+				cursor.close();
 			}
-		}}
+		}
 
 		return results.toArray(new TwoDataObjects[0]);
 
@@ -819,6 +826,36 @@ public class LinkobjectQueryHelper {
 			DataObjectId<E> leftid, QueryFilter additionalcondition, DataObjectDefinition<F> linkobjectdefinition,
 			DataObjectDefinition<E> leftobjectdefinition, DataObjectDefinition<G> rightobjectdefinition,
 			LinkobjectDefinition<F, E, G> propertyDefinition) {
+		ArrayList<TwoDataObjects<F, G>> returnlist = new ArrayList<TwoDataObjects<F, G>>();
+		QueryCursor<TwoDataObjects<F, G>> cursor = streamlinksandrightobject(leftid, additionalcondition,
+				linkobjectdefinition, leftobjectdefinition, rightobjectdefinition, propertyDefinition);
+		try {
+			while (cursor.hasNext())
+				returnlist.add(cursor.next());
+		} finally {
+			cursor.close();
+		}
+		return returnlist.toArray(new TwoDataObjects[0]);
+	}
+
+	/**
+	 * gets links and right object corresponding to the specified left object id
+	 * as a cursor, reading them from the database one by one. The cursor should
+	 * be closed if it is not read until the end.
+	 * 
+	 * @param leftid                specified left object id
+	 * @param additionalcondition   additional filter condition
+	 * @param linkobjectdefinition  definition of the link object
+	 * @param leftobjectdefinition  left object definition
+	 * @param rightobjectdefinition right object definition
+	 * @param propertydefinition    definition of the link object property
+	 * @return a cursor on the links and right objects
+	 * @since 2.0
+	 */
+	public <E extends DataObject<E> & UniqueidentifiedInterface<E>, F extends DataObject<F> & LinkobjectInterface<F, E, G>, G extends DataObject<G> & UniqueidentifiedInterface<G>> QueryCursor<TwoDataObjects<F, G>> streamlinksandrightobject(
+			DataObjectId<E> leftid, QueryFilter additionalcondition, DataObjectDefinition<F> linkobjectdefinition,
+			DataObjectDefinition<E> leftobjectdefinition, DataObjectDefinition<G> rightobjectdefinition,
+			LinkobjectDefinition<F, E, G> propertyDefinition) {
 		TableAlias linkalias = linkobjectdefinition.getAlias(LINKSANDBOTHOBJECTS_LINKOBJECTALIAS);
 		TableAlias rightobjectalias = rightobjectdefinition.getAlias(LINKSANDBOTHOBJECTS_RIGHTOBJECTALIAS);
 		NamedList<TableAlias> aliaslist = new NamedList<TableAlias>();
@@ -858,15 +895,11 @@ public class LinkobjectQueryHelper {
 		if (linkuniversalcondition != null)
 			extendedconditionforright = new AndQueryCondition(extendedconditionforright, linkuniversalcondition);
 
-		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedconditionforright));
-		ArrayList<TwoDataObjects<F, G>> returnlist = new ArrayList<TwoDataObjects<F, G>>();
-		while (row.next()) {
-
-			F objectone = linkobjectdefinition.generateFromRow(row, linkalias);
-			G objecttwo = rightobjectdefinition.generateFromRow(row, rightobjectalias);
-			returnlist.add(new TwoDataObjects<F, G>(objectone, objecttwo));
-		}
-		return returnlist.toArray(new TwoDataObjects[0]);
+		SelectQuery query = new SelectQuery(aliaslist, extendedconditionforright);
+		query.setStreaming(true);
+		return QueryHelper.getHelper().stream(query,
+				(row) -> new TwoDataObjects<F, G>(linkobjectdefinition.generateFromRow(row, linkalias),
+						rightobjectdefinition.generateFromRow(row, rightobjectalias)));
 	}
 
 	/**
@@ -889,7 +922,7 @@ public class LinkobjectQueryHelper {
 		ArrayList<TwoDataObjects<E, F>> results = new ArrayList<TwoDataObjects<E, F>>();
 
 		// work by batches to ensure query is not too long
-		for (int i = 0; i < (rightid.length / BATCH_QUERY_SIZE) + 1; i++) {
+		for (int min = 0; min < rightid.length; min += InQueryCondition.MAX_VALUES) {
 			
 			// generate aliases
 			TableAlias linkalias = linkobjectdefinition.getAlias(LINKSANDBOTHOBJECTS_LINKOBJECTALIAS);
@@ -899,23 +932,9 @@ public class LinkobjectQueryHelper {
 			aliaslist.add(leftobjectalias);
 			
 			// condition on unique ids
-			OrQueryCondition uniqueidcondition = new OrQueryCondition();
-			int min = i * BATCH_QUERY_SIZE;
-			if (min<rightid.length) {
-			for (int j = min; j < min + BATCH_QUERY_SIZE; j++) {
-				QueryCondition thisuniqueidcondition = null;
-				if (j < rightid.length) {
-					thisuniqueidcondition = getRightidQueryCondition(linkalias, rightid[j], linkobjectdefinition,
-							leftobjectdefinition, rightobjectdefinition);
-				} else {
-					// all queries will have batch size conditions. If not enough id, a blank id is
-					// used
-					thisuniqueidcondition = getLeftidQueryCondition(linkalias, null, linkobjectdefinition,
-							leftobjectdefinition, rightobjectdefinition);
-
-				}
-				uniqueidcondition.addCondition(thisuniqueidcondition);
-			}
+			QueryCondition uniqueidcondition = getRightidInQueryCondition(linkalias,
+					HasidQueryHelper.getIdBatch(rightid, min), linkobjectdefinition, leftobjectdefinition,
+					rightobjectdefinition);
 			
 			
 			AndQueryCondition joinquerycondition = new AndQueryCondition();
@@ -952,7 +971,7 @@ public class LinkobjectQueryHelper {
 			}
 			
 			
-		}}
+		}
 		
 		return results.toArray(new TwoDataObjects[0]);
 	}
@@ -170,6 +170,55 @@ public DataObjectId<G> getLinkobjecttomasterrightid() {
 	return new DataObjectId<G>(this.linkobjectrightid.getPayload(),rightobjectdefinition);
 }
 
+/**
+* gets the right object of the link, in its latest version
+* 
+* @param object the link object
+* @return the latest version of the right object, or null if not found
+* @since 2.0
+*/
+public G getrightobject(E object) {
+if (this.linkobjectrightid.getPayload() == null)
+	return null;
+if (this.linkobjectrightid.getPayload().length() == 0)
+	return null;
+return HasidQueryHelper.get().readone(getLinkobjecttomasterrightid(), rightobjectdefinition,
+		linkobjectdefinition.getRightversioneddefinition().getDependentDefinitionUniqueidentified()
+				.getDependentDefinitionHasid());
+}
+
+/**
+* gets the right objects of several links. Distinct right objects are read in as
+* few queries as possible instead of one query per link
+* 
+* @param object             the link objects
+* @param linkobjecttomaster corresponding link object to master properties
+* @return the latest version of the right object of each link, in the same
+*         order. An empty array is returned for an empty batch
+* @since 2.0
+*/
+@SuppressWarnings("unchecked")
+public static <E extends DataObject<E> & LinkobjecttomasterInterface<E, F, G>, F extends DataObject<F> & UniqueidentifiedInterface<F>, G extends DataObject<G> & VersionedInterface<G>> G[] getrightobject(
+	E[] object, Linkobjecttomaster<E, F, G>[] linkobjecttomaster) {
+if (object == null)
+	throw new RuntimeException("object batch is null");
+if (linkobjecttomaster == null)
+	throw new RuntimeException("linkobjecttomaster batch is null");
+if (object.length != linkobjecttomaster.length)
+	throw new RuntimeException("Linkobjecttomaster Array (" + linkobjecttomaster.length
+			+ ") is not same size as object Array (" + object.length + ")");
+if (linkobjecttomaster.length == 0)
+	return (G[]) new DataObject<?>[0];
+Linkobjecttomaster<E, F, G> firstproperty = linkobjecttomaster[0];
+@SuppressWarnings("unchecked")
+DataObjectId<G>[] rightid = new DataObjectId[linkobjecttomaster.length];
+for (int i = 0; i < linkobjecttomaster.length; i++)
+	rightid[i] = linkobjecttomaster[i].getLinkobjecttomasterrightid();
+return HasidQueryHelper.get().readseveralallowingblank(rightid, firstproperty.rightobjectdefinition,
+		firstproperty.linkobjectdefinition.getRightversioneddefinition().getDependentDefinitionUniqueidentified()
+				.getDependentDefinitionHasid());
+}
+
 /**
 * checks that the link corresponds to the conditions
 * 
@@ -88,6 +88,28 @@ public TwoDataObjects<F, E>[] getlinksandleftobject(DataObjectMasterId<G>[] righ
 * @return
 */
 public MassiveGetlinksandleftobject<E, F, G> getMassiveGetlinksandleftobject();
+
+/**
+ * @since 2.0
+ */
+public interface MassiveGetrightobject<E extends DataObject<E>, F extends DataObject<F>, G extends DataObject<G>> {
+/**
+ * gets the right objects of several links
+ * 
+ * @param object the link objects
+ * @return the latest version of the right object of each link
+ */
+public G[] getrightobject(E[] object);
+}
+
+/**
+* gets an helper class that can perform a massive get of right objects for
+* several links
+* 
+* @return
+* @since 2.0
+*/
+public MassiveGetrightobject<E, F, G> getMassiveGetrightobject();
 }
 
 
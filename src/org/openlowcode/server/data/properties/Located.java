@@ -103,9 +103,7 @@ public class Located<E extends DataObject<E> & LocatedInterface<E> & Uniqueident
 	 */
 	public static <E extends DataObject<E> & LocatedInterface<E> & UniqueidentifiedInterface<E>> void preprocStoredobjectInsert(
 			E[] object, Located<E>[] locatedbatch) {
-		for (int i = 0; i < object.length; i++) {
-			locatedbatch[i].preprocStoredobjectInsert(object[i]);
-		}
+		setlocation(object, locatedbatch);
 	}
 
 	/**
@@ -114,9 +112,25 @@ public class Located<E extends DataObject<E> & LocatedInterface<E> & Uniqueident
 	 */
 	public static <E extends DataObject<E> & LocatedInterface<E> & UniqueidentifiedInterface<E>> void preprocUniqueidentifiedUpdate(
 			E[] object, Located<E>[] locatedbatch) {
-		for (int i = 0; i < object.length; i++) {
-			locatedbatch[i].preprocUniqueidentifiedUpdate(object[i]);
-		}
+		setlocation(object, locatedbatch);
+	}
+
+	/**
+	 * sets the location of several objects, getting all locations from the
+	 * location helper at once
+	 * 
+	 * @param object       objects
+	 * @param locatedbatch located properties of the objects, in the same order
+	 * @since 2.0
+	 */
+	private static <E extends DataObject<E> & LocatedInterface<E> & UniqueidentifiedInterface<E>> void setlocation(
+			E[] object, Located<E>[] locatedbatch) {
+		if (object.length == 0)
+			return;
+		DataObjectId<Domain>[] locations = locatedbatch[0].locateddefinition.getLocationHelper()
+				.getObjectLocation(object);
+		for (int i = 0; i < object.length; i++)
+			locatedbatch[i].locationdomainid.setPayload(locations[i].getId());
 	}
 
 	/**
@@ -11,12 +11,20 @@
 package org.openlowcode.server.data.properties;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
 
 import org.openlowcode.tools.misc.NamedList;
 
 import org.openlowcode.server.data.DataObject;
+import org.openlowcode.server.data.DataObjectCursor;
 import org.openlowcode.server.data.DataObjectDefinition;
+import org.openlowcode.server.data.QueryCursor;
 import org.openlowcode.server.data.QueryHelper;
+import org.openlowcode.server.data.storage.AggregateQuery;
 import org.openlowcode.server.data.storage.AndQueryCondition;
 import org.openlowcode.server.data.storage.QueryCondition;
 import org.openlowcode.server.data.storage.QueryFilter;
@@ -34,11 +42,141 @@ import org.openlowcode.server.data.storage.TableAlias;
  *
  */
 public class StoredobjectQueryHelper {
+	private static Logger logger = Logger.getLogger(StoredobjectQueryHelper.class.getName());
 	private static StoredobjectQueryHelper singleton = new StoredobjectQueryHelper();
 	/**
 	 * the alias for the main table for get all active query
 	 */
 	public static String maintablealiasforgetallactive = "U0";
+	/**
+	 * default maximum number of objects brought back by a search action
+	 * 
+	 * @since 2.0
+	 */
+	public static final int DEFAULT_SEARCH_MAX_RESULTS = 5000;
+	private static int searchmaxresults = DEFAULT_SEARCH_MAX_RESULTS;
+	private static ThreadLocal<String> searchtruncationmessage = new ThreadLocal<String>();
+
+	/**
+	 * sets the maximum number of objects brought back by a search action
+	 * 
+	 * @param searchmaxresults maximum number of objects, 0 for no limit
+	 * @since 2.0
+	 */
+	public static void setSearchMaxResults(int searchmaxresults) {
+		if (searchmaxresults < 0)
+			throw new RuntimeException("Maximum number of search results cannot be negative: " + searchmaxresults);
+		StoredobjectQueryHelper.searchmaxresults = searchmaxresults;
+	}
+
+	/**
+	 * @return the maximum number of objects brought back by a search action, 0 if
+	 *         there is no limit
+	 * @since 2.0
+	 */
+	public static int getSearchMaxResults() {
+		return searchmaxresults;
+	}
+
+	/**
+	 * limits the query filter of a search to the maximum number of search
+	 * results, plus one row to detect if there are more results
+	 * 
+	 * @param filter the query filter of the search
+	 * @return the same query filter
+	 * @since 2.0
+	 */
+	public static QueryFilter limitSearch(QueryFilter filter) {
+		if (searchmaxresults > 0)
+			filter.setLimit(searchmaxresults + 1);
+		return filter;
+	}
+
+	/**
+	 * truncates the result of a search limited by
+	 * {@link #limitSearch(QueryFilter)} to the maximum number of search results.
+	 * If the result is truncated, a message for the user is stored for the
+	 * current thread, and can be retrieved by
+	 * {@link #consumeSearchTruncationMessage()}
+	 * 
+	 * @param result     result of the search query
+	 * @param objectname name of the object searched, for logging
+	 * @return the result, truncated if there are more objects than the maximum
+	 * @since 2.0
+	 */
+	public static <E extends DataObject<E>> E[] truncateSearchResult(E[] result, String objectname) {
+		if (searchmaxresults == 0)
+			return result;
+		if (result.length <= searchmaxresults)
+			return result;
+		logger.warning("Search on " + objectname + " brought back more than " + searchmaxresults
+				+ " objects, only first ones are sent back");
+		searchtruncationmessage.set("More than " + searchmaxresults + " results found, only the first "
+				+ searchmaxresults + " are shown. Please refine your search criteria");
+		return Arrays.copyOf(result, searchmaxresults);
+	}
+
+	/**
+	 * truncates the result of a streamed search limited by
+	 * {@link #limitSearch(QueryFilter)} to the maximum number of search results.
+	 * If there are more objects than the maximum, the cursor is closed, and a
+	 * message is given to the user message consumer while the result is read.
+	 * 
+	 * @param result      cursor on the result of the search query
+	 * @param objectname  name of the object searched, for logging
+	 * @param usermessage receives the message for the user if the result is
+	 *                    truncated
+	 * @return an iterator on the result, stopping at the maximum number of search
+	 *         results
+	 * @since 2.0
+	 */
+	public static <E extends DataObject<E>> Iterator<E> truncateSearchResult(
+			QueryCursor<E> result,
+			String objectname,
+			Consumer<String> usermessage) {
+		if (searchmaxresults == 0)
+			return result;
+		int maxresults = searchmaxresults;
+		return new Iterator<E>() {
+			private int count = 0;
+
+			@Override
+			public boolean hasNext() {
+				if (!result.hasNext())
+					return false;
+				if (count < maxresults)
+					return true;
+				logger.warning("Search on " + objectname + " brought back more than " + maxresults
+						+ " objects, only first ones are sent back");
+				usermessage.accept("More than " + maxresults + " results found, only the first " + maxresults
+						+ " are shown. Please refine your search criteria");
+				result.close();
+				return false;
+			}
+
+			@Override
+			public E next() {
+				if (!hasNext())
+					throw new NoSuchElementException("No more object " + objectname + " in search result");
+				count++;
+				return result.next();
+			}
+		};
+	}
+
+	/**
+	 * gets the message generated for the user by the last search truncated in the
+	 * current thread, and clears it
+	 * 
+	 * @return the message for the user, or null if no search was truncated since
+	 *         the last call
+	 * @since 2.0
+	 */
+	public static String consumeSearchTruncationMessage() {
+		String message = searchtruncationmessage.get();
+		searchtruncationmessage.remove();
+		return message;
+	}
 
 	/**
 	 * @return the singleton query helper
@@ -109,10 +247,83 @@ public class StoredobjectQueryHelper {
 			QueryFilter condition,
 			DataObjectDefinition<E> definition,
 			StoredobjectDefinition<E> propertydefinition) {
-		NamedList<TableAlias> tablelist = new NamedList<TableAlias>();
 		if (definition == null)
 			throw new RuntimeException("definition is expected to be not null");
 		TableAlias mainobjectalias = definition.getAlias(maintablealiasforgetallactive);
+		SelectQuery selectquery = generateallactivequery(condition, mainobjectalias, definition, propertydefinition);
+		Row row = QueryHelper.getHelper().query(selectquery);
+		ArrayList<E> returnlist = new ArrayList<E>();
+		while (row.next()) {
+			returnlist.add(definition.generateFromRow(row, mainobjectalias));
+		}
+		return returnlist.toArray(definition.generateArrayTemplate());
+	}
+
+	/**
+	 * gets all active objects as a cursor reading them from the database one by
+	 * one. This should be used to process or send to the client a big number of
+	 * objects without holding all of them in memory.
+	 * 
+	 * @param condition          condition to filter further all active records
+	 * @param definition         definition of the object
+	 * @param propertydefinition definition of the stored object property for the
+	 *                           object
+	 * @return a cursor on the objects brought back by the query
+	 * @since 2.0
+	 */
+	public <E extends DataObject<E>> DataObjectCursor<E> streamallactive(
+			QueryFilter condition,
+			DataObjectDefinition<E> definition,
+			StoredobjectDefinition<E> propertydefinition) {
+		if (definition == null)
+			throw new RuntimeException("definition is expected to be not null");
+		TableAlias mainobjectalias = definition.getAlias(maintablealiasforgetallactive);
+		SelectQuery selectquery = generateallactivequery(condition, mainobjectalias, definition, propertydefinition);
+		selectquery.setStreaming(true);
+		return QueryHelper.getHelper().stream(selectquery, definition, mainobjectalias);
+	}
+
+	/**
+	 * gets an aggregate query on all active objects. The caller adds groupings
+	 * and projections on the alias
+	 * {@link #maintablealiasforgetallactive} of the object, and executes the
+	 * query with {@link QueryHelper#aggregate(AggregateQuery)}. Sort criteria and
+	 * limits of the condition are not used.
+	 * 
+	 * @param condition          condition to filter further all active records
+	 * @param definition         definition of the object
+	 * @param propertydefinition definition of the stored object property for the
+	 *                           object
+	 * @return the aggregate query, without grouping nor projection
+	 * @since 2.0
+	 */
+	public <E extends DataObject<E>> AggregateQuery getallactiveaggregatequery(
+			QueryFilter condition,
+			DataObjectDefinition<E> definition,
+			StoredobjectDefinition<E> propertydefinition) {
+		if (definition == null)
+			throw new RuntimeException("definition is expected to be not null");
+		TableAlias mainobjectalias = definition.getAlias(maintablealiasforgetallactive);
+		return new AggregateQuery(generateallactivequery(condition, mainobjectalias, definition, propertydefinition));
+	}
+
+	/**
+	 * generates the select query for all active objects
+	 * 
+	 * @param condition          condition to filter further all active records
+	 * @param mainobjectalias    alias of the main object in the query
+	 * @param definition         definition of the object
+	 * @param propertydefinition definition of the stored object property for the
+	 *                           object
+	 * @return the select query
+	 * @since 2.0
+	 */
+	private <E extends DataObject<E>> SelectQuery generateallactivequery(
+			QueryFilter condition,
+			TableAlias mainobjectalias,
+			DataObjectDefinition<E> definition,
+			StoredobjectDefinition<E> propertydefinition) {
+		NamedList<TableAlias> tablelist = new NamedList<TableAlias>();
 		tablelist.add(mainobjectalias);
 		if (condition != null)
 			if (condition.getAliases() != null)
@@ -137,12 +348,10 @@ public class StoredobjectQueryHelper {
 
 		QueryCondition enhancedcondition = definition.extendquery(tablelist, mainobjectalias, finalcondition);
 
-		Row row = QueryHelper.getHelper().query(new SelectQuery(tablelist, enhancedcondition));
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (row.next()) {
-			returnlist.add(definition.generateFromRow(row, mainobjectalias));
-		}
-		return returnlist.toArray(definition.generateArrayTemplate());
+		SelectQuery selectquery = new SelectQuery(tablelist, enhancedcondition);
+		if (condition != null)
+			condition.applyOrderAndLimit(selectquery);
+		return selectquery;
 	}
 
 }
@@ -123,6 +123,9 @@ public class Uniqueidentified<E extends DataObject<E>>
 			conditions[i] = finalcondition;
 		}
 		DataObjectPayload.massiveupdate(payloads, conditions);
+		for (int i = 0; i < uniqueidentifiedbatch.length; i++)
+			uniqueidentifiedbatch[i].definition.getParentObject()
+					.invalidateCachedObject(uniqueidentifiedbatch[i].getRelatedHasid().getId().getId());
 	}
 
 	/**
@@ -145,6 +148,7 @@ public class Uniqueidentified<E extends DataObject<E>>
 		triggerlauncher.executeTriggerList(object);
 
 		parentpayload.update(finalcondition);
+		definition.getParentObject().invalidateCachedObject(this.hasid.getId().getId());
 
 	}
 
@@ -168,6 +172,7 @@ public class Uniqueidentified<E extends DataObject<E>>
 		TriggerLauncher<E> triggerlauncher = new TriggerLauncher<E>(triggers);
 		triggerlauncher.executeTriggerList(object);
 		parentpayload.update(finalcondition);
+		definition.getParentObject().invalidateCachedObject(this.hasid.getId().getId());
 
 	}
 
@@ -239,6 +244,7 @@ public class Uniqueidentified<E extends DataObject<E>>
 		limitedupdatequery.addFieldUpdate(new SimpleEqualQueryCondition<String>(null,
 				(StoredFieldSchema<String>) (this.hasid.getDefinition().getDefinition().lookupOnName("DELETED")), "Y"));
 		QueryHelper.getHelper().limitedUpdate(limitedupdatequery);
+		definition.getParentObject().invalidateCachedObject(this.hasid.getId().getId());
 
 	}
 
@@ -339,6 +345,9 @@ public class Uniqueidentified<E extends DataObject<E>>
 		limitedupdatequery.addFieldUpdate(new SimpleEqualQueryCondition<String>(null,
 				(StoredFieldSchema<String>) (uniqueidentifiedarrayformethod[0].hasid.getDefinition().getDefinition().lookupOnName("DELETED")), "Y"));
 		QueryHelper.getHelper().limitedUpdate(limitedupdatequery);
+		for (int i = 0; i < uniqueidentifiedarrayformethod.length; i++)
+			uniqueidentifiedarrayformethod[i].definition.getParentObject()
+					.invalidateCachedObject(uniqueidentifiedarrayformethod[i].hasid.getId().getId());
 
 
 	}
@@ -33,4 +33,22 @@ public abstract class LocationHelper<E extends DataObject<E> & LocatedInterface<
 	 * @return the object id of the domain
 	 */
 	public abstract DataObjectId<Domain> getObjectLocation(E object);
+
+	/**
+	 * gets the id of the domain for several objects. By default, the location of
+	 * each object is computed separately. Helpers reading data from the database
+	 * should override this method to read data for all objects in as few queries
+	 * as possible
+	 * 
+	 * @param object data objects
+	 * @return the object id of the domain of each object, in the same order
+	 * @since 2.0
+	 */
+	@SuppressWarnings("unchecked")
+	public DataObjectId<Domain>[] getObjectLocation(E[] object) {
+		DataObjectId<Domain>[] locations = new DataObjectId[object.length];
+		for (int i = 0; i < object.length; i++)
+			locations[i] = getObjectLocation(object[i]);
+		return locations;
+	}
 }
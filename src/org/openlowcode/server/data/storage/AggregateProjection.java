@@ -0,0 +1,170 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.data.storage;
+
+import java.math.BigDecimal;
+
+/**
+ * A value computed by an aggregate query for each group of rows: number of
+ * rows, sum, minimum or maximum of a field. The type of the value read from
+ * the result is given by the generics.
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 2.0
+ *
+ * @param <E> type of the value computed
+ */
+public class AggregateProjection<E extends Object> {
+	/**
+	 * number of rows of the group
+	 */
+	public static final int COUNT = 0;
+	/**
+	 * sum of a numeric field on the rows of the group
+	 */
+	public static final int SUM = 1;
+	/**
+	 * minimum of a field on the rows of the group
+	 */
+	public static final int MIN = 2;
+	/**
+	 * maximum of a field on the rows of the group
+	 */
+	public static final int MAX = 3;
+
+	private int function;
+	private TableAlias alias;
+	private StoredFieldSchema<?> field;
+	private String label;
+
+	/**
+	 * creates an aggregate projection
+	 * 
+	 * @param function one of the function constants of this class
+	 * @param alias    alias of the table of the field, null for count
+	 * @param field    field to aggregate, null for count
+	 */
+	private AggregateProjection(int function, TableAlias alias, StoredFieldSchema<?> field) {
+		if (function != COUNT) {
+			if (alias == null)
+				throw new RuntimeException("Alias for aggregate projection is null");
+			if (field == null)
+				throw new RuntimeException("Field for aggregate projection is null");
+		}
+		this.function = function;
+		this.alias = alias;
+		this.field = field;
+	}
+
+	/**
+	 * @return a projection counting the rows of each group
+	 */
+	public static AggregateProjection<Long> count() {
+		return new AggregateProjection<Long>(COUNT, null, null);
+	}
+
+	/**
+	 * @param alias alias of the table of the field
+	 * @param field a numeric field (integer or decimal)
+	 * @return a projection computing the sum of the field for each group, null
+	 *         for a group with only null values
+	 */
+	public static AggregateProjection<BigDecimal> sum(TableAlias alias, StoredFieldSchema<? extends Number> field) {
+		return new AggregateProjection<BigDecimal>(SUM, alias, field);
+	}
+
+	/**
+	 * @param alias alias of the table of the field
+	 * @param field a field
+	 * @return a projection computing the minimum of the field for each group,
+	 *         null for a group with only null values
+	 */
+	public static <E extends Object> AggregateProjection<E> min(TableAlias alias, StoredFieldSchema<E> field) {
+		return new AggregateProjection<E>(MIN, alias, field);
+	}
+
+	/**
+	 * @param alias alias of the table of the field
+	 * @param field a field
+	 * @return a projection computing the maximum of the field for each group,
+	 *         null for a group with only null values
+	 */
+	public static <E extends Object> AggregateProjection<E> max(TableAlias alias, StoredFieldSchema<E> field) {
+		return new AggregateProjection<E>(MAX, alias, field);
+	}
+
+	/**
+	 * @return the function, as one of the function constants of this class
+	 */
+	public int getFunction() {
+		return function;
+	}
+
+	/**
+	 * @return the SQL name of the function
+	 */
+	public String getFunctionName() {
+		switch (function) {
+		case COUNT:
+			return "COUNT";
+		case SUM:
+			return "SUM";
+		case MIN:
+			return "MIN";
+		case MAX:
+			return "MAX";
+		default:
+			throw new RuntimeException("Unknown aggregate function " + function);
+		}
+	}
+
+	/**
+	 * @return the alias of the table of the field, null for count
+	 */
+	public TableAlias getAlias() {
+		return alias;
+	}
+
+	/**
+	 * @return the field aggregated, null for count
+	 */
+	public StoredFieldSchema<?> getField() {
+		return field;
+	}
+
+	/**
+	 * @return the label of the column holding the value in the result, set when
+	 *         the projection is added to a query
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * sets the label of the column holding the value in the result
+	 * 
+	 * @param label a label unique in the query
+	 */
+	void setLabel(String label) {
+		if (this.label != null)
+			throw new RuntimeException(
+					"Aggregate projection " + getFunctionName() + " is already used with label " + this.label);
+		this.label = label;
+	}
+
+	@Override
+	public String toString() {
+		if (function == COUNT)
+			return "COUNT(*)";
+		return getFunctionName() + "(" + alias.getName() + "." + field.getName() + ")";
+	}
+}
@@ -0,0 +1,193 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.data.storage;
+
+import java.util.ArrayList;
+
+import org.openlowcode.tools.misc.NamedList;
+
+/**
+ * A query computing aggregate values (count, sum, minimum, maximum) on groups
+ * of rows in the database, instead of bringing back all the rows. Rows are
+ * grouped by the values of the grouping fields. Without grouping field, the
+ * query brings back a single row for all the rows selected.
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 2.0
+ */
+public class AggregateQuery {
+	private NamedList<TableAlias> tables;
+	private QueryCondition qd;
+	private ArrayList<TableAlias> groupingaliases;
+	private ArrayList<StoredFieldSchema<?>> groupingfields;
+	private ArrayList<AggregateProjection<?>> projections;
+	private ArrayList<QueryOrder> orders;
+
+	/**
+	 * @param tables tables to put in query
+	 * @param qd     query condition on rows in the table or join
+	 */
+	public AggregateQuery(NamedList<TableAlias> tables, QueryCondition qd) {
+		if (tables == null)
+			throw new RuntimeException("Tables for aggregate query are null");
+		this.tables = tables;
+		this.qd = qd;
+		this.groupingaliases = new ArrayList<TableAlias>();
+		this.groupingfields = new ArrayList<StoredFieldSchema<?>>();
+		this.projections = new ArrayList<AggregateProjection<?>>();
+		this.orders = new ArrayList<QueryOrder>();
+	}
+
+	/**
+	 * creates an aggregate query on the same tables and condition as a select
+	 * query. Field selection, sort criteria and limits of the select query are
+	 * not used
+	 * 
+	 * @param basequery a select query
+	 */
+	public AggregateQuery(SelectQuery basequery) {
+		this(new NamedList<TableAlias>(), basequery.getQueryCondition());
+		for (int i = 0; i < basequery.getTableNumber(); i++)
+			this.tables.add(basequery.getTable(i));
+	}
+
+	/**
+	 * adds a grouping field. Groupings are in the order they are added
+	 * 
+	 * @param alias alias of the table of the field
+	 * @param field field whose values define the groups
+	 */
+	public void addGrouping(TableAlias alias, StoredFieldSchema<?> field) {
+		if (alias == null)
+			throw new RuntimeException("Alias for grouping is null");
+		if (field == null)
+			throw new RuntimeException("Field for grouping is null");
+		if (tables.lookupOnName(alias.getName()) == null)
+			throw new RuntimeException("Alias " + alias.getName() + " for grouping on field " + field.getName()
+					+ " is not a table of the query");
+		groupingaliases.add(alias);
+		groupingfields.add(field);
+	}
+
+	/**
+	 * adds an aggregate value to compute for each group. A projection can only be
+	 * used in one query
+	 * 
+	 * @param projection the projection
+	 */
+	public void addProjection(AggregateProjection<?> projection) {
+		if (projection == null)
+			throw new RuntimeException("Aggregate projection is null");
+		if (projection.getAlias() != null)
+			if (tables.lookupOnName(projection.getAlias().getName()) == null)
+				throw new RuntimeException("Alias " + projection.getAlias().getName() + " for projection "
+						+ projection + " is not a table of the query");
+		projection.setLabel("AGG_" + projections.size());
+		projections.add(projection);
+	}
+
+	/**
+	 * adds a sort criteria to the query. Criteria are applied in the order they
+	 * are added, and can only be on grouping fields
+	 * 
+	 * @param order sort criteria
+	 */
+	public void addOrder(QueryOrder order) {
+		if (order == null)
+			throw new RuntimeException("Sort criteria is null");
+		boolean grouping = false;
+		for (int i = 0; i < groupingfields.size(); i++)
+			if (groupingaliases.get(i).getName().equals(order.getAlias().getName()))
+				if (groupingfields.get(i).getName().equals(order.getField().getName()))
+					grouping = true;
+		if (!grouping)
+			throw new RuntimeException("Sort criteria on " + order.getAlias().getName() + "."
+					+ order.getField().getName() + " is not a grouping field of the aggregate query");
+		this.orders.add(order);
+	}
+
+	/**
+	 * @return the number of table aliases in the query
+	 */
+	public int getTableNumber() {
+		return tables.getSize();
+	}
+
+	/**
+	 * @param index a number between 0 (included) and getTableNumber (excluded)
+	 * @return the table alias at the given index
+	 */
+	public TableAlias getTable(int index) {
+		return tables.get(index);
+	}
+
+	/**
+	 * @return the query condition of the aggregate query
+	 */
+	public QueryCondition getQueryCondition() {
+		return qd;
+	}
+
+	/**
+	 * @return the number of grouping fields
+	 */
+	public int getGroupingNumber() {
+		return groupingfields.size();
+	}
+
+	/**
+	 * @param index a number between 0 (included) and getGroupingNumber (excluded)
+	 * @return the alias of the table of the grouping field at the given index
+	 */
+	public TableAlias getGroupingAlias(int index) {
+		return groupingaliases.get(index);
+	}
+
+	/**
+	 * @param index a number between 0 (included) and getGroupingNumber (excluded)
+	 * @return the grouping field at the given index
+	 */
+	public StoredFieldSchema<?> getGroupingField(int index) {
+		return groupingfields.get(index);
+	}
+
+	/**
+	 * @return the number of aggregate projections
+	 */
+	public int getProjectionNumber() {
+		return projections.size();
+	}
+
+	/**
+	 * @param index a number between 0 (included) and getProjectionNumber
+	 *              (excluded)
+	 * @return the aggregate projection at the given index
+	 */
+	public AggregateProjection<?> getProjection(int index) {
+		return projections.get(index);
+	}
+
+	/**
+	 * @return the number of sort criteria in the query
+	 */
+	public int getOrderNumber() {
+		return orders.size();
+	}
+
+	/**
+	 * @param index a number between 0 (included) and getOrderNumber (excluded)
+	 * @return the sort criteria at the given index
+	 */
+	public QueryOrder getOrder(int index) {
+		return orders.get(index);
+	}
+}
@@ -0,0 +1,30 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.data.storage;
+
+/**
+ * The result of an aggregate query, with one row per group. The values of the
+ * grouping fields are read as for a select query, and the aggregate values
+ * with the projection that computed them.
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 2.0
+ */
+public interface AggregateRow
+		extends
+		Row {
+	/**
+	 * @param projection a projection of the aggregate query
+	 * @return the value of the projection for the current group
+	 */
+	public <E extends Object> E getValue(AggregateProjection<E> projection);
+}
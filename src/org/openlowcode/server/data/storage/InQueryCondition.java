@@ -0,0 +1,135 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.server.data.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A query condition of the form 'FIELD IN (VALUE1, VALUE2...)'. To allow reuse
+ * of prepared statements, the number of values is rounded up to a bucket size
+ * (16, 64 or 256) by repeating the last value, so that only a few SQL texts
+ * are generated whatever the number of values.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 2.0
+ * @param <E> the payload of the field
+ */
+public class InQueryCondition<E extends Object> extends QueryCondition {
+	/**
+	 * number of values the condition is rounded up to
+	 */
+	private static final int[] BUCKET_SIZES = new int[] { 16, 64, 256 };
+	/**
+	 * maximum number of values in a condition. Callers with more values should
+	 * split them in several queries
+	 */
+	public static final int MAX_VALUES = 256;
+
+	private TableAlias alias;
+	private StoredFieldSchema<E> field;
+	private ArrayList<E> values;
+
+	/**
+	 * creates a condition checking the field is one of the values
+	 *
+	 * @param alias  table schema alias
+	 * @param field  the field in the query condition
+	 * @param values values to compare the field to (between 1 and
+	 *               {@link #MAX_VALUES}, not null)
+	 */
+	public InQueryCondition(TableAlias alias, StoredFieldSchema<E> field, List<E> values) {
+		this.alias = alias;
+		if (field == null)
+			throw new RuntimeException("Field for in query condition is null");
+		this.field = field;
+		if (values == null)
+			throw new RuntimeException("Values for in query condition are null for field = " + field.getName());
+		if (values.size() == 0)
+			throw new RuntimeException("No value for in query condition for field = " + field.getName());
+		if (values.size() > MAX_VALUES)
+			throw new RuntimeException("Too many values for in query condition for field = " + field.getName()
+					+ ", maximum = " + MAX_VALUES + ", values = " + values.size());
+		int bucketsize = getBucketSize(values.size());
+		this.values = new ArrayList<E>(bucketsize);
+		for (int i = 0; i < values.size(); i++) {
+			if (values.get(i) == null)
+				throw new RuntimeException(
+						"Value at index " + i + " is null for in query condition for field = " + field.getName());
+			this.values.add(values.get(i));
+		}
+		E lastvalue = values.get(values.size() - 1);
+		while (this.values.size() < bucketsize)
+			this.values.add(lastvalue);
+	}
+
+	/**
+	 * @param valuenumber number of values
+	 * @return the smallest bucket size greater or equal to the number of values
+	 */
+	private static int getBucketSize(int valuenumber) {
+		for (int i = 0; i < BUCKET_SIZES.length; i++)
+			if (BUCKET_SIZES[i] >= valuenumber)
+				return BUCKET_SIZES[i];
+		throw new RuntimeException("Number of values " + valuenumber + " above maximum " + MAX_VALUES);
+	}
+
+	/**
+	 * gets the alias
+	 * 
+	 * @return alias
+	 */
+	public TableAlias getAlias() {
+		return alias;
+	}
+
+	/**
+	 * gets the field schema
+	 * 
+	 * @return the field schema
+	 */
+	public StoredFieldSchema<E> getField() {
+		return field;
+	}
+
+	/**
+	 * @return the number of values in the condition, including values repeated to
+	 *         reach the bucket size
+	 */
+	public int getValueNumber() {
+		return values.size();
+	}
+
+	/**
+	 * @param index index between 0 (included) and getValueNumber (excluded)
+	 * @return the value at the given index
+	 */
+	public E getValue(int index) {
+		return values.get(index);
+	}
+
+	@Override
+	public void accept(Visitor visitor) {
+		visitor.visit(this);
+	}
+
+	@Override
+	public boolean isSignificant(int circuitbreaker) {
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "[INQUERYCONDITION:TABLE " + (alias != null ? alias.getTable() : "NOALIAS") + "/"
+				+ (alias != null ? alias.getName() : "NOALIAS") + ", FIELD " + field.getName() + " IN " + values;
+	}
+
+}
@@ -11,7 +11,15 @@
 package org.openlowcode.server.data.storage;
 
 import java.sql.Connection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
 
+import org.openlowcode.server.data.DataObjectCache;
 import org.openlowcode.server.data.storage.derbyjdbc.DerbyJDBCStorage;
 import org.openlowcode.server.data.storage.jdbcpool.ConnectionPool;
 import org.openlowcode.server.data.storage.mariajdbc.MariadDBJDBCStorage;
@@ -19,12 +27,20 @@ import org.openlowcode.server.data.storage.mariajdbc.MariadDBJDBCStorage;
 
 /**
  * a static class allowing access to the default persistence whereever
- * persistence needs to be called in the application
+ * persistence needs to be called in the application. A thread can start a
+ * transaction: until the transaction is finished, the same storage is given to
+ * the thread for all accesses, and changes are committed only at the end of
+ * the transaction.<br>
+ * An optional read replica of the database can be declared. A thread can then
+ * start read routing: storages given to the thread use the read replica until
+ * the thread performs a write. The write, and all further accesses of the
+ * thread (so that it reads its own writes), are done on the main database.
  * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
  *         SAS</a>
  *
  */
 public class PersistenceGateway {
+	private static Logger logger = Logger.getLogger(PersistenceGateway.class.getName());
 	
 	public static final String DBTYPE_DERBY = "DERBY";
 	public static final String DBTYPE_MARIA10_2 = "MARIA10.2";
@@ -34,48 +50,298 @@ public class PersistenceGateway {
 	 * type of database. Needs to correspond to one of the constants in this class
 	 */
 	public static String dbtype;
+	
+	/**
+	 * the transaction currently opened by a thread. Objects modified during the
+	 * transaction are removed again from the cache when the transaction is
+	 * committed, as other threads may have cached the previous values in the
+	 * meantime.
+	 * @since 2.0
+	 */
+	private static class Transaction {
+		private PersistentStorage storage;
+		private int depth;
+		private boolean rollbackonly;
+		private boolean written;
+		private HashMap<DataObjectCache<?>, HashSet<String>> dirtyids;
+		private HashSet<DataObjectCache<?>> dirtycaches;
+		private int opencursors;
+
+		private Transaction(PersistentStorage storage) {
+			this.storage = storage;
+			this.depth = 1;
+			this.rollbackonly = false;
+			this.written = false;
+			this.dirtyids = new HashMap<DataObjectCache<?>, HashSet<String>>();
+			this.dirtycaches = new HashSet<DataObjectCache<?>>();
+			this.opencursors = 0;
+		}
+
+		/**
+		 * removes from the caches the objects modified during the transaction
+		 */
+		private void invalidateDirtyObjects() {
+			Iterator<Map.Entry<DataObjectCache<?>, HashSet<String>>> dirtyiterator = dirtyids.entrySet().iterator();
+			while (dirtyiterator.hasNext()) {
+				Map.Entry<DataObjectCache<?>, HashSet<String>> dirtyentry = dirtyiterator.next();
+				if (dirtycaches.contains(dirtyentry.getKey()))
+					continue;
+				Iterator<String> iditerator = dirtyentry.getValue().iterator();
+				while (iditerator.hasNext())
+					dirtyentry.getKey().invalidate(iditerator.next());
+			}
+			Iterator<DataObjectCache<?>> cacheiterator = dirtycaches.iterator();
+			while (cacheiterator.hasNext())
+				cacheiterator.next().invalidateAll();
+		}
+
+		/**
+		 * removes all objects from all caches if anything was modified during the
+		 * transaction, as objects may have been read with values now rolled back
+		 */
+		private void invalidateAllIfWritten() {
+			if ((!written) && (dirtyids.size() == 0) && (dirtycaches.size() == 0))
+				return;
+			Iterator<DataObjectCache<?>> cacheiterator = DataObjectCache.getAllCaches().iterator();
+			while (cacheiterator.hasNext())
+				cacheiterator.next().invalidateAll();
+		}
+	}
+
+	private static ThreadLocal<Transaction> currenttransaction = new ThreadLocal<Transaction>();
+	/**
+	 * storages of transactions already ended still read by cursors of the thread,
+	 * with the number of cursors still opened
+	 */
+	private static ThreadLocal<HashMap<PersistentStorage, Integer>> cursorstorages = new ThreadLocal<
+			HashMap<PersistentStorage, Integer>>();
+
+	/**
+	 * the read routing of a thread
+	 * @since 2.0
+	 */
+	private static class ReadRouting {
+		private boolean written;
+		private boolean transactiononwrite;
+		private boolean transactionstarted;
+
+		private ReadRouting(boolean transactiononwrite) {
+			this.written = false;
+			this.transactiononwrite = transactiononwrite;
+			this.transactionstarted = false;
+		}
+	}
+
+	private static ConnectionPool readreplicapool;
+	private static Set<Connection> readreplicaconnections = ConcurrentHashMap.newKeySet();
+	private static ConnectionPool sequencepool;
+	private static Set<Connection> sequenceconnections = ConcurrentHashMap.newKeySet();
+	private static ThreadLocal<ReadRouting> currentreadrouting = new ThreadLocal<ReadRouting>();
+
 	/**
-	 * releases the connection for the current thread.
+	 * releases the connection for the current thread. A transaction still opened
+	 * by the thread is rolled back.
 	 */
 	public static void releaseForThread() {
+		Transaction transaction = currenttransaction.get();
+		if (transaction != null) {
+			// all levels of the transaction are abandoned
+			transaction.depth = 1;
+			rollbackTransaction();
+		}
+		currentreadrouting.remove();
 		connectionpool.freecurrentthreadconnections();
+		if (readreplicapool != null)
+			readreplicapool.freecurrentthreadconnections();
+		if (sequencepool != null)
+			sequencepool.freecurrentthreadconnections();
+		// connections of cursors still opened have been given back above
+		HashMap<PersistentStorage, Integer> threadcursorstorages = cursorstorages.get();
+		if (threadcursorstorages != null) {
+			Iterator<PersistentStorage> storageiterator = threadcursorstorages.keySet().iterator();
+			while (storageiterator.hasNext()) {
+				PersistentStorage storage = storageiterator.next();
+				if (storage instanceof JDBCstorage)
+					((JDBCstorage) storage).cleanup();
+			}
+			cursorstorages.remove();
+		}
 	}
 	
 	/**
-	 * gets a storage (wrapping the connection with all useful methods) for the current thread
+	 * gets a storage (wrapping the connection with all useful methods) for the current thread. If the thread 
+	 * has started a transaction, the storage of the transaction is given. If the thread has started read routing
+	 * and did not write yet, a storage on the read replica is given.
 	 * @return a free storage
 	 */
 	public static PersistentStorage getStorage()  {
-		
-		
-		
+		Transaction transaction = currenttransaction.get();
+		if (transaction != null)
+			return transaction.storage;
+		ReadRouting readrouting = currentreadrouting.get();
+		if (readrouting != null)
+			if (!readrouting.written)
+				if (readreplicapool != null)
+					return createStorage(readreplicapool);
+		return getStorageOutsideTransaction();
+	}
+
+	/**
+	 * gets a storage with its own connection, even if the thread has started a
+	 * transaction. Changes done with this storage are committed independently of
+	 * the transaction of the thread.
+	 * 
+	 * @return a free storage
+	 * @since 2.0
+	 */
+	public static PersistentStorage getStorageOutsideTransaction() {
+		return createStorage(connectionpool);
+	}
+
+	/**
+	 * gets a storage to get values of sequences, outside of the transaction of
+	 * the thread. If a sequence pool is declared, the storage uses a connection
+	 * of this pool, so that a thread holding the connection of its transaction
+	 * never waits for a second connection of the main pool.
+	 * 
+	 * @return a free storage
+	 * @since 2.0
+	 */
+	public static PersistentStorage getSequenceStorage() {
+		if (sequencepool != null)
+			return createStorage(sequencepool);
+		return getStorageOutsideTransaction();
+	}
+
+	/**
+	 * creates a storage with a connection of the given pool
+	 * 
+	 * @param pool the main pool or the read replica pool
+	 * @return a free storage
+	 * @since 2.0
+	 */
+	private static PersistentStorage createStorage(ConnectionPool pool) {
 			try {
-				Connection connection = connectionpool.getConnectionWithRetry();
+				Connection connection = pool.getConnectionWithRetry();
 				if (connection==null) throw new RuntimeException("could not get a connection in the alloted time");
-				if (dbtype.equals(DBTYPE_DERBY)) return new DerbyJDBCStorage(connection);
-				if (dbtype.equals(DBTYPE_MARIA10_2)) return new MariadDBJDBCStorage(connection);
-				throw new RuntimeException("DB Type not supported "+dbtype);
+				return createStorage(pool, connection);
 			} catch (Exception e) {
 				throw new RuntimeException("Error in trying to establish SQL Connection : "+e.getMessage());
 			}
 		
 		
 	}
+
+	/**
+	 * creates a storage for a connection booked in the given pool
+	 * 
+	 * @param pool       the pool the connection belongs to
+	 * @param connection a connection booked in the pool
+	 * @return a storage using the connection
+	 * @since 2.0
+	 */
+	private static PersistentStorage createStorage(ConnectionPool pool, Connection connection) {
+		if (pool == readreplicapool)
+			readreplicaconnections.add(connection);
+		if (pool == sequencepool)
+			sequenceconnections.add(connection);
+		if (dbtype.equals(DBTYPE_DERBY))
+			return new DerbyJDBCStorage(connection);
+		if (dbtype.equals(DBTYPE_MARIA10_2))
+			return new MariadDBJDBCStorage(connection);
+		pool.checkin(connection);
+		throw new RuntimeException("DB Type not supported " + dbtype);
+	}
 	
+	/**
+	 * gets a storage for a cursor. The storage should be given back with
+	 * {@link #checkinCursorStorage(PersistentStorage)} when the cursor is closed.
+	 * If the storage is the one of the transaction of the thread, it is only given
+	 * back once the transaction has ended and all its cursors are closed, so that
+	 * a cursor can still be read after the transaction is committed, typically
+	 * while the answer to an action is sent to the client.
+	 * 
+	 * @return a storage for the query of the cursor
+	 * @since 2.0
+	 */
+	public static PersistentStorage getStorageForCursor() {
+		PersistentStorage storage = getStorage();
+		Transaction transaction = currenttransaction.get();
+		if (transaction != null)
+			transaction.opencursors++;
+		return storage;
+	}
+
+	/**
+	 * gives back the storage of a cursor being closed
+	 * 
+	 * @param storage the storage got with {@link #getStorageForCursor()}
+	 * @since 2.0
+	 */
+	public static void checkinCursorStorage(PersistentStorage storage) {
+		Transaction transaction = currenttransaction.get();
+		if (transaction != null)
+			if (transaction.storage == storage) {
+				transaction.opencursors--;
+				return;
+			}
+		HashMap<PersistentStorage, Integer> threadcursorstorages = cursorstorages.get();
+		if (threadcursorstorages != null) {
+			Integer remainingcursors = threadcursorstorages.get(storage);
+			if (remainingcursors != null) {
+				if (remainingcursors.intValue() > 1) {
+					threadcursorstorages.put(storage, Integer.valueOf(remainingcursors.intValue() - 1));
+					return;
+				}
+				threadcursorstorages.remove(storage);
+			}
+		}
+		// storage already given back with all connections of the thread
+		if (storage instanceof JDBCstorage)
+			if (((JDBCstorage) storage).getConnection() == null)
+				return;
+		checkinStorage(storage);
+	}
+
+	/**
+	 * gives back the storage of a transaction that has ended, or keeps it until
+	 * the cursors still opened on it are closed
+	 * 
+	 * @param transaction a transaction that has ended
+	 */
+	private static void checkinTransactionStorage(Transaction transaction) {
+		if (transaction.opencursors > 0) {
+			HashMap<PersistentStorage, Integer> threadcursorstorages = cursorstorages.get();
+			if (threadcursorstorages == null) {
+				threadcursorstorages = new HashMap<PersistentStorage, Integer>();
+				cursorstorages.set(threadcursorstorages);
+			}
+			threadcursorstorages.put(transaction.storage, Integer.valueOf(transaction.opencursors));
+			return;
+		}
+		checkinStorage(transaction.storage);
+	}
+
 	/**
 	 * @param storage the storage to give back and refresh 
 	 * @param getconnectionback if true, gives back a new connection. If false, stored the connection
 	 */
 	public static void refreshStorage(PersistentStorage storage,boolean getconnectionback)  {
-		
+		if (isInTransaction(storage))
+			throw new RuntimeException("Cannot refresh the storage of a transaction");
 		if (storage instanceof JDBCstorage) {
 			try {
 				JDBCstorage jdbcstorage = (JDBCstorage) storage;
 			
 			Connection connection = jdbcstorage.getConnection();
-			connectionpool.checkinandreset(connection);
+			ConnectionPool pool = getPoolAndRelease(connection);
+			pool.checkinandreset(connection);
 			if (getconnectionback) {
-				Connection newconnection = connectionpool.getConnectionWithRetry();
+				Connection newconnection = pool.getConnectionWithRetry();
+				if (pool == readreplicapool)
+					readreplicaconnections.add(newconnection);
+				if (pool == sequencepool)
+					sequenceconnections.add(newconnection);
 				jdbcstorage.refreshConnection(newconnection);
 			}
 			return;
@@ -92,18 +358,355 @@ public class PersistenceGateway {
 	 * @param storage returns the storage for current thread
 	 */
 	public static void checkinStorage(PersistentStorage storage)  {
-		
-		
+		// storage of a transaction is given back at the end of the transaction
+		if (isInTransaction(storage))
+			return;
 		if (storage instanceof JDBCstorage) {
 			JDBCstorage jdbcstorage = (JDBCstorage) storage;
 			Connection connection = jdbcstorage.getConnection();
-			connectionpool.checkin(connection);
+			getPoolAndRelease(connection).checkin(connection);
 			jdbcstorage.cleanup();	
 			return;
 		}
 		throw new RuntimeException("CheckinStorage not implemented for storage type ");
 		
 	}
+	/**
+	 * @param storage a storage
+	 * @return true if the storage is used by the transaction of the current
+	 *         thread
+	 * @since 2.0
+	 */
+	public static boolean isInTransaction(PersistentStorage storage) {
+		Transaction transaction = currenttransaction.get();
+		if (transaction == null)
+			return false;
+		return (transaction.storage == storage);
+	}
+
+	/**
+	 * @return true if the current thread has started a transaction
+	 * @since 2.0
+	 */
+	public static boolean hasTransaction() {
+		return (currenttransaction.get() != null);
+	}
+
+	/**
+	 * @return true if the current thread has written in a transaction not yet
+	 *         committed. Data read by the thread should then not be put in cache
+	 * @since 2.0
+	 */
+	public static boolean hasWrittenInTransaction() {
+		Transaction transaction = currenttransaction.get();
+		if (transaction == null)
+			return false;
+		return transaction.written;
+	}
+
+	/**
+	 * records that an object was modified in the transaction of the current
+	 * thread, so that it is removed again from the cache when the transaction is
+	 * committed. Nothing is done if the thread has no transaction.
+	 * 
+	 * @param cache the cache of the object
+	 * @param id    id of the object modified, or null if objects modified are not
+	 *              known precisely
+	 * @since 2.0
+	 */
+	public static void registerCacheInvalidation(DataObjectCache<?> cache, String id) {
+		Transaction transaction = currenttransaction.get();
+		if (transaction == null)
+			return;
+		if (id == null) {
+			transaction.dirtycaches.add(cache);
+			return;
+		}
+		HashSet<String> ids = transaction.dirtyids.get(cache);
+		if (ids == null) {
+			ids = new HashSet<String>();
+			transaction.dirtyids.put(cache, ids);
+		}
+		ids.add(id);
+	}
+
+	/**
+	 * checks if data can be read by other threads, on other connections, on
+	 * behalf of the current thread. This is not the case once the current thread
+	 * has written in a transaction not yet committed, as other connections would
+	 * not see those changes.
+	 * 
+	 * @return true if other threads would read the same data as the current
+	 *         thread
+	 * @since 2.0
+	 */
+	public static boolean canReadOnOtherConnections() {
+		Transaction transaction = currenttransaction.get();
+		if (transaction != null)
+			if (transaction.written)
+				return false;
+		return true;
+	}
+
+	/**
+	 * @return true if the current thread has started read routing and did not
+	 *         write yet, so that reads are done on the read replica
+	 * @since 2.0
+	 */
+	public static boolean isReadingOnReplica() {
+		if (readreplicapool == null)
+			return false;
+		ReadRouting readrouting = currentreadrouting.get();
+		if (readrouting == null)
+			return false;
+		return (!readrouting.written);
+	}
+
+	/**
+	 * starts a transaction for the current thread. If a transaction is already
+	 * started, the new transaction is part of it, and is only committed with the
+	 * outer transaction.
+	 * 
+	 * @since 2.0
+	 */
+	public static void startTransaction() {
+		Transaction transaction = currenttransaction.get();
+		if (transaction != null) {
+			transaction.depth++;
+			return;
+		}
+		PersistentStorage storage = getStorageOutsideTransaction();
+		// in case of error, the storage is given back by the storage itself
+		storage.startTransaction();
+		currenttransaction.set(new Transaction(storage));
+	}
+
+	/**
+	 * starts a transaction for the current thread only if a connection can be
+	 * got immediately. If the thread reads on the read replica, the transaction
+	 * uses a connection of the read replica. All accesses of the thread then use
+	 * this connection, so that the thread never waits for a connection until the
+	 * end of the transaction.
+	 * 
+	 * @return true if the transaction was started, false if no connection was
+	 *         free
+	 * @since 2.0
+	 */
+	public static boolean startTransactionIfConnectionAvailable() {
+		Transaction transaction = currenttransaction.get();
+		if (transaction != null) {
+			transaction.depth++;
+			return true;
+		}
+		ConnectionPool pool = (isReadingOnReplica() ? readreplicapool : connectionpool);
+		Connection connection;
+		try {
+			connection = pool.getConnectionIfAvailable();
+		} catch (Exception e) {
+			throw new RuntimeException("Error in trying to establish SQL Connection : " + e.getMessage());
+		}
+		if (connection == null)
+			return false;
+		PersistentStorage storage = createStorage(pool, connection);
+		storage.startTransaction();
+		currenttransaction.set(new Transaction(storage));
+		return true;
+	}
+
+	/**
+	 * commits the transaction of the current thread, and gives back its storage.
+	 * For a transaction inside another transaction, nothing is done until the
+	 * outer transaction is committed.
+	 * 
+	 * @since 2.0
+	 */
+	public static void commitTransaction() {
+		Transaction transaction = currenttransaction.get();
+		if (transaction == null)
+			throw new RuntimeException("No transaction started for thread " + Thread.currentThread().getId());
+		transaction.depth--;
+		if (transaction.depth > 0)
+			return;
+		if (transaction.rollbackonly) {
+			rollbackTransaction();
+			throw new RuntimeException("Transaction rolled back as an inner transaction was rolled back");
+		}
+		// storage is still in the transaction so that it is not given back on error
+		try {
+			transaction.storage.commitTransaction();
+			transaction.storage.setAutoCommit(true);
+		} catch (RuntimeException e) {
+			logger.warning("Error while committing transaction " + e.getMessage());
+			currenttransaction.remove();
+			transaction.invalidateAllIfWritten();
+			refreshStorage(transaction.storage, false);
+			throw e;
+		}
+		currenttransaction.remove();
+		transaction.invalidateDirtyObjects();
+		checkinTransactionStorage(transaction);
+	}
+
+	/**
+	 * rolls back the transaction of the current thread, and gives back its
+	 * storage. For a transaction inside another transaction, the outer
+	 * transaction will be rolled back. Nothing is done if the thread has no
+	 * transaction.
+	 * 
+	 * @return true if a transaction was rolled back
+	 * @since 2.0
+	 */
+	public static boolean rollbackTransaction() {
+		Transaction transaction = currenttransaction.get();
+		if (transaction == null)
+			return false;
+		transaction.depth--;
+		if (transaction.depth > 0) {
+			transaction.rollbackonly = true;
+			return true;
+		}
+		try {
+			transaction.storage.rollbackTransaction();
+			transaction.storage.setAutoCommit(true);
+		} catch (RuntimeException e) {
+			logger.warning("Error while rolling back transaction " + e.getMessage());
+			currenttransaction.remove();
+			transaction.invalidateAllIfWritten();
+			refreshStorage(transaction.storage, false);
+			return true;
+		}
+		currenttransaction.remove();
+		transaction.invalidateAllIfWritten();
+		checkinTransactionStorage(transaction);
+		return true;
+	}
+
+	/**
+	 * gets the pool a connection belongs to, and stops tracking the connection
+	 * if it belongs to the read replica pool or to the sequence pool
+	 * 
+	 * @param connection a connection being given back
+	 * @return the pool of the connection
+	 * @since 2.0
+	 */
+	private static ConnectionPool getPoolAndRelease(Connection connection) {
+		if (readreplicaconnections.remove(connection))
+			return readreplicapool;
+		if (sequenceconnections.remove(connection))
+			return sequencepool;
+		return connectionpool;
+	}
+
+	/**
+	 * sets a pool of connections to the main database used only to get values of
+	 * sequences
+	 * 
+	 * @param sequencepool a connection pool to the main database
+	 * @since 2.0
+	 */
+	public static void setSequencePool(ConnectionPool sequencepool) {
+		PersistenceGateway.sequencepool = sequencepool;
+	}
+
+	/**
+	 * sets the pool of connections to a read replica of the database
+	 * 
+	 * @param readreplicapool a connection pool to a read replica, with the same
+	 *                        database type as the main connection pool
+	 * @since 2.0
+	 */
+	public static void setReadReplicaPool(ConnectionPool readreplicapool) {
+		PersistenceGateway.readreplicapool = readreplicapool;
+	}
+
+	/**
+	 * @return true if a read replica is declared
+	 * @since 2.0
+	 */
+	public static boolean hasReadReplica() {
+		return (readreplicapool != null);
+	}
+
+	/**
+	 * starts read routing for the current thread: storages given to the thread
+	 * will use the read replica until the thread writes.
+	 * 
+	 * @param transactiononwrite if true, a transaction is started at the first
+	 *                           write, and committed when read routing ends
+	 * @since 2.0
+	 */
+	public static void startReadRouting(boolean transactiononwrite) {
+		currentreadrouting.set(new ReadRouting(transactiononwrite));
+	}
+
+	/**
+	 * @return true if the current thread has started read routing
+	 * @since 2.0
+	 */
+	public static boolean hasReadRouting() {
+		return (currentreadrouting.get() != null);
+	}
+
+	/**
+	 * ends read routing for the current thread, committing the transaction
+	 * started at the first write if any
+	 * 
+	 * @since 2.0
+	 */
+	public static void endReadRouting() {
+		ReadRouting readrouting = currentreadrouting.get();
+		currentreadrouting.remove();
+		if (readrouting != null)
+			if (readrouting.transactionstarted)
+				commitTransaction();
+	}
+
+	/**
+	 * to be called by a storage before any write: if the storage uses the read
+	 * replica, its connection is replaced by a connection to the main database,
+	 * and the thread will read from the main database until the end of read
+	 * routing. The write is also recorded on the transaction of the thread if
+	 * the storage is the one of the transaction.
+	 * 
+	 * @param storage a storage about to write
+	 * @since 2.0
+	 */
+	public static void routeWriteToPrimary(PersistentStorage storage) {
+		Transaction currentstoragetransaction = currenttransaction.get();
+		if (currentstoragetransaction != null)
+			if (currentstoragetransaction.storage == storage)
+				currentstoragetransaction.written = true;
+		if (!(storage instanceof JDBCstorage))
+			return;
+		JDBCstorage jdbcstorage = (JDBCstorage) storage;
+		Connection connection = jdbcstorage.getConnection();
+		if (!readreplicaconnections.remove(connection))
+			return;
+		readreplicapool.checkin(connection);
+		ReadRouting readrouting = currentreadrouting.get();
+		if (readrouting != null)
+			readrouting.written = true;
+		try {
+			Connection primaryconnection = connectionpool.getConnectionWithRetry();
+			if (primaryconnection == null)
+				throw new RuntimeException("could not get a connection in the alloted time");
+			jdbcstorage.refreshConnection(primaryconnection);
+		} catch (Exception e) {
+			throw new RuntimeException("Error in trying to establish SQL Connection : " + e.getMessage());
+		}
+		logger.fine("Write on read replica storage routed to main database for thread "
+				+ Thread.currentThread().getId());
+		if (readrouting != null)
+			if (readrouting.transactiononwrite)
+				if (currenttransaction.get() == null) {
+					storage.startTransaction();
+					Transaction transaction = new Transaction(storage);
+					transaction.written = true;
+					currenttransaction.set(transaction);
+					readrouting.transactionstarted = true;
+				}
+	}
+
 	/**
 	 * sets the connection pool for the Persistence Gateway
 	 * @param dbtype type of database defined as one of the constants in this class.
@@ -37,6 +37,15 @@ public interface PersistentStorage {
 	 */
 	public Row selectOnDB(SelectQuery sq);
 
+	/**
+	 * computes aggregate values on groups of rows in the persistent storage
+	 * 
+	 * @param aq aggregate query
+	 * @return one row per group (Row is actually an iterator)
+	 * @since 2.0
+	 */
+	public AggregateRow aggregateOnDB(AggregateQuery aq);
+
 	/**
 	 * Insert a single row in the persistent storage
 	 * 
@@ -243,6 +252,18 @@ public interface PersistentStorage {
 	 */
 	public int getNextValue(String sequencename);
 
+	/**
+	 * reserves a block of consecutive values from the sequence in a single round
+	 * trip to the database
+	 * 
+	 * @param sequencename name of the sequence
+	 * @param blocksize    number of values to reserve (at least 1)
+	 * @return the first value of the block, the block containing all values from
+	 *         the first value (included) to first value + blocksize (excluded)
+	 * @since 2.0
+	 */
+	public int getNextValues(String sequencename, int blocksize);
+
 	/**
 	 * close all connections of the persistence layer
 	 */
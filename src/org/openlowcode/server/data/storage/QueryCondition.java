@@ -36,6 +36,12 @@ public abstract class QueryCondition {
 		 */
 		public <E extends Object> void visit(JoinQueryCondition<E> joinquerycondition);
 
+		/**
+		 * @param inquerycondition
+		 * @since 2.0
+		 */
+		public <E extends Object> void visit(InQueryCondition<E> inquerycondition);
+
 		/**
 		 * @param andquerycondition
 		 */
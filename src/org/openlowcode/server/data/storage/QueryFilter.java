@@ -14,7 +14,8 @@ import java.util.ArrayList;
 
 /**
  * A query filter is a combination of a query condition, and potentially aliases
- * used to extend the query
+ * used to extend the query. It may also hold sort criteria and a limitation of
+ * the rows brought back (offset, limit, or start after a given row)
  * 
  * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
  *         SAS</a>
@@ -30,6 +31,7 @@ public class QueryFilter {
 	public QueryFilter(QueryCondition querycondition, TableAlias[] aliasarray) {
 		this.querycondition = querycondition;
 		this.aliases = new ArrayList<TableAlias>();
+		this.orders = new ArrayList<QueryOrder>();
 		if (aliasarray != null)
 			for (int i = 0; i < aliasarray.length; i++)
 				aliases.add(aliasarray[i]);
@@ -68,6 +70,10 @@ public class QueryFilter {
 
 	private QueryCondition querycondition;
 	private ArrayList<TableAlias> aliases;
+	private ArrayList<QueryOrder> orders;
+	private int offset;
+	private int limit;
+	private Object[] keysetstart;
 
 	/**
 	 * @return the query condition in this alias
@@ -85,4 +91,78 @@ public class QueryFilter {
 		return aliases.toArray(new TableAlias[0]);
 	}
 
+	/**
+	 * adds a sort criteria. Criteria are applied in the order they are added
+	 * 
+	 * @param order sort criteria
+	 * @return the query filter, to chain calls
+	 * @since 2.0
+	 */
+	public QueryFilter addOrder(QueryOrder order) {
+		this.orders.add(order);
+		return this;
+	}
+
+	/**
+	 * sets the number of rows to skip at the start of the result
+	 * 
+	 * @param offset number of rows to skip (0 to skip no row)
+	 * @return the query filter, to chain calls
+	 * @since 2.0
+	 */
+	public QueryFilter setOffset(int offset) {
+		this.offset = offset;
+		return this;
+	}
+
+	/**
+	 * sets the maximum number of rows to bring back
+	 * 
+	 * @param limit maximum number of rows, 0 for no limit
+	 * @return the query filter, to chain calls
+	 * @since 2.0
+	 */
+	public QueryFilter setLimit(int limit) {
+		this.limit = limit;
+		return this;
+	}
+
+	/**
+	 * only brings back the rows after the given row in the sort order (keyset
+	 * pagination)
+	 * 
+	 * @param lastvalues values of the sort fields for the last row of the
+	 *                   previous page, in the order of the sort criteria
+	 * @return the query filter, to chain calls
+	 * @since 2.0
+	 */
+	public QueryFilter setKeysetStart(Object[] lastvalues) {
+		this.keysetstart = lastvalues;
+		return this;
+	}
+
+	/**
+	 * @return the maximum number of rows to bring back, 0 for no limit
+	 * @since 2.0
+	 */
+	public int getLimit() {
+		return this.limit;
+	}
+
+	/**
+	 * applies the sort criteria and limitation of rows of this filter on the
+	 * select query
+	 * 
+	 * @param selectquery a select query built with the condition of this filter
+	 * @since 2.0
+	 */
+	public void applyOrderAndLimit(SelectQuery selectquery) {
+		for (int i = 0; i < orders.size(); i++)
+			selectquery.addOrder(orders.get(i));
+		if (keysetstart != null)
+			selectquery.setKeysetStart(keysetstart);
+		selectquery.setOffset(offset);
+		selectquery.setLimit(limit);
+	}
+
 }
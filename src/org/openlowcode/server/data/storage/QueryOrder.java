@@ -0,0 +1,79 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.server.data.storage;
+
+/**
+ * A sort criteria of a select query: a field of a table alias, and the sort
+ * direction (equivalent to an element of the SQL ORDER BY clause)
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 2.0
+ */
+public class QueryOrder {
+	private TableAlias alias;
+	private StoredFieldSchema<?> field;
+	private boolean ascending;
+
+	/**
+	 * creates a sort criteria
+	 *
+	 * @param alias     alias of the table holding the field
+	 * @param field     field to sort on
+	 * @param ascending true for ascending order, false for descending order
+	 */
+	public QueryOrder(TableAlias alias, StoredFieldSchema<?> field, boolean ascending) {
+		if (alias == null)
+			throw new RuntimeException("Alias for sort criteria is null");
+		if (field == null)
+			throw new RuntimeException("Field for sort criteria is null on alias " + alias.getName());
+		this.alias = alias;
+		this.field = field;
+		this.ascending = ascending;
+	}
+
+	/**
+	 * convenience method to create a sort criteria on a field identified by its
+	 * name in the table of the alias
+	 *
+	 * @param alias     alias of the table holding the field
+	 * @param fieldname name of the stored field (e.g. UPDATETIME)
+	 * @param ascending true for ascending order, false for descending order
+	 * @return the sort criteria
+	 */
+	public static QueryOrder get(TableAlias alias, String fieldname, boolean ascending) {
+		StoredFieldSchema<?> field = alias.getTable().lookupFieldByName(fieldname);
+		if (field == null)
+			throw new RuntimeException(
+					"Field " + fieldname + " does not exist in table " + alias.getTable().getName() + " for sort criteria");
+		return new QueryOrder(alias, field, ascending);
+	}
+
+	/**
+	 * @return the alias of the table holding the field
+	 */
+	public TableAlias getAlias() {
+		return alias;
+	}
+
+	/**
+	 * @return the field to sort on
+	 */
+	public StoredFieldSchema<?> getField() {
+		return field;
+	}
+
+	/**
+	 * @return true if the sort is ascending, false if it is descending
+	 */
+	public boolean isAscending() {
+		return ascending;
+	}
+}
@@ -10,6 +10,8 @@
 
 package org.openlowcode.server.data.storage;
 
+import java.util.ArrayList;
+
 import org.openlowcode.tools.misc.NamedList;
 
 /**
@@ -24,6 +26,10 @@ public class SelectQuery {
 	private NamedList<TableAlias> tables;
 	private QueryCondition qd;
 	private boolean distinctvalues;
+	private ArrayList<QueryOrder> orders;
+	private int offset;
+	private int limit;
+	private boolean streaming;
 
 	/**
 	 * @param tables tables to put in query
@@ -44,6 +50,9 @@ public class SelectQuery {
 		this.tables = tables;
 		this.qd = qd;
 		this.distinctvalues = distinctvalues;
+		this.orders = new ArrayList<QueryOrder>();
+		this.offset = 0;
+		this.limit = 0;
 	}
 
 	/**
@@ -79,4 +88,154 @@ public class SelectQuery {
 	public boolean isDistinctValues() {
 		return this.distinctvalues;
 	}
+
+	/**
+	 * adds a sort criteria to the query. Criteria are applied in the order they
+	 * are added
+	 * 
+	 * @param order sort criteria
+	 * @since 2.0
+	 */
+	public void addOrder(QueryOrder order) {
+		if (order == null)
+			throw new RuntimeException("Sort criteria is null");
+		this.orders.add(order);
+	}
+
+	/**
+	 * @return the number of sort criteria in the query
+	 * @since 2.0
+	 */
+	public int getOrderNumber() {
+		return orders.size();
+	}
+
+	/**
+	 * @param index a number between 0 (included) and getOrderNumber (excluded)
+	 * @return the sort criteria at the given index
+	 * @since 2.0
+	 */
+	public QueryOrder getOrder(int index) {
+		return orders.get(index);
+	}
+
+	/**
+	 * sets the number of rows to skip at the start of the result. This is only
+	 * meaningful if the query has sort criteria
+	 * 
+	 * @param offset number of rows to skip (0 to skip no row)
+	 * @since 2.0
+	 */
+	public void setOffset(int offset) {
+		if (offset < 0)
+			throw new RuntimeException("Offset for select query cannot be negative: " + offset);
+		this.offset = offset;
+	}
+
+	/**
+	 * @return the number of rows to skip at the start of the result, 0 if no row
+	 *         is skipped
+	 * @since 2.0
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * sets the maximum number of rows brought back by the query
+	 * 
+	 * @param limit maximum number of rows, 0 for no limit
+	 * @since 2.0
+	 */
+	public void setLimit(int limit) {
+		if (limit < 0)
+			throw new RuntimeException("Limit for select query cannot be negative: " + limit);
+		this.limit = limit;
+	}
+
+	/**
+	 * @return the maximum number of rows brought back by the query, 0 if there is
+	 *         no limit
+	 * @since 2.0
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * sets the query in streaming mode: the result is meant to be read row by row
+	 * while it is processed, without keeping all the rows in memory. The storage
+	 * will then ask the database to send rows by blocks instead of all at once.
+	 * 
+	 * @param streaming true to read the result in streaming mode
+	 * @since 2.0
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
+	/**
+	 * @return true if the result of the query is read in streaming mode
+	 * @since 2.0
+	 */
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+	/**
+	 * restricts the query to the rows after the given row in the sort order
+	 * (keyset pagination). Compared to an offset, the database does not have to
+	 * read the rows skipped, provided there is an index on the sort fields. All
+	 * sort criteria should be added before calling this method, and should
+	 * together identify a row uniquely.
+	 * 
+	 * @param lastvalues values of the sort fields for the last row of the
+	 *                   previous page, in the order of the sort criteria
+	 * @since 2.0
+	 */
+	public void setKeysetStart(Object[] lastvalues) {
+		if (lastvalues == null)
+			throw new RuntimeException("Keyset values are null");
+		if (lastvalues.length != orders.size())
+			throw new RuntimeException("Keyset has " + lastvalues.length + " values for " + orders.size()
+					+ " sort criteria");
+		if (orders.size() == 0)
+			return;
+		// (A > a) OR (A = a AND B > b) OR (A = a AND B = b AND C > c)...
+		OrQueryCondition keysetcondition = new OrQueryCondition();
+		for (int i = 0; i < orders.size(); i++) {
+			AndQueryCondition rowcondition = new AndQueryCondition();
+			for (int j = 0; j < i; j++)
+				rowcondition.addCondition(generateKeysetCondition(orders.get(j), lastvalues[j], true));
+			rowcondition.addCondition(generateKeysetCondition(orders.get(i), lastvalues[i], false));
+			keysetcondition.addCondition(rowcondition);
+		}
+		this.qd = (qd != null ? new AndQueryCondition(qd, keysetcondition) : keysetcondition);
+	}
+
+	/**
+	 * generates the condition on one sort field for keyset pagination
+	 * 
+	 * @param order sort criteria
+	 * @param value value of the sort field for the last row of the previous page
+	 * @param equal true to generate an equality, false to generate a strict
+	 *              comparison in the direction of the sort
+	 * @return the query condition
+	 */
+	@SuppressWarnings("unchecked")
+	private static <E extends Object> QueryCondition generateKeysetCondition(
+			QueryOrder order,
+			Object value,
+			boolean equal) {
+		if (value == null)
+			throw new RuntimeException("Keyset value is null for field " + order.getField().getName());
+		StoredFieldSchema<E> field = (StoredFieldSchema<E>) order.getField();
+		QueryOperator<E> operator;
+		if (equal) {
+			operator = new QueryOperatorEqual<E>();
+		} else {
+			operator = (order.isAscending() ? new QueryOperatorGreaterThan<E>() : new QueryOperatorSmallerThan<E>());
+		}
+		return new SimpleQueryCondition<E>(order.getAlias(), field, operator, (E) value);
+	}
 }
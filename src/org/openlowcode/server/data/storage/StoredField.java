@@ -10,6 +10,9 @@
 
 package org.openlowcode.server.data.storage;
 
+import java.math.BigDecimal;
+
+import org.openlowcode.tools.messages.SFile;
 
 /**
  * the field of an object
@@ -25,8 +28,86 @@ public class StoredField<E extends Object> extends Field<E> {
 	 * definition of the stored field
 	 * @param fieldschema definition of the field
 	 */
+	private boolean persistedpayloadknown;
+	private E persistedpayload;
+
 	public StoredField(StoredFieldSchema<E> fieldschema) {
 		super(fieldschema);
+		this.persistedpayloadknown = false;
+	}
+
+	@Override
+	public void setReferencePayload(E referencepayload) {
+		super.setReferencePayload(referencepayload);
+		markPersisted();
+	}
+
+	/**
+	 * records that the current payload is the value in the persistent storage,
+	 * typically after the object is inserted or updated
+	 * 
+	 * @since 2.0
+	 */
+	public void markPersisted() {
+		this.persistedpayload = this.getPayload();
+		this.persistedpayloadknown = true;
+	}
+
+	/**
+	 * @return true if the value in the persistent storage is known (the object
+	 *         was read, inserted or updated)
+	 * @since 2.0
+	 */
+	public boolean isPersistedPayloadKnown() {
+		return this.persistedpayloadknown;
+	}
+
+	/**
+	 * @return true if the payload is different from the value in the persistent
+	 *         storage, or if the value in the persistent storage is not known
+	 * @since 2.0
+	 */
+	public boolean isDirty() {
+		if (!this.persistedpayloadknown)
+			return true;
+		E payload = this.getPayload();
+		// same object, content is not compared (e.g. large binary not yet loaded)
+		if (payload == persistedpayload)
+			return false;
+		if (payload == null)
+			return true;
+		if (persistedpayload == null)
+			return true;
+		if (payload instanceof BigDecimal)
+			return (((BigDecimal) payload).compareTo((BigDecimal) persistedpayload) != 0);
+		if (payload instanceof SFile)
+			return isLargeBinaryDirty((SFile) payload, (SFile) persistedpayload);
+		return !payload.equals(persistedpayload);
+	}
+
+	/**
+	 * compares a large binary with the value in the persistent storage without
+	 * loading the content of any of them. A large binary not modified is the same
+	 * object as the persisted value. Content of a different object of the same
+	 * length is only compared if both are already loaded in memory, else the
+	 * large binary is considered as dirty
+	 * 
+	 * @param file          the large binary payload
+	 * @param persistedfile the large binary in the persistent storage
+	 * @return true if the large binary may be different from the persisted value
+	 * @since 2.0
+	 */
+	private static boolean isLargeBinaryDirty(SFile file, SFile persistedfile) {
+		if (file.isEmpty() != persistedfile.isEmpty())
+			return true;
+		if (file.isEmpty())
+			return false;
+		if (file.getLength() != persistedfile.getLength())
+			return true;
+		if ((file.isLoaded()) && (persistedfile.isLoaded()))
+			if ((file.isInMemory()) && (persistedfile.isInMemory()))
+				return !file.equals(persistedfile);
+		return true;
 	}
 	
 	@Override
@@ -0,0 +1,420 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.server.data.storage.jdbcpool;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * A connection pool built for high concurrency. The number of connections in
+ * use is limited by a fair semaphore, so that a connection given back to the
+ * pool is handed directly to the thread waiting for the longest time, without
+ * any polling. Free connections are kept in a lock-free list, the most recently
+ * used being given first. The pool:
+ * <ul>
+ * <li>creates connections when required up to the maximum number</li>
+ * <li>checks that connections not used for some time are still valid before
+ * giving them</li>
+ * <li>closes connections not used for some time, down to the minimum
+ * number</li>
+ * <li>keeps metrics on wait time and utilization</li>
+ * </ul>
+ * As for the {@link SimpleConnectionPool}, each connection in use is booked by
+ * the thread that got it, so that all connections of a thread can be given
+ * back after an error.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 2.0
+ */
+public class ConcurrentConnectionPool
+		implements
+		ConnectionPool {
+	private static Logger logger = Logger.getLogger(ConcurrentConnectionPool.class.getCanonicalName());
+	private static final long TIMEOUT = 50000; // 50s in ms
+	/**
+	 * a connection not used for this time in ms is validated before being given
+	 */
+	private static final long VALIDATIONINTERVALINMS = 30000;
+	private static final int VALIDATIONTIMEOUTINS = 5;
+	/**
+	 * a connection not used for this time in ms is closed if there are more
+	 * connections than the minimum number
+	 */
+	private static final long IDLETIMEOUTINMS = 300000;
+	private static final long SHRINKFREQUENCYINMS = 30000;
+	/**
+	 * waits longer than this time in ms are logged as warnings
+	 */
+	private static final long SLOWWAITINMS = 1000;
+
+	/**
+	 * a connection managed by the pool
+	 */
+	private class PooledConnection {
+		private Connection connection;
+		private volatile Thread bookingthread;
+		private volatile boolean sick = false;
+		private long lastused;
+
+		private PooledConnection(Connection connection) {
+			this.connection = connection;
+			this.lastused = System.currentTimeMillis();
+		}
+	}
+
+	private int minnumber;
+	private int maxnumber;
+	private String url;
+	private String user;
+	private String password;
+	private Semaphore permits;
+	private ConcurrentLinkedDeque<PooledConnection> freeconnections;
+	private ConcurrentHashMap<Connection, PooledConnection> bookedconnections;
+	private AtomicInteger totalconnections;
+	private AtomicLong lastshrink;
+	private AtomicInteger peakbooked;
+	private AtomicLong checkoutcount;
+	private AtomicLong totalwaitinms;
+	private AtomicLong maxwaitinms;
+	private AtomicLong timeoutcount;
+	private AtomicLong discardedcount;
+
+	/**
+	 * Creates a concurrent connection pool for a JDBC database
+	 *
+	 * @param url       URL of the database
+	 * @param user      user to create the connection
+	 * @param password  password to create the connection
+	 * @param minnumber minimum number of connections in the pool
+	 * @param maxnumber maximum number of connections in the pool
+	 * @throws SQLException SQL Exception if any error is encountered
+	 */
+	public ConcurrentConnectionPool(String url, String user, String password, int minnumber, int maxnumber)
+			throws SQLException {
+		if (maxnumber < 1)
+			throw new RuntimeException("Maximum number of connections should be at least 1, got " + maxnumber);
+		if (minnumber > maxnumber)
+			throw new RuntimeException("Minimum number of connections " + minnumber
+					+ " is bigger than maximum number " + maxnumber);
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.minnumber = minnumber;
+		this.maxnumber = maxnumber;
+		this.permits = new Semaphore(maxnumber, true);
+		this.freeconnections = new ConcurrentLinkedDeque<PooledConnection>();
+		this.bookedconnections = new ConcurrentHashMap<Connection, PooledConnection>();
+		this.totalconnections = new AtomicInteger(0);
+		this.lastshrink = new AtomicLong(System.currentTimeMillis());
+		this.peakbooked = new AtomicInteger(0);
+		this.checkoutcount = new AtomicLong(0);
+		this.totalwaitinms = new AtomicLong(0);
+		this.maxwaitinms = new AtomicLong(0);
+		this.timeoutcount = new AtomicLong(0);
+		this.discardedcount = new AtomicLong(0);
+		for (int i = 0; i < minnumber; i++) {
+			freeconnections.offerLast(createConnection());
+			logger.info("initiated a connection with database url = " + url + ", index = " + i + ", minnumber = "
+					+ minnumber + ", maxnumber = " + maxnumber);
+		}
+	}
+
+	/**
+	 * creates a new connection to the database
+	 *
+	 * @return the new connection
+	 * @throws SQLException if the connection cannot be created
+	 */
+	private PooledConnection createConnection() throws SQLException {
+		Connection connection;
+		if (user == null) {
+			logger.info("trying to create connection without user for url = " + url);
+			connection = DriverManager.getConnection(url);
+		} else {
+			logger.info("trying to create connection with user = " + user + " for url = " + url);
+			connection = DriverManager.getConnection(url, user, password);
+		}
+		if (connection == null)
+			throw new SQLException("Null connection with user = " + user + " for url = " + url);
+		totalconnections.incrementAndGet();
+		return new PooledConnection(connection);
+	}
+
+	/**
+	 * closes a connection and removes it from the pool
+	 *
+	 * @param pooledconnection the connection to discard
+	 * @param reason           reason for logging
+	 */
+	private void discardConnection(PooledConnection pooledconnection, String reason) {
+		totalconnections.decrementAndGet();
+		discardedcount.incrementAndGet();
+		logger.warning("Discarding connection: " + reason);
+		PreparedStatementCache.closeForConnection(pooledconnection.connection);
+		try {
+			pooledconnection.connection.close();
+		} catch (SQLException e) {
+			logger.warning("  **** Error during closing of SQL Connection " + e.getSQLState() + "/"
+					+ e.getErrorCode() + "/" + e.getMessage());
+		}
+	}
+
+	/**
+	 * gets the most recently used free connection, checking that it is still valid
+	 * if it was not used for some time
+	 *
+	 * @return a valid free connection, or null if there is no free connection
+	 */
+	private PooledConnection takeFreeConnection() {
+		PooledConnection pooledconnection;
+		while ((pooledconnection = freeconnections.pollFirst()) != null) {
+			if (System.currentTimeMillis() - pooledconnection.lastused < VALIDATIONINTERVALINMS)
+				return pooledconnection;
+			try {
+				if (pooledconnection.connection.isValid(VALIDATIONTIMEOUTINS))
+					return pooledconnection;
+				discardConnection(pooledconnection, "connection not valid anymore");
+			} catch (SQLException e) {
+				discardConnection(pooledconnection, "error during validation " + e.getMessage());
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Connection getConnectionWithRetry() throws SQLException, InterruptedException {
+		long starttime = System.currentTimeMillis();
+		if (!permits.tryAcquire(TIMEOUT, TimeUnit.MILLISECONDS)) {
+			timeoutcount.incrementAndGet();
+			logger.warning("could not book connection for Thread " + Thread.currentThread().getId() + " after "
+					+ TIMEOUT + "ms, " + permits.getQueueLength() + " other threads waiting");
+			return null;
+		}
+		return bookConnection(starttime);
+	}
+
+	@Override
+	public Connection getConnectionIfAvailable() throws SQLException {
+		long starttime = System.currentTimeMillis();
+		if (!permits.tryAcquire())
+			return null;
+		return bookConnection(starttime);
+	}
+
+	/**
+	 * books a free connection, or creates a connection, once a permit is acquired
+	 *
+	 * @param starttime time the request for a connection started
+	 * @return the connection booked for the current thread
+	 * @throws SQLException if the connection could not be created
+	 */
+	private Connection bookConnection(long starttime) throws SQLException {
+		PooledConnection pooledconnection;
+		try {
+			pooledconnection = takeFreeConnection();
+			// the permit guarantees the number of connections stays below maximum
+			if (pooledconnection == null)
+				pooledconnection = createConnection();
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+		pooledconnection.bookingthread = Thread.currentThread();
+		bookedconnections.put(pooledconnection.connection, pooledconnection);
+		int booked = bookedconnections.size();
+		peakbooked.accumulateAndGet(booked, Math::max);
+		long waittime = System.currentTimeMillis() - starttime;
+		checkoutcount.incrementAndGet();
+		totalwaitinms.addAndGet(waittime);
+		maxwaitinms.accumulateAndGet(waittime, Math::max);
+		if (waittime > SLOWWAITINMS) {
+			logger.warning("got connection for Thread " + Thread.currentThread().getId() + " after waiting time of "
+					+ waittime + "ms");
+		} else {
+			logger.finest("got connection for Thread " + Thread.currentThread().getId() + " after waiting time of "
+					+ waittime + "ms");
+		}
+		return pooledconnection.connection;
+	}
+
+	/**
+	 * gives back a booked connection to the pool, and hands the permit to the next
+	 * waiting thread
+	 *
+	 * @param pooledconnection the connection to give back
+	 */
+	private void release(PooledConnection pooledconnection) {
+		pooledconnection.bookingthread = null;
+		if (pooledconnection.sick) {
+			discardConnection(pooledconnection, "reset after SQL Exception");
+		} else {
+			pooledconnection.lastused = System.currentTimeMillis();
+			freeconnections.offerFirst(pooledconnection);
+		}
+		// connection has to be in the free list before the permit is released
+		permits.release();
+		shrinkIfRequired();
+	}
+
+	/**
+	 * closes the connections not used for some time, while keeping the minimum
+	 * number of connections. This is performed at most once per shrink period
+	 */
+	private void shrinkIfRequired() {
+		long now = System.currentTimeMillis();
+		long previousshrink = lastshrink.get();
+		if (now - previousshrink < SHRINKFREQUENCYINMS)
+			return;
+		if (!lastshrink.compareAndSet(previousshrink, now))
+			return;
+		while (totalconnections.get() > minnumber) {
+			PooledConnection oldest = freeconnections.pollLast();
+			if (oldest == null)
+				return;
+			if (now - oldest.lastused < IDLETIMEOUTINMS) {
+				freeconnections.offerLast(oldest);
+				return;
+			}
+			discardConnection(oldest, "not used for more than " + IDLETIMEOUTINMS + "ms");
+		}
+	}
+
+	@Override
+	public void checkin(Connection connection) {
+		PooledConnection pooledconnection = bookedconnections.remove(connection);
+		if (pooledconnection == null) {
+			logger.warning("trying to release a connection not booked in the pool, ignored");
+			return;
+		}
+		logger.finest("releasing connection for booking thread " + pooledconnection.bookingthread.getId());
+		release(pooledconnection);
+	}
+
+	@Override
+	public void checkinandreset(Connection connection) {
+		PooledConnection pooledconnection = bookedconnections.remove(connection);
+		if (pooledconnection == null) {
+			logger.warning("trying to reset a connection not booked in the pool, ignored");
+			return;
+		}
+		logger.warning("releasing connection for booking thread " + pooledconnection.bookingthread.getId()
+				+ " after SQL Error");
+		pooledconnection.sick = true;
+		release(pooledconnection);
+	}
+
+	@Override
+	public void freecurrentthreadconnections() {
+		Thread currentthread = Thread.currentThread();
+		for (PooledConnection pooledconnection : bookedconnections.values()) {
+			if (pooledconnection.bookingthread == currentthread)
+				if (bookedconnections.remove(pooledconnection.connection, pooledconnection)) {
+					logger.info(" Free connection for thread id = " + currentthread.getId()
+							+ " as part of exception handling ");
+					release(pooledconnection);
+				}
+		}
+	}
+
+	/**
+	 * @return the number of connections currently open, in use or free
+	 */
+	public int getTotalConnections() {
+		return totalconnections.get();
+	}
+
+	/**
+	 * @return the number of connections currently booked by a thread
+	 */
+	public int getBookedConnections() {
+		return bookedconnections.size();
+	}
+
+	/**
+	 * @return the highest number of connections booked at the same time since the
+	 *         pool was created
+	 */
+	public int getPeakBookedConnections() {
+		return peakbooked.get();
+	}
+
+	/**
+	 * @return the number of threads currently waiting for a connection
+	 */
+	public int getWaitingThreads() {
+		return permits.getQueueLength();
+	}
+
+	/**
+	 * @return the ratio of connections in use compared to the maximum number of
+	 *         connections, between 0 and 1
+	 */
+	public double getUtilization() {
+		return ((double) bookedconnections.size()) / maxnumber;
+	}
+
+	/**
+	 * @return the number of connections given since the pool was created
+	 */
+	public long getCheckoutCount() {
+		return checkoutcount.get();
+	}
+
+	/**
+	 * @return the average time in ms a thread waited to get a connection
+	 */
+	public double getAverageWaitInMs() {
+		long count = checkoutcount.get();
+		if (count == 0)
+			return 0;
+		return ((double) totalwaitinms.get()) / count;
+	}
+
+	/**
+	 * @return the longest time in ms a thread waited to get a connection
+	 */
+	public long getMaxWaitInMs() {
+		return maxwaitinms.get();
+	}
+
+	/**
+	 * @return the number of times a thread could not get a connection in the
+	 *         alloted time
+	 */
+	public long getTimeoutCount() {
+		return timeoutcount.get();
+	}
+
+	/**
+	 * @return the number of connections closed because they were not valid, reset
+	 *         after an error, or not used anymore
+	 */
+	public long getDiscardedCount() {
+		return discardedcount.get();
+	}
+
+	@Override
+	public String toString() {
+		return "CONCURRENTPOOL:TOTAL=" + getTotalConnections() + ";BOOKED=" + getBookedConnections() + ";PEAK="
+				+ getPeakBookedConnections() + ";MAX=" + maxnumber + ";WAITING=" + getWaitingThreads()
+				+ ";CHECKOUTS=" + getCheckoutCount() + ";AVGWAITMS=" + String.format("%.2f", getAverageWaitInMs())
+				+ ";MAXWAITMS=" + getMaxWaitInMs() + ";TIMEOUTS=" + getTimeoutCount() + ";DISCARDED="
+				+ getDiscardedCount();
+	}
+}
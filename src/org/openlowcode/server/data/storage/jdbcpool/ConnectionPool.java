@@ -29,6 +29,14 @@ public interface ConnectionPool {
 	 * @throws InterruptedException
 	 */
 	public Connection getConnectionWithRetry() throws SQLException, InterruptedException; 
+	/**
+	 * this method gets a database connection in the pool only if one can be given
+	 * immediately, without waiting for another thread to give back its connection
+	 * @return a connection if one connection was available, null else
+	 * @throws SQLException
+	 * @since 2.0
+	 */
+	public Connection getConnectionIfAvailable() throws SQLException;
 	/**
 	 * @param connection brought back the connection to the pool
 	 */
@@ -0,0 +1,217 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.server.data.storage.jdbcpool;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * A bounded cache of prepared statements for a pooled connection, keyed by the
+ * SQL text. When the cache is full, the least recently used statement is
+ * closed. A statement is removed from the cache while it is used, so that it is
+ * never given twice at the same time (a result set may still be read after the
+ * storage has been given back to the pool). It should be given back through
+ * {@link #release(String, PreparedStatement)} instead of being closed, or
+ * through {@link #evict(String, PreparedStatement)} if its execution failed.<br>
+ * Connection pools should call {@link #closeForConnection(Connection)} before
+ * closing a connection.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 2.0
+ */
+public class PreparedStatementCache {
+	private static Logger logger = Logger.getLogger(PreparedStatementCache.class.getCanonicalName());
+	/**
+	 * default maximum number of statements kept per connection
+	 */
+	public static final int DEFAULT_MAX_STATEMENTS = 64;
+	private static int maxstatements = DEFAULT_MAX_STATEMENTS;
+	private static ConcurrentHashMap<Connection, PreparedStatementCache> cachesbyconnection = new ConcurrentHashMap<
+			Connection, PreparedStatementCache>();
+	private static AtomicLong hits = new AtomicLong(0);
+	private static AtomicLong misses = new AtomicLong(0);
+	private static AtomicLong evictions = new AtomicLong(0);
+
+	private Connection connection;
+	private LinkedHashMap<String, PreparedStatement> statements;
+	private boolean closed;
+
+	/**
+	 * sets the maximum number of statements kept per connection. Setting 0
+	 * disables the cache
+	 *
+	 * @param maxstatements maximum number of statements per connection
+	 */
+	public static void setMaxStatements(int maxstatements) {
+		if (maxstatements < 0)
+			throw new RuntimeException("Maximum number of cached statements cannot be negative: " + maxstatements);
+		PreparedStatementCache.maxstatements = maxstatements;
+	}
+
+	/**
+	 * gets the cache of the connection, creating it if required
+	 *
+	 * @param connection a connection
+	 * @return the cache of prepared statements for this connection
+	 */
+	public static PreparedStatementCache getForConnection(Connection connection) {
+		return cachesbyconnection.computeIfAbsent(connection, PreparedStatementCache::new);
+	}
+
+	/**
+	 * closes all the statements cached for the connection. Statements currently
+	 * used are closed when they are given back
+	 *
+	 * @param connection a connection about to be closed
+	 */
+	public static void closeForConnection(Connection connection) {
+		PreparedStatementCache cache = cachesbyconnection.remove(connection);
+		if (cache != null)
+			cache.close();
+	}
+
+	/**
+	 * @return the number of statements found in the cache since server start
+	 */
+	public static long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of statements prepared because they were not in the
+	 *         cache since server start
+	 */
+	public static long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of statements closed because the cache was full since
+	 *         server start
+	 */
+	public static long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * creates an empty cache for the connection
+	 *
+	 * @param connection the connection
+	 */
+	private PreparedStatementCache(Connection connection) {
+		this.connection = connection;
+		this.closed = false;
+		this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				if (size() <= maxstatements)
+					return false;
+				evictions.incrementAndGet();
+				closeQuietly(eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * gets a prepared statement for the query, from the cache if available
+	 *
+	 * @param stringquery the SQL query
+	 * @return a prepared statement, to be given back through
+	 *         {@link #release(String, PreparedStatement)} when not used anymore
+	 * @throws SQLException if the statement cannot be prepared
+	 */
+	public PreparedStatement prepare(String stringquery) throws SQLException {
+		synchronized (this) {
+			if (!closed) {
+				PreparedStatement ps = statements.remove(stringquery);
+				if (ps != null) {
+					hits.incrementAndGet();
+					return ps;
+				}
+			}
+		}
+		misses.incrementAndGet();
+		return connection.prepareStatement(stringquery);
+	}
+
+	/**
+	 * gives back a statement once it is not used anymore. The statement is kept in
+	 * the cache, or closed if the cache is closed or disabled
+	 *
+	 * @param stringquery the SQL query of the statement
+	 * @param ps          the prepared statement
+	 */
+	public synchronized void release(String stringquery, PreparedStatement ps) {
+		if ((closed) || (maxstatements == 0) || (statements.containsKey(stringquery))) {
+			closeQuietly(ps);
+			return;
+		}
+		try {
+			ps.clearParameters();
+		} catch (SQLException e) {
+			logger.warning("Error while clearing parameters of statement, closing it: " + e.getMessage());
+			closeQuietly(ps);
+			return;
+		}
+		statements.put(stringquery, ps);
+	}
+
+	/**
+	 * closes a statement whose execution failed instead of giving it back, as
+	 * its state (parameters, batch, open result set) is not known anymore. A
+	 * statement for the same query still in the cache is also closed, as the
+	 * failure may come from a change in the database
+	 *
+	 * @param stringquery the SQL query of the statement
+	 * @param ps          the prepared statement
+	 */
+	public synchronized void evict(String stringquery, PreparedStatement ps) {
+		closeQuietly(ps);
+		PreparedStatement cachedps = statements.remove(stringquery);
+		if (cachedps != null)
+			closeQuietly(cachedps);
+	}
+
+	/**
+	 * closes all the statements in the cache. Statements given back after this
+	 * call are closed
+	 */
+	private synchronized void close() {
+		closed = true;
+		Iterator<PreparedStatement> iterator = statements.values().iterator();
+		while (iterator.hasNext())
+			closeQuietly(iterator.next());
+		statements.clear();
+	}
+
+	/**
+	 * closes the statement, logging any error
+	 *
+	 * @param ps a prepared statement
+	 */
+	private static void closeQuietly(PreparedStatement ps) {
+		try {
+			ps.close();
+		} catch (SQLException e) {
+			logger.warning("Error while closing cached statement " + e.getMessage());
+		}
+	}
+}
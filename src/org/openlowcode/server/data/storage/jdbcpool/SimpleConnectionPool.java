@@ -61,6 +61,7 @@ public class SimpleConnectionPool implements ConnectionPool {
 		public void cure() throws SQLException {
 			if (sick) {
 				logger.warning("Resetting connection after SQL Exception ");
+				PreparedStatementCache.closeForConnection(this.connection);
 				try {
 
 					this.connection.close();
@@ -150,6 +151,30 @@ public class SimpleConnectionPool implements ConnectionPool {
 		return null;
 	}
 
+	@Override
+	public synchronized Connection getConnectionIfAvailable() throws SQLException {
+		// threads waiting for a connection have priority
+		Iterator<Booking> iterator = orderedbooking.iterator();
+		while (iterator.hasNext())
+			if (!iterator.next().isObsolete())
+				return null;
+		for (int i = 0; i < connections.size(); i++)
+			if (connections.get(i).bookingthread == null) {
+				logger.info("Connection " + i + " assigned to Thread " + Thread.currentThread().getId());
+				connections.get(i).bookingthread = Thread.currentThread();
+				connections.get(i).cure();
+				return connections.get(i).connection;
+			}
+		if (connections.size() < maxnumber) {
+			int newindex = connections.size();
+			connections.add(new ConnectionStatus(createConnection(url, user, password), Thread.currentThread()));
+			logger.info("initiated a connection with database url = " + url + ", index = " + newindex + " for Thread "
+					+ Thread.currentThread().getId());
+			return connections.get(newindex).connection;
+		}
+		return null;
+	}
+
 	private synchronized Connection getConnection() throws SQLException {
 		int otherprioritythreads = 0;
 		Iterator<Booking> iterator = orderedbooking.iterator();
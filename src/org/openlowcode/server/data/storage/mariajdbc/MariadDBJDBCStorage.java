@@ -11,7 +11,12 @@
 package org.openlowcode.server.data.storage.mariajdbc;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 
+import org.openlowcode.server.data.storage.AggregateProjection;
+import org.openlowcode.server.data.storage.LargeBinaryStoredField;
+import org.openlowcode.server.data.storage.StoredTableSchema;
 import org.openlowcode.server.data.storage.standardjdbc.BaseJDBCStorage;
 
 /**
@@ -24,6 +29,28 @@ import org.openlowcode.server.data.storage.standardjdbc.BaseJDBCStorage;
 public class MariadDBJDBCStorage
 		extends
 		BaseJDBCStorage {
+	/**
+	 * default number of rows inserted by a single statement in a massive insert
+	 */
+	public static final int DEFAULT_INSERT_CHUNK_SIZE = 500;
+	/**
+	 * maximum number of parameters in a prepared statement for MariaDB
+	 */
+	private static final int MAX_PARAMETERS = 65535;
+	private static int insertchunksize = DEFAULT_INSERT_CHUNK_SIZE;
+
+	/**
+	 * sets the number of rows inserted by a single statement in a massive
+	 * insert. Setting 1 inserts rows by a JDBC batch of single row statements
+	 * 
+	 * @param insertchunksize number of rows per insert statement
+	 * @since 2.0
+	 */
+	public static void setInsertChunkSize(int insertchunksize) {
+		if (insertchunksize < 1)
+			throw new RuntimeException("Insert chunk size should be at least 1, got " + insertchunksize);
+		MariadDBJDBCStorage.insertchunksize = insertchunksize;
+	}
 
 	/**
 	 * creates a MariaDB storage for the given connection
@@ -35,4 +62,83 @@ public class MariadDBJDBCStorage
 
 	}
 
+	/**
+	 * The MariaDB driver reads the full result in memory unless a fetch size is
+	 * set. With a fetch size, rows are streamed by blocks. Another query on
+	 * the same connection first loads the rest of the result in memory, so
+	 * blocks are kept small.
+	 * 
+	 * @since 2.0
+	 */
+	@Override
+	protected int getStreamingFetchSize() {
+		return 200;
+	}
+
+	/**
+	 * MariaDB does not support the standard OFFSET / FETCH FIRST syntax on all
+	 * supported versions, so uses LIMIT. An offset without limit requires the
+	 * biggest possible limit, as recommended by the MariaDB documentation.
+	 * 
+	 * @since 2.0
+	 */
+	@Override
+	protected void appendRowLimitation(StringBuffer query, boolean hasoffset, boolean haslimit) {
+		if (haslimit) {
+			query.append(" LIMIT ? ");
+		} else {
+			query.append(" LIMIT 18446744073709551615 ");
+		}
+		if (hasoffset)
+			query.append(" OFFSET ? ");
+	}
+
+	/**
+	 * The MariaDB driver sends a JDBC batch as individual statements, so massive
+	 * inserts are done by statements with several rows of values. Tables with
+	 * large binary fields keep the batch, as a chunk of files could exceed the
+	 * maximum packet size of the server.
+	 * 
+	 * @since 2.0
+	 */
+	@Override
+	protected int getMultiRowInsertSize(StoredTableSchema tableschema) {
+		for (int i = 0; i < tableschema.getStoredFieldNumber(); i++)
+			if (tableschema.getStoredField(i) instanceof LargeBinaryStoredField)
+				return 1;
+		int maxrows = MAX_PARAMETERS / Math.max(1, tableschema.getStoredFieldNumber());
+		return Math.min(insertchunksize, maxrows);
+	}
+
+	/**
+	 * MariaDB computes the sum of an integer field as a decimal, and does not
+	 * accept BIGINT as a type for CAST, so aggregate functions are applied on the
+	 * field directly.
+	 * 
+	 * @since 2.0
+	 */
+	@Override
+	protected void appendAggregateProjection(StringBuffer query, AggregateProjection<?> projection) {
+		if (projection.getFunction() == AggregateProjection.COUNT) {
+			query.append("COUNT(*)");
+			return;
+		}
+		query.append(projection.getFunctionName());
+		query.append('(');
+		query.append(projection.getAlias().getName());
+		query.append('.');
+		query.append(projection.getField().getName());
+		query.append(')');
+	}
+
+	/**
+	 * @since 2.0
+	 */
+	@Override
+	protected void bindRowLimitation(PreparedStatement ps, int index, int offset, int limit) throws SQLException {
+		if (limit > 0)
+			ps.setInt(index++, limit);
+		if (offset > 0)
+			ps.setInt(index++, offset);
+	}
 }
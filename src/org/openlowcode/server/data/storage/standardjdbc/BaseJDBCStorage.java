@@ -24,8 +24,9 @@ import java.util.Iterator;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
-import javax.sql.rowset.serial.SerialBlob;
-
+import org.openlowcode.server.data.storage.AggregateProjection;
+import org.openlowcode.server.data.storage.AggregateQuery;
+import org.openlowcode.server.data.storage.AggregateRow;
 import org.openlowcode.server.data.storage.DecimalStoredField;
 import org.openlowcode.server.data.storage.DeleteQuery;
 import org.openlowcode.server.data.storage.IntegerStoredField;
@@ -36,8 +37,10 @@ import org.openlowcode.server.data.storage.MultipleTableRow;
 import org.openlowcode.server.data.storage.PersistenceGateway;
 import org.openlowcode.server.data.storage.PersistentStorage;
 import org.openlowcode.server.data.storage.QueryCondition;
+import org.openlowcode.server.data.storage.QueryOrder;
 import org.openlowcode.server.data.storage.Row;
 import org.openlowcode.server.data.storage.SelectQuery;
+import org.openlowcode.server.data.storage.SimpleEqualQueryCondition;
 import org.openlowcode.server.data.storage.StoredFieldSchema;
 import org.openlowcode.server.data.storage.StoredTableRow;
 import org.openlowcode.server.data.storage.StoredTableSchema;
@@ -49,6 +52,7 @@ import org.openlowcode.server.data.storage.StoredFieldSchema.TestVisitor;
 import org.openlowcode.server.data.storage.StoredFieldSchema.Visitor;
 import org.openlowcode.server.data.storage.TableAlias.FieldSelectionAlias;
 import org.openlowcode.server.data.storage.derbyjdbc.DerbyJDBCStorage;
+import org.openlowcode.server.data.storage.jdbcpool.PreparedStatementCache;
 import org.openlowcode.tools.messages.SFile;
 
 /**
@@ -150,6 +154,7 @@ public abstract class BaseJDBCStorage
 		// back
 		protected boolean forceautocommitifrollaback = false;
 		protected boolean forceautocommitiferror;
+		private long rowcount = -1;
 
 		/**
 		 * creates a new sql execution
@@ -186,23 +191,58 @@ public abstract class BaseJDBCStorage
 		public String getStringQuery() {
 			return stringquery;
 		}
+
+		/**
+		 * sets the number of rows changed by the execution, for statistics
+		 * 
+		 * @param rowcount number of rows changed
+		 * @since 2.0
+		 */
+		protected void setRowCount(long rowcount) {
+			this.rowcount = rowcount;
+		}
 	}
 
 	/**
+	 * counts the rows changed by a JDBC batch. Statements for which the driver
+	 * does not give the number of rows are counted as one row
+	 * 
+	 * @param results the result of the execution of the batch
+	 * @return the number of rows changed
+	 * @since 2.0
+	 */
+	protected static long countBatchRows(int[] results) {
+		long rowcount = 0;
+		for (int i = 0; i < results.length; i++)
+			rowcount += (results[i] >= 0 ? results[i] : 1);
+		return rowcount;
+	}
+
+	/**
+	 * executes the query, relaunching it on a new connection in case of SQL
+	 * error. Execution time, rows and relaunches are recorded in the
+	 * {@link SQLStatistics} of the shape of the query.
+	 * 
 	 * @param execution the sql execution
 	 * @return the data if the query returns any data
 	 */
 	public <E extends Object> E executeWithRelaunch(SQLExecution<E> execution) {
 		SQLException lastsqlexception = null;
+		SQLStatistics.StatementStatistics statistics = SQLStatistics.getForQuery(execution.stringquery);
+		int relaunches = 0;
 		for (int i = 0; i < MAX_SQLERROR_RETRY; i++) {
 			if (i != 0)
 				LOGGER.warning(
 						"[PERSISTENCE] Retrying after SQL error, index = " + i + " query = " + execution.stringquery);
 			try {
-				long beforequery = new Date().getTime();
+				long beforequery = System.nanoTime();
 				E returnvalue = execution.executes();
-				long afterquery = new Date().getTime();
-				long duration = afterquery - beforequery;
+				long durationnanos = System.nanoTime() - beforequery;
+				long duration = durationnanos / 1000000L;
+				statistics.recordExecution(durationnanos, relaunches, execution.rowcount);
+				// rows of a select query are counted when the result is closed
+				if (returnvalue instanceof JDBCRow)
+					((JDBCRow) returnvalue).setStatistics(statistics);
 				String performancelog = "[PERSISTENCE] query executed in " + duration + "ms, query = "
 						+ execution.stringquery;
 				if (duration > 2000)
@@ -220,6 +260,13 @@ public abstract class BaseJDBCStorage
 					LOGGER.warning("[PERSISTENCE] -    " + e.getStackTrace()[st]);
 				}
 				lastsqlexception = e;
+				relaunches++;
+				// a retry on a new connection would lose the changes already done in the
+				// transaction, so the error is sent back to roll back the transaction
+				if (PersistenceGateway.isInTransaction(this)) {
+					statistics.recordError(relaunches - 1);
+					throw new RuntimeException("Database sqlerror in transaction " + e);
+				}
 				if (execution.forceautocommitiferror == true) {
 					try {
 						connection.setAutoCommit(true);
@@ -257,6 +304,7 @@ public abstract class BaseJDBCStorage
 			}
 
 		}
+		statistics.recordError(relaunches - 1);
 		throw new RuntimeException("Database sqlerror, even after retries " + lastsqlexception);
 	}
 
@@ -264,9 +312,14 @@ public abstract class BaseJDBCStorage
 	
 	
 
-	@Override
-	public Row selectOnDB(SelectQuery sq) {
-
+	/**
+	 * generates the SQL text of a select query
+	 * 
+	 * @param sq the select query
+	 * @return the SQL text, with parameters for the values of conditions
+	 * @since 2.0
+	 */
+	private String generateSelectQuery(SelectQuery sq) {
 		StringBuffer query = new StringBuffer();
 		query.append(" SELECT ");
 		if (sq.isDistinctValues()) query.append(" DISTINCT ");
@@ -279,9 +332,18 @@ public abstract class BaseJDBCStorage
 						query.append(" , "); // adds coma if not the first field
 
 					StoredFieldSchema thisfield = thisalias.getTable().getStoredField(j);
-					query.append(thisalias.getName());
-					query.append('.');
-					query.append(thisfield.getName());
+					if (RowMappingPlan.isLazyLargeBinary(thisalias, thisfield)) {
+						// only the length is read, content is loaded when accessed
+						query.append("LENGTH(");
+						query.append(thisalias.getName());
+						query.append('.');
+						query.append(thisfield.getName());
+						query.append(')');
+					} else {
+						query.append(thisalias.getName());
+						query.append('.');
+						query.append(thisfield.getName());
+					}
 					query.append(" AS ");
 					query.append(thisalias.getName());
 					query.append('_');
@@ -323,31 +385,261 @@ public abstract class BaseJDBCStorage
 				SQLQueryConditionGenerator generator = new SQLQueryConditionGenerator(query);
 				condition.accept(generator);
 			}
-		// end of query init
+		if (sq.getOrderNumber() > 0) {
+			query.append(" ORDER BY ");
+			for (int i = 0; i < sq.getOrderNumber(); i++) {
+				if (i != 0)
+					query.append(" , ");
+				QueryOrder order = sq.getOrder(i);
+				query.append(order.getAlias().getName());
+				query.append('.');
+				query.append(order.getField().getName());
+				query.append(order.isAscending() ? " ASC " : " DESC ");
+			}
+		}
+		if ((sq.getOffset() > 0) || (sq.getLimit() > 0))
+			appendRowLimitation(query, sq.getOffset() > 0, sq.getLimit() > 0);
+		return query.toString();
+	}
 
-		String stringquery = query.toString();
+	/**
+	 * gives the number of rows to fetch from the database at once for a select
+	 * query in streaming mode. The default value is suited to Derby, where the
+	 * embedded driver reads rows lazily anyway, and the network driver fetches
+	 * rows by blocks of this size.
+	 * 
+	 * @return the fetch size for streaming queries
+	 * @since 2.0
+	 */
+	protected int getStreamingFetchSize() {
+		return 1000;
+	}
+
+	/**
+	 * appends to the select query the clause restricting the rows brought back.
+	 * The default implementation uses the SQL standard syntax (OFFSET ... ROWS
+	 * FETCH FIRST ... ROWS ONLY) supported by Derby. Values are set as parameters
+	 * by {@link #bindRowLimitation(PreparedStatement, int, int, int)}
+	 * 
+	 * @param query     the select query being built
+	 * @param hasoffset true if rows should be skipped at the start of the result
+	 * @param haslimit  true if the number of rows should be limited
+	 * @since 2.0
+	 */
+	protected void appendRowLimitation(StringBuffer query, boolean hasoffset, boolean haslimit) {
+		if (hasoffset)
+			query.append(" OFFSET ? ROWS ");
+		if (haslimit)
+			query.append(" FETCH FIRST ? ROWS ONLY ");
+	}
+
+	/**
+	 * sets the parameters of the clause restricting the rows brought back, in the
+	 * order of the SQL generated by
+	 * {@link #appendRowLimitation(StringBuffer, boolean, boolean)}
+	 * 
+	 * @param ps     prepared statement
+	 * @param index  index of the next parameter to set
+	 * @param offset number of rows to skip, 0 if none
+	 * @param limit  maximum number of rows, 0 if no limit
+	 * @throws SQLException if any error is encountered setting the parameters
+	 * @since 2.0
+	 */
+	protected void bindRowLimitation(PreparedStatement ps, int index, int offset, int limit) throws SQLException {
+		if (offset > 0)
+			ps.setInt(index++, offset);
+		if (limit > 0)
+			ps.setInt(index++, limit);
+	}
+
+	@Override
+	public Row selectOnDB(SelectQuery sq) {
+		// SQL text is generated only once per shape of query
+		SelectQueryShape shape = new SelectQueryShape(sq, this.getClass());
+		String stringquery = shape.getSQL(() -> generateSelectQuery(sq));
 		return this.executeWithRelaunch(new SQLExecution<JDBCRow>(stringquery) {
 
 			@Override
 			public JDBCRow executes() throws SQLException {
-				PreparedStatement ps = connection.prepareStatement(stringquery);
-				if (condition != null) {
-					SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, 1);
-					condition.accept(filler);
+				PreparedStatementCache statementcache = PreparedStatementCache.getForConnection(connection);
+				PreparedStatement ps = statementcache.prepare(stringquery);
+				boolean executed = false;
+				try {
+					// statements are reused from the cache, so fetch size is always set
+					ps.setFetchSize(sq.isStreaming() ? getStreamingFetchSize() : 0);
+					int nextindex = shape.bindParameters(ps);
+					bindRowLimitation(ps, nextindex, sq.getOffset(), sq.getLimit());
+					ResultSet rs = ps.executeQuery();
+					JDBCRow row = new JDBCRow(statementcache, ps, rs, stringquery, shape.getRowMappingPlan());
+					executed = true;
+					return row;
+				} finally {
+					// on success, the statement is given back when the row is closed
+					if (!executed)
+						statementcache.evict(stringquery, ps);
 				}
-				ResultSet rs = ps.executeQuery();
-				return new JDBCRow(ps, rs, stringquery);
 			}
 
 		});
 
 	}
 
+	/**
+	 * generates the SQL text of an aggregate query
+	 * 
+	 * @param aq the aggregate query
+	 * @return the SQL text, with parameters for the values of conditions
+	 * @since 2.0
+	 */
+	private String generateAggregateQuery(AggregateQuery aq) {
+		if ((aq.getGroupingNumber() == 0) && (aq.getProjectionNumber() == 0))
+			throw new RuntimeException("Aggregate query has neither grouping nor projection");
+		StringBuffer query = new StringBuffer();
+		query.append(" SELECT ");
+		for (int i = 0; i < aq.getGroupingNumber(); i++) {
+			if (i != 0)
+				query.append(" , ");
+			TableAlias thisalias = aq.getGroupingAlias(i);
+			StoredFieldSchema thisfield = aq.getGroupingField(i);
+			query.append(thisalias.getName());
+			query.append('.');
+			query.append(thisfield.getName());
+			// same label as in a select query, so grouping values are read the same way
+			query.append(" AS ");
+			query.append(thisalias.getName());
+			query.append('_');
+			query.append(thisfield.getName());
+		}
+		for (int i = 0; i < aq.getProjectionNumber(); i++) {
+			if ((i != 0) || (aq.getGroupingNumber() > 0))
+				query.append(" , ");
+			AggregateProjection<?> projection = aq.getProjection(i);
+			appendAggregateProjection(query, projection);
+			query.append(" AS ");
+			query.append(projection.getLabel());
+		}
+		query.append(" FROM ");
+		for (int i = 0; i < aq.getTableNumber(); i++) {
+			if (i != 0)
+				query.append(" , ");
+			TableAlias thisalias = aq.getTable(i);
+			query.append(thisalias.getTable().getName());
+			query.append(' ');
+			query.append(thisalias.getName());
+		}
+		QueryCondition condition = aq.getQueryCondition();
+		if (condition != null)
+			if (condition.isSignificant(0)) {
+				query.append(" WHERE ");
+				SQLQueryConditionGenerator generator = new SQLQueryConditionGenerator(query);
+				condition.accept(generator);
+			}
+		if (aq.getGroupingNumber() > 0) {
+			query.append(" GROUP BY ");
+			for (int i = 0; i < aq.getGroupingNumber(); i++) {
+				if (i != 0)
+					query.append(" , ");
+				query.append(aq.getGroupingAlias(i).getName());
+				query.append('.');
+				query.append(aq.getGroupingField(i).getName());
+			}
+		}
+		if (aq.getOrderNumber() > 0) {
+			query.append(" ORDER BY ");
+			for (int i = 0; i < aq.getOrderNumber(); i++) {
+				if (i != 0)
+					query.append(" , ");
+				QueryOrder order = aq.getOrder(i);
+				query.append(order.getAlias().getName());
+				query.append('.');
+				query.append(order.getField().getName());
+				query.append(order.isAscending() ? " ASC " : " DESC ");
+			}
+		}
+		return query.toString();
+	}
+
+	/**
+	 * appends the aggregate function of a projection to the query. The default
+	 * implementation computes the sum of an integer field as a BIGINT, as Derby
+	 * returns the sum with the type of the field, and it would overflow on big
+	 * tables.
+	 * 
+	 * @param query      the aggregate query being built
+	 * @param projection the aggregate projection
+	 * @since 2.0
+	 */
+	protected void appendAggregateProjection(StringBuffer query, AggregateProjection<?> projection) {
+		if (projection.getFunction() == AggregateProjection.COUNT) {
+			query.append("COUNT(*)");
+			return;
+		}
+		query.append(projection.getFunctionName());
+		query.append('(');
+		boolean castinteger = (projection.getFunction() == AggregateProjection.SUM)
+				&& (projection.getField() instanceof IntegerStoredField);
+		if (castinteger)
+			query.append("CAST(");
+		query.append(projection.getAlias().getName());
+		query.append('.');
+		query.append(projection.getField().getName());
+		if (castinteger)
+			query.append(" AS BIGINT)");
+		query.append(')');
+	}
+
 	@Override
-	public void MassiveInsertOnDB(MultipleTableRow multiplerow) {
-		StoredTableSchema tableschema = multiplerow.getTableSchema();
-		// ---------- Generate Insert
+	public AggregateRow aggregateOnDB(AggregateQuery aq) {
+		String stringquery = generateAggregateQuery(aq);
+		return this.executeWithRelaunch(new SQLExecution<JDBCRow>(stringquery) {
+
+			@Override
+			public JDBCRow executes() throws SQLException {
+				PreparedStatementCache statementcache = PreparedStatementCache.getForConnection(connection);
+				PreparedStatement ps = statementcache.prepare(stringquery);
+				boolean executed = false;
+				try {
+					ps.setFetchSize(0);
+					QueryCondition condition = aq.getQueryCondition();
+					if (condition != null)
+						if (condition.isSignificant(0))
+							condition.accept(new SQLQueryPSFiller(ps, 1));
+					ResultSet rs = ps.executeQuery();
+					JDBCRow row = new JDBCRow(statementcache, ps, rs, stringquery);
+					executed = true;
+					return row;
+				} finally {
+					// on success, the statement is given back when the row is closed
+					if (!executed)
+						statementcache.evict(stringquery, ps);
+				}
+			}
+
+		});
+	}
+
+	/**
+	 * gives the maximum number of rows inserted by a single statement during a
+	 * massive insert. If the value is 1, rows are inserted by a JDBC batch of
+	 * single row statements, which is efficient on Derby.
+	 * 
+	 * @param tableschema table to insert rows into
+	 * @return the maximum number of rows in an insert statement
+	 * @since 2.0
+	 */
+	protected int getMultiRowInsertSize(StoredTableSchema tableschema) {
+		return 1;
+	}
 
+	/**
+	 * generates the insert statement for the table
+	 * 
+	 * @param tableschema table to insert rows into
+	 * @param rownumber   number of rows inserted by the statement
+	 * @return the SQL text of the insert statement
+	 * @since 2.0
+	 */
+	private static String generateInsertQuery(StoredTableSchema tableschema, int rownumber) {
 		StringBuffer query = new StringBuffer();
 		query.append(" INSERT INTO ");
 		query.append(tableschema.getName());
@@ -359,16 +651,130 @@ public abstract class BaseJDBCStorage
 			query.append(thisfield.getName());
 		}
 		query.append(" ) ");
-		query.append(" VALUES (");
-		for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
-			if (i != 0)
+		query.append(" VALUES ");
+		for (int row = 0; row < rownumber; row++) {
+			if (row != 0)
 				query.append(",");
-			query.append("?");
+			query.append("(");
+			for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
+				if (i != 0)
+					query.append(",");
+				query.append("?");
+			}
+			query.append(")");
 		}
-		query.append(" ) ");
-		String stringquery = query.toString();
-		// generates data
+		query.append(" ");
+		return query.toString();
+	}
+
+	/**
+	 * sets the values of a row on the prepared statement of an insert
+	 * 
+	 * @param ps          prepared statement
+	 * @param index       index of the parameter for the first field of the row
+	 * @param multiplerow rows to insert
+	 * @param rowindex    index of the row to insert
+	 * @return the index of the next parameter to set on the prepared statement
+	 * @throws SQLException if any error is encountered setting the parameters
+	 * @since 2.0
+	 */
+	@SuppressWarnings("unchecked")
+	private static int setInsertParameters(PreparedStatement ps, int index, MultipleTableRow multiplerow, int rowindex)
+			throws SQLException {
+		StoredTableSchema tableschema = multiplerow.getTableSchema();
+		for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
+			StoredFieldSchema thisfieldschema = tableschema.getStoredField(i);
+
+			boolean treated = false;
+			if (thisfieldschema instanceof StringStoredField) {
+				StringStoredField castedfieldschema = (StringStoredField) thisfieldschema;
+				String payload = multiplerow.getPayload(rowindex, castedfieldschema);
+				ps.setString(index + i, payload);
+				LOGGER.fine("JDBC Prepared Statement SetString " + (index + i) + " " + payload);
+				treated = true;
+			}
+			if (thisfieldschema instanceof TimestampStoredField) {
+				TimestampStoredField castedfieldschema = (TimestampStoredField) thisfieldschema;
+				Date thisdate = (Date) multiplerow.getPayload(rowindex, castedfieldschema);
+				LOGGER.fine("JDBC Prepared Statement Timestamp " + (index + i) + " " + thisdate);
+				if (thisdate != null)
+					ps.setTimestamp(index + i, new Timestamp(thisdate.getTime()));
+				if (thisdate == null)
+					ps.setTimestamp(index + i, null);
+				treated = true;
+			}
+			if (thisfieldschema instanceof DecimalStoredField) {
+				DecimalStoredField castedfieldschema = (DecimalStoredField) thisfieldschema;
+				BigDecimal thisdecimal = (BigDecimal) multiplerow.getPayload(rowindex, castedfieldschema);
+				LOGGER.fine("JDBC Prepared Statement BigDecimal " + (index + i) + " " + thisdecimal);
+
+				if (thisdecimal != null)
+					ps.setBigDecimal(index + i, thisdecimal);
+				if (thisdecimal == null)
+					ps.setBigDecimal(index + i, null);
+				treated = true;
+			}
+
+			if (thisfieldschema instanceof IntegerStoredField) {
+				IntegerStoredField castedfieldschema = (IntegerStoredField) thisfieldschema;
+				Integer thisinteger = (Integer) multiplerow.getPayload(rowindex, castedfieldschema);
+				LOGGER.fine("JDBC Prepared Statement Integer " + (index + i) + " " + thisinteger);
 
+				if (thisinteger != null)
+					ps.setInt(index + i, thisinteger.intValue());
+				if (thisinteger == null)
+					ps.setNull(index + i, java.sql.Types.INTEGER);
+				treated = true;
+			}
+			if (thisfieldschema instanceof LargeBinaryStoredField) {
+				LargeBinaryStoredField castedfieldschema = (LargeBinaryStoredField) thisfieldschema;
+				SFile thisfile = (SFile) multiplerow.getPayload(rowindex, castedfieldschema);
+				LOGGER.fine("JDBC Prepared Statement set File " + (index + i) + " empty=" + thisfile.isEmpty());
+
+				if (thisfile.isEmpty())
+					ps.setNull(index + i, java.sql.Types.BLOB);
+				if (!thisfile.isEmpty())
+					ps.setBinaryStream(index + i, thisfile.getStream(), thisfile.getLength());
+				treated = true;
+			}
+
+			if (!treated)
+				throw new RuntimeException(String.format("object type not supported for %s.%s (%s)",
+						tableschema.getName(), thisfieldschema.getName(), thisfieldschema.getClass()));
+		}
+		return index + tableschema.getStoredFieldNumber();
+	}
+
+	@Override
+	public void MassiveInsertOnDB(MultipleTableRow multiplerow) {
+		PersistenceGateway.routeWriteToPrimary(this);
+		StoredTableSchema tableschema = multiplerow.getTableSchema();
+		int rowsperstatement = getMultiRowInsertSize(tableschema);
+		if (rowsperstatement > multiplerow.getPayloadSize())
+			rowsperstatement = multiplerow.getPayloadSize();
+		if (rowsperstatement < 1)
+			rowsperstatement = 1;
+		long starttime = System.currentTimeMillis();
+		if (rowsperstatement > 1) {
+			multiRowInsert(multiplerow, rowsperstatement);
+		} else {
+			batchInsert(multiplerow);
+		}
+		long duration = System.currentTimeMillis() - starttime;
+		LOGGER.fine("Massive insert of " + multiplerow.getPayloadSize() + " rows in " + tableschema.getName() + " with "
+				+ rowsperstatement + " rows per statement in " + duration + "ms ("
+				+ (duration > 0 ? (multiplerow.getPayloadSize() * 1000L / duration) + " rows/s" : "less than 1ms")
+				+ ")");
+	}
+
+	/**
+	 * inserts rows by a JDBC batch of single row statements
+	 * 
+	 * @param multiplerow rows to insert
+	 * @since 2.0
+	 */
+	private void batchInsert(MultipleTableRow multiplerow) {
+		String stringquery = generateInsertQuery(multiplerow.getTableSchema(), 1);
 		this.executeWithRelaunch(new SQLExecution<Object>(stringquery) {
 
 			@Override
@@ -376,74 +782,80 @@ public abstract class BaseJDBCStorage
 				boolean autocommit = connection.getAutoCommit();
 				if (autocommit)
 					connection.setAutoCommit(false);
-				PreparedStatement ps = connection.prepareStatement(stringquery);
-				for (int rowindex = 0; rowindex < multiplerow.getPayloadSize(); rowindex++) {
-
-					for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
-						StoredFieldSchema thisfieldschema = tableschema.getStoredField(i);
-
-						boolean treated = false;
-						if (thisfieldschema instanceof StringStoredField) {
-							StringStoredField castedfieldschema = (StringStoredField) thisfieldschema;
-							String payload = multiplerow.getPayload(rowindex, castedfieldschema);
-							ps.setString(i + 1, payload);
-							LOGGER.fine("JDBC Prepared Statement SetString " + (i + 1) + " " + payload);
-							treated = true;
-						}
-						if (thisfieldschema instanceof TimestampStoredField) {
-							TimestampStoredField castedfieldschema = (TimestampStoredField) thisfieldschema;
-							Date thisdate = (Date) multiplerow.getPayload(rowindex, castedfieldschema);
-							LOGGER.fine("JDBC Prepared Statement Timestamp " + (i + 1) + " " + thisdate);
-							if (thisdate != null)
-								ps.setTimestamp(i + 1, new Timestamp(thisdate.getTime()));
-							if (thisdate == null)
-								ps.setTimestamp(i + 1, null);
-							treated = true;
-						}
-						if (thisfieldschema instanceof DecimalStoredField) {
-							DecimalStoredField castedfieldschema = (DecimalStoredField) thisfieldschema;
-							BigDecimal thisdecimal = (BigDecimal) multiplerow.getPayload(rowindex, castedfieldschema);
-							LOGGER.fine("JDBC Prepared Statement BigDecimal " + (i + 1) + " " + thisdecimal);
-
-							if (thisdecimal != null)
-								ps.setBigDecimal(i + 1, thisdecimal);
-							if (thisdecimal == null)
-								ps.setBigDecimal(i + 1, null);
-							treated = true;
-						}
-
-						if (thisfieldschema instanceof IntegerStoredField) {
-							IntegerStoredField castedfieldschema = (IntegerStoredField) thisfieldschema;
-							Integer thisinteger = (Integer) multiplerow.getPayload(rowindex, castedfieldschema);
-							LOGGER.fine("JDBC Prepared Statement Integer " + (i + 1) + " " + thisinteger);
-
-							if (thisinteger != null)
-								ps.setInt(i + 1, thisinteger.intValue());
-							if (thisinteger == null)
-								ps.setNull(i + 1, java.sql.Types.INTEGER);
-							treated = true;
-						}
-						if (thisfieldschema instanceof LargeBinaryStoredField) {
-							LargeBinaryStoredField castedfieldschema = (LargeBinaryStoredField) thisfieldschema;
-							SFile thisfile = (SFile) multiplerow.getPayload(rowindex, castedfieldschema);
-							LOGGER.fine("JDBC Prepared Statement set File " + (i + 1) + " empty=" + thisfile.isEmpty());
-
-							if (thisfile.isEmpty())
-								ps.setNull(i + 1, java.sql.Types.BLOB);
-							if (!thisfile.isEmpty())
-								ps.setBlob(i + 1, new SerialBlob(thisfile.getContent()));
-							treated = true;
-						}
+				PreparedStatementCache statementcache = PreparedStatementCache.getForConnection(connection);
+				PreparedStatement ps = statementcache.prepare(stringquery);
+				boolean executed = false;
+				try {
+					for (int rowindex = 0; rowindex < multiplerow.getPayloadSize(); rowindex++) {
+						setInsertParameters(ps, 1, multiplerow, rowindex);
+						ps.addBatch();
+					}
+					setRowCount(countBatchRows(ps.executeBatch()));
+					executed = true;
+				} finally {
+					if (executed)
+						statementcache.release(stringquery, ps);
+					if (!executed)
+						statementcache.evict(stringquery, ps);
+				}
+				connection.setAutoCommit(autocommit);
+				return null;
+			}
+		});
+	}
 
-						if (!treated)
-							throw new RuntimeException(String.format("object type not supported for %s.%s (%s)",
-									tableschema.getName(), thisfieldschema.getName(), thisfieldschema.getClass()));
+	/**
+	 * inserts rows by chunks, each chunk being inserted by a single statement
+	 * with several rows of values
+	 * 
+	 * @param multiplerow      rows to insert
+	 * @param rowsperstatement number of rows per statement
+	 * @since 2.0
+	 */
+	private void multiRowInsert(MultipleTableRow multiplerow, int rowsperstatement) {
+		StoredTableSchema tableschema = multiplerow.getTableSchema();
+		String stringquery = generateInsertQuery(tableschema, rowsperstatement);
+		int remainder = multiplerow.getPayloadSize() % rowsperstatement;
+		int fullchunkrows = multiplerow.getPayloadSize() - remainder;
+		this.executeWithRelaunch(new SQLExecution<Object>(stringquery) {
 
+			@Override
+			public Object executes() throws SQLException {
+				boolean autocommit = connection.getAutoCommit();
+				if (autocommit)
+					connection.setAutoCommit(false);
+				PreparedStatementCache statementcache = PreparedStatementCache.getForConnection(connection);
+				PreparedStatement ps = statementcache.prepare(stringquery);
+				long insertedrows = 0;
+				boolean executed = false;
+				try {
+					for (int chunkstart = 0; chunkstart < fullchunkrows; chunkstart += rowsperstatement) {
+						int index = 1;
+						for (int rowindex = chunkstart; rowindex < chunkstart + rowsperstatement; rowindex++)
+							index = setInsertParameters(ps, index, multiplerow, rowindex);
+						insertedrows += ps.executeUpdate();
 					}
-					ps.addBatch();
+					executed = true;
+				} finally {
+					if (executed)
+						statementcache.release(stringquery, ps);
+					if (!executed)
+						statementcache.evict(stringquery, ps);
 				}
-				ps.executeBatch();
-				ps.close();
+				if (remainder > 0) {
+					// the last chunk has an arbitrary size, so its statement is not cached
+					PreparedStatement remainderps = connection
+							.prepareStatement(generateInsertQuery(tableschema, remainder));
+					try {
+						int index = 1;
+						for (int rowindex = fullchunkrows; rowindex < multiplerow.getPayloadSize(); rowindex++)
+							index = setInsertParameters(remainderps, index, multiplerow, rowindex);
+						insertedrows += remainderps.executeUpdate();
+					} finally {
+						remainderps.close();
+					}
+				}
+				setRowCount(insertedrows);
 				connection.setAutoCommit(autocommit);
 				return null;
 			}
@@ -452,6 +864,7 @@ public abstract class BaseJDBCStorage
 
 	@Override
 	public void MassiveDeleteOnDB(MultipleTableRow rowstodelete) {
+		PersistenceGateway.routeWriteToPrimary(this);
 		StoredTableSchema tableschema = rowstodelete.getTableSchema();
 		StringBuffer query = new StringBuffer();
 		query.append(" DELETE FROM ");
@@ -468,18 +881,27 @@ public abstract class BaseJDBCStorage
 				boolean autocommit = connection.getAutoCommit();
 				if (autocommit)
 					connection.setAutoCommit(false);
-				PreparedStatement ps = connection.prepareStatement(stringquery);
-				// ------------ builds variable -----------------
-
-				for (int rowindex = 0; rowindex < rowstodelete.getPayloadSize(); rowindex++) {
-
-					// -- then condition to select correct line
-					SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, 1);
-					rowstodelete.getQueryCondition(rowindex).accept(filler);
-					ps.addBatch();
+				PreparedStatementCache statementcache = PreparedStatementCache.getForConnection(connection);
+				PreparedStatement ps = statementcache.prepare(stringquery);
+				boolean executed = false;
+				try {
+					// ------------ builds variable -----------------
+
+					for (int rowindex = 0; rowindex < rowstodelete.getPayloadSize(); rowindex++) {
+
+						// -- then condition to select correct line
+						SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, 1);
+						rowstodelete.getQueryCondition(rowindex).accept(filler);
+						ps.addBatch();
+					}
+					setRowCount(countBatchRows(ps.executeBatch()));
+					executed = true;
+				} finally {
+					if (executed)
+						statementcache.release(stringquery, ps);
+					if (!executed)
+						statementcache.evict(stringquery, ps);
 				}
-				ps.executeBatch();
-				ps.close();
 				connection.setAutoCommit(autocommit);
 				return null;
 			}
@@ -490,6 +912,7 @@ public abstract class BaseJDBCStorage
 
 	@Override
 	public void MassiveUpdateOnDB(MultipleTableRow multiplerow) {
+		PersistenceGateway.routeWriteToPrimary(this);
 		StoredTableSchema tableschema = multiplerow.getTableSchema();
 
 		StringBuffer query = new StringBuffer();
@@ -514,60 +937,69 @@ public abstract class BaseJDBCStorage
 				boolean autocommit = connection.getAutoCommit();
 				if (autocommit)
 					connection.setAutoCommit(false);
-				PreparedStatement ps = connection.prepareStatement(stringquery);
-				// ------------ builds variable -----------------
+				PreparedStatementCache statementcache = PreparedStatementCache.getForConnection(connection);
+				PreparedStatement ps = statementcache.prepare(stringquery);
+				boolean executed = false;
+				try {
+					// ------------ builds variable -----------------
+
+					for (int rowindex = 0; rowindex < multiplerow.getPayloadSize(); rowindex++) {
+						// -- first update fields
+						for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
+
+							StoredFieldSchema thisfieldschema = tableschema.getStoredField(i);
+							boolean treated = false;
+							if (thisfieldschema instanceof StringStoredField) {
+								StringStoredField castedfieldschema = (StringStoredField) thisfieldschema;
+								ps.setString(i + 1, multiplerow.getPayload(rowindex, castedfieldschema));
+								treated = true;
+							}
+							if (thisfieldschema instanceof TimestampStoredField) {
+								TimestampStoredField castedfieldschema = (TimestampStoredField) thisfieldschema;
+								Date thisdate = (Date) multiplerow.getPayload(rowindex, castedfieldschema);
+								if (thisdate != null)
+									ps.setTimestamp(i + 1, new Timestamp(thisdate.getTime()));
+								if (thisdate == null)
+									ps.setTimestamp(i + 1, null);
+								treated = true;
+							}
+							if (thisfieldschema instanceof DecimalStoredField) {
+								DecimalStoredField castedfieldschema = (DecimalStoredField) thisfieldschema;
+								BigDecimal thisdecimal = (BigDecimal) multiplerow.getPayload(rowindex, castedfieldschema);
+								if (thisdecimal != null)
+									ps.setBigDecimal(i + 1, thisdecimal);
+								if (thisdecimal == null)
+									ps.setBigDecimal(i + 1, null);
+								treated = true;
+							}
+							if (thisfieldschema instanceof IntegerStoredField) {
+								IntegerStoredField castedfieldschema = (IntegerStoredField) thisfieldschema;
+								Integer thisinteger = (Integer) multiplerow.getPayload(rowindex, castedfieldschema);
+								if (thisinteger != null)
+									ps.setInt(i + 1, thisinteger.intValue());
+								if (thisinteger == null)
+									ps.setNull(i + 1, java.sql.Types.INTEGER);
+								treated = true;
+							}
+
+							if (!treated)
+								throw new RuntimeException(String.format("object type not supported for %s.%s (%s)",
+										tableschema.getName(), thisfieldschema.getName(), thisfieldschema.getClass()));
 
-				for (int rowindex = 0; rowindex < multiplerow.getPayloadSize(); rowindex++) {
-					// -- first update fields
-					for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
-
-						StoredFieldSchema thisfieldschema = tableschema.getStoredField(i);
-						boolean treated = false;
-						if (thisfieldschema instanceof StringStoredField) {
-							StringStoredField castedfieldschema = (StringStoredField) thisfieldschema;
-							ps.setString(i + 1, multiplerow.getPayload(rowindex, castedfieldschema));
-							treated = true;
 						}
-						if (thisfieldschema instanceof TimestampStoredField) {
-							TimestampStoredField castedfieldschema = (TimestampStoredField) thisfieldschema;
-							Date thisdate = (Date) multiplerow.getPayload(rowindex, castedfieldschema);
-							if (thisdate != null)
-								ps.setTimestamp(i + 1, new Timestamp(thisdate.getTime()));
-							if (thisdate == null)
-								ps.setTimestamp(i + 1, null);
-							treated = true;
-						}
-						if (thisfieldschema instanceof DecimalStoredField) {
-							DecimalStoredField castedfieldschema = (DecimalStoredField) thisfieldschema;
-							BigDecimal thisdecimal = (BigDecimal) multiplerow.getPayload(rowindex, castedfieldschema);
-							if (thisdecimal != null)
-								ps.setBigDecimal(i + 1, thisdecimal);
-							if (thisdecimal == null)
-								ps.setBigDecimal(i + 1, null);
-							treated = true;
-						}
-						if (thisfieldschema instanceof IntegerStoredField) {
-							IntegerStoredField castedfieldschema = (IntegerStoredField) thisfieldschema;
-							Integer thisinteger = (Integer) multiplerow.getPayload(rowindex, castedfieldschema);
-							if (thisinteger != null)
-								ps.setInt(i + 1, thisinteger.intValue());
-							if (thisinteger == null)
-								ps.setNull(i + 1, java.sql.Types.INTEGER);
-							treated = true;
-						}
-
-						if (!treated)
-							throw new RuntimeException(String.format("object type not supported for %s.%s (%s)",
-									tableschema.getName(), thisfieldschema.getName(), thisfieldschema.getClass()));
-
+						// -- then condition to select correct line
+						SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, tableschema.getStoredFieldNumber() + 1);
+						multiplerow.getQueryCondition(rowindex).accept(filler);
+						ps.addBatch();
 					}
-					// -- then condition to select correct line
-					SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, tableschema.getStoredFieldNumber() + 1);
-					multiplerow.getQueryCondition(rowindex).accept(filler);
-					ps.addBatch();
+					setRowCount(countBatchRows(ps.executeBatch()));
+					executed = true;
+				} finally {
+					if (executed)
+						statementcache.release(stringquery, ps);
+					if (!executed)
+						statementcache.evict(stringquery, ps);
 				}
-				ps.executeBatch();
-				ps.close();
 				connection.setAutoCommit(autocommit);
 				return null;
 			}
@@ -578,6 +1010,7 @@ public abstract class BaseJDBCStorage
 
 	@Override
 	public void insertOnDB(StoredTableRow row) {
+		PersistenceGateway.routeWriteToPrimary(this);
 		StoredTableSchema tableschema = row.getStoredTableSchema();
 		StringBuffer query = new StringBuffer();
 		query.append(" INSERT INTO ");
@@ -602,70 +1035,80 @@ public abstract class BaseJDBCStorage
 
 			@Override
 			public Object executes() throws SQLException {
-				PreparedStatement ps = connection.prepareStatement(stringquery);
-				for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
-					StoredFieldSchema thisfieldschema = tableschema.getStoredField(i);
-
-					boolean treated = false;
-					if (thisfieldschema instanceof StringStoredField) {
-						StringStoredField castedfieldschema = (StringStoredField) thisfieldschema;
-						String payload = row.getPayload(castedfieldschema);
-						ps.setString(i + 1, payload);
-						LOGGER.fine("JDBC Prepared Statement SetString " + (i + 1) + " " + payload);
-						treated = true;
-					}
-					if (thisfieldschema instanceof TimestampStoredField) {
-						TimestampStoredField castedfieldschema = (TimestampStoredField) thisfieldschema;
-						Date thisdate = (Date) row.getPayload(castedfieldschema);
-						LOGGER.fine("JDBC Prepared Statement Timestamp " + (i + 1) + " " + thisdate);
-						if (thisdate != null)
-							ps.setTimestamp(i + 1, new Timestamp(thisdate.getTime()));
-						if (thisdate == null)
-							ps.setTimestamp(i + 1, null);
-						treated = true;
-					}
-					if (thisfieldschema instanceof DecimalStoredField) {
-						DecimalStoredField castedfieldschema = (DecimalStoredField) thisfieldschema;
-						BigDecimal thisdecimal = (BigDecimal) row.getPayload(castedfieldschema);
-						LOGGER.fine("JDBC Prepared Statement BigDecimal " + (i + 1) + " " + thisdecimal);
-
-						if (thisdecimal != null)
-							ps.setBigDecimal(i + 1, thisdecimal);
-						if (thisdecimal == null)
-							ps.setBigDecimal(i + 1, null);
-						treated = true;
-					}
+				PreparedStatementCache statementcache = PreparedStatementCache.getForConnection(connection);
+				PreparedStatement ps = statementcache.prepare(stringquery);
+				boolean executed = false;
+				try {
+					for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
+						StoredFieldSchema thisfieldschema = tableschema.getStoredField(i);
 
-					if (thisfieldschema instanceof IntegerStoredField) {
-						IntegerStoredField castedfieldschema = (IntegerStoredField) thisfieldschema;
-						Integer thisinteger = (Integer) row.getPayload(castedfieldschema);
-						LOGGER.fine("JDBC Prepared Statement Integer " + (i + 1) + " " + thisinteger);
+						boolean treated = false;
+						if (thisfieldschema instanceof StringStoredField) {
+							StringStoredField castedfieldschema = (StringStoredField) thisfieldschema;
+							String payload = row.getPayload(castedfieldschema);
+							ps.setString(i + 1, payload);
+							LOGGER.fine("JDBC Prepared Statement SetString " + (i + 1) + " " + payload);
+							treated = true;
+						}
+						if (thisfieldschema instanceof TimestampStoredField) {
+							TimestampStoredField castedfieldschema = (TimestampStoredField) thisfieldschema;
+							Date thisdate = (Date) row.getPayload(castedfieldschema);
+							LOGGER.fine("JDBC Prepared Statement Timestamp " + (i + 1) + " " + thisdate);
+							if (thisdate != null)
+								ps.setTimestamp(i + 1, new Timestamp(thisdate.getTime()));
+							if (thisdate == null)
+								ps.setTimestamp(i + 1, null);
+							treated = true;
+						}
+						if (thisfieldschema instanceof DecimalStoredField) {
+							DecimalStoredField castedfieldschema = (DecimalStoredField) thisfieldschema;
+							BigDecimal thisdecimal = (BigDecimal) row.getPayload(castedfieldschema);
+							LOGGER.fine("JDBC Prepared Statement BigDecimal " + (i + 1) + " " + thisdecimal);
 
-						if (thisinteger != null)
-							ps.setInt(i + 1, thisinteger.intValue());
-						if (thisinteger == null)
-							ps.setNull(i + 1, java.sql.Types.INTEGER);
-						treated = true;
-					}
-					if (thisfieldschema instanceof LargeBinaryStoredField) {
-						LargeBinaryStoredField castedfieldschema = (LargeBinaryStoredField) thisfieldschema;
-						SFile thisfile = (SFile) row.getPayload(castedfieldschema);
-						LOGGER.fine("JDBC Prepared Statement set File " + (i + 1) + " empty=" + thisfile.isEmpty());
-
-						if (thisfile.isEmpty())
-							ps.setNull(i + 1, java.sql.Types.BLOB);
-						if (!thisfile.isEmpty())
-							ps.setBlob(i + 1, new SerialBlob(thisfile.getContent()));
-						treated = true;
-					}
+							if (thisdecimal != null)
+								ps.setBigDecimal(i + 1, thisdecimal);
+							if (thisdecimal == null)
+								ps.setBigDecimal(i + 1, null);
+							treated = true;
+						}
 
-					if (!treated)
-						throw new RuntimeException(String.format("object type not supported for %s.%s (%s)",
-								tableschema.getName(), thisfieldschema.getName(), thisfieldschema.getClass()));
+						if (thisfieldschema instanceof IntegerStoredField) {
+							IntegerStoredField castedfieldschema = (IntegerStoredField) thisfieldschema;
+							Integer thisinteger = (Integer) row.getPayload(castedfieldschema);
+							LOGGER.fine("JDBC Prepared Statement Integer " + (i + 1) + " " + thisinteger);
 
+							if (thisinteger != null)
+								ps.setInt(i + 1, thisinteger.intValue());
+							if (thisinteger == null)
+								ps.setNull(i + 1, java.sql.Types.INTEGER);
+							treated = true;
+						}
+						if (thisfieldschema instanceof LargeBinaryStoredField) {
+							LargeBinaryStoredField castedfieldschema = (LargeBinaryStoredField) thisfieldschema;
+							SFile thisfile = (SFile) row.getPayload(castedfieldschema);
+							LOGGER.fine("JDBC Prepared Statement set File " + (i + 1) + " empty=" + thisfile.isEmpty());
+
+							if (thisfile.isEmpty())
+								ps.setNull(i + 1, java.sql.Types.BLOB);
+							if (!thisfile.isEmpty())
+								ps.setBinaryStream(i + 1, thisfile.getStream(), thisfile.getLength());
+							treated = true;
+						}
+
+						if (!treated)
+							throw new RuntimeException(String.format("object type not supported for %s.%s (%s)",
+									tableschema.getName(), thisfieldschema.getName(), thisfieldschema.getClass()));
+
+					}
+					ps.execute();
+					setRowCount(ps.getUpdateCount());
+					executed = true;
+				} finally {
+					if (executed)
+						statementcache.release(stringquery, ps);
+					if (!executed)
+						statementcache.evict(stringquery, ps);
 				}
-				ps.execute();
-				ps.close();
 				return null;
 			}
 		});
@@ -674,6 +1117,7 @@ public abstract class BaseJDBCStorage
 
 	@Override
 	public void UpdateOnDB(UpdateQuery uq) {
+		PersistenceGateway.routeWriteToPrimary(this);
 		StoredTableSchema tableschema = uq.getRow().getStoredTableSchema();
 
 		StringBuffer query = new StringBuffer();
@@ -695,63 +1139,73 @@ public abstract class BaseJDBCStorage
 
 			@Override
 			public Object executes() throws SQLException {
-				PreparedStatement ps = connection.prepareStatement(stringquery);
-				// ------------ builds variable -----------------
-
-				// -- first update fields
-				for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
-
-					StoredFieldSchema thisfieldschema = tableschema.getStoredField(i);
-					boolean treated = false;
-					if (thisfieldschema instanceof StringStoredField) {
-						StringStoredField castedfieldschema = (StringStoredField) thisfieldschema;
-						String payload = uq.getRow().getPayload(castedfieldschema);
-						ps.setString(i + 1, payload);
-						LOGGER.info("JDBC preparedstatement update setString " + (i + 1) + "," + payload);
-						treated = true;
-					}
-					if (thisfieldschema instanceof TimestampStoredField) {
-						TimestampStoredField castedfieldschema = (TimestampStoredField) thisfieldschema;
-						Date thisdate = (Date) uq.getRow().getPayload(castedfieldschema);
-						if (thisdate != null)
-							ps.setTimestamp(i + 1, new Timestamp(thisdate.getTime()));
-						if (thisdate == null)
-							ps.setTimestamp(i + 1, null);
-						LOGGER.info("JDBC preparedstatement update setTimestamp " + (i + 1) + "," + thisdate);
-						treated = true;
-					}
-					if (thisfieldschema instanceof DecimalStoredField) {
-						DecimalStoredField castedfieldschema = (DecimalStoredField) thisfieldschema;
-						BigDecimal thisdecimal = (BigDecimal) uq.getRow().getPayload(castedfieldschema);
-						if (thisdecimal != null)
-							ps.setBigDecimal(i + 1, thisdecimal);
-						if (thisdecimal == null)
-							ps.setBigDecimal(i + 1, null);
-						LOGGER.info("JDBC preparedstatement update setDecimal " + (i + 1) + "," + thisdecimal);
-						treated = true;
-					}
-					if (thisfieldschema instanceof IntegerStoredField) {
-						IntegerStoredField castedfieldschema = (IntegerStoredField) thisfieldschema;
-						Integer thisinteger = (Integer) uq.getRow().getPayload(castedfieldschema);
-						if (thisinteger != null)
-							ps.setInt(i + 1, thisinteger.intValue());
-						if (thisinteger == null)
-							ps.setNull(i + 1, java.sql.Types.INTEGER);
-						LOGGER.info("JDBC preparedstatement update setInteger " + (i + 1) + "," + thisinteger);
-						treated = true;
-					}
+				PreparedStatementCache statementcache = PreparedStatementCache.getForConnection(connection);
+				PreparedStatement ps = statementcache.prepare(stringquery);
+				boolean executed = false;
+				try {
+					// ------------ builds variable -----------------
 
-					if (!treated)
-						throw new RuntimeException(String.format("object type not supported for %s.%s (%s)",
-								tableschema.getName(), thisfieldschema.getName(), thisfieldschema.getClass()));
+					// -- first update fields
+					for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
 
-				}
-				// -- then condition to select correct line
-				SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, tableschema.getStoredFieldNumber() + 1);
-				uq.getCondition().accept(filler);
+						StoredFieldSchema thisfieldschema = tableschema.getStoredField(i);
+						boolean treated = false;
+						if (thisfieldschema instanceof StringStoredField) {
+							StringStoredField castedfieldschema = (StringStoredField) thisfieldschema;
+							String payload = uq.getRow().getPayload(castedfieldschema);
+							ps.setString(i + 1, payload);
+							LOGGER.info("JDBC preparedstatement update setString " + (i + 1) + "," + payload);
+							treated = true;
+						}
+						if (thisfieldschema instanceof TimestampStoredField) {
+							TimestampStoredField castedfieldschema = (TimestampStoredField) thisfieldschema;
+							Date thisdate = (Date) uq.getRow().getPayload(castedfieldschema);
+							if (thisdate != null)
+								ps.setTimestamp(i + 1, new Timestamp(thisdate.getTime()));
+							if (thisdate == null)
+								ps.setTimestamp(i + 1, null);
+							LOGGER.info("JDBC preparedstatement update setTimestamp " + (i + 1) + "," + thisdate);
+							treated = true;
+						}
+						if (thisfieldschema instanceof DecimalStoredField) {
+							DecimalStoredField castedfieldschema = (DecimalStoredField) thisfieldschema;
+							BigDecimal thisdecimal = (BigDecimal) uq.getRow().getPayload(castedfieldschema);
+							if (thisdecimal != null)
+								ps.setBigDecimal(i + 1, thisdecimal);
+							if (thisdecimal == null)
+								ps.setBigDecimal(i + 1, null);
+							LOGGER.info("JDBC preparedstatement update setDecimal " + (i + 1) + "," + thisdecimal);
+							treated = true;
+						}
+						if (thisfieldschema instanceof IntegerStoredField) {
+							IntegerStoredField castedfieldschema = (IntegerStoredField) thisfieldschema;
+							Integer thisinteger = (Integer) uq.getRow().getPayload(castedfieldschema);
+							if (thisinteger != null)
+								ps.setInt(i + 1, thisinteger.intValue());
+							if (thisinteger == null)
+								ps.setNull(i + 1, java.sql.Types.INTEGER);
+							LOGGER.info("JDBC preparedstatement update setInteger " + (i + 1) + "," + thisinteger);
+							treated = true;
+						}
 
-				ps.execute();
-				ps.close();
+						if (!treated)
+							throw new RuntimeException(String.format("object type not supported for %s.%s (%s)",
+									tableschema.getName(), thisfieldschema.getName(), thisfieldschema.getClass()));
+
+					}
+					// -- then condition to select correct line
+					SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, tableschema.getStoredFieldNumber() + 1);
+					uq.getCondition().accept(filler);
+
+					ps.execute();
+					setRowCount(ps.getUpdateCount());
+					executed = true;
+				} finally {
+					if (executed)
+						statementcache.release(stringquery, ps);
+					if (!executed)
+						statementcache.evict(stringquery, ps);
+				}
 				return null;
 			}
 
@@ -1001,15 +1455,13 @@ public abstract class BaseJDBCStorage
 
 	@Override
 	public void startTransaction() {
-		String stringquery = " START TRANSACTION ";
-
+		// the JDBC way is portable (Derby does not support START TRANSACTION)
+		String pseudoquery = "# START TRANSACTION #";
 		try {
-			PreparedStatement ps = connection.prepareStatement(stringquery);
-			ps.execute();
-			ps.close();
-			LOGGER.finer("[PERSISTENCE] " + stringquery);
+			connection.setAutoCommit(false);
+			LOGGER.finer("[PERSISTENCE] " + pseudoquery);
 		} catch (Throwable e) {
-			throw treatThrowable(e, stringquery);
+			throw treatThrowable(e, pseudoquery);
 		}
 	}
 
@@ -1027,7 +1479,7 @@ public abstract class BaseJDBCStorage
 
 	@Override
 	public void rollbackTransaction() {
-		String pseudoquery = "# COMMIT #";
+		String pseudoquery = "# ROLLBACK #";
 		try {
 			connection.rollback();
 			LOGGER.finer("[PERSISTENCE] " + pseudoquery);
@@ -1042,6 +1494,7 @@ public abstract class BaseJDBCStorage
 	public void closeConnections() {
 		try {
 			LOGGER.severe("Shutting down connection");
+			PreparedStatementCache.closeForConnection(connection);
 			connection.rollback();
 			connection.close();
 			LOGGER.severe("database connection gracefully closed");
@@ -1054,6 +1507,7 @@ public abstract class BaseJDBCStorage
 
 	@Override
 	public void LimitedFieldUpdateOnDB(LimitedFieldsUpdateQuery limitedfieldsupdatequery) {
+		PersistenceGateway.routeWriteToPrimary(this);
 		StringBuffer query = new StringBuffer();
 		query.append(" UPDATE ");
 		query.append(limitedfieldsupdatequery.getTableSchema().getName());
@@ -1061,9 +1515,14 @@ public abstract class BaseJDBCStorage
 		query.append(" SET ");
 		for (int i=0;i<limitedfieldsupdatequery.getUpdatedFieldsNumber();i++) {
 			if (i>0) query.append(" , ");
-			SQLQueryConditionGenerator generator = new SQLQueryConditionGenerator(query);
-			limitedfieldsupdatequery.getFieldUpdateAt(i).accept(generator);
-			
+			SimpleEqualQueryCondition<?> fieldupdate = limitedfieldsupdatequery.getFieldUpdateAt(i);
+			query.append(fieldupdate.getField().getName());
+			// a condition generator would write IS NULL for an empty payload
+			if (fieldupdate.getPayload() == null) {
+				query.append(" = NULL ");
+			} else {
+				query.append(" = ? ");
+			}
 		}
 		
 		query.append(" WHERE  ");
@@ -1074,14 +1533,24 @@ public abstract class BaseJDBCStorage
 
 			@Override
 			public Object executes() throws SQLException {
-				PreparedStatement ps = connection.prepareStatement(stringquery);
-				SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, 1);
-				for (int i=0;i<limitedfieldsupdatequery.getUpdatedFieldsNumber();i++) {
-					limitedfieldsupdatequery.getFieldUpdateAt(i).accept(filler);
+				PreparedStatementCache statementcache = PreparedStatementCache.getForConnection(connection);
+				PreparedStatement ps = statementcache.prepare(stringquery);
+				boolean executed = false;
+				try {
+					SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, 1);
+					for (int i=0;i<limitedfieldsupdatequery.getUpdatedFieldsNumber();i++) {
+						limitedfieldsupdatequery.getFieldUpdateAt(i).accept(filler);
+					}
+					limitedfieldsupdatequery.getCondition().accept(filler);
+					ps.execute();
+					setRowCount(ps.getUpdateCount());
+					executed = true;
+				} finally {
+					if (executed)
+						statementcache.release(stringquery, ps);
+					if (!executed)
+						statementcache.evict(stringquery, ps);
 				}
-				limitedfieldsupdatequery.getCondition().accept(filler);
-				ps.execute();
-				ps.close();
 				return null;
 			}
 
@@ -1091,6 +1560,7 @@ public abstract class BaseJDBCStorage
 	
 	@Override
 	public void DeleteOnDB(DeleteQuery dq) {
+		PersistenceGateway.routeWriteToPrimary(this);
 		StoredTableSchema tableschema = dq.getTableSchema();
 
 		StringBuffer query = new StringBuffer();
@@ -1104,15 +1574,25 @@ public abstract class BaseJDBCStorage
 
 			@Override
 			public Object executes() throws SQLException {
-				PreparedStatement ps = connection.prepareStatement(stringquery);
-				// ------------ builds variable -----------------
-
-				// -- then condition to select correct line
-				SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, 1);
-				dq.getCondition().accept(filler);
+				PreparedStatementCache statementcache = PreparedStatementCache.getForConnection(connection);
+				PreparedStatement ps = statementcache.prepare(stringquery);
+				boolean executed = false;
+				try {
+					// ------------ builds variable -----------------
 
-				ps.execute();
-				ps.close();
+					// -- then condition to select correct line
+					SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, 1);
+					dq.getCondition().accept(filler);
+
+					ps.execute();
+					setRowCount(ps.getUpdateCount());
+					executed = true;
+				} finally {
+					if (executed)
+						statementcache.release(stringquery, ps);
+					if (!executed)
+						statementcache.evict(stringquery, ps);
+				}
 				return null;
 			}
 
@@ -1211,6 +1691,7 @@ public abstract class BaseJDBCStorage
 
 	@Override
 	public void createSequence(String sequencename, int firstvalue) {
+		PersistenceGateway.routeWriteToPrimary(this);
 		// this is specific Derby. Needs to be put in a specific Derby subclass
 		StringBuffer stringbuffer = new StringBuffer();
 		stringbuffer.append("  INSERT INTO GSEQUENCE(SEQNAME,SEQVALUE) VALUES('");
@@ -1242,7 +1723,15 @@ public abstract class BaseJDBCStorage
 
 	@Override
 	public int getNextValue(String sequencename) {
+		return getNextValues(sequencename, 1);
+	}
 
+	@Override
+	public int getNextValues(String sequencename, int blocksize) {
+		PersistenceGateway.routeWriteToPrimary(this);
+		if (blocksize < 1)
+			throw new RuntimeException("Block size for sequence " + sequencename + " should be at least 1, got "
+					+ blocksize);
 		StringBuffer buffer = new StringBuffer();
 		buffer.append("SELECT SEQVALUE FROM GSEQUENCE WHERE SEQNAME = '");
 		buffer.append(sequencename.toUpperCase());
@@ -1254,12 +1743,9 @@ public abstract class BaseJDBCStorage
 			@Override
 			public Integer executes() throws SQLException {
 				boolean autocommit = connection.getAutoCommit();
-				this.requiresrollback = true;
+				// in a transaction, the sequence is committed or rolled back with the transaction
+				this.requiresrollback = autocommit;
 				this.forceautocommitifrollaback = autocommit;
-				if (autocommit) {
-					this.forceautocommitifrollaback = true;
-
-				}
 
 				if (autocommit)
 					connection.setAutoCommit(false);
@@ -1268,19 +1754,24 @@ public abstract class BaseJDBCStorage
 				if (rs.next()) {
 					int value = rs.getInt(1);
 					rs.close();
+					ps.close();
 					StringBuffer update = new StringBuffer("UPDATE GSEQUENCE SET SEQVALUE = ");
-					update.append(value + 1);
+					update.append(value + blocksize);
 					update.append(" WHERE SEQNAME = '");
 					update.append(sequencename.toUpperCase());
 					update.append("'");
 					PreparedStatement updateps = connection.prepareStatement(update.toString());
 					updateps.execute();
 					updateps.close();
-					connection.commit();
-					connection.setAutoCommit(autocommit);
+					if (autocommit) {
+						connection.commit();
+						connection.setAutoCommit(autocommit);
+					}
 					return value;
 
 				}
+				rs.close();
+				ps.close();
 				return null;
 			}
 
@@ -10,26 +10,31 @@
 
 package org.openlowcode.server.data.storage.standardjdbc;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
-import java.sql.Blob;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.openlowcode.server.data.storage.AggregateProjection;
+import org.openlowcode.server.data.storage.AggregateRow;
 import org.openlowcode.server.data.storage.DecimalStoredField;
 import org.openlowcode.server.data.storage.ExternalFieldSchemaTemplate;
 import org.openlowcode.server.data.storage.FieldSchema;
 import org.openlowcode.server.data.storage.IntegerStoredField;
 import org.openlowcode.server.data.storage.LargeBinaryStoredField;
-import org.openlowcode.server.data.storage.Row;
 import org.openlowcode.server.data.storage.StoredFieldSchema;
 import org.openlowcode.server.data.storage.StringStoredField;
 import org.openlowcode.server.data.storage.TableAlias;
 import org.openlowcode.server.data.storage.TimestampStoredField;
+import org.openlowcode.server.data.storage.jdbcpool.PreparedStatementCache;
+import org.openlowcode.server.data.storage.standardjdbc.RowMappingPlan.ColumnMapping;
 import org.openlowcode.tools.messages.SFile;
 
 /**
@@ -41,14 +46,17 @@ import org.openlowcode.tools.messages.SFile;
  *
  */
 @SuppressWarnings({ "rawtypes", "unchecked" })
-public class JDBCRow implements Row {
+public class JDBCRow implements AggregateRow {
 	private static Logger logger = Logger.getLogger(JDBCRow.class.getName());
 	private ResultSet rs;
 	private PreparedStatement ps;
-	private ResultSetMetaData rsmetadata;
-	private String columnlist = null;
 	private long readcolumns;
 	private String stringquery;
+	private PreparedStatementCache statementcache;
+	private boolean closed;
+	private RowMappingPlan plan;
+	private SQLStatistics.StatementStatistics statistics;
+	private long rowsread;
 
 	/**
 	 * creates a JDBC Row
@@ -61,6 +69,54 @@ public class JDBCRow implements Row {
 		this.rs = rs;
 		this.readcolumns = 0;
 		this.stringquery = stringquery;
+		this.closed = false;
+	}
+
+	/**
+	 * creates a JDBC Row on a statement from the cache of the connection. The
+	 * statement is given back to the cache when the row is closed
+	 * 
+	 * @param statementcache the cache the statement comes from
+	 * @param ps             prepared statement
+	 * @param rs             resultset
+	 * @param stringquery    the query (key of the statement in the cache)
+	 * @since 2.0
+	 */
+	public JDBCRow(PreparedStatementCache statementcache, PreparedStatement ps, ResultSet rs, String stringquery) {
+		this(ps, rs, stringquery);
+		this.statementcache = statementcache;
+	}
+
+	/**
+	 * creates a JDBC Row on a statement from the cache of the connection, reading
+	 * values by column index using the mapping plan of the query
+	 * 
+	 * @param statementcache the cache the statement comes from
+	 * @param ps             prepared statement
+	 * @param rs             resultset
+	 * @param stringquery    the query (key of the statement in the cache)
+	 * @param plan           the mapping of fields to column indexes for the query
+	 * @since 2.0
+	 */
+	public JDBCRow(
+			PreparedStatementCache statementcache,
+			PreparedStatement ps,
+			ResultSet rs,
+			String stringquery,
+			RowMappingPlan plan) {
+		this(statementcache, ps, rs, stringquery);
+		this.plan = plan;
+	}
+
+	/**
+	 * sets the statistics of the query, to which the number of rows read is
+	 * added when the row is closed
+	 * 
+	 * @param statistics statistics of the shape of the query
+	 * @since 2.0
+	 */
+	public void setStatistics(SQLStatistics.StatementStatistics statistics) {
+		this.statistics = statistics;
 	}
 
 	@Override
@@ -70,112 +126,245 @@ public class JDBCRow implements Row {
 		if (objectalias == null)
 			throw new RuntimeException("ObjectAlias is null");
 		try {
-			if (this.rsmetadata == null) {
-				this.rsmetadata = rs.getMetaData();
-				columnlist = "[";
-				for (int i = 1; i <= this.rsmetadata.getColumnCount(); i++) {
-					if (i > 1)
-						columnlist += "; ";
-					columnlist += this.rsmetadata.getTableName(i) + ":" + this.rsmetadata.getColumnName(i) + ":"
-							+ this.rsmetadata.getColumnTypeName(i);
-				}
-				columnlist += "]";
+			if (fd instanceof ExternalFieldSchemaTemplate)
+				return getExternalValue((ExternalFieldSchemaTemplate<E>) fd, objectalias);
+			ColumnMapping column = (plan != null ? plan.getColumn(objectalias.getName(), fd.getName()) : null);
+			if (column != null) {
+				if (column.getType() == RowMappingPlan.TYPE_LAZYLARGEBINARY)
+					return readLazyLargeBinary(fd, column);
+				return readColumn(fd, column.getIndex(), column.getType());
 			}
+			// column not in plan, looked-up by name
 			String fieldname = objectalias.getName() + "_" + fd.getName();
-			if (fd instanceof StringStoredField) {
-				String result = rs.getString(fieldname);
-				logger.finest("processing string stored field " + fieldname + ": " + result);
-				return fd.castToType(result);
-			}
-			if (fd instanceof TimestampStoredField) {
-				Timestamp result = rs.getTimestamp(fieldname);
-				logger.finest("processing timestamp stored field " + fieldname + ": " + result);
-				return fd.castToType(result);
-			}
+			return readColumn(fd, rs.findColumn(fieldname), getType(fd));
+		} catch (SQLException e) {
 
-			if (fd instanceof DecimalStoredField) {
-				BigDecimal result = rs.getBigDecimal(fieldname);
-				logger.finest("processing bigdecimal stored field " + fieldname + ": " + result);
-				return fd.castToType(result);
-			}
-			if (fd instanceof IntegerStoredField) {
-				int result = rs.getInt(fieldname);
-				logger.finest("processing timestamp stored field " + fieldname + ": " + result);
-				return fd.castToType(new Integer(result));
-			}
-			if (fd instanceof LargeBinaryStoredField) {
-				Blob blob = rs.getBlob(fieldname);
-				if (blob != null) {
-					byte bytes[] = blob.getBytes(1, (int) (blob.length()));
-					logger.finest("processing largebinary stored field " + fieldname + " size = " + bytes.length + "b");
+			String exceptionline = "";
+			for (int i = 0; i < e.getStackTrace().length; i++) {
 
-					return fd.castToType(new SFile("TEMPORARY", bytes));
-				} else {
-					return fd.castToType(new SFile());
+				String thisline = e.getStackTrace()[i].toString();
+				if (thisline.indexOf("org.openlowcode.server.data") != -1) {
+					exceptionline = thisline;
+					break;
 				}
 			}
+			throw new RuntimeException("SQL Exception " + e.getMessage() + " at " + exceptionline
+					+ ", drop table field list " + this.getColumnList() + "\\			---> Query = "
+					+ this.stringquery);
+		}
+	}
+
+	@Override
+	public <E> E getValue(AggregateProjection<E> projection) {
+		if (rs == null)
+			throw new RuntimeException("End of ResultSet reached for preparedStatement");
+		if (projection.getLabel() == null)
+			throw new RuntimeException("Projection " + projection + " is not part of an aggregate query");
+		try {
+			int index = rs.findColumn(projection.getLabel());
+			switch (projection.getFunction()) {
+			case AggregateProjection.COUNT:
+				return (E) Long.valueOf(rs.getLong(index));
+			case AggregateProjection.SUM:
+				return (E) rs.getBigDecimal(index);
+			default:
+				FieldSchema<E> field = (FieldSchema<E>) projection.getField();
+				E value = readColumn(field, index, getType(field));
+				// minimum or maximum of a group with only null values
+				if (rs.wasNull())
+					return null;
+				return value;
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException("SQL Exception " + e.getMessage() + " reading projection " + projection
+					+ ", drop table field list " + this.getColumnList() + " ---> Query = " + this.stringquery);
+		}
+	}
 
-			if (fd instanceof ExternalFieldSchemaTemplate) {
-				logger.finest("processing external field");
+	/**
+	 * @param fd a field schema
+	 * @return the type of accessor for the field, as one of the TYPE constants of
+	 *         {@link RowMappingPlan}
+	 */
+	private static int getType(FieldSchema<?> fd) {
+		if (fd instanceof StringStoredField)
+			return RowMappingPlan.TYPE_STRING;
+		if (fd instanceof TimestampStoredField)
+			return RowMappingPlan.TYPE_TIMESTAMP;
+		if (fd instanceof DecimalStoredField)
+			return RowMappingPlan.TYPE_DECIMAL;
+		if (fd instanceof IntegerStoredField)
+			return RowMappingPlan.TYPE_INTEGER;
+		if (fd instanceof LargeBinaryStoredField)
+			return RowMappingPlan.TYPE_LARGEBINARY;
+		return RowMappingPlan.TYPE_OTHER;
+	}
 
-				ExternalFieldSchemaTemplate externalfieldschema = (ExternalFieldSchemaTemplate) fd;
+	/**
+	 * reads a large binary column for which only the length of the content has
+	 * been selected. The file returned loads its content the first time it is
+	 * accessed
+	 * 
+	 * @param fd     field schema, used to cast the result
+	 * @param column the lazy large binary column
+	 * @return the file
+	 * @throws SQLException if any error is encountered reading the column
+	 */
+	private <E> E readLazyLargeBinary(FieldSchema<E> fd, ColumnMapping column) throws SQLException {
+		long length = rs.getLong(column.getIndex());
+		if (rs.wasNull())
+			return fd.castToType(new SFile());
+		String id = rs.getString(column.getIdIndex());
+		if (logger.isLoggable(Level.FINEST))
+			logger.finest("processing lazy largebinary stored field " + fd.getName() + " size = " + length + "b for id "
+					+ id);
+		return fd.castToType(
+				new SFile("TEMPORARY", length, new LargeBinaryLoader(column.getTable(), column.getField(), id)));
+	}
 
-				ArrayList<StoredFieldSchema<E>> externalfieldschemalist = externalfieldschema.getExternalTableField();
-				if (externalfieldschemalist.size() == 0)
-					throw new RuntimeException(
-							"no field defined in external field schema " + externalfieldschema.getName());
-				if (externalfieldschemalist.size() == 1) {
+	/**
+	 * reads the value of a column by index
+	 * 
+	 * @param fd    field schema, used to cast the result
+	 * @param index index of the column in the result set
+	 * @param type  type of accessor
+	 * @return the value
+	 * @throws SQLException if any error is encountered reading the column
+	 */
+	private <E> E readColumn(FieldSchema<E> fd, int index, int type) throws SQLException {
+		switch (type) {
+		case RowMappingPlan.TYPE_STRING:
+			String stringresult = rs.getString(index);
+			if (logger.isLoggable(Level.FINEST))
+				logger.finest("processing string stored field " + fd.getName() + ": " + stringresult);
+			return fd.castToType(stringresult);
+		case RowMappingPlan.TYPE_TIMESTAMP:
+			Timestamp timestampresult = rs.getTimestamp(index);
+			if (logger.isLoggable(Level.FINEST))
+				logger.finest("processing timestamp stored field " + fd.getName() + ": " + timestampresult);
+			return fd.castToType(timestampresult);
+		case RowMappingPlan.TYPE_DECIMAL:
+			BigDecimal decimalresult = rs.getBigDecimal(index);
+			if (logger.isLoggable(Level.FINEST))
+				logger.finest("processing bigdecimal stored field " + fd.getName() + ": " + decimalresult);
+			return fd.castToType(decimalresult);
+		case RowMappingPlan.TYPE_INTEGER:
+			int integerresult = rs.getInt(index);
+			if (logger.isLoggable(Level.FINEST))
+				logger.finest("processing integer stored field " + fd.getName() + ": " + integerresult);
+			return fd.castToType(Integer.valueOf(integerresult));
+		case RowMappingPlan.TYPE_LARGEBINARY:
+			InputStream blobstream = rs.getBinaryStream(index);
+			if (blobstream != null) {
+				// large content is copied to a temporary file instead of memory
+				try {
+					SFile file = SFile.readFromStream("TEMPORARY", blobstream);
+					if (logger.isLoggable(Level.FINEST))
+						logger.finest("processing largebinary stored field " + fd.getName() + " size = "
+								+ file.getLength() + "b");
+					return fd.castToType(file);
+				} catch (IOException e) {
+					throw new RuntimeException("Error while reading largebinary stored field " + fd.getName() + " : "
+							+ e.getMessage() + " ---> Query = " + this.stringquery);
+				} finally {
+					try {
+						blobstream.close();
+					} catch (IOException e) {
+						logger.warning("Error while closing stream of largebinary stored field " + fd.getName());
+					}
+				}
+			} else {
+				return fd.castToType(new SFile());
+			}
+		default:
+			throw new RuntimeException(" type of attribute not supported yet " + fd.getClass().getCanonicalName());
+		}
+	}
 
-					StoredFieldSchema<E> referencedfield = externalfieldschemalist.get(0);
-					String name = objectalias.getName() + externalfieldschema.getName() + "_0";
+	/**
+	 * finds the index of a column with the given label, using the mapping plan if
+	 * available
+	 * 
+	 * @param label label of the column
+	 * @return the index of the column
+	 * @throws SQLException if the column does not exist
+	 */
+	private int findColumn(String label) throws SQLException {
+		ColumnMapping column = (plan != null ? plan.getColumn(label) : null);
+		if (column != null)
+			return column.getIndex();
+		return rs.findColumn(label);
+	}
 
-					if (referencedfield instanceof StringStoredField) {
-						StringStoredField referencedstringfield = (StringStoredField) referencedfield;
-						logger.finest("processed field = " + referencedstringfield.getName() + " from field "
-								+ externalfieldschema.getName());
-						return (E) referencedstringfield.castToType(rs.getString(name));
+	/**
+	 * reads the value of an external field, stored in columns of another table
+	 * 
+	 * @param externalfieldschema the external field
+	 * @param objectalias         alias of the object in the query
+	 * @return the value
+	 * @throws SQLException if any error is encountered reading the columns
+	 */
+	private <E> E getExternalValue(ExternalFieldSchemaTemplate<E> externalfieldschema, TableAlias objectalias)
+			throws SQLException {
+		logger.finest("processing external field");
 
-					}
-					if (referencedfield instanceof TimestampStoredField) {
+		ArrayList<StoredFieldSchema<E>> externalfieldschemalist = externalfieldschema.getExternalTableField();
+		if (externalfieldschemalist.size() == 0)
+			throw new RuntimeException("no field defined in external field schema " + externalfieldschema.getName());
+		if (externalfieldschemalist.size() == 1) {
 
-						return referencedfield.castToType(rs.getTimestamp(name));
-					}
-					if (referencedfield instanceof DecimalStoredField) {
-						return referencedfield.castToType(rs.getBigDecimal(name));
-					}
-				}
-				if (externalfieldschemalist.size() > 1) {
-					String compactstring = "";
-					for (int i = 0; i < externalfieldschemalist.size(); i++) {
-						String name = objectalias.getName() + externalfieldschema.getName() + "_" + i;
-						if (i > 1)
-							compactstring += " ";
-						compactstring += rs.getString(name);
-						if (i == 0)
-							compactstring += " (";
-					}
-					compactstring += ")";
-					// crappy code but E is string (see a pattern here ?)
-					return (E) (compactstring);
+			StoredFieldSchema<E> referencedfield = externalfieldschemalist.get(0);
+			int index = findColumn(objectalias.getName() + externalfieldschema.getName() + "_0");
 
-				}
+			if (referencedfield instanceof StringStoredField) {
+				StringStoredField referencedstringfield = (StringStoredField) referencedfield;
+				logger.finest("processed field = " + referencedstringfield.getName() + " from field "
+						+ externalfieldschema.getName());
+				return (E) referencedstringfield.castToType(rs.getString(index));
 
 			}
-		} catch (SQLException e) {
+			if (referencedfield instanceof TimestampStoredField) {
 
-			String exceptionline = "";
-			for (int i = 0; i < e.getStackTrace().length; i++) {
+				return referencedfield.castToType(rs.getTimestamp(index));
+			}
+			if (referencedfield instanceof DecimalStoredField) {
+				return referencedfield.castToType(rs.getBigDecimal(index));
+			}
+			throw new RuntimeException(
+					" type of attribute not supported yet " + externalfieldschema.getClass().getCanonicalName());
+		}
+		String compactstring = "";
+		for (int i = 0; i < externalfieldschemalist.size(); i++) {
+			int index = findColumn(objectalias.getName() + externalfieldschema.getName() + "_" + i);
+			if (i > 1)
+				compactstring += " ";
+			compactstring += rs.getString(index);
+			if (i == 0)
+				compactstring += " (";
+		}
+		compactstring += ")";
+		// crappy code but E is string (see a pattern here ?)
+		return (E) (compactstring);
+	}
 
-				String thisline = e.getStackTrace()[i].toString();
-				if (thisline.indexOf("org.openlowcode.server.data") != -1) {
-					exceptionline = thisline;
-					break;
-				}
+	/**
+	 * @return the list of columns of the result set, for error messages
+	 */
+	private String getColumnList() {
+		try {
+			ResultSetMetaData rsmetadata = rs.getMetaData();
+			String columnlist = "[";
+			for (int i = 1; i <= rsmetadata.getColumnCount(); i++) {
+				if (i > 1)
+					columnlist += "; ";
+				columnlist += rsmetadata.getTableName(i) + ":" + rsmetadata.getColumnName(i) + ":"
+						+ rsmetadata.getColumnTypeName(i);
 			}
-			throw new RuntimeException("SQL Exception " + e.getMessage() + " at " + exceptionline
-					+ ", drop table field list " + this.columnlist + "\\			---> Query = " + this.stringquery);
+			columnlist += "]";
+			return columnlist;
+		} catch (SQLException e) {
+			return "[not available: " + e.getMessage() + "]";
 		}
-		throw new RuntimeException(" type of attribute not supported yet " + fd.getClass().getCanonicalName());
 	}
 
 	@Override
@@ -195,6 +384,8 @@ public class JDBCRow implements Row {
 			}
 
 			boolean hasnext = rs.next();
+			if (hasnext)
+				rowsread++;
 			// this is to ensure we close prepared statement and resultset when there is no
 			// next.
 			if (!hasnext)
@@ -207,9 +398,18 @@ public class JDBCRow implements Row {
 
 	@Override
 	public void close() {
+		if (closed)
+			return;
+		closed = true;
+		if (statistics != null)
+			statistics.recordRows(rowsread);
 		try {
 			rs.close();
-			ps.close();
+			if (statementcache != null) {
+				statementcache.release(stringquery, ps);
+			} else {
+				ps.close();
+			}
 		} catch (SQLException e) {
 			throw new RuntimeException(String.format("Error in closing connection %s", e.getMessage()));
 		}
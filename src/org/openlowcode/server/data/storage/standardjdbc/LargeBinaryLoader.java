@@ -0,0 +1,84 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.server.data.storage.standardjdbc;
+
+import java.util.HashMap;
+
+import org.openlowcode.server.data.storage.LargeBinaryStoredField;
+import org.openlowcode.server.data.storage.PersistenceGateway;
+import org.openlowcode.server.data.storage.PersistentStorage;
+import org.openlowcode.server.data.storage.QueryOperatorEqual;
+import org.openlowcode.server.data.storage.Row;
+import org.openlowcode.server.data.storage.SelectQuery;
+import org.openlowcode.server.data.storage.SimpleQueryCondition;
+import org.openlowcode.server.data.storage.StoredFieldSchema;
+import org.openlowcode.server.data.storage.StoredTableSchema;
+import org.openlowcode.server.data.storage.TableAlias;
+import org.openlowcode.tools.messages.SFile;
+import org.openlowcode.tools.misc.NamedList;
+
+/**
+ * Loads the content of a large binary field of a row the first time it is
+ * accessed. Queries on all fields of a table only select the length of large
+ * binary fields, so that pages showing only metadata do not read the content
+ * from the database.<br>
+ * The content is read with a storage taken from the persistence gateway for
+ * the duration of the load.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 2.0
+ */
+public class LargeBinaryLoader
+		implements
+		SFile.ContentLoader {
+	private StoredTableSchema table;
+	private LargeBinaryStoredField field;
+	private String id;
+
+	/**
+	 * creates a loader for the large binary field of the row with the given id
+	 *
+	 * @param table table holding the field
+	 * @param field large binary field
+	 * @param id    id of the row
+	 */
+	public LargeBinaryLoader(StoredTableSchema table, LargeBinaryStoredField field, String id) {
+		this.table = table;
+		this.field = field;
+		this.id = id;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public SFile load() {
+		TableAlias alias = new TableAlias(table, "LOB");
+		alias.addFieldSelection(field);
+		NamedList<TableAlias> aliaslist = new NamedList<TableAlias>();
+		aliaslist.add(alias);
+		StoredFieldSchema<String> idfield = table.lookupFieldByName(RowMappingPlan.ID_FIELD);
+		SelectQuery query = new SelectQuery(aliaslist,
+				new SimpleQueryCondition<String>(alias, idfield, new QueryOperatorEqual<String>(), id));
+		PersistentStorage storage = PersistenceGateway.getStorage();
+		try {
+			Row row = storage.selectOnDB(query);
+			try {
+				if (!row.next())
+					throw new RuntimeException("Row with id " + id + " not found in table " + table.getName()
+							+ " while loading field " + field.getName());
+				return row.getValue(field, alias);
+			} finally {
+				row.close();
+			}
+		} finally {
+			PersistenceGateway.checkinStorage(storage);
+		}
+	}
+}
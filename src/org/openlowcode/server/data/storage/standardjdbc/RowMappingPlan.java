@@ -0,0 +1,247 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.server.data.storage.standardjdbc;
+
+import java.util.HashMap;
+
+import org.openlowcode.server.data.storage.DecimalStoredField;
+import org.openlowcode.server.data.storage.IntegerStoredField;
+import org.openlowcode.server.data.storage.LargeBinaryStoredField;
+import org.openlowcode.server.data.storage.SelectQuery;
+import org.openlowcode.server.data.storage.StoredFieldSchema;
+import org.openlowcode.server.data.storage.StoredTableSchema;
+import org.openlowcode.server.data.storage.StringStoredField;
+import org.openlowcode.server.data.storage.TableAlias;
+import org.openlowcode.server.data.storage.TimestampStoredField;
+import org.openlowcode.server.data.storage.TableAlias.FieldSelectionAlias;
+
+/**
+ * The mapping between the fields of a select query and the columns of its
+ * result set, in the order they are generated in the SQL text. It allows to
+ * read a value by column index with the accessor for the type of the field,
+ * instead of looking-up the column by name in the driver. A plan is compiled
+ * once per shape of query, and is immutable, so it can be shared between
+ * threads.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 2.0
+ */
+public class RowMappingPlan {
+	/**
+	 * column read with getString
+	 */
+	public static final int TYPE_STRING = 0;
+	/**
+	 * column read with getTimestamp
+	 */
+	public static final int TYPE_TIMESTAMP = 1;
+	/**
+	 * column read with getBigDecimal
+	 */
+	public static final int TYPE_DECIMAL = 2;
+	/**
+	 * column read with getInt
+	 */
+	public static final int TYPE_INTEGER = 3;
+	/**
+	 * column read with getBinaryStream
+	 */
+	public static final int TYPE_LARGEBINARY = 4;
+	/**
+	 * column of a type not known by the plan, read by the generic method
+	 */
+	public static final int TYPE_OTHER = 5;
+	/**
+	 * large binary column whose length only is selected, the content being loaded
+	 * when first accessed
+	 */
+	public static final int TYPE_LAZYLARGEBINARY = 6;
+	/**
+	 * name of the field identifying a row, used to load large binary content
+	 * lazily
+	 */
+	public static final String ID_FIELD = "ID";
+
+	private HashMap<String, HashMap<String, ColumnMapping>> columnsbyaliasandfield;
+	private HashMap<String, ColumnMapping> columnsbylabel;
+
+	/**
+	 * compiles the plan for the select query
+	 *
+	 * @param sq a select query
+	 */
+	@SuppressWarnings("rawtypes")
+	public RowMappingPlan(SelectQuery sq) {
+		this.columnsbyaliasandfield = new HashMap<String, HashMap<String, ColumnMapping>>();
+		this.columnsbylabel = new HashMap<String, ColumnMapping>();
+		int index = 1;
+		for (int i = 0; i < sq.getTableNumber(); i++) {
+			TableAlias thisalias = sq.getTable(i);
+			HashMap<String, ColumnMapping> columnsforalias = new HashMap<String, ColumnMapping>();
+			columnsbyaliasandfield.put(thisalias.getName(), columnsforalias);
+			if (thisalias.queryAllFields()) {
+				int idindex = -1;
+				for (int j = 0; j < thisalias.getTable().getStoredFieldNumber(); j++)
+					if (thisalias.getTable().getStoredField(j).getName().equals(ID_FIELD))
+						idindex = index + j;
+				for (int j = 0; j < thisalias.getTable().getStoredFieldNumber(); j++) {
+					StoredFieldSchema thisfield = thisalias.getTable().getStoredField(j);
+					ColumnMapping mapping = new ColumnMapping(index, getType(thisfield));
+					if (isLazyLargeBinary(thisalias, thisfield))
+						mapping = new ColumnMapping(index, TYPE_LAZYLARGEBINARY, idindex, thisalias.getTable(),
+								(LargeBinaryStoredField) thisfield);
+					columnsforalias.put(thisfield.getName(), mapping);
+					columnsbylabel.put(thisalias.getName() + "_" + thisfield.getName(), mapping);
+					index++;
+				}
+			} else {
+				FieldSelectionAlias[] fieldselection = thisalias.getFieldSelection();
+				for (int j = 0; j < fieldselection.length; j++) {
+					StoredFieldSchema thisfield = fieldselection[j].getField();
+					ColumnMapping mapping = new ColumnMapping(index, getType(thisfield));
+					// only fields with the default label can be read by alias and field
+					if (fieldselection[j].getAlias().equals(thisalias.getName() + "_" + thisfield.getName()))
+						columnsforalias.put(thisfield.getName(), mapping);
+					columnsbylabel.put(fieldselection[j].getAlias(), mapping);
+					index++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * checks if a field should be loaded lazily: this is the case for large binary
+	 * fields when all fields of a table having an id are queried. Only the length
+	 * of the content is then selected.
+	 *
+	 * @param alias alias of the table in the query
+	 * @param field a stored field of the table
+	 * @return true if the content of the field is loaded when first accessed
+	 */
+	@SuppressWarnings("rawtypes")
+	public static boolean isLazyLargeBinary(TableAlias alias, StoredFieldSchema field) {
+		if (!(field instanceof LargeBinaryStoredField))
+			return false;
+		if (!alias.queryAllFields())
+			return false;
+		return (alias.getTable().lookupFieldByName(ID_FIELD) instanceof StringStoredField);
+	}
+
+	/**
+	 * @param field a stored field
+	 * @return the type of accessor to use for the field
+	 */
+	@SuppressWarnings("rawtypes")
+	private static int getType(StoredFieldSchema field) {
+		if (field instanceof StringStoredField)
+			return TYPE_STRING;
+		if (field instanceof TimestampStoredField)
+			return TYPE_TIMESTAMP;
+		if (field instanceof DecimalStoredField)
+			return TYPE_DECIMAL;
+		if (field instanceof IntegerStoredField)
+			return TYPE_INTEGER;
+		if (field instanceof LargeBinaryStoredField)
+			return TYPE_LARGEBINARY;
+		return TYPE_OTHER;
+	}
+
+	/**
+	 * gets the column for a field of an alias. This does not allocate any object
+	 *
+	 * @param aliasname name of the table alias
+	 * @param fieldname name of the field
+	 * @return the column, or null if the field is not in the plan
+	 */
+	public ColumnMapping getColumn(String aliasname, String fieldname) {
+		HashMap<String, ColumnMapping> columnsforalias = columnsbyaliasandfield.get(aliasname);
+		if (columnsforalias == null)
+			return null;
+		return columnsforalias.get(fieldname);
+	}
+
+	/**
+	 * gets the column for a label as written in the SQL text
+	 *
+	 * @param label the column label
+	 * @return the column, or null if the label is not in the plan
+	 */
+	public ColumnMapping getColumn(String label) {
+		return columnsbylabel.get(label);
+	}
+
+	/**
+	 * a column of the result set: index and type of accessor
+	 */
+	public static class ColumnMapping {
+		private int index;
+		private int type;
+		private int idindex;
+		private StoredTableSchema table;
+		private LargeBinaryStoredField field;
+
+		private ColumnMapping(int index, int type) {
+			this.index = index;
+			this.type = type;
+			this.idindex = -1;
+		}
+
+		private ColumnMapping(
+				int index,
+				int type,
+				int idindex,
+				StoredTableSchema table,
+				LargeBinaryStoredField field) {
+			this.index = index;
+			this.type = type;
+			this.idindex = idindex;
+			this.table = table;
+			this.field = field;
+		}
+
+		/**
+		 * @return the index of the column in the result set (starting at 1)
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * @return the type of accessor, as one of the TYPE constants of
+		 *         {@link RowMappingPlan}
+		 */
+		public int getType() {
+			return type;
+		}
+
+		/**
+		 * @return for a lazy large binary column, the index of the column holding the
+		 *         id of the row, -1 else
+		 */
+		public int getIdIndex() {
+			return idindex;
+		}
+
+		/**
+		 * @return for a lazy large binary column, the table holding the field
+		 */
+		public StoredTableSchema getTable() {
+			return table;
+		}
+
+		/**
+		 * @return for a lazy large binary column, the field to load
+		 */
+		public LargeBinaryStoredField getField() {
+			return field;
+		}
+	}
+}
@@ -10,6 +10,7 @@
 
 package org.openlowcode.server.data.storage.standardjdbc;
 
+import java.math.BigDecimal;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
@@ -17,6 +18,7 @@ import java.util.Date;
 import java.util.logging.Logger;
 
 import org.openlowcode.server.data.storage.AndQueryCondition;
+import org.openlowcode.server.data.storage.InQueryCondition;
 import org.openlowcode.server.data.storage.JoinQueryCondition;
 import org.openlowcode.server.data.storage.OrQueryCondition;
 import org.openlowcode.server.data.storage.QueryCondition;
@@ -51,88 +53,119 @@ public class SQLQueryPSFiller implements QueryCondition.Visitor {
 		this.counter = nextcounter;
 	}
 
+	/**
+	 * @return the index of the next parameter to set on the prepared statement
+	 * @since 2.0
+	 */
+	public int getNextCounter() {
+		return this.counter;
+	}
+
 	@Override
 	public <E extends Object> void visit(SimpleQueryCondition<E> simplequerycondition) {
+		if (simplequerycondition.getPayload() != null) {
+			setPayload(simplequerycondition.getPayload(), simplequerycondition);
+		} else {
+			LOGGER.info("JDBC preparedStatement - null content for " + counter + " - "
+					+ simplequerycondition.getField());
+		}
+	}
+
+	@Override
+	public <E extends Object> void visit(InQueryCondition<E> inquerycondition) {
+		for (int i = 0; i < inquerycondition.getValueNumber(); i++)
+			setPayload(inquerycondition.getValue(i), inquerycondition);
+	}
+
+	/**
+	 * sets the payload on the next parameter of the prepared statement
+	 * 
+	 * @param payload   a payload, not null
+	 * @param condition the condition holding the payload
+	 * @since 2.0
+	 */
+	private void setPayload(Object payload, QueryCondition condition) {
 		try {
-			if (simplequerycondition.getPayload() != null) {
-				boolean found = false;
-				if (simplequerycondition.getPayload() instanceof String) {
-					String payload = (String) simplequerycondition.getPayload();
-					ps.setString(counter, payload);
-					LOGGER.info("JDBC preparedstatement setString " + counter + "," + payload);
-					counter++;
-					found = true;
+			boolean found = false;
+			if (payload instanceof String) {
+				String stringpayload = (String) payload;
+				ps.setString(counter, stringpayload);
+				LOGGER.info("JDBC preparedstatement setString " + counter + "," + stringpayload);
+				counter++;
+				found = true;
 
-				}
+			}
 
-				if (simplequerycondition.getPayload() instanceof Choice) {
-					Choice payload = (Choice) simplequerycondition.getPayload();
-					ps.setString(counter, payload.getStorageCode());
-					LOGGER.info("JDBC preparedstatement setString " + counter + "," + payload.getStorageCode());
-					counter++;
-					found = true;
+			if (payload instanceof Choice) {
+				Choice choicepayload = (Choice) payload;
+				ps.setString(counter, choicepayload.getStorageCode());
+				LOGGER.info("JDBC preparedstatement setString " + counter + "," + choicepayload.getStorageCode());
+				counter++;
+				found = true;
 
-				}
+			}
 
-				if (simplequerycondition.getPayload() instanceof TimePeriod) {
-					TimePeriod payload = (TimePeriod) simplequerycondition.getPayload();
-					ps.setString(counter, payload.encode());
-					LOGGER.info(
-							"JDBC prepared statement setString for TimerPeriod " + counter + "," + payload.encode());
-					counter++;
-					found = true;
-				}
+			if (payload instanceof TimePeriod) {
+				TimePeriod timeperiodpayload = (TimePeriod) payload;
+				ps.setString(counter, timeperiodpayload.encode());
+				LOGGER.info("JDBC prepared statement setString for TimerPeriod " + counter + ","
+						+ timeperiodpayload.encode());
+				counter++;
+				found = true;
+			}
 
-				if (simplequerycondition.getPayload() instanceof Date) {
-					Date payload = (Date) simplequerycondition.getPayload();
+			if (payload instanceof Date) {
+				Date datepayload = (Date) payload;
 
-					ps.setTimestamp(counter, new Timestamp(payload.getTime()));
-					LOGGER.info("JDBC preparedstatement setDate " + counter + "," + payload);
-					counter++;
-					found = true;
+				ps.setTimestamp(counter, new Timestamp(datepayload.getTime()));
+				LOGGER.info("JDBC preparedstatement setDate " + counter + "," + datepayload);
+				counter++;
+				found = true;
 
-				}
-				if (simplequerycondition.getPayload() instanceof ObjectIdInterface) {
-					ObjectIdInterface id = (ObjectIdInterface) simplequerycondition.getPayload();
-					ps.setString(counter, id.getId());
-					LOGGER.info("JDBC preparedstatement setDataObjectId " + counter + "," + id);
-					counter++;
-					found = true;
+			}
+			if (payload instanceof ObjectIdInterface) {
+				ObjectIdInterface id = (ObjectIdInterface) payload;
+				ps.setString(counter, id.getId());
+				LOGGER.info("JDBC preparedstatement setDataObjectId " + counter + "," + id);
+				counter++;
+				found = true;
 
-				}
+			}
 
-				if (simplequerycondition.getPayload() instanceof SFile) {
-					SFile binarycontent = (SFile) simplequerycondition.getPayload();
-					if (binarycontent.isEmpty()) {
-						ps.setNull(counter, java.sql.Types.BLOB);
-						LOGGER.info("JDBC preparedstatement set binary " + counter + ", NULL");
-					} else {
-						ps.setBlob(counter, binarycontent.getStream(), binarycontent.getLength());
-						LOGGER.info("JDBC preparedstatement set binary " + counter + ", contentlength = "
-								+ binarycontent.getLength());
-
-					}
-					counter++;
-					found = true;
-				}
-				if (simplequerycondition.getPayload() instanceof Integer) {
-					Integer integercontent = (Integer) simplequerycondition.getPayload();
-					ps.setInt(counter, integercontent.intValue());
-					LOGGER.info("JDBC preparedstatement setInteger" + counter + "," + integercontent);
+			if (payload instanceof SFile) {
+				SFile binarycontent = (SFile) payload;
+				if (binarycontent.isEmpty()) {
+					ps.setNull(counter, java.sql.Types.BLOB);
+					LOGGER.info("JDBC preparedstatement set binary " + counter + ", NULL");
+				} else {
+					ps.setBlob(counter, binarycontent.getStream(), binarycontent.getLength());
+					LOGGER.info("JDBC preparedstatement set binary " + counter + ", contentlength = "
+							+ binarycontent.getLength());
 
-					counter++;
-					found = true;
 				}
-				if (!found)
-					throw new RuntimeException("class not managed for simple query condition " + simplequerycondition
-							+ ", " + simplequerycondition.getPayload());
-			} else {
-				LOGGER.info("JDBC preparedStatement - null content for "+counter+" - "+simplequerycondition.getField());
+				counter++;
+				found = true;
+			}
+			if (payload instanceof BigDecimal) {
+				BigDecimal decimalcontent = (BigDecimal) payload;
+				ps.setBigDecimal(counter, decimalcontent);
+				LOGGER.info("JDBC preparedstatement setDecimal " + counter + "," + decimalcontent);
+				counter++;
+				found = true;
+			}
+			if (payload instanceof Integer) {
+				Integer integercontent = (Integer) payload;
+				ps.setInt(counter, integercontent.intValue());
+				LOGGER.info("JDBC preparedstatement setInteger" + counter + "," + integercontent);
+
+				counter++;
+				found = true;
 			}
+			if (!found)
+				throw new RuntimeException("class not managed for query condition " + condition + ", " + payload);
 		} catch (SQLException e) {
 			throw new RuntimeException(String.format(
-					"Persistence issue for simple query condition " + simplequerycondition + " original message = %s",
-					e.getMessage()));
+					"Persistence issue for query condition " + condition + " original message = %s", e.getMessage()));
 		}
 	}
 
@@ -0,0 +1,464 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.server.data.storage.standardjdbc;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Statistics on the SQL statements executed by the server since startup. They
+ * are gathered by statement shape: the SQL text with literal values masked and
+ * lists of parameters collapsed, so that statements only differing by their
+ * values are counted together. For each shape, the number of executions,
+ * errors and relaunches, the number of rows, and a histogram of execution
+ * times are kept.<br>
+ * Statements slower than a threshold are also kept in a buffer of the most
+ * recent slow queries. Only the shape is kept, so values bound to the
+ * statement are never stored.<br>
+ * For select queries, the execution time does not include reading the
+ * result, and the number of rows is counted when the result is closed.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 2.0
+ */
+public class SQLStatistics {
+	private static Logger logger = Logger.getLogger(SQLStatistics.class.getName());
+	/**
+	 * upper limits, in milliseconds, of the buckets of the execution time
+	 * histogram. A last bucket holds executions longer than the last limit
+	 */
+	public static final long[] HISTOGRAM_LIMITS_MS = new long[] { 1, 5, 10, 50, 100, 500, 1000, 5000 };
+	/**
+	 * maximum number of statement shapes with their own statistics. When
+	 * reached, further shapes are counted together
+	 */
+	public static final int MAX_STATEMENT_SHAPES = 1024;
+	/**
+	 * shape under which statements are counted when the maximum number of shapes
+	 * is reached
+	 */
+	public static final String OTHER_SHAPE = "[OTHER STATEMENTS]";
+	/**
+	 * default duration in milliseconds above which a statement is kept as a slow
+	 * query
+	 */
+	public static final int DEFAULT_SLOW_QUERY_MS = 500;
+	/**
+	 * number of recent slow queries kept
+	 */
+	public static final int SLOW_QUERY_BUFFER_SIZE = 100;
+	/**
+	 * maximum number of SQL texts whose shape is kept. When reached, this cache
+	 * is emptied
+	 */
+	private static final int MAX_CACHED_QUERIES = 4096;
+	private static final Pattern PARAMETER_LIST = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+
+	private static long slowquerythresholdnanos = DEFAULT_SLOW_QUERY_MS * 1000000L;
+	private static ConcurrentHashMap<String, StatementStatistics> statisticsbyquery = new ConcurrentHashMap<
+			String, StatementStatistics>();
+	private static ConcurrentHashMap<String, StatementStatistics> statisticsbyshape = new ConcurrentHashMap<
+			String, StatementStatistics>();
+	private static SlowQuery[] slowqueries = new SlowQuery[SLOW_QUERY_BUFFER_SIZE];
+	private static int nextslowquery = 0;
+	private static AtomicLong slowquerycount = new AtomicLong(0);
+
+	/**
+	 * sets the duration above which a statement is kept as a slow query
+	 *
+	 * @param slowqueryms duration in milliseconds
+	 */
+	public static void setSlowQueryThreshold(int slowqueryms) {
+		if (slowqueryms < 0)
+			throw new RuntimeException("Slow query threshold cannot be negative: " + slowqueryms);
+		SQLStatistics.slowquerythresholdnanos = slowqueryms * 1000000L;
+	}
+
+	/**
+	 * @return the duration in milliseconds above which a statement is kept as a
+	 *         slow query
+	 */
+	public static long getSlowQueryThreshold() {
+		return slowquerythresholdnanos / 1000000L;
+	}
+
+	/**
+	 * @return the number of slow queries since server start, including the ones
+	 *         not kept in the buffer anymore
+	 */
+	public static long getSlowQueryCount() {
+		return slowquerycount.get();
+	}
+
+	/**
+	 * gets the statistics for the shape of the SQL text. The shape is only
+	 * computed the first time a SQL text is seen
+	 *
+	 * @param stringquery SQL text of a statement
+	 * @return the statistics of the shape of the statement
+	 */
+	public static StatementStatistics getForQuery(String stringquery) {
+		StatementStatistics statistics = statisticsbyquery.get(stringquery);
+		if (statistics != null)
+			return statistics;
+		String shape = normalize(stringquery);
+		statistics = statisticsbyshape.get(shape);
+		if (statistics == null) {
+			if (statisticsbyshape.size() >= MAX_STATEMENT_SHAPES)
+				shape = OTHER_SHAPE;
+			statistics = statisticsbyshape.computeIfAbsent(shape, StatementStatistics::new);
+		}
+		if (statisticsbyquery.size() >= MAX_CACHED_QUERIES) {
+			logger.info("SQL statistics query cache full with " + statisticsbyquery.size() + " elements, emptying it");
+			statisticsbyquery.clear();
+		}
+		statisticsbyquery.put(stringquery, statistics);
+		return statistics;
+	}
+
+	/**
+	 * normalizes the SQL text of a statement: string and number literals are
+	 * replaced by a question mark, lists of parameters are collapsed, and spaces
+	 * are reduced to a single space
+	 *
+	 * @param stringquery SQL text of a statement
+	 * @return the shape of the statement
+	 */
+	public static String normalize(String stringquery) {
+		if (stringquery == null)
+			return "";
+		StringBuffer shape = new StringBuffer();
+		int length = stringquery.length();
+		int i = 0;
+		boolean lastisspace = true;
+		while (i < length) {
+			char current = stringquery.charAt(i);
+			if (current == '\'') {
+				// string literal, quotes inside are doubled
+				i++;
+				while (i < length) {
+					if (stringquery.charAt(i) == '\'') {
+						if ((i + 1 < length) && (stringquery.charAt(i + 1) == '\'')) {
+							i += 2;
+							continue;
+						}
+						break;
+					}
+					i++;
+				}
+				i++;
+				shape.append('?');
+				lastisspace = false;
+				continue;
+			}
+			if (Character.isDigit(current)) {
+				char previous = (i > 0 ? stringquery.charAt(i - 1) : ' ');
+				if (!Character.isLetterOrDigit(previous) && (previous != '_') && (previous != '.')) {
+					while ((i < length)
+							&& ((Character.isDigit(stringquery.charAt(i))) || (stringquery.charAt(i) == '.')))
+						i++;
+					shape.append('?');
+					lastisspace = false;
+					continue;
+				}
+			}
+			if (Character.isWhitespace(current)) {
+				if (!lastisspace)
+					shape.append(' ');
+				lastisspace = true;
+				i++;
+				continue;
+			}
+			shape.append(current);
+			lastisspace = false;
+			i++;
+		}
+		return PARAMETER_LIST.matcher(shape.toString().trim()).replaceAll("?,...");
+	}
+
+	/**
+	 * @return the statistics of all statement shapes, sorted by decreasing total
+	 *         execution time
+	 */
+	public static StatementStatistics[] getAllStatistics() {
+		ArrayList<StatementStatistics> allstatistics = new ArrayList<StatementStatistics>(
+				statisticsbyshape.values());
+		allstatistics.sort((first, second) -> Long.compare(second.getTotalNanos(), first.getTotalNanos()));
+		return allstatistics.toArray(new StatementStatistics[0]);
+	}
+
+	/**
+	 * @return the slow queries kept in the buffer, the most recent first
+	 */
+	public static SlowQuery[] getSlowQueries() {
+		ArrayList<SlowQuery> result = new ArrayList<SlowQuery>();
+		synchronized (slowqueries) {
+			for (int i = 1; i <= SLOW_QUERY_BUFFER_SIZE; i++) {
+				SlowQuery slowquery = slowqueries[(nextslowquery - i + SLOW_QUERY_BUFFER_SIZE)
+						% SLOW_QUERY_BUFFER_SIZE];
+				if (slowquery != null)
+					result.add(slowquery);
+			}
+		}
+		return result.toArray(new SlowQuery[0]);
+	}
+
+	/**
+	 * keeps a slow query in the buffer, replacing the oldest one if the buffer is
+	 * full
+	 *
+	 * @param slowquery the slow query
+	 */
+	private static void addSlowQuery(SlowQuery slowquery) {
+		slowquerycount.incrementAndGet();
+		synchronized (slowqueries) {
+			slowqueries[nextslowquery] = slowquery;
+			nextslowquery = (nextslowquery + 1) % SLOW_QUERY_BUFFER_SIZE;
+		}
+	}
+
+	/**
+	 * statistics for a statement shape. All counters can be updated concurrently
+	 * by several threads
+	 */
+	public static class StatementStatistics {
+		private String shape;
+		private AtomicLong executions;
+		private AtomicLong errors;
+		private AtomicLong relaunches;
+		private AtomicLong rows;
+		private AtomicLong totalnanos;
+		private AtomicLong maxnanos;
+		private AtomicLongArray histogram;
+
+		/**
+		 * creates empty statistics for the shape
+		 *
+		 * @param shape the statement shape
+		 */
+		private StatementStatistics(String shape) {
+			this.shape = shape;
+			this.executions = new AtomicLong(0);
+			this.errors = new AtomicLong(0);
+			this.relaunches = new AtomicLong(0);
+			this.rows = new AtomicLong(0);
+			this.totalnanos = new AtomicLong(0);
+			this.maxnanos = new AtomicLong(0);
+			this.histogram = new AtomicLongArray(HISTOGRAM_LIMITS_MS.length + 1);
+		}
+
+		/**
+		 * records a successful execution of the statement, and keeps it as a slow
+		 * query if it is above the threshold
+		 *
+		 * @param durationnanos execution time in nanoseconds
+		 * @param relaunches    number of relaunches before the execution succeeded
+		 * @param rowcount      number of rows changed, or -1 if not known at this
+		 *                      stage
+		 */
+		public void recordExecution(long durationnanos, int relaunches, long rowcount) {
+			executions.incrementAndGet();
+			totalnanos.addAndGet(durationnanos);
+			maxnanos.accumulateAndGet(durationnanos, Math::max);
+			if (relaunches > 0)
+				this.relaunches.addAndGet(relaunches);
+			if (rowcount > 0)
+				rows.addAndGet(rowcount);
+			long durationms = durationnanos / 1000000L;
+			int bucket = 0;
+			while ((bucket < HISTOGRAM_LIMITS_MS.length) && (durationms >= HISTOGRAM_LIMITS_MS[bucket]))
+				bucket++;
+			histogram.incrementAndGet(bucket);
+			if (durationnanos >= slowquerythresholdnanos)
+				addSlowQuery(new SlowQuery(shape, durationms, relaunches, rowcount));
+		}
+
+		/**
+		 * records a failed execution of the statement
+		 *
+		 * @param relaunches number of relaunches before giving up
+		 */
+		public void recordError(int relaunches) {
+			errors.incrementAndGet();
+			if (relaunches > 0)
+				this.relaunches.addAndGet(relaunches);
+		}
+
+		/**
+		 * records rows read from the result of a select query
+		 *
+		 * @param rowcount number of rows read
+		 */
+		public void recordRows(long rowcount) {
+			if (rowcount > 0)
+				rows.addAndGet(rowcount);
+		}
+
+		/**
+		 * @return the statement shape
+		 */
+		public String getShape() {
+			return shape;
+		}
+
+		/**
+		 * @return the number of successful executions
+		 */
+		public long getExecutions() {
+			return executions.get();
+		}
+
+		/**
+		 * @return the number of failed executions
+		 */
+		public long getErrors() {
+			return errors.get();
+		}
+
+		/**
+		 * @return the number of relaunches after an SQL error
+		 */
+		public long getRelaunches() {
+			return relaunches.get();
+		}
+
+		/**
+		 * @return the number of rows changed or read
+		 */
+		public long getRows() {
+			return rows.get();
+		}
+
+		/**
+		 * @return the total execution time in nanoseconds
+		 */
+		public long getTotalNanos() {
+			return totalnanos.get();
+		}
+
+		/**
+		 * @return the longest execution time in nanoseconds
+		 */
+		public long getMaxNanos() {
+			return maxnanos.get();
+		}
+
+		/**
+		 * @param bucket index of the bucket, from 0 to the number of limits in
+		 *               {@link SQLStatistics#HISTOGRAM_LIMITS_MS}
+		 * @return the number of executions in the bucket
+		 */
+		public long getHistogramCount(int bucket) {
+			return histogram.get(bucket);
+		}
+
+		/**
+		 * @return a readable version of the histogram, showing only non empty
+		 *         buckets (e.g. "&lt;1ms:120 &lt;5ms:3 &gt;=5000ms:1")
+		 */
+		public String getHistogramText() {
+			StringBuffer text = new StringBuffer();
+			for (int i = 0; i <= HISTOGRAM_LIMITS_MS.length; i++) {
+				long count = histogram.get(i);
+				if (count == 0)
+					continue;
+				if (text.length() > 0)
+					text.append(' ');
+				if (i < HISTOGRAM_LIMITS_MS.length) {
+					text.append('<');
+					text.append(HISTOGRAM_LIMITS_MS[i]);
+				} else {
+					text.append(">=");
+					text.append(HISTOGRAM_LIMITS_MS[HISTOGRAM_LIMITS_MS.length - 1]);
+				}
+				text.append("ms:");
+				text.append(count);
+			}
+			return text.toString();
+		}
+	}
+
+	/**
+	 * a statement that took longer than the slow query threshold
+	 */
+	public static class SlowQuery {
+		private Date executed;
+		private String shape;
+		private long durationms;
+		private int relaunches;
+		private long rowcount;
+		private String threadname;
+
+		/**
+		 * creates a slow query for the current thread
+		 *
+		 * @param shape      statement shape
+		 * @param durationms execution time in milliseconds
+		 * @param relaunches number of relaunches before the execution succeeded
+		 * @param rowcount   number of rows changed, or -1 if not known
+		 */
+		private SlowQuery(String shape, long durationms, int relaunches, long rowcount) {
+			this.executed = new Date();
+			this.shape = shape;
+			this.durationms = durationms;
+			this.relaunches = relaunches;
+			this.rowcount = rowcount;
+			this.threadname = Thread.currentThread().getName();
+		}
+
+		/**
+		 * @return the time the execution finished
+		 */
+		public Date getExecuted() {
+			return executed;
+		}
+
+		/**
+		 * @return the statement shape
+		 */
+		public String getShape() {
+			return shape;
+		}
+
+		/**
+		 * @return the execution time in milliseconds
+		 */
+		public long getDurationMs() {
+			return durationms;
+		}
+
+		/**
+		 * @return the number of relaunches before the execution succeeded
+		 */
+		public int getRelaunches() {
+			return relaunches;
+		}
+
+		/**
+		 * @return the number of rows changed, or -1 if not known (select queries)
+		 */
+		public long getRowCount() {
+			return rowcount;
+		}
+
+		/**
+		 * @return the name of the thread that executed the statement
+		 */
+		public String getThreadName() {
+			return threadname;
+		}
+	}
+}
@@ -0,0 +1,302 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.server.data.storage.standardjdbc;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import org.openlowcode.server.data.storage.AndQueryCondition;
+import org.openlowcode.server.data.storage.InQueryCondition;
+import org.openlowcode.server.data.storage.JoinQueryCondition;
+import org.openlowcode.server.data.storage.OrQueryCondition;
+import org.openlowcode.server.data.storage.QueryCondition;
+import org.openlowcode.server.data.storage.QueryConditionAlways;
+import org.openlowcode.server.data.storage.QueryConditionNever;
+import org.openlowcode.server.data.storage.QueryOrder;
+import org.openlowcode.server.data.storage.SelectQuery;
+import org.openlowcode.server.data.storage.SimpleQueryCondition;
+import org.openlowcode.server.data.storage.TableAlias;
+import org.openlowcode.server.data.storage.TableAlias.FieldSelectionAlias;
+
+/**
+ * The structure of a select query without the values of the conditions: table
+ * aliases, selected fields, condition tree with fields and operators, sort
+ * criteria, presence of offset and limit, and SQL dialect. Two
+ * select queries with the same shape generate the same SQL text, so the SQL
+ * text can be generated once per shape and kept in a cache. The shape also
+ * keeps, in the order of the SQL parameters, the conditions holding a value to
+ * bind on the prepared statement.<br>
+ * The shape is made of references to names and classes already existing in
+ * the query, so building it is much cheaper than generating the SQL text.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 2.0
+ */
+public class SelectQueryShape
+		implements
+		QueryCondition.Visitor {
+	private static Logger logger = Logger.getLogger(SelectQueryShape.class.getName());
+	/**
+	 * maximum number of query shapes kept in the cache. When reached, the cache is
+	 * emptied
+	 */
+	public static final int MAX_CACHED_SHAPES = 2048;
+	private static ConcurrentHashMap<SelectQueryShape, CompiledQuery> sqlbyshape = new ConcurrentHashMap<
+			SelectQueryShape, CompiledQuery>();
+	private static AtomicLong hits = new AtomicLong(0);
+	private static AtomicLong misses = new AtomicLong(0);
+
+	private static final Object DISTINCT = new Object();
+	private static final Object ALLFIELDS = new Object();
+	private static final Object NOCONDITION = new Object();
+	private static final Object NEVER = new Object();
+	private static final Object ALWAYS = new Object();
+	private static final Object JOIN = new Object();
+	private static final Object STARTAND = new Object();
+	private static final Object STARTOR = new Object();
+	private static final Object END = new Object();
+	private static final Object NULLVALUE = new Object();
+	private static final Object VALUE = new Object();
+	private static final Object ORDER = new Object();
+	private static final Object OFFSET = new Object();
+	private static final Object LIMIT = new Object();
+	private static final Object IN = new Object();
+
+	private ArrayList<Object> tokens;
+	private ArrayList<QueryCondition> parameters;
+	private int hashcode;
+	private SelectQuery selectquery;
+	private RowMappingPlan rowmappingplan;
+
+	/**
+	 * builds the shape of the select query
+	 *
+	 * @param sq      a select query
+	 * @param dialect an object identifying the SQL dialect (typically the class
+	 *                of the storage), as the same query may generate a different
+	 *                SQL text depending on the database
+	 */
+	public SelectQueryShape(SelectQuery sq, Object dialect) {
+		this.tokens = new ArrayList<Object>();
+		this.parameters = new ArrayList<QueryCondition>();
+		this.selectquery = sq;
+		tokens.add(dialect);
+		if (sq.isDistinctValues())
+			tokens.add(DISTINCT);
+		for (int i = 0; i < sq.getTableNumber(); i++) {
+			TableAlias thisalias = sq.getTable(i);
+			tokens.add(thisalias.getName());
+			tokens.add(thisalias.getTable().getName());
+			if (thisalias.queryAllFields()) {
+				tokens.add(ALLFIELDS);
+				tokens.add(thisalias.getTable().getStoredFieldNumber());
+				for (int j = 0; j < thisalias.getTable().getStoredFieldNumber(); j++)
+					tokens.add(thisalias.getTable().getStoredField(j).getName());
+			} else {
+				FieldSelectionAlias[] fieldselection = thisalias.getFieldSelection();
+				tokens.add(fieldselection.length);
+				for (int j = 0; j < fieldselection.length; j++) {
+					tokens.add(fieldselection[j].getField() != null ? fieldselection[j].getField().getName() : null);
+					tokens.add(fieldselection[j].getAlias());
+				}
+			}
+		}
+		tokens.add(END);
+		QueryCondition condition = sq.getQueryCondition();
+		if ((condition != null) && (condition.isSignificant(0))) {
+			condition.accept(this);
+		} else {
+			tokens.add(NOCONDITION);
+		}
+		for (int i = 0; i < sq.getOrderNumber(); i++) {
+			QueryOrder order = sq.getOrder(i);
+			tokens.add(ORDER);
+			tokens.add(order.getAlias().getName());
+			tokens.add(order.getField().getName());
+			tokens.add(order.isAscending());
+		}
+		if (sq.getOffset() > 0)
+			tokens.add(OFFSET);
+		if (sq.getLimit() > 0)
+			tokens.add(LIMIT);
+		this.hashcode = tokens.hashCode();
+	}
+
+	/**
+	 * creates a copy of the shape without the conditions, to be kept in the cache
+	 *
+	 * @param tokens   tokens of the shape
+	 * @param hashcode hashcode of the tokens
+	 */
+	private SelectQueryShape(ArrayList<Object> tokens, int hashcode) {
+		this.tokens = tokens;
+		this.hashcode = hashcode;
+	}
+
+	/**
+	 * gets the SQL text for the shape of the query, generating it only if the
+	 * shape is not in the cache. The row mapping plan is compiled at the same
+	 * time.
+	 *
+	 * @param generator generates the SQL text for the query if not in cache
+	 * @return the SQL text for the query
+	 */
+	public String getSQL(Supplier<String> generator) {
+		CompiledQuery compiledquery = sqlbyshape.get(this);
+		if (compiledquery != null) {
+			hits.incrementAndGet();
+			this.rowmappingplan = compiledquery.rowmappingplan;
+			return compiledquery.sql;
+		}
+		misses.incrementAndGet();
+		compiledquery = new CompiledQuery(generator.get(), new RowMappingPlan(selectquery));
+		if (sqlbyshape.size() >= MAX_CACHED_SHAPES) {
+			logger.info("Select query shape cache full with " + sqlbyshape.size() + " elements, emptying it");
+			sqlbyshape.clear();
+		}
+		// the values of the conditions are not kept in the cache
+		sqlbyshape.put(new SelectQueryShape(tokens, hashcode), compiledquery);
+		this.rowmappingplan = compiledquery.rowmappingplan;
+		return compiledquery.sql;
+	}
+
+	/**
+	 * @return the mapping of fields to column indexes of the result set. Only
+	 *         available after {@link #getSQL(Supplier)} has been called
+	 * @since 2.0
+	 */
+	public RowMappingPlan getRowMappingPlan() {
+		return rowmappingplan;
+	}
+
+	/**
+	 * binds the values of the query conditions on the prepared statement
+	 *
+	 * @param ps prepared statement for the SQL text of this shape
+	 * @return the index of the next parameter to set on the prepared statement
+	 */
+	public int bindParameters(PreparedStatement ps) {
+		SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, 1);
+		for (int i = 0; i < parameters.size(); i++)
+			parameters.get(i).accept(filler);
+		return filler.getNextCounter();
+	}
+
+	/**
+	 * @return the number of queries whose SQL text was found in cache since server
+	 *         start
+	 */
+	public static long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of queries whose SQL text had to be generated since
+	 *         server start
+	 */
+	public static long getMisses() {
+		return misses.get();
+	}
+
+	@Override
+	public <E extends Object> void visit(SimpleQueryCondition<E> simplequerycondition) {
+		tokens.add(simplequerycondition.getAlias() != null ? simplequerycondition.getAlias().getName() : null);
+		tokens.add(simplequerycondition.getField().getName());
+		tokens.add(simplequerycondition.getOperator().getClass());
+		if (simplequerycondition.getPayload() == null) {
+			tokens.add(NULLVALUE);
+		} else {
+			tokens.add(VALUE);
+			parameters.add(simplequerycondition);
+		}
+	}
+
+	@Override
+	public <E extends Object> void visit(InQueryCondition<E> inquerycondition) {
+		tokens.add(IN);
+		tokens.add(inquerycondition.getAlias() != null ? inquerycondition.getAlias().getName() : null);
+		tokens.add(inquerycondition.getField().getName());
+		tokens.add(inquerycondition.getValueNumber());
+		parameters.add(inquerycondition);
+	}
+
+	@Override
+	public <E extends Object> void visit(JoinQueryCondition<E> joinquerycondition) {
+		tokens.add(JOIN);
+		tokens.add(joinquerycondition.getMaintable().getName());
+		tokens.add(joinquerycondition.getMaintablefield().getName());
+		tokens.add(joinquerycondition.getJoinqueryoperator().getClass());
+		tokens.add(joinquerycondition.getSidetable().getName());
+		tokens.add(joinquerycondition.getSidetablefield().getName());
+	}
+
+	@Override
+	public void visit(AndQueryCondition andquerycondition) {
+		tokens.add(STARTAND);
+		QueryCondition[] andconditions = andquerycondition.returnAllConditions();
+		for (int i = 0; i < andconditions.length; i++)
+			if (andconditions[i] != null)
+				andconditions[i].accept(this);
+		tokens.add(END);
+	}
+
+	@Override
+	public void visit(OrQueryCondition orquerycondition) {
+		tokens.add(STARTOR);
+		QueryCondition[] orconditions = orquerycondition.returnAllConditions();
+		for (int i = 0; i < orconditions.length; i++)
+			if (orconditions[i] != null)
+				orconditions[i].accept(this);
+		tokens.add(END);
+	}
+
+	@Override
+	public void visit(QueryConditionAlways always) {
+		tokens.add(ALWAYS);
+	}
+
+	@Override
+	public void visit(QueryConditionNever never) {
+		tokens.add(NEVER);
+	}
+
+	@Override
+	public int hashCode() {
+		return hashcode;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof SelectQueryShape))
+			return false;
+		SelectQueryShape othershape = (SelectQueryShape) other;
+		if (othershape.hashcode != this.hashcode)
+			return false;
+		return this.tokens.equals(othershape.tokens);
+	}
+
+	/**
+	 * what is kept in cache for a shape: SQL text and row mapping plan
+	 */
+	private static class CompiledQuery {
+		private String sql;
+		private RowMappingPlan rowmappingplan;
+
+		private CompiledQuery(String sql, RowMappingPlan rowmappingplan) {
+			this.sql = sql;
+			this.rowmappingplan = rowmappingplan;
+		}
+	}
+}
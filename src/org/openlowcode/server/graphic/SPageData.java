@@ -54,6 +54,21 @@ public class SPageData {
 		this.popup = true;
 	}
 
+	/**
+	 * adds a message to the existing user message, keeping the way the message is
+	 * shown (status bar or popup)
+	 * 
+	 * @param extramessage the message to add
+	 * @since 2.0
+	 */
+	public void appendMessage(String extramessage) {
+		if ((this.usermessage == null) || (this.usermessage.length() == 0)) {
+			this.usermessage = extramessage;
+			return;
+		}
+		this.usermessage = this.usermessage + " - " + extramessage;
+	}
+
 	/**
 	 * @param elt adds an element to the pagedata.
 	 */
@@ -0,0 +1,51 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.runtime;
+
+/**
+ * The common interface to components accepting client connections on the
+ * server port and dispatching the messages received to server connections.
+ * Two engines exist:
+ * <ul>
+ * <li>{@link ConnectionListener}: one thread per client connection, kept for
+ * the whole client session</li>
+ * <li>{@link PooledConnectionListener}: a selector watching all idle
+ * connections, and a fixed-size pool of workers processing the messages</li>
+ * </ul>
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 2.0
+ */
+public interface ConnectionEngine {
+	/**
+	 * engine with one thread per client connection
+	 */
+	public static final String MODE_THREAD = "THREAD";
+	/**
+	 * engine with a selector and a fixed pool of workers
+	 */
+	public static final String MODE_POOLED = "POOLED";
+
+	/**
+	 * sends a message to all connections not to accept further actions, and waits
+	 * for current actions to finish
+	 */
+	public void sendShutdownToAllConnections();
+
+	/**
+	 * reports that the connection treated by the thread with the given id is
+	 * finished
+	 * 
+	 * @param id id of the thread
+	 */
+	public void reportThreadFinished(long id);
+}
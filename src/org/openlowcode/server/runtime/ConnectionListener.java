@@ -26,7 +26,7 @@ import java.util.logging.Logger;
  *         SAS</a>
  *
  */
-public class ConnectionListener extends Thread {
+public class ConnectionListener extends Thread implements ConnectionEngine {
 	private int port;
 	private ServerSocket serversocket;
 	private OLcServer parent;
@@ -97,6 +97,7 @@ public class ConnectionListener extends Thread {
 	 * In current version mail daemon is NOT shutdown. This is an improvement to be
 	 * performed.
 	 */
+	@Override
 	public void sendShutdownToAllConnections() {
 		int threadstowaitfor = 0;
 		synchronized (deadlockobject) {
@@ -165,6 +166,7 @@ public class ConnectionListener extends Thread {
 	 * 
 	 * @param id id of the tream
 	 */
+	@Override
 	public void reportThreadFinished(long id) {
 		logger.severe("Thread is finished " + id);
 		synchronized (deadlockobject) {
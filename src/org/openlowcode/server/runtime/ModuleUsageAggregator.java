@@ -0,0 +1,205 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.server.runtime;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import org.openlowcode.module.system.data.Appuser;
+import org.openlowcode.module.system.data.Moduleusage;
+import org.openlowcode.module.system.data.ModuleusageDefinition;
+import org.openlowcode.server.data.properties.DataObjectId;
+import org.openlowcode.server.data.properties.StoredobjectQueryHelper;
+import org.openlowcode.server.data.storage.PersistenceGateway;
+import org.openlowcode.server.data.storage.QueryFilter;
+import org.openlowcode.server.data.storage.QueryOperatorEqual;
+import org.openlowcode.server.data.storage.SimpleQueryCondition;
+
+/**
+ * Accumulates in memory the number of actions per user, day and module, and
+ * writes them regularly to the module usage table in a single batch of
+ * inserts and a single batch of updates. This avoids a query and a write to
+ * the database at the end of each action. There should be one instance per
+ * server.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 2.0
+ */
+public class ModuleUsageAggregator
+		extends
+		Thread {
+	private static Logger logger = Logger.getLogger(ModuleUsageAggregator.class.getName());
+	/**
+	 * interval in ms between two writes of the counters to the database
+	 */
+	private static long FLUSHINTERVALINMS = 60000;
+	private ConcurrentHashMap<UsageKey, Integer> pendingusage;
+
+	/**
+	 * creates an aggregator with no pending usage. The thread is a daemon, so the
+	 * final write has to be triggered by calling {@link #flush()} before the
+	 * server stops
+	 */
+	public ModuleUsageAggregator() {
+		this.pendingusage = new ConcurrentHashMap<UsageKey, Integer>();
+		this.setDaemon(true);
+		this.setName("ModuleUsageAggregator");
+	}
+
+	/**
+	 * @return a date for today noon on server time, used to group module usage by
+	 *         day
+	 */
+	private static Date getNormalizedDay() {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(new Date());
+		calendar.set(Calendar.MILLISECOND, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.HOUR_OF_DAY, 12);
+		return calendar.getTime();
+	}
+
+	/**
+	 * records one action for the user on the module today. The counter is written
+	 * to the database at next flush
+	 *
+	 * @param userid id of the user performing the action
+	 * @param module label of the module of the action
+	 */
+	public void record(DataObjectId<Appuser> userid, String module) {
+		pendingusage.merge(new UsageKey(userid, getNormalizedDay(), module), 1, Integer::sum);
+	}
+
+	/**
+	 * writes all the pending counters to the database. Existing module usage rows
+	 * for the days concerned are read in one query per day, then all existing rows
+	 * are updated in one batch, and all new rows are inserted in one batch.
+	 * Counters recorded while the flush is running are kept for the next flush.
+	 * The writes are done in a single transaction: if they fail, the counters are
+	 * added back to the pending counters and written at next flush.
+	 */
+	public synchronized void flush() {
+		if (pendingusage.isEmpty())
+			return;
+		HashMap<Date, HashMap<UsageKey, Integer>> usagebyday = new HashMap<Date, HashMap<UsageKey, Integer>>();
+		HashMap<UsageKey, Integer> flushedusage = new HashMap<UsageKey, Integer>();
+		for (UsageKey key : pendingusage.keySet()) {
+			Integer count = pendingusage.remove(key);
+			if (count == null)
+				continue;
+			flushedusage.put(key, count);
+			HashMap<UsageKey, Integer> usageforday = usagebyday.get(key.day);
+			if (usageforday == null) {
+				usageforday = new HashMap<UsageKey, Integer>();
+				usagebyday.put(key.day, usageforday);
+			}
+			usageforday.put(key, count);
+		}
+		ArrayList<Moduleusage> updatedusage = new ArrayList<Moduleusage>();
+		ArrayList<Moduleusage> newusage = new ArrayList<Moduleusage>();
+		try {
+			PersistenceGateway.startTransaction();
+			for (Map.Entry<Date, HashMap<UsageKey, Integer>> dayentry : usagebyday.entrySet()) {
+				Date day = dayentry.getKey();
+				HashMap<UsageKey, Integer> usageforday = dayentry.getValue();
+				Moduleusage[] existingusage = Moduleusage.getallactive(QueryFilter.get(new SimpleQueryCondition<Date>(
+						Moduleusage.getDefinition().getAlias(StoredobjectQueryHelper.maintablealiasforgetallactive),
+						ModuleusageDefinition.getModuleusageDefinition().getDayFieldSchema(),
+						new QueryOperatorEqual<Date>(), day)));
+				if (existingusage != null)
+					for (int i = 0; i < existingusage.length; i++) {
+						Moduleusage thisusage = existingusage[i];
+						Integer count = usageforday.remove(new UsageKey(
+								thisusage.getLinkedtoparentforsessionuserid(), day, thisusage.getModule()));
+						if (count != null) {
+							int previouscount = 0;
+							if (thisusage.getActionnr() != null)
+								previouscount = thisusage.getActionnr().intValue();
+							thisusage.setActionnr(Integer.valueOf(previouscount + count.intValue()));
+							updatedusage.add(thisusage);
+						}
+					}
+				for (Map.Entry<UsageKey, Integer> usageentry : usageforday.entrySet()) {
+					UsageKey key = usageentry.getKey();
+					Moduleusage thisusage = new Moduleusage();
+					thisusage.setparentwithoutupdateforsessionuser(key.userid);
+					thisusage.setDay(day);
+					thisusage.setModule(key.module);
+					thisusage.setActionnr(usageentry.getValue());
+					newusage.add(thisusage);
+				}
+			}
+			if (updatedusage.size() > 0)
+				Moduleusage.update(updatedusage.toArray(new Moduleusage[0]));
+			if (newusage.size() > 0)
+				Moduleusage.insert(newusage.toArray(new Moduleusage[0]));
+			PersistenceGateway.commitTransaction();
+			logger.fine("Module usage flushed, updated rows = " + updatedusage.size() + ", new rows = "
+					+ newusage.size());
+		} catch (RuntimeException e) {
+			PersistenceGateway.rollbackTransaction();
+			for (Map.Entry<UsageKey, Integer> flushedentry : flushedusage.entrySet())
+				pendingusage.merge(flushedentry.getKey(), flushedentry.getValue(), Integer::sum);
+			logger.warning("-- Module usage write: error " + e.getMessage() + ", " + flushedusage.size()
+					+ " counters kept for next flush");
+			for (int i = 0; i < e.getStackTrace().length; i++)
+				logger.warning("   " + e.getStackTrace()[i]);
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				Thread.sleep(FLUSHINTERVALINMS);
+				flush();
+			}
+		} catch (InterruptedException e) {
+			logger.warning("Module usage aggregator interrupted: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * the key of a module usage counter: user, day and module
+	 */
+	private static class UsageKey {
+		private DataObjectId<Appuser> userid;
+		private Date day;
+		private String module;
+
+		private UsageKey(DataObjectId<Appuser> userid, Date day, String module) {
+			this.userid = userid;
+			this.day = day;
+			this.module = module;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(userid, day, module);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof UsageKey))
+				return false;
+			UsageKey otherkey = (UsageKey) other;
+			return Objects.equals(userid, otherkey.userid) && Objects.equals(day, otherkey.day)
+					&& Objects.equals(module, otherkey.module);
+		}
+	}
+}
@@ -36,15 +36,22 @@ import org.openlowcode.OLcVersion;
 import org.openlowcode.module.system.Systemmodule;
 import org.openlowcode.module.system.data.Appuser;
 import org.openlowcode.module.system.data.Authority;
+import org.openlowcode.server.action.ParallelFetch;
 import org.openlowcode.server.data.DataObject;
+import org.openlowcode.server.data.DataObjectDefinition;
 import org.openlowcode.server.data.formula.TriggerToExecute;
 import org.openlowcode.server.data.properties.AdminIdDefaultValueGenerator;
 import org.openlowcode.server.data.properties.DataObjectId;
+import org.openlowcode.server.data.properties.StoredobjectQueryHelper;
 import org.openlowcode.server.data.properties.UniqueidentifiedInterface;
 import org.openlowcode.server.data.storage.PersistenceGateway;
 import org.openlowcode.server.data.storage.PersistentStorage;
+import org.openlowcode.server.data.storage.jdbcpool.ConcurrentConnectionPool;
 import org.openlowcode.server.data.storage.jdbcpool.ConnectionPool;
+import org.openlowcode.server.data.storage.jdbcpool.PreparedStatementCache;
 import org.openlowcode.server.data.storage.jdbcpool.SimpleConnectionPool;
+import org.openlowcode.server.data.storage.mariajdbc.MariadDBJDBCStorage;
+import org.openlowcode.server.data.storage.standardjdbc.SQLStatistics;
 import org.openlowcode.server.runtime.email.MailDaemon;
 import org.openlowcode.server.security.OTPSecurity;
 import org.openlowcode.server.security.SecurityManager;
@@ -66,8 +73,21 @@ public class OLcServer {
 
 	public final static String DBTYPE_DERBY = "DERBY";
 	public final static String DBTYPE_MARIA10_2 = "MARIA10.2";
+	/**
+	 * connection pool handing connections directly to waiting threads (default)
+	 * 
+	 * @since 2.0
+	 */
+	public final static String POOLTYPE_CONCURRENT = "CONCURRENT";
+	/**
+	 * legacy connection pool with polling of waiting threads
+	 * 
+	 * @since 2.0
+	 */
+	public final static String POOLTYPE_SIMPLE = "SIMPLE";
 	private ConnectionPool connectionpool;
 	private SecurityManager securitymanager;
+	private ModuleUsageAggregator moduleusageaggregator;
 	private OLcServerLogFilter consolelogfilter;
 	private OLcServerLogFilter filelogfilter;
 
@@ -75,7 +95,7 @@ public class OLcServer {
 	private SModule mainmodule;
 	private static OLcServer serversingleton;
 	private InetAddress localhost;
-	private ConnectionListener connectionlisterner;
+	private ConnectionEngine connectionlisterner;
 	private String alternativeonewayencryptionkey=null;
 	
 	public String getAlternativeOneWayEncryptionKey() {
@@ -140,6 +160,16 @@ public class OLcServer {
 		return securitymanager;
 	}
 
+	/**
+	 * gets the aggregator of module usage counters of the server
+	 * 
+	 * @return the module usage aggregator
+	 * @since 2.0
+	 */
+	public ModuleUsageAggregator getModuleUsageAggregator() {
+		return moduleusageaggregator;
+	}
+
 	/**
 	 * gets the main module on the server
 	 * 
@@ -212,15 +242,96 @@ public class OLcServer {
 			String jdbcuser = null;
 			String jdbcpassword = null;
 			int minconnection = 1;
-			int maxconnection = 1;
+			int maxconnection = serverconfig.getOptionalIntegerValue("JDBC.MAXCONNECTIONS", 1);
 			if (hasadvanceddatabase) {
 				jdbcuser = serverconfig.getCompulsoryValue("JDBC.USER");
 				jdbcpassword = serverconfig.getCompulsoryValue("JDBC.PASSWORD");
 				maxconnection = serverconfig.getCompulsoryIntegerValue("JDBC.MAXCONNECTIONS");
+				minconnection = serverconfig.getOptionalIntegerValue("JDBC.MINCONNECTIONS", minconnection);
+			}
+			// sequence values are got outside of the transaction of an action on a
+			// separate pool, so that an action never waits for a second connection
+			int sequenceconnection = serverconfig.getOptionalIntegerValue("JDBC.SEQUENCECONNECTIONS", 1);
+			String pooltype = serverconfig.getOptionalValue("JDBC.POOLTYPE");
+			if (pooltype == null)
+				pooltype = POOLTYPE_CONCURRENT;
+			boolean validpooltype = false;
+			ConnectionPool sequencepool = null;
+			if (pooltype.equals(POOLTYPE_CONCURRENT)) {
+				connectionpool = new ConcurrentConnectionPool(jdbcurl, jdbcuser, jdbcpassword, minconnection,
+						maxconnection);
+				sequencepool = new ConcurrentConnectionPool(jdbcurl, jdbcuser, jdbcpassword, 1, sequenceconnection);
+				validpooltype = true;
+			}
+			if (pooltype.equals(POOLTYPE_SIMPLE)) {
+				connectionpool = new SimpleConnectionPool(jdbcurl, jdbcuser, jdbcpassword, minconnection,
+						maxconnection);
+				sequencepool = new SimpleConnectionPool(jdbcurl, jdbcuser, jdbcpassword, 1, sequenceconnection);
+				validpooltype = true;
+			}
+			if (!validpooltype)
+				throw new RuntimeException("Invalid JDBC.POOLTYPE " + pooltype);
+			PreparedStatementCache.setMaxStatements(serverconfig.getOptionalIntegerValue("JDBC.STATEMENTCACHESIZE",
+					PreparedStatementCache.DEFAULT_MAX_STATEMENTS));
+			MariadDBJDBCStorage.setInsertChunkSize(serverconfig.getOptionalIntegerValue("JDBC.INSERTCHUNKSIZE",
+					MariadDBJDBCStorage.DEFAULT_INSERT_CHUNK_SIZE));
+			// an action in a transaction only holds one connection of the main pool
+			// (sequences and parallel fetches never wait for a second one), so even a
+			// pool of one connection only makes actions wait for each other
+			boolean actiontransaction = serverconfig.getOptionalBooleanValue("JDBC.ACTIONTRANSACTION", true);
+			if (!actiontransaction)
+				mainlogger.warning("Transactions per action disabled by JDBC.ACTIONTRANSACTION, each statement "
+						+ "is committed immediately and a failed action may keep partial writes");
+			ServerConnection.setTransactionPerAction(actiontransaction);
+			// each fetch thread uses its own connection, so at most half of the pool is used
+			// for fetches. Parallel fetch is disabled by default on the embedded database
+			int maxfetchconnection = Math.max(1, maxconnection / 2);
+			int parallelfetch = serverconfig.getOptionalIntegerValue("ACTION.PARALLELFETCH",
+					(hasadvanceddatabase ? ParallelFetch.DEFAULT_MAX_PARALLELISM : 1));
+			if (parallelfetch > maxfetchconnection) {
+				mainlogger.warning("ACTION.PARALLELFETCH = " + parallelfetch + " reduced to " + maxfetchconnection
+						+ ", half of the connection pool");
+				parallelfetch = maxfetchconnection;
 			}
-			connectionpool = new SimpleConnectionPool(jdbcurl, jdbcuser, jdbcpassword, minconnection, maxconnection);
+			int parallelfetchthread = serverconfig.getOptionalIntegerValue("ACTION.PARALLELFETCHTHREADS",
+					Math.min(ParallelFetch.DEFAULT_THREAD_NUMBER, maxfetchconnection));
+			if (parallelfetchthread > maxfetchconnection) {
+				mainlogger.warning("ACTION.PARALLELFETCHTHREADS = " + parallelfetchthread + " reduced to "
+						+ maxfetchconnection + ", half of the connection pool");
+				parallelfetchthread = maxfetchconnection;
+			}
+			ParallelFetch.setParallelism(parallelfetch, parallelfetchthread);
+			SQLStatistics.setSlowQueryThreshold(serverconfig.getOptionalIntegerValue("JDBC.SLOWQUERYMS",
+					SQLStatistics.DEFAULT_SLOW_QUERY_MS));
+			StoredobjectQueryHelper.setSearchMaxResults(serverconfig.getOptionalIntegerValue("SEARCH.MAXRESULTS",
+					StoredobjectQueryHelper.DEFAULT_SEARCH_MAX_RESULTS));
 			// connection pool and persistence gateway seem to be inconsistent / redundant
 			PersistenceGateway.setconnectionpool(dbtype, connectionpool);
+			PersistenceGateway.setSequencePool(sequencepool);
+			// optional read replica, of the same database type, for read-only actions
+			String replicaurl = serverconfig.getOptionalValue("JDBC.READREPLICA.URL");
+			if (replicaurl != null) {
+				if (dbtype.equals(DBTYPE_DERBY))
+					if (replicaurl.indexOf("jdbc:derby:") == -1)
+						replicaurl = "jdbc:derby:" + replicaurl;
+				String replicauser = serverconfig.getOptionalValue("JDBC.READREPLICA.USER");
+				if (replicauser == null)
+					replicauser = jdbcuser;
+				String replicapassword = serverconfig.getOptionalValue("JDBC.READREPLICA.PASSWORD");
+				if (replicapassword == null)
+					replicapassword = jdbcpassword;
+				int replicamaxconnection = serverconfig.getOptionalIntegerValue("JDBC.READREPLICA.MAXCONNECTIONS",
+						maxconnection);
+				ConnectionPool replicapool = null;
+				if (pooltype.equals(POOLTYPE_CONCURRENT))
+					replicapool = new ConcurrentConnectionPool(replicaurl, replicauser, replicapassword, minconnection,
+							replicamaxconnection);
+				if (pooltype.equals(POOLTYPE_SIMPLE))
+					replicapool = new SimpleConnectionPool(replicaurl, replicauser, replicapassword, minconnection,
+							replicamaxconnection);
+				PersistenceGateway.setReadReplicaPool(replicapool);
+				mainlogger.info("Read-only actions will be routed to read replica " + replicaurl);
+			}
 			PersistentStorage storage = PersistenceGateway.getStorage();
 			storage.technicalInit();
 			PersistenceGateway.checkinStorage(storage);
@@ -272,6 +383,12 @@ public class OLcServer {
 			// ------------------------------- UPDATE DATA MODEL ------------------------
 			processModules(systemmoduleendindex, serverstartuptimer);
 
+			// ------------------------------- OBJECT CACHES ------------------------
+			String objectcachelist = serverconfig.getOptionalValue("OBJECTCACHE");
+			if (objectcachelist != null)
+				if (objectcachelist.length() > 0)
+					enableObjectCaches(objectcachelist.split(";"));
+
 			// ------------------------------- INITIATE SECURITY ------------------------
 			String ldapconnectionstring = serverconfig.getOptionalValue("LDAP.CONNECTION");
 			String ldapuser = null;
@@ -283,6 +400,8 @@ public class OLcServer {
 
 			securitymanager = new SecurityManager(ldapconnectionstring, ldapuser, ldappassword);
 			securitymanager.start();
+			moduleusageaggregator = new ModuleUsageAggregator();
+			moduleusageaggregator.start();
 
 			String otptype = serverconfig.getOptionalValue("OTP.TYPE");
 			if (otptype != null) {
@@ -307,8 +426,28 @@ public class OLcServer {
 			// ConnectionGateway.initSingle(connectionpool.getConnection());
 
 			boolean messageaudit = serverconfig.getOptionalBooleanValue("MESSAGE.AUDIT", false);
-
-			connectionlisterner = new ConnectionListener(port, this, messageaudit);
+			String connectionmode = serverconfig.getOptionalValue("CONNECTION.MODE");
+			if (connectionmode == null)
+				connectionmode = ConnectionEngine.MODE_THREAD;
+			boolean validconnectionmode = false;
+			if (connectionmode.equals(ConnectionEngine.MODE_THREAD)) {
+				connectionlisterner = new ConnectionListener(port, this, messageaudit);
+				validconnectionmode = true;
+			}
+			if (connectionmode.equals(ConnectionEngine.MODE_POOLED)) {
+				int workers = serverconfig.getOptionalIntegerValue("CONNECTION.WORKERS",
+						PooledConnectionListener.DEFAULT_WORKERS);
+				if (actiontransaction)
+					if (workers > maxconnection)
+						mainlogger.warning("Connection pool (" + maxconnection + ") smaller than workers (" + workers
+								+ "), actions in transactions may wait for a connection");
+				int readtimeout = serverconfig.getOptionalIntegerValue("CONNECTION.READTIMEOUT",
+						PooledConnectionListener.DEFAULT_READ_TIMEOUT);
+				connectionlisterner = new PooledConnectionListener(port, this, messageaudit, workers, readtimeout);
+				validconnectionmode = true;
+			}
+			if (!validconnectionmode)
+				throw new RuntimeException("Invalid CONNECTION.MODE " + connectionmode);
 			mainlogger.severe(serverstartuptimer.logTimer(" STARTUP STEP 7: all port listeners initiated"));
 			String smtpurl = serverconfig.getOptionalValue("SMTP.URL");
 			if (smtpurl != null) {
@@ -422,6 +561,35 @@ public class OLcServer {
 		return moduledirectory.getSize();
 	}
 
+	/**
+	 * sets-up caches for objects read by id
+	 * 
+	 * @param objectcaches a list of elements of the form OBJECTNAME:MAXSIZE (e.g.
+	 *                     APPUSER:2000)
+	 * @since 2.0
+	 */
+	@SuppressWarnings("rawtypes")
+	private void enableObjectCaches(String[] objectcaches) {
+		for (int i = 0; i < objectcaches.length; i++) {
+			String[] objectcache = objectcaches[i].split(":");
+			if (objectcache.length != 2)
+				throw new RuntimeException("Invalid object cache definition " + objectcaches[i]
+						+ ", expected OBJECTNAME:MAXSIZE");
+			String objectname = objectcache[0].trim().toUpperCase();
+			int maxsize = Integer.decode(objectcache[1].trim()).intValue();
+			boolean found = false;
+			for (int j = 0; j < moduledirectory.getSize(); j++) {
+				DataObjectDefinition definition = moduledirectory.get(j).getObjectDefinition(objectname);
+				if (definition != null) {
+					definition.enableObjectCache(maxsize);
+					found = true;
+				}
+			}
+			if (!found)
+				throw new RuntimeException("Object " + objectname + " for object cache not found in any module");
+		}
+	}
+
 	/**
 	 * gets the connection pool to the database
 	 * 
@@ -550,7 +718,7 @@ public class OLcServer {
 
 		rootlogger.addHandler(consolehandler);
 		rootlogger.setUseParentHandlers(false);
-		Logger connectionlogger = Logger.getLogger(SimpleConnectionPool.class.getCanonicalName());
+		Logger connectionlogger = Logger.getLogger(ConnectionPool.class.getPackage().getName());
 
 		FileHandler connectionhandler = new FileHandler(logcleanpath + "ConnectionPool-" + port + "-%g.log", 10000000,
 				1000, true);
@@ -952,6 +1120,19 @@ public class OLcServer {
 
 	}
 
+	/**
+	 * writes to the database the activity kept in memory (module usage counters and
+	 * session activity). This should be called just before the server stops
+	 * 
+	 * @since 2.0
+	 */
+	public void flushActivityBeforeShutdown() {
+		if (moduleusageaggregator != null)
+			moduleusageaggregator.flush();
+		if (securitymanager != null)
+			securitymanager.writeAllSessionActivity();
+	}
+
 	/**
 	 * reports that the thread with the following id is finished
 	 * 
@@ -962,6 +1143,73 @@ public class OLcServer {
 
 	}
 
+	/**
+	 * A snapshot of the data bound to the thread serving a client connection (ip,
+	 * client id, encryption, OTP status and user). It allows a connection to be
+	 * served successively by different threads of a pool.
+	 * 
+	 * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+	 *         SAS</a>
+	 * @since 2.0
+	 */
+	public static class ConnectionContext {
+		private String ip;
+		private String cid;
+		private AESCommunicator aescommunicator;
+		private Boolean otpauthorization;
+		private DataObjectId<Appuser> userid;
+		private Long sequence;
+	}
+
+	/**
+	 * captures the connection data bound to the calling thread
+	 * 
+	 * @return a snapshot of the connection data for the calling thread
+	 * @since 2.0
+	 */
+	public ConnectionContext captureConnectionContext() {
+		ConnectionContext context = new ConnectionContext();
+		context.ip = connectionip.get();
+		context.cid = connectioncid.get();
+		context.aescommunicator = aescommunicator.get();
+		context.otpauthorization = otpauthorization.get();
+		context.userid = connectionuserid.get();
+		context.sequence = sequenceperthread.get();
+		return context;
+	}
+
+	/**
+	 * binds to the calling thread the connection data previously captured
+	 * 
+	 * @param context a snapshot of connection data
+	 * @since 2.0
+	 */
+	public void restoreConnectionContext(ConnectionContext context) {
+		connectionip.set(context.ip);
+		connectioncid.set(context.cid);
+		aescommunicator.set(context.aescommunicator);
+		otpauthorization.set(context.otpauthorization);
+		connectionuserid.set(context.userid);
+		sequenceperthread.set(context.sequence);
+	}
+
+	/**
+	 * removes all connection data bound to the calling thread
+	 * 
+	 * @since 2.0
+	 */
+	public void clearConnectionContext() {
+		connectionip.remove();
+		connectioncid.remove();
+		aescommunicator.remove();
+		otpauthorization.remove();
+		connectionuserid.remove();
+		sequenceperthread.remove();
+		currentriggerexecution.remove();
+		triggerstoexecute.remove();
+		triggersobjectbuffer.remove();
+	}
+
 	/**
 	 * removes the all the log exceptions
 	 * 
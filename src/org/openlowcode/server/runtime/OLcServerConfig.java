@@ -115,7 +115,7 @@ public class OLcServerConfig {
 	 *         not exist
 	 */
 	public int getOptionalIntegerValue(String key, int defaultvalue) {
-		String valueunparsed = getCompulsoryValue(key);
+		String valueunparsed = getOptionalValue(key);
 		if (valueunparsed == null)
 			return defaultvalue;
 		Integer parsedvalue = Integer.decode(valueunparsed);
@@ -140,7 +140,7 @@ public class OLcServerConfig {
 	 *         does not exist
 	 */
 	public boolean getOptionalBooleanValue(String key, boolean defaultvalue) {
-		String valueunparsed = getCompulsoryValue(key);
+		String valueunparsed = getOptionalValue(key);
 		if (valueunparsed == null)
 			return defaultvalue;
 		return Boolean.parseBoolean(valueunparsed);
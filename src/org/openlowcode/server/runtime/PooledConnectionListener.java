@@ -0,0 +1,360 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.runtime;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * A listener to outside connections where the number of threads follows the
+ * concurrent work, not the number of connected clients. A single selector
+ * thread accepts connections, sends them the first message of the security
+ * handshake, and watches all idle connections. When a client starts sending a
+ * message, its connection is handed over to a fixed-size pool of workers that
+ * reads the full message, executes the request and sends the answer. The
+ * connection is then given back to the selector.<br>
+ * Socket channels are put in blocking mode while a worker serves them, so that
+ * the existing message reader and writer can be used unchanged. A read timeout
+ * is set on the socket so that a client stopping in the middle of a message
+ * does not hold a worker forever.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 2.0
+ */
+public class PooledConnectionListener
+		extends
+		Thread
+		implements
+		ConnectionEngine {
+	private static Logger logger = Logger.getLogger(PooledConnectionListener.class.getName());
+	/**
+	 * default number of workers if not specified in the server configuration
+	 */
+	public static final int DEFAULT_WORKERS = 32;
+	/**
+	 * default maximum time in seconds a worker waits for data from a client that
+	 * has started sending a message
+	 */
+	public static final int DEFAULT_READ_TIMEOUT = 60;
+	private static final int SHUTDOWN_TIMEOUT = 1000 * 200;
+	private int port;
+	private OLcServer parent;
+	private boolean messageaudit;
+	private ServerSocketChannel serverchannel;
+	private Selector selector;
+	private ExecutorService workers;
+	private ConcurrentLinkedQueue<ServerConnection> connectionstoregister;
+	private Set<ServerConnection> openconnections;
+	private Set<ServerConnection> handshakepending;
+	private int readtimeout;
+	private AtomicInteger requestsinprogress;
+	private volatile boolean active = true;
+
+	/**
+	 * Creates a pooled connection engine listening to the given port
+	 *
+	 * @param port         port
+	 * @param parent       parent server
+	 * @param messageaudit true if messages are audited
+	 * @param workernumber number of workers processing messages in parallel
+	 * @param readtimeout  maximum time in seconds a worker waits for data from a
+	 *                     client in the middle of a message
+	 * @throws IOException if any problem is encountered setting up the server
+	 *                     socket. Typically, this may be because a server is
+	 *                     already running on the same port
+	 */
+	public PooledConnectionListener(
+			int port,
+			OLcServer parent,
+			boolean messageaudit,
+			int workernumber,
+			int readtimeout) throws IOException {
+		super("OLcConnectionSelector");
+		if (workernumber < 1)
+			throw new RuntimeException("Number of workers should be at least 1, got " + workernumber);
+		if (readtimeout < 1)
+			throw new RuntimeException("Read timeout should be at least 1 second, got " + readtimeout);
+		this.port = port;
+		this.parent = parent;
+		this.messageaudit = messageaudit;
+		this.readtimeout = readtimeout * 1000;
+		logger.info("initiating pooled listener to listen on port " + port + " with " + workernumber
+				+ " workers, read timeout = " + readtimeout + "s");
+		this.connectionstoregister = new ConcurrentLinkedQueue<ServerConnection>();
+		this.openconnections = ConcurrentHashMap.newKeySet();
+		this.handshakepending = ConcurrentHashMap.newKeySet();
+		this.requestsinprogress = new AtomicInteger(0);
+		AtomicInteger workercounter = new AtomicInteger(0);
+		this.workers = Executors.newFixedThreadPool(workernumber, new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread worker = new Thread(task, "OLcConnectionWorker-" + workercounter.incrementAndGet());
+				worker.setDaemon(true);
+				return worker;
+			}
+
+		});
+		this.selector = Selector.open();
+		this.serverchannel = ServerSocketChannel.open();
+		this.serverchannel.bind(new InetSocketAddress(this.port));
+		this.serverchannel.configureBlocking(false);
+		this.serverchannel.register(selector, SelectionKey.OP_ACCEPT);
+		this.start();
+		logger.info("port " + this.port + " listening initialized. Starts listening in the background");
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (active) {
+				// keys selected by the previous flush of cancelled keys are treated first
+				if (selector.selectedKeys().size() == 0)
+					selector.select();
+				if (!active)
+					break;
+				registerPendingConnections();
+				ArrayList<ServerConnection> connectionstodispatch = new ArrayList<ServerConnection>();
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid())
+						continue;
+					if (key.isAcceptable()) {
+						SocketChannel channel = serverchannel.accept();
+						if (channel != null)
+							acceptConnection(channel);
+						continue;
+					}
+					if (key.isReadable()) {
+						// the channel is removed from the selector while a worker serves it
+						key.cancel();
+						connectionstodispatch.add((ServerConnection) key.attachment());
+					}
+				}
+				if (connectionstodispatch.size() > 0) {
+					// flushes cancelled keys so that channels can be set back to blocking mode
+					selector.selectNow();
+					for (int i = 0; i < connectionstodispatch.size(); i++) {
+						ServerConnection connection = connectionstodispatch.get(i);
+						dispatch(connection, handshakepending.remove(connection));
+					}
+				}
+			}
+		} catch (ClosedSelectorException e) {
+			logger.info("Selector closed, stop listening on port " + port);
+		} catch (Exception e) {
+			logger.severe("received exception in connection selector thread " + e.getMessage());
+			for (int i = 0; i < e.getStackTrace().length; i++)
+				logger.severe(e.getStackTrace()[i].toString());
+		}
+	}
+
+	/**
+	 * sends to a new connection the first message of the security handshake,
+	 * and registers the connection in the selector. No worker is used until the
+	 * client answers. The message is small enough to always fit in the send
+	 * buffer of a new socket, so it is written without blocking
+	 *
+	 * @param channel the channel just accepted
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private void acceptConnection(SocketChannel channel) throws IOException {
+		channel.configureBlocking(false);
+		try {
+			ByteBuffer keymessage = ByteBuffer.wrap(ServerConnection.getSecurityKeyMessage());
+			channel.write(keymessage);
+			if (keymessage.hasRemaining())
+				throw new IOException("could not send security key without blocking, " + keymessage.remaining()
+						+ " bytes remaining");
+		} catch (IOException e) {
+			logger.warning("closing new connection from address " + channel.socket().getInetAddress()
+					+ " as security key could not be sent: " + e.getMessage());
+			channel.close();
+			return;
+		}
+		ServerConnection connection = new ServerConnection(channel.socket(), parent, messageaudit);
+		openconnections.add(connection);
+		handshakepending.add(connection);
+		channel.register(selector, SelectionKey.OP_READ, connection);
+		logger.info("starting clientconnection from address " + channel.socket().getInetAddress() + ", "
+				+ openconnections.size() + " connections open");
+	}
+
+	/**
+	 * registers in the selector the connections given back by workers
+	 *
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private void registerPendingConnections() throws IOException {
+		ServerConnection connection = connectionstoregister.poll();
+		while (connection != null) {
+			SocketChannel channel = connection.getSocket().getChannel();
+			if (connection.isOpen()) {
+				channel.register(selector, SelectionKey.OP_READ, connection);
+			} else {
+				openconnections.remove(connection);
+			}
+			connection = connectionstoregister.poll();
+		}
+	}
+
+	/**
+	 * hands over the connection to a worker
+	 *
+	 * @param connection the connection to serve
+	 * @param newconnection true if the client is answering the security key sent
+	 *                      when the connection was accepted
+	 */
+	private void dispatch(ServerConnection connection, boolean newconnection) {
+		requestsinprogress.incrementAndGet();
+		workers.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				serve(connection, newconnection);
+			}
+
+		});
+	}
+
+	/**
+	 * serves the connection on the current worker thread until no message is
+	 * pending, then gives it back to the selector
+	 *
+	 * @param connection    the connection to serve
+	 * @param newconnection true if the client is answering the security key
+	 */
+	private void serve(ServerConnection connection, boolean newconnection) {
+		try {
+			SocketChannel channel = connection.getSocket().getChannel();
+			channel.configureBlocking(true);
+			channel.socket().setSoTimeout(readtimeout);
+			connection.attachToCurrentThread();
+			try {
+				if (newconnection) {
+					connection.openConnectionAfterSecurityKey();
+				} else {
+					connection.processNextMessage();
+				}
+				while ((active) && (connection.isOpen()) && (connection.hasBufferedMessage()))
+					connection.processNextMessage();
+			} finally {
+				connection.detachFromCurrentThread();
+			}
+			if ((active) && (connection.isOpen())) {
+				channel.configureBlocking(false);
+				connectionstoregister.add(connection);
+				selector.wakeup();
+			} else {
+				connection.closeConnection();
+				openconnections.remove(connection);
+			}
+		} catch (SocketTimeoutException e) {
+			logger.warning("Client did not send data for " + (readtimeout / 1000) + "s, closing connection");
+			connection.closeConnection();
+			openconnections.remove(connection);
+		} catch (Throwable t) {
+			logger.severe("Exception while serving connection, closing it " + t.getClass().getName() + " - "
+					+ t.getMessage());
+			for (int i = 0; i < t.getStackTrace().length; i++)
+				logger.severe(" at " + t.getStackTrace()[i].toString());
+			connection.closeConnection();
+			openconnections.remove(connection);
+		} finally {
+			requestsinprogress.decrementAndGet();
+		}
+	}
+
+	/**
+	 * stops accepting new messages from clients. Then waits up to 200 seconds for
+	 * the requests in progress to finish. The request carrying the shutdown order
+	 * is not waited for.
+	 */
+	@Override
+	public void sendShutdownToAllConnections() {
+		active = false;
+		selector.wakeup();
+		long waitingtimestart = System.currentTimeMillis();
+		int loop = 0;
+		logger.severe("Stopped accepting messages on " + openconnections.size() + " connections, "
+				+ (requestsinprogress.get() - 1) + " requests in progress.");
+		waitingloop: while (System.currentTimeMillis() - waitingtimestart < SHUTDOWN_TIMEOUT) {
+			if (requestsinprogress.get() <= 1) {
+				logger.severe("All requests finished, proceeding");
+				break waitingloop;
+			}
+			loop++;
+			// log every 2 seconds progress with requests
+			if (loop % 40 == 0)
+				logger.severe("- Still remaining " + (requestsinprogress.get() - 1) + " requests");
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				logger.severe("Got an interruption exception.");
+				break waitingloop;
+			}
+		}
+		logger.severe("--------------------------------------------------------------------------------------------");
+		logger.severe("finished waiting, will shutdown,  (" + (requestsinprogress.get() - 1)
+				+ ") requests still running (not normal if different from zero).");
+		logger.severe("---------------------------------------------------------------------------------------------");
+		workers.shutdown();
+		try {
+			selector.close();
+			serverchannel.close();
+		} catch (IOException e) {
+			logger.warning("Error while closing selector " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Connections are not run as their own threads in this engine, so there is
+	 * nothing to do here.
+	 */
+	@Override
+	public void reportThreadFinished(long id) {
+
+	}
+
+	/**
+	 * @return the number of client connections currently open
+	 */
+	public int getOpenConnectionNumber() {
+		return openconnections.size();
+	}
+
+	/**
+	 * @return the number of requests currently being processed by workers
+	 */
+	public int getRequestsInProgress() {
+		return requestsinprogress.get();
+	}
+}
@@ -10,20 +10,21 @@
 
 package org.openlowcode.server.runtime;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.net.Socket;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
@@ -32,8 +33,12 @@ import javax.crypto.spec.SecretKeySpec;
 
 import org.openlowcode.tools.enc.AESCommunicator;
 import org.openlowcode.tools.messages.MessageBufferedWriter;
+import org.openlowcode.tools.messages.MessageChunkedInputStream;
+import org.openlowcode.tools.messages.MessageChunkedOutputStream;
 import org.openlowcode.tools.messages.MessageElement;
+import org.openlowcode.tools.messages.MessageReader;
 import org.openlowcode.tools.messages.MessageSimpleReader;
+import org.openlowcode.tools.messages.MessageStartDetector;
 import org.openlowcode.tools.messages.MessageStartStructure;
 import org.openlowcode.tools.messages.MessageStringField;
 import org.openlowcode.tools.messages.MessageWriter;
@@ -45,21 +50,18 @@ import org.openlowcode.tools.structure.TextDataElt;
 import org.openlowcode.tools.trace.ExceptionLogger;
 import org.openlowcode.OLcVersion;
 import org.openlowcode.module.system.data.Appuser;
-import org.openlowcode.module.system.data.Moduleusage;
-import org.openlowcode.module.system.data.ModuleusageDefinition;
 import org.openlowcode.module.system.page.SimpleloginPage;
 import org.openlowcode.server.action.ActionExecution;
+import org.openlowcode.server.action.ParallelFetch;
 import org.openlowcode.server.action.SActionData;
 import org.openlowcode.server.data.DataObject;
+import org.openlowcode.server.data.QueryCursor;
 import org.openlowcode.server.data.properties.DataObjectId;
-import org.openlowcode.server.data.properties.LinkedtoparentQueryHelper;
-import org.openlowcode.server.data.storage.AndQueryCondition;
+import org.openlowcode.server.data.properties.StoredobjectQueryHelper;
 import org.openlowcode.server.data.storage.OrQueryCondition;
 import org.openlowcode.server.data.storage.PersistenceGateway;
 import org.openlowcode.server.data.storage.QueryCondition;
 import org.openlowcode.server.data.storage.QueryFilter;
-import org.openlowcode.server.data.storage.QueryOperatorEqual;
-import org.openlowcode.server.data.storage.SimpleQueryCondition;
 import org.openlowcode.server.data.storage.TableAlias;
 import org.openlowcode.server.graphic.SPage;
 import org.openlowcode.server.graphic.SPageData;
@@ -69,7 +71,9 @@ import org.openlowcode.server.security.ActionSecurityManager;
 import org.openlowcode.server.security.SecurityBuffer;
 
 /**
- * The component in the sever managing connections with the clients
+ * The component in the sever managing connections with the clients. A
+ * connection can either run as its own thread (see {@link ConnectionListener}),
+ * or be served by a pool of workers (see {@link PooledConnectionListener}).
  * 
  * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
  *         SAS</a>
@@ -85,13 +89,64 @@ public class ServerConnection
 	private long starttime;
 	private boolean messageaudit;
 	// true until there is a message received from server that Thread should stop
-	private boolean alive = true;
-	private int messagefound = 0;
-	private Exception exceptionduringmessagestart = null;
-	private static final int MESSAGESTART_WAITING = 0;
-	private static final int MESSAGESTART_FOUND = 1;
-	private static final int MESSAGESTART_ERROR = 2;
+	private volatile boolean alive = true;
+	// maximum time the thread blocks waiting for a message before checking alive
+	private static final int MESSAGESTART_POLL = 250;
 	private final static String CLIENT_JAR = "OLcClient.jar";
+	private MessageSimpleReader reader;
+	private MessageStartDetector messagestartdetector;
+	private MessageBufferedWriter writer;
+	private OLcServer.ConnectionContext connectioncontext;
+	private static boolean transactionperaction = true;
+
+	/**
+	 * sets if each action is executed in a single database transaction,
+	 * committed at the end of the action, and rolled back if an error occurs. If
+	 * false, each statement is committed immediately
+	 * 
+	 * @param transactionperaction true to execute each action in a transaction
+	 * @since 2.0
+	 */
+	public static void setTransactionPerAction(boolean transactionperaction) {
+		ServerConnection.transactionperaction = transactionperaction;
+	}
+
+	/**
+	 * starts the transaction for an action if transactions per action are
+	 * enabled. No transaction is started for an action only reading data, so
+	 * that it does not hold a connection. If a read replica is declared, such an
+	 * action reads on the read replica, and a transaction is only started if the
+	 * action writes.
+	 * 
+	 * @param readonly true for an action declared as only reading data
+	 * @since 2.0
+	 */
+	private static void startActionTransaction(boolean readonly) {
+		if (readonly) {
+			if (PersistenceGateway.hasReadReplica())
+				PersistenceGateway.startReadRouting(transactionperaction);
+			return;
+		}
+		if (transactionperaction)
+			PersistenceGateway.startTransaction();
+	}
+
+	/**
+	 * commits the transaction for an action if transactions per action are
+	 * enabled. This should be called once all changes are done, before the
+	 * answer is sent to the client
+	 * 
+	 * @since 2.0
+	 */
+	private static void commitActionTransaction() {
+		if (PersistenceGateway.hasReadRouting()) {
+			PersistenceGateway.endReadRouting();
+			return;
+		}
+		if (PersistenceGateway.hasTransaction())
+			PersistenceGateway.commitTransaction();
+	}
+
 	/**
 	 * Creates a server connection
 	 * 
@@ -314,7 +369,9 @@ public class ServerConnection
 
 	/**
 	 * this method will send the RSA public key to the client, and the client will
-	 * then send the AES key to be used for further exchange
+	 * then send the AES key to be used for further exchange. The binary wire format
+	 * is offered to the client with the public key, and confirmed to the client if
+	 * proposed back with the AES key
 	 * 
 	 * @param reader message reader to the client
 	 * @param writer message writer to the client
@@ -322,22 +379,78 @@ public class ServerConnection
 	 * @since 1.10
 	 */
 	public void performSecurityHandshake(MessageSimpleReader reader, MessageBufferedWriter writer) throws Exception {
+		writeSecurityKey(writer);
+		receiveAESKey(reader, writer);
+	}
+
+	/**
+	 * writes the message sending the RSA public key to the client, first step of
+	 * the security handshake. The binary wire format is offered with the key
+	 * 
+	 * @param writer message writer to the client
+	 * @throws IOException if any communication issue is encountered
+	 * @since 2.0
+	 */
+	private static void writeSecurityKey(MessageBufferedWriter writer) throws IOException {
 		writer.startNewMessage();
 		writer.startStructure("RSAKEY");
 		byte[] rsapublickey = OLcServer.getServer().getSecuritymanager().getMainRSAPublicKey();
-		writer.addLongBinaryField("PUBLICKEY", new SFile("PUBLICKEY", rsapublickey));
+		writer.addLongBinaryField("PUBLICKEY", new SFile(
+				AESCommunicator.getFileNameWithWireFormat("PUBLICKEY", AESCommunicator.WIRE_FORMAT_BINARY),
+				rsapublickey));
 		writer.endStructure("RSAKEY");
 		writer.endMessage();
+	}
+
+	/**
+	 * gets the message sending the RSA public key to the client, encoded as sent
+	 * on the socket. This allows a connection engine to start the security
+	 * handshake without blocking, the handshake being finished by
+	 * {@link #openConnectionAfterSecurityKey()} once the client answered
+	 * 
+	 * @return the message as bytes
+	 * @throws IOException if any issue is encountered writing the message
+	 * @since 2.0
+	 */
+	public static byte[] getSecurityKeyMessage() throws IOException {
+		StringWriter keybuffer = new StringWriter();
+		MessageBufferedWriter keywriter = new MessageBufferedWriter(new BufferedWriter(keybuffer), false);
+		writeSecurityKey(keywriter);
+		return keybuffer.toString().getBytes(Charset.forName("UTF-8"));
+	}
 
+	/**
+	 * reads the AES key sent by the client after it received the RSA public key,
+	 * and confirms the wire format if proposed by the client. This is the second
+	 * step of the security handshake
+	 * 
+	 * @param reader message reader to the client
+	 * @param writer message writer to the client
+	 * @throws Exception if any error is encountered during the handshake
+	 * @since 2.0
+	 */
+	private void receiveAESKey(MessageSimpleReader reader, MessageBufferedWriter writer) throws Exception {
 		reader.returnNextMessageStart();
 		reader.returnNextStartStructure("SESAESKEY");
-		byte[] encryptedaeskey = reader.returnNextLargeBinary("AESKEY").getContent();
+		SFile encryptedaeskeyfile = reader.returnNextLargeBinary("AESKEY");
+		byte[] encryptedaeskey = encryptedaeskeyfile.getContent();
 		byte[] decryptedaeskey = OLcServer.getServer().getSecuritymanager().decodeWithRSAPrivateKey(encryptedaeskey);
 		SecretKey aeskey = new SecretKeySpec(decryptedaeskey, 0, decryptedaeskey.length, "AES");
-		OLcServer.getServer().setAESCommunicator(new AESCommunicator(aeskey,writer.getMessageAudit()));
+		AESCommunicator aescommunicator = new AESCommunicator(aeskey, writer.getMessageAudit());
 		reader.returnNextEndStructure("SESAESKEY");
 		reader.returnNextEndMessage();
-		logger.info("    ---- successfull security handshacke with client --- ");
+		// clients of previous versions do not propose a wire format, and do not
+		// expect a confirmation
+		String proposedwireformat = AESCommunicator.getWireFormatFromFileName(encryptedaeskeyfile.getFileName());
+		if (proposedwireformat != null) {
+			boolean binarywireformat = AESCommunicator.WIRE_FORMAT_BINARY.equals(proposedwireformat);
+			AESCommunicator.sendWireFormatConfirmation(writer,
+					(binarywireformat ? AESCommunicator.WIRE_FORMAT_BINARY : AESCommunicator.WIRE_FORMAT_TEXT));
+			aescommunicator.setBinaryWireFormat(binarywireformat);
+		}
+		OLcServer.getServer().setAESCommunicator(aescommunicator);
+		logger.info("    ---- successfull security handshacke with client, binary wire format = "
+				+ aescommunicator.isBinaryWireFormat() + " --- ");
 	}
 
 	/**
@@ -349,7 +462,7 @@ public class ServerConnection
 	 * @throws IOException if any issue is encountered sending the action to the
 	 *                     client
 	 */
-	public void processCLink(String address, MessageBufferedWriter writer) throws IOException {
+	public void processCLink(String address, MessageWriter writer) throws IOException {
 		logger.info("received CLINK request for " + address);
 		CLink parsedlinkinfo = new CLink(address);
 		ActionExecution action = null;
@@ -384,7 +497,7 @@ public class ServerConnection
 
 	}
 
-	private boolean requestdecodedquery(String majorquery, MessageBufferedWriter writer, MessageSimpleReader reader)
+	private boolean requestdecodedquery(String majorquery, MessageWriter writer, MessageReader reader)
 			throws OLcRemoteException, IOException {
 
 		if (majorquery.compareTo("REQUEST") == 0) {
@@ -458,7 +571,9 @@ public class ServerConnection
 						Appuser> userid = server.getSecuritymanager().isValidSession(ip, server.getCidForConnection());
 				if (actionname.compareTo("LOGIN") == 0) {
 					try {
+						startActionTransaction(false);
 						SPage answerpage = action.executeActionFromGUI(actiondata);
+						commitActionTransaction();
 						if (answerpage != null) {
 							this.sendPage(answerpage, writer, null, null);
 							logger.info("sent page " + answerpage.getName() + "for action " + actionname
@@ -546,8 +661,11 @@ public class ServerConnection
 							logger.info("executing inline action " + modulename + "." + actionname);
 							try {
 								logAction(action);
+								startActionTransaction(action.isReadOnly());
 								OLcServer.getServer().resetTriggersList(); // reset remote trigger list for
 																			// thread
+								StoredobjectQueryHelper.consumeSearchTruncationMessage(); // drops message from
+																							// previous action
 								SPageData inlineanswer;
 								if (thisactionauthorization.getAuthorization() == ActionAuthorization.AUTHORIZED) {
 									inlineanswer = action.executeInlineAction(actiondata);
@@ -559,6 +677,10 @@ public class ServerConnection
 								}
 								OLcServer.getServer().executeTriggerList(); // execute remote trigger list
 																			// for thread
+								commitActionTransaction();
+								String truncationmessage = StoredobjectQueryHelper.consumeSearchTruncationMessage();
+								if ((truncationmessage != null) && (inlineanswer != null))
+									inlineanswer.appendMessage(truncationmessage);
 								long requestend = System.currentTimeMillis();
 								logger.info("executed inline action " + modulename + "." + actionname
 										+ ", execution time = " + (requestend - requeststart) + "ms");
@@ -568,6 +690,10 @@ public class ServerConnection
 										+ ", for session of user " + userid.getId());
 							} catch (Throwable t) {
 								treatThrowable(t, actionname, userid, writer);
+							} finally {
+								// cursors streaming the answer are normally read until the end, but may stay
+								// opened if sending failed
+								QueryCursor.closeAllForThread();
 							}
 							reader.returnNextEndStructure("INLINEACTION");
 						} else {
@@ -601,199 +727,338 @@ public class ServerConnection
 		return false;
 	}
 
-	@Override
-	public void run() {
+	/**
+	 * opens the message reader and writer on the socket, and performs the security
+	 * handshake with the client. This has to be called once before any message is
+	 * processed
+	 * 
+	 * @throws Exception if any error is encountered opening the socket streams or
+	 *                   during the handshake
+	 * @since 2.0
+	 */
+	public void openConnection() throws Exception {
+		openStreams();
+		performSecurityHandshake(reader, writer);
+	}
+
+	/**
+	 * opens the message reader and writer on the socket, and finishes the security
+	 * handshake with the client. This is used instead of
+	 * {@link #openConnection()} when the message returned by
+	 * {@link #getSecurityKeyMessage()} has already been sent to the client, and
+	 * should be called once the client has started answering
+	 * 
+	 * @throws Exception if any error is encountered opening the socket streams or
+	 *                   during the handshake
+	 * @since 2.0
+	 */
+	public void openConnectionAfterSecurityKey() throws Exception {
+		openStreams();
+		receiveAESKey(reader, writer);
+	}
+
+	/**
+	 * opens the message reader and writer on the socket
+	 * 
+	 * @throws IOException if any error is encountered opening the socket streams
+	 * @since 2.0
+	 */
+	private void openStreams() throws IOException {
+		server.setIpForConnection(ip);
+
+		starttime = System.currentTimeMillis();
+		BufferedInputStream socketinput = new BufferedInputStream(socket.getInputStream());
+		InputStreamReader inputstreamreader = new InputStreamReader(socketinput, Charset.forName("UTF-8"));
+		reader = new MessageSimpleReader(new BufferedReader(inputstreamreader));
+		messagestartdetector = new MessageStartDetector(socket, socketinput, reader, MESSAGESTART_POLL);
+		OutputStreamWriter outputstreamwriter = new OutputStreamWriter(socket.getOutputStream(),
+				Charset.forName("UTF-8"));
+		writer = new MessageBufferedWriter(new BufferedWriter(outputstreamwriter), messageaudit);
+		logger.info("Received new connection from " + ip);
+		logger.info("audit of connection encoding : inbound " + inputstreamreader.getEncoding() + ", outbound = "
+				+ outputstreamwriter.getEncoding());
+	}
+
+	/**
+	 * @return the socket to the client
+	 * @since 2.0
+	 */
+	public Socket getSocket() {
+		return this.socket;
+	}
+
+	/**
+	 * @return true if the socket to the client is still open
+	 * @since 2.0
+	 */
+	public boolean isOpen() {
+		return ((socket.isConnected()) && (!socket.isClosed()));
+	}
+
+	/**
+	 * @return true if the reader already holds in its buffer content of the next
+	 *         message sent by the client
+	 * @throws IOException if any communication issue is encountered
+	 * @since 2.0
+	 */
+	public boolean hasBufferedMessage() throws IOException {
+		return reader.hasBufferedContent();
+	}
+
+	/**
+	 * processes the next message from the client, including the message start.
+	 * This method blocks until the message is fully received, and should be called
+	 * only when the client has started sending a message
+	 * 
+	 * @throws IOException if the connection could not be closed properly after an
+	 *                     error
+	 * @since 2.0
+	 */
+	public void processNextMessage() throws IOException {
 		try {
-			server.setIpForConnection(ip);
-
-			starttime = System.currentTimeMillis();
-			InputStreamReader inputstreamreader = new InputStreamReader(socket.getInputStream(),
-					Charset.forName("UTF-8"));
-			MessageSimpleReader reader = new MessageSimpleReader(new BufferedReader(inputstreamreader));
-			OutputStreamWriter outputstreamwriter = new OutputStreamWriter(socket.getOutputStream(),
-					Charset.forName("UTF-8"));
-			MessageBufferedWriter writer = new MessageBufferedWriter(new BufferedWriter(outputstreamwriter),
-					messageaudit);
-			logger.info("Received new connection from " + ip);
-			logger.info("audit of connection encoding : inbound " + inputstreamreader.getEncoding() + ", outbound = "
-					+ outputstreamwriter.getEncoding());
-
-			performSecurityHandshake(reader, writer);
-
-			labelloop: while ((socket.isConnected()) && (!socket.isClosed())) {
-				// read one CML message
-				try {
+			reader.returnNextMessageStart();
+			processMessageContent();
+		} catch (Throwable t) {
+			treatMessageThrowable(t);
+		}
+	}
 
-					// if interruption comes at this point, should stop
-					messagefound = MESSAGESTART_WAITING;
-					exceptionduringmessagestart = null;
-					Thread checkstartmessage = new Thread() {
+	/**
+	 * binds the data of this connection (ip, client id, encryption...) to the
+	 * current thread. This is used when the connection is served by a pool of
+	 * threads
+	 * 
+	 * @since 2.0
+	 */
+	public void attachToCurrentThread() {
+		if (connectioncontext != null)
+			server.restoreConnectionContext(connectioncontext);
+	}
 
-						@Override
-						public void run() {
-							try {
-								reader.returnNextMessageStart();
-								messagefound = MESSAGESTART_FOUND;
-							} catch (OLcRemoteException | IOException e) {
-								exceptionduringmessagestart = e;
-								messagefound = MESSAGESTART_ERROR;
-							}
+	/**
+	 * saves the data of this connection bound to the current thread, and removes
+	 * it from the thread so that the thread can serve another connection. The
+	 * data of the action bound to the thread is also removed: a transaction still
+	 * opened is rolled back, and connections still held are given back
+	 * 
+	 * @since 2.0
+	 */
+	public void detachFromCurrentThread() {
+		connectioncontext = server.captureConnectionContext();
+		server.clearConnectionContext();
+		if (PersistenceGateway.hasTransaction())
+			logger.warning("Transaction still opened at end of message from " + ip + ", rolling back");
+		int opencursors = QueryCursor.closeAllForThread();
+		if (opencursors > 0)
+			logger.warning("Closed " + opencursors + " cursor(s) still opened at end of message from " + ip);
+		PersistenceGateway.releaseForThread();
+		ParallelFetch.clearForThread();
+		StoredobjectQueryHelper.consumeSearchTruncationMessage();
+	}
 
-						}
+	/**
+	 * closes the socket to the client
+	 * 
+	 * @since 2.0
+	 */
+	public void closeConnection() {
+		try {
+			if (!socket.isClosed())
+				socket.close();
+		} catch (IOException e) {
+			logger.warning("Error while closing connection from " + ip + ": " + e.getMessage());
+		}
+		long connectiontime = (System.currentTimeMillis() - starttime) / 1000;
+		logger.fine("closed connection from " + ip + ", total connected time = " + connectiontime + "s");
+	}
 
-					};
-					checkstartmessage.start();
-					while ((messagefound == MESSAGESTART_WAITING) & (alive)) {
-						Thread.sleep(3);
-					}
+	/**
+	 * processes the content of a message after the message start has been read,
+	 * including the message end
+	 * 
+	 * @throws Exception if any error is encountered while processing the message
+	 */
+	private void processMessageContent() throws Exception {
+		boolean majorquerytreated = false;
+		String majorquery = reader.returnNextStartStructure();
+		if (majorquery.equals("ENCMES")) {
+			byte[] encryptedmessage = reader.returnNextLargeBinary("ENCMES").getContent();
+			AESCommunicator aescommunicator = OLcServer.getServer().getAESCommunicator();
+			MessageReader specificmessagereader = aescommunicator.getDecryptedMessageReader(encryptedmessage);
+			ByteArrayOutputStream writertoencrypt = new ByteArrayOutputStream();
+			MessageWriter specificmessagewriter = aescommunicator.getMessageWriterToEncrypt(writertoencrypt);
+			specificmessagereader.returnNextMessageStart();
+			String majorqueryinsideencryption = specificmessagereader.returnNextStartStructure();
+			majorquerytreated = requestdecodedquery(majorqueryinsideencryption, specificmessagewriter,
+					specificmessagereader);
+			specificmessagereader.returnNextEndMessage();
+			if (majorquerytreated) {
+				specificmessagewriter.flushMessage();
+				byte[] encryptedresponse = aescommunicator.zipandencrypt(writertoencrypt.toByteArray());
+
+				writer.startNewMessage();
+				writer.startStructure("ENCRES");
+				writer.addLongBinaryField("RESMES", new SFile("PLD", encryptedresponse));
+				writer.endStructure("ENCRES");
+				writer.endMessage();
 
-					if (!alive) {
-						logger.severe("Shutdown thread " + this.getId() + " as got request from server");
-						break labelloop;
-					}
+			}
+			reader.returnNextEndStructure("ENCMES");
+		}
+		if (majorquery.equals("ENCSTR")) {
+			// streamed encrypted message: the request is decrypted and parsed chunk by
+			// chunk, and the response is encrypted and sent chunk by chunk
+			AESCommunicator aescommunicator = OLcServer.getServer().getAESCommunicator();
+			MessageChunkedInputStream requeststream = new MessageChunkedInputStream(reader, "ENCSTR", "CNK");
+			MessageReader specificmessagereader = aescommunicator.getDecryptedMessageReader(requeststream);
+			OutputStream responsestream = aescommunicator.getEncryptingStream(new MessageChunkedOutputStream(writer,
+					"RESSTR", "CNK", MessageChunkedOutputStream.DEFAULT_CHUNK_SIZE));
+			MessageWriter specificmessagewriter = aescommunicator.getMessageWriterToEncrypt(responsestream);
+			specificmessagereader.returnNextMessageStart();
+			String majorqueryinsideencryption = specificmessagereader.returnNextStartStructure();
+			majorquerytreated = requestdecodedquery(majorqueryinsideencryption, specificmessagewriter,
+					specificmessagereader);
+			specificmessagereader.returnNextEndMessage();
+			requeststream.close();
+			if (majorquerytreated) {
+				specificmessagewriter.flushMessage();
+				responsestream.close();
+			}
+		}
 
-					if ((messagefound == MESSAGESTART_ERROR) && (exceptionduringmessagestart instanceof IOException)) {
-						logger.warning("Found exception " + exceptionduringmessagestart + " relaunching ");
-						for (int i = 0; i < exceptionduringmessagestart.getStackTrace().length; i++)
-							logger.warning("   " + exceptionduringmessagestart.getStackTrace()[i]);
-						// special case detecting end of connection
-						// if (exceptionduringmessagestart.getErrorCode()==1003)
-						break labelloop;
-						// throw exceptionduringmessagestart;
+		if (majorquery.equals("DOWNLOADCLIENT")) {
+			majorquerytreated = true;
+			reader.returnNextEndStructure("DOWNLOADCLIENT");
+			reader.returnNextEndMessage();
+			logger.severe("Starting treating download client request");
+			writer.startNewMessage();
+			File clienttodownload = new File("." + File.separator + "client" + File.separator + CLIENT_JAR);
+			if (!clienttodownload.exists()) {
+				writer.sendMessageError(9999, "Client file missing on server " + clienttodownload.getAbsolutePath()
+						+ ". Please contact technical support.");
+				logger.severe("Download client requested download failed, file "
+						+ clienttodownload.getAbsolutePath() + " does not exists");
+			} else {
+				byte[] filecontent = new byte[(int) clienttodownload.length()];
+				FileInputStream fisfordownload = new FileInputStream(clienttodownload);
+				fisfordownload.read(filecontent);
+				fisfordownload.close();
+				SFile filetodownload = new SFile(CLIENT_JAR, filecontent);
+				writer.startStructure("NEWCLIENTJAR");
+				writer.addLongBinaryField("JAR", filetodownload);
+				writer.endStructure("NEWCLIENTJAR");
+				writer.endMessage();
+				writer.flushMessage();
+			}
+			logger.severe("Download client requested download finished");
+
+		}
+		if (majorquery.equals("SHUTDOWN")) {
+			if (socket.getInetAddress().isAnyLocalAddress() || socket.getInetAddress().isLoopbackAddress()) {
+				logger.severe("------------------------------------------------------------");
+				logger.severe("       S H U T D O W N . R E Q U E S T . R E C E I V E D");
+				logger.severe("------------------------------------------------------------");
+
+				reader.returnNextEndStructure("SHUTDOWN");
+				reader.returnNextEndMessage();
+				// send message to all connections to stop current action and loop
+				OLcServer.getServer().sendShutdownToAllConnections();
+
+				// sends a message to client requesting shutdown
+				try {
+					writer.startNewMessage();
+					writer.startStructure("SHUTDOWNOK");
+					writer.endStructure("SHUTDOWNOK");
+					writer.endMessage();
+					writer.flushMessage();
+
+					// wait 200ms
+					Thread.sleep(200);
+					// write activity kept in memory before the server stops
+					OLcServer.getServer().flushActivityBeforeShutdown();
+				} catch (Throwable t) {
+					logger.severe("Exception while sending shutdownOK message to client " + t.getMessage());
+					for (int i = 0; i < t.getStackTrace().length; i++) {
+						logger.severe(t.getStackTrace()[i].toString());
 					}
+				}
+				System.exit(0);
+			} else {
+				throw new RuntimeException("Shutdown is only authorized from local, but request received from "
+						+ socket.getInetAddress().toString());
+			}
+			majorquerytreated = true;
 
-					boolean majorquerytreated = false;
-					String majorquery = reader.returnNextStartStructure();
-					if (majorquery.equals("ENCMES")) {
-						byte[] encryptedmessage = reader.returnNextLargeBinary("ENCMES").getContent();
-						String decryptedmessage = OLcServer.getServer().getAESCommunicator()
-								.decryptandunzip(encryptedmessage);
-						MessageSimpleReader specificmessagereader = new MessageSimpleReader(
-								new StringReader(decryptedmessage));
-						specificmessagereader.setAESCommunicator(OLcServer.getServer().getAESCommunicator());
-						StringWriter writertoencrypt = new StringWriter();
-						MessageBufferedWriter specificmessagewriter = new MessageBufferedWriter(
-								new BufferedWriter(writertoencrypt), false);
-						specificmessagewriter.setAESCommunicator(OLcServer.getServer().getAESCommunicator());
-						specificmessagereader.returnNextMessageStart();
-						String majorqueryinsideencryption = specificmessagereader.returnNextStartStructure();
-						majorquerytreated = requestdecodedquery(majorqueryinsideencryption, specificmessagewriter,
-								specificmessagereader);
-						specificmessagereader.returnNextEndMessage();
-						if (majorquerytreated) {
-							specificmessagewriter.flushMessage();
-							byte[] encryptedresponse = OLcServer.getServer().getAESCommunicator()
-									.zipandencrypt(writertoencrypt.toString());
-
-							writer.startNewMessage();
-							writer.startStructure("ENCRES");
-							writer.addLongBinaryField("RESMES", new SFile("PLD", encryptedresponse));
-							writer.endStructure("ENCRES");
-							writer.endMessage();
+		}
 
-						}
-						reader.returnNextEndStructure("ENCMES");
-						specificmessagewriter.close();
-						specificmessagereader.close();
-					}
+		if (!majorquerytreated) {
+			throw new RuntimeException(String.format("The majorquery type is invalid :" + majorquery, ip));
+		}
 
-					if (majorquery.equals("DOWNLOADCLIENT")) {
-						majorquerytreated = true;
-						reader.returnNextEndStructure("DOWNLOADCLIENT");
-						reader.returnNextEndMessage();
-						logger.severe("Starting treating download client request");
-						writer.startNewMessage();
-						File clienttodownload = new File("." + File.separator + "client" + File.separator
-								+ CLIENT_JAR);
-						if (!clienttodownload.exists()) {
-							writer.sendMessageError(9999, "Client file missing on server "
-									+ clienttodownload.getAbsolutePath() + ". Please contact technical support.");
-							logger.severe("Download client requested download failed, file "
-									+ clienttodownload.getAbsolutePath() + " does not exists");
-						} else {
-							byte[] filecontent = new byte[(int) clienttodownload.length()];
-							FileInputStream fisfordownload = new FileInputStream(clienttodownload);
-							fisfordownload.read(filecontent);
-							fisfordownload.close();
-							SFile filetodownload = new SFile(CLIENT_JAR, filecontent);
-							writer.startStructure("NEWCLIENTJAR");
-							writer.addLongBinaryField("JAR", filetodownload);
-							writer.endStructure("NEWCLIENTJAR");
-							writer.endMessage();
-							writer.flushMessage();
-						}
-						logger.severe("Download client requested download finished");
+		reader.returnNextEndMessage(); // CLOSE MESSAGE
+	}
 
-					}
-					if (majorquery.equals("SHUTDOWN")) {
-						if (socket.getInetAddress().isAnyLocalAddress()
-								|| socket.getInetAddress().isLoopbackAddress()) {
-							logger.severe("------------------------------------------------------------");
-							logger.severe("       S H U T D O W N . R E Q U E S T . R E C E I V E D");
-							logger.severe("------------------------------------------------------------");
-
-							reader.returnNextEndStructure("SHUTDOWN");
-							reader.returnNextEndMessage();
-							// send message to all connections to stop current action and loop
-							OLcServer.getServer().sendShutdownToAllConnections();
-
-							// sends a message to client requesting shutdown
-							try {
-								writer.startNewMessage();
-								writer.startStructure("SHUTDOWNOK");
-								writer.endStructure("SHUTDOWNOK");
-								writer.endMessage();
-								writer.flushMessage();
-
-								// wait 200ms
-								Thread.sleep(200);
-							} catch (Throwable t) {
-								logger.severe("Exception while sending shutdownOK message to client " + t.getMessage());
-								for (int i = 0; i < t.getStackTrace().length; i++) {
-									logger.severe(t.getStackTrace()[i].toString());
-								}
-							}
-							System.exit(0);
-						} else {
-							throw new RuntimeException(
-									"Shutdown is only authorized from local, but request received from "
-											+ socket.getInetAddress().toString());
-						}
-						majorquerytreated = true;
+	/**
+	 * treats an error received while processing a message. The socket is closed
+	 * except if the error is recoverable
+	 * 
+	 * @param t the error
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private void treatMessageThrowable(Throwable t) throws IOException {
+		boolean disconnectionerror = false;
+		if (t instanceof IOException)
+			disconnectionerror = true;
+
+		if (disconnectionerror) {
+			long endtime = System.currentTimeMillis();
+			long connectiontime = (endtime - starttime) / 1000;
+			logger.fine("normal client disconnection between messages, total connected time = " + connectiontime
+					+ "s");
+		} else {
 
-					}
+			logger.severe("Exception " + t.getMessage());
+			for (int i = 0; i < t.getStackTrace().length; i++) {
+				logger.severe(t.getStackTrace()[i].toString());
+			}
+			treatThrowable(t, "SYSTEM", null, writer);
+		}
+		boolean isrecoverableerror = false;
+		if (t instanceof OLcRemoteException) {
+			OLcRemoteException exception = (OLcRemoteException) t;
+			if (exception.getRemoteErrorCode() == 1)
+				isrecoverableerror = true;
+		}
+		if (!isrecoverableerror)
+			socket.close();
+	}
 
-					if (!majorquerytreated) {
-						throw new RuntimeException(String.format("The majorquery type is invalid :" + majorquery, ip));
-					}
+	@Override
+	public void run() {
+		try {
+			openConnection();
 
-					reader.returnNextEndMessage(); // CLOSE MESSAGE
-				} catch (Throwable t) {
-					boolean disconnectionerror = false;
-					if (t instanceof IOException)
-						disconnectionerror = true;
-
-					if (disconnectionerror) {
-						long endtime = System.currentTimeMillis();
-						long connectiontime = (endtime - starttime) / 1000;
-						logger.fine("normal client disconnection between messages, total connected time = "
-								+ connectiontime + "s");
-					} else {
+			labelloop: while (isOpen()) {
+				// read one CML message
+				try {
 
-						logger.severe("Exception " + t.getMessage());
-						for (int i = 0; i < t.getStackTrace().length; i++) {
-							logger.severe(t.getStackTrace()[i].toString());
-						}
-						treatThrowable(t, "SYSTEM", null, writer);
+					// blocks until the client starts a message, checking regularly for shutdown
+					boolean messagestarted = messagestartdetector.waitForMessageStart(() -> alive);
+
+					if ((!messagestarted) || (!alive)) {
+						logger.severe("Shutdown thread " + this.getId() + " as got request from server");
+						break labelloop;
 					}
-					boolean isrecoverableerror = false;
-					if (t instanceof OLcRemoteException) {
-						OLcRemoteException exception = (OLcRemoteException) t;
-						if (exception.getRemoteErrorCode() == 1)
-							isrecoverableerror = true;
+					try {
+						reader.returnNextMessageStart();
+					} catch (IOException e) {
+						logger.fine("Connection closed by client while waiting for message " + e.getMessage());
+						break labelloop;
 					}
-					if (!isrecoverableerror)
-						socket.close();
+
+					processMessageContent();
+				} catch (Throwable t) {
+					treatMessageThrowable(t);
 				}
 			}
 
@@ -816,7 +1081,7 @@ public class ServerConnection
 	 * @param writer     writer to provide output
 	 * @throws IOException if any communication issue is encountered
 	 */
-	public void setLoginWithContextAction(ActionExecution action, SActionData actiondata, MessageBufferedWriter writer)
+	public void setLoginWithContextAction(ActionExecution action, SActionData actiondata, MessageWriter writer)
 			throws IOException {
 		try {
 
@@ -862,12 +1127,13 @@ public class ServerConnection
 			Throwable e,
 			String actionname,
 			DataObjectId<Appuser> userid,
-			MessageBufferedWriter writer) throws IOException {
+			MessageWriter writer) throws IOException {
 		// send error message instead of sending page. Else, it is the same
 		// note: no possibility now to send error properly if exception while sending
 		// page, need clean mechanism like buffer that flushes
 		// original page only when sure that no error. May have significant impact on
 		// performance.
+		// a transaction still opened is rolled back, and caches invalidated if it wrote
 		PersistenceGateway.releaseForThread();
 		String usertrace = "unauthenticated";
 		if (userid != null)
@@ -885,7 +1151,7 @@ public class ServerConnection
 			DataObjectId<Appuser> userid,
 			ActionExecution action,
 			SActionData actiondata,
-			MessageBufferedWriter writer) throws IOException {
+			MessageWriter writer) throws IOException {
 		executeAction(userid, action, actiondata, writer, null);
 	}
 
@@ -893,7 +1159,7 @@ public class ServerConnection
 			DataObjectId<Appuser> userid,
 			ActionExecution action,
 			SActionData actiondata,
-			MessageBufferedWriter writer,
+			MessageWriter writer,
 			ArrayList<PageBufferSpec> clientpagesinbuffer) throws IOException {
 		String actionname = action.getName();
 		SecurityBuffer buffer = new SecurityBuffer();
@@ -907,12 +1173,14 @@ public class ServerConnection
 					logAction(action);
 					OLcServer.getServer().resetTriggersList(); // reset remote server list for thread;
 					SPage answerpage;
+					startActionTransaction(action.isReadOnly());
 					if (thisactionauthorization.getAuthorization() == ActionAuthorization.AUTHORIZED) {
 						answerpage = action.executeActionFromGUI(actiondata);
 					} else {
 						answerpage = action.executeActionFromGUI(actiondata,
 								thisactionauthorization.getAdditionalconditiongenerator());
 					}
+					commitActionTransaction();
 					if (answerpage == null)
 						throw new RuntimeException("Action " + action.getName() + " / " + action.getClass().getName()
 								+ " brought back a null page");
@@ -930,7 +1198,7 @@ public class ServerConnection
 		}
 	}
 
-	private void sendInlineData(SPageData inlineanswer, MessageBufferedWriter writer) throws IOException {
+	private void sendInlineData(SPageData inlineanswer, MessageWriter writer) throws IOException {
 		if (inlineanswer == null)
 			logger.severe("page was not found");
 		writer.startNewMessage();
@@ -1245,44 +1513,11 @@ public class ServerConnection
 	 * @param action action
 	 */
 	public void logAction(ActionExecution action) {
-		// first generate date for today noon on server time
-		Date date = new Date();
-		Calendar calendar = Calendar.getInstance();
-		calendar.setTime(date);
-		calendar.set(Calendar.MILLISECOND, 0);
-		calendar.set(Calendar.SECOND, 0);
-		calendar.set(Calendar.MINUTE, 0);
-		calendar.set(Calendar.HOUR_OF_DAY, 12);
-		Date normalizedday = calendar.getTime();
 		// get current user in an efficient way
 		DataObjectId<Appuser> currentuserid = OLcServer.getServer().getCurrentUserId();
 		String module = action.getParent().getLabel();
-		Moduleusage[] usage = Moduleusage
-				.getallchildrenforsessionuser(currentuserid,
-						QueryFilter.get(new AndQueryCondition(
-								new SimpleQueryCondition<Date>(
-										Moduleusage.getDefinition()
-												.getAlias(LinkedtoparentQueryHelper.CHILD_OBJECT_ALIAS),
-										ModuleusageDefinition.getModuleusageDefinition().getDayFieldSchema(),
-										new QueryOperatorEqual<Date>(), normalizedday),
-								new SimpleQueryCondition<String>(
-										Moduleusage.getDefinition()
-												.getAlias(LinkedtoparentQueryHelper.CHILD_OBJECT_ALIAS),
-										ModuleusageDefinition.getModuleusageDefinition().getModuleFieldSchema(),
-										new QueryOperatorEqual<String>(), module))));
-		if (usage != null)
-			if (usage.length > 0) {
-				Moduleusage currentusage = usage[0];
-				currentusage.setActionnr(new Integer(currentusage.getActionnr().intValue() + 1));
-				currentusage.update();
-			} else {
-				Moduleusage currentusage = new Moduleusage();
-				currentusage.setparentwithoutupdateforsessionuser(currentuserid);
-				currentusage.setDay(normalizedday);
-				currentusage.setModule(module);
-				currentusage.setActionnr(new Integer(1));
-				currentusage.insert();
-			}
+		// counters are accumulated in memory and written in batch to the database
+		OLcServer.getServer().getModuleUsageAggregator().record(currentuserid, module);
 	}
 
 }
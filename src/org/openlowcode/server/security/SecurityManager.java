@@ -16,7 +16,8 @@ import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 import javax.crypto.Cipher;
@@ -49,10 +50,19 @@ public class SecurityManager
 		Thread {
 	Logger logger = Logger.getLogger("");
 	private static long TIMEOUTINMS = 60000;
+	/**
+	 * time in ms after which a session kept in memory is checked again in the
+	 * database
+	 */
+	private static long SESSIONCACHETIMEOUTINMS = 60000;
+	/**
+	 * validity in ms of an OTP check for a client
+	 */
+	private static long OTPVALIDITYINMS = 8 * 3600 * 1000;
 	private String ldapconnectionstring = null;
 	private String ldapuser = null;
 	private String ldappassword = null;
-	public HashMap<String, ServerSession> sessionsbyip;
+	private ConcurrentHashMap<String, ServerSession> sessionsbyclient;
 	private KeyPair servermainrsakeypair;
 
 	/**
@@ -91,7 +101,7 @@ public class SecurityManager
 	 */
 	public SecurityManager(String ldapconnectionstring, String ldapuser, String ldappassword)
 			throws NoSuchAlgorithmException {
-		sessionsbyip = new HashMap<String, ServerSession>();
+		sessionsbyclient = new ConcurrentHashMap<String, ServerSession>();
 		ServerSecurityBuffer.getUniqueInstance();
 		this.ldapconnectionstring = ldapconnectionstring;
 		this.ldapuser = ldapuser;
@@ -159,15 +169,33 @@ public class SecurityManager
 	}
 
 	/**
-	 * This method is low performance way to get the user, and check that there is a
-	 * valid session. This method should only be called from the Connection
-	 * management of user authorization for action. Indeed, the method is low
-	 * performance and
+	 * This method gets the user, and checks that there is a valid session. This
+	 * method should only be called from the Connection management of user
+	 * authorization for action. The session is read from the database only if it
+	 * is not in memory, or if it was read from the database more than one minute
+	 * ago. Activity on the session kept in memory is written regularly to the
+	 * database.
 	 * 
 	 * @param ipaddress the ip address of the connection
+	 * @param cid       the client id on the user machine
 	 * @return null String if no session is found, else returns the user id
 	 */
 	public DataObjectId<Appuser> isValidSession(String ipaddress, String cid) {
+		String sessionkey = getSessionKey(ipaddress, cid);
+		long now = System.currentTimeMillis();
+		ServerSession cachedsession = sessionsbyclient.get(sessionkey);
+		if (cachedsession != null) {
+			if (cachedsession.touchIfValid(now, SESSIONCACHETIMEOUTINMS,
+					GetsessionforclientAction.TIMEOUT_SECOND * 1000)) {
+				OLcServer.getServer().setUserIdForConnection(cachedsession.getUserid());
+				if (cachedsession.hasValidOTP(now))
+					OLcServer.getServer().setOTPForConnection();
+				return cachedsession.getUserid();
+			}
+			// activity is written to the database before the session is checked again
+			if (sessionsbyclient.remove(sessionkey, cachedsession))
+				writeSessionActivity(cachedsession);
+		}
 		Usersession session = GetsessionforclientAction.get().executeActionLogic(ipaddress, cid, null);
 
 		if (session == null) {
@@ -178,16 +206,113 @@ public class SecurityManager
 		// TODO - check if good way to return user info
 		DataObjectId<Appuser> userid = session.getLinkedtoparentforsessionuserid();
 		OLcServer.getServer().setUserIdForConnection(userid);
-		checkOTPForClient(userid, cid, ipaddress);
+		long otpvaliduntil = getOTPValidityForClient(userid, cid, ipaddress);
+		if (otpvaliduntil > now)
+			OLcServer.getServer().setOTPForConnection();
+		sessionsbyclient.put(sessionkey, new ServerSession(ipaddress, cid, session, otpvaliduntil));
 		return userid;
 	}
 
 	/**
-	 * Check OTP for client
+	 * @param ipaddress the ip address of the connection
+	 * @param cid       the client id on the user machine
+	 * @return the key of the session in the session cache
+	 */
+	private static String getSessionKey(String ipaddress, String cid) {
+		return ipaddress + "/" + cid;
+	}
+
+	/**
+	 * writes to the database the actions performed on a session kept in memory
+	 * since the last time it was read or written
+	 * 
+	 * @param cachedsession session kept in memory
+	 */
+	private void writeSessionActivity(ServerSession cachedsession) {
+		int pendingactions = cachedsession.takePendingActions();
+		if (pendingactions == 0)
+			return;
+		try {
+			Usersession session = Usersession.readone(cachedsession.getSessionid());
+			session.setActions(session.getActions().intValue() + pendingactions);
+			session.setLastaction(new Date(cachedsession.getTimelastcontact()));
+			session.update();
+		} catch (Exception e) {
+			logger.warning("could not write activity of session " + cachedsession.getSessionid() + " for ip address = "
+					+ cachedsession.getIpaddress() + ", " + pendingactions + " actions lost: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * writes the activity of all sessions kept in memory to the database, and
+	 * removes from memory the sessions that have to be checked again in the
+	 * database
+	 * 
+	 * @since 2.0
+	 */
+	public void writeAllSessionActivity() {
+		long now = System.currentTimeMillis();
+		for (Map.Entry<String, ServerSession> entry : sessionsbyclient.entrySet()) {
+			ServerSession cachedsession = entry.getValue();
+			if (cachedsession.isCacheExpired(now, SESSIONCACHETIMEOUTINMS))
+				sessionsbyclient.remove(entry.getKey(), cachedsession);
+			writeSessionActivity(cachedsession);
+		}
+	}
+
+	/**
+	 * removes from memory the session for the given client, after writing its
+	 * activity to the database. This should be called before the session is
+	 * closed or replaced in the database
 	 * 
+	 * @param ipaddress the ip address of the connection
+	 * @param cid       the client id on the user machine
+	 * @since 2.0
+	 */
+	public void invalidateSession(String ipaddress, String cid) {
+		ServerSession cachedsession = sessionsbyclient.remove(getSessionKey(ipaddress, cid));
+		if (cachedsession != null)
+			writeSessionActivity(cachedsession);
+	}
+
+	/**
+	 * removes from memory all the sessions of the given user, after writing their
+	 * activity to the database
+	 * 
+	 * @param userid id of the user
+	 * @since 2.0
+	 */
+	public void invalidateSessionsForUser(DataObjectId<Appuser> userid) {
+		for (Map.Entry<String, ServerSession> entry : sessionsbyclient.entrySet()) {
+			ServerSession cachedsession = entry.getValue();
+			if (cachedsession.getUserid().equals(userid))
+				if (sessionsbyclient.remove(entry.getKey(), cachedsession))
+					writeSessionActivity(cachedsession);
+		}
+	}
+
+	/**
+	 * removes all sessions from memory, after writing their activity to the
+	 * database. This should be called before sessions are cleaned in the database
+	 * 
+	 * @since 2.0
+	 */
+	public void invalidateAllSessions() {
+		for (Map.Entry<String, ServerSession> entry : sessionsbyclient.entrySet()) {
+			ServerSession cachedsession = entry.getValue();
+			if (sessionsbyclient.remove(entry.getKey(), cachedsession))
+				writeSessionActivity(cachedsession);
+		}
+	}
+
+	/**
+	 * Gets the validity of the OTP checks performed for the client
+	 * 
+	 * @return the time until which the last OTP check is valid, 0 if there is no
+	 *         OTP check
 	 * @since 1.10
 	 */
-	private void checkOTPForClient(DataObjectId<Appuser> userid, String cid, String ipaddress) {
+	private long getOTPValidityForClient(DataObjectId<Appuser> userid, String cid, String ipaddress) {
 		Otpcheck[] check = Otpcheck.getallchildrenforuser(userid, QueryFilter.get(new AndQueryCondition(
 				new SimpleQueryCondition<String>(
 						OtpcheckDefinition.getOtpcheckDefinition()
@@ -198,18 +323,17 @@ public class SecurityManager
 								.getAlias(LinkedtoparentQueryHelper.CHILD_OBJECT_ALIAS),
 						Otpcheck.getDefinition().getClientipFieldSchema(), new QueryOperatorEqual<String>(),
 						ipaddress))));
-		boolean hasvalidotp = false;
+		long otpvaliduntil = 0;
 		for (int i = 0; i < check.length; i++) {
 			Date date = new Date();
 			Date creationdate = check[i].getCreated();
 			long hoursofage = (date.getTime() - creationdate.getTime()) / (1000 * 3600);
-			if (hoursofage < 8)
-				hasvalidotp = true;
+			if (creationdate.getTime() + OTPVALIDITYINMS > otpvaliduntil)
+				otpvaliduntil = creationdate.getTime() + OTPVALIDITYINMS;
 			logger.info(
 					"recovered old OTP connection (" + i + "/" + check.length + ")with hours of age = " + hoursofage);
 		}
-		if (hasvalidotp)
-			OLcServer.getServer().setOTPForConnection();
+		return otpvaliduntil;
 	}
 
 	/**
@@ -223,7 +347,11 @@ public class SecurityManager
 	 * @return the session if user / password valid, null else
 	 */
 	public Usersession createSession(String ipaddress, String cid, String user, String password) {
+		invalidateSession(ipaddress, cid);
 		Usersession session = CreatesessionforuserAction.get().executeActionLogic(user, password, ipaddress, cid, null);
+		// other sessions of the user are closed in the database when the new session is created
+		if (session != null)
+			invalidateSessionsForUser(session.getLinkedtoparentforsessionuserid());
 		if (session != null)
 			OLcServer.getServer().setUserIdForConnection(session.getLinkedtoparentforsessionuserid());
 		if (session == null)
@@ -246,6 +374,13 @@ public class SecurityManager
 					for (int i = 0; i < e.getStackTrace().length; i++)
 						logger.warning("   " + e.getStackTrace()[i]);
 				}
+				try {
+					writeAllSessionActivity();
+				} catch (Exception e) {
+					logger.warning("-- Session activity write: fatal error " + e.getMessage());
+					for (int i = 0; i < e.getStackTrace().length; i++)
+						logger.warning("   " + e.getStackTrace()[i]);
+				}
 
 				Thread.sleep(TIMEOUTINMS / 2);
 
@@ -272,6 +407,10 @@ public class SecurityManager
 
 		newotpcheck.setCreated(new Date());
 		newotpcheck.insert();
+		ServerSession cachedsession = sessionsbyclient.get(getSessionKey(OLcServer.getServer().getIpForConnection(),
+				OLcServer.getServer().getCidForConnection()));
+		if (cachedsession != null)
+			cachedsession.setOTPValidUntil(newotpcheck.getCreated().getTime() + OTPVALIDITYINMS);
 		OLcServer.getServer().setOTPForConnection();
 		return valid;
 	}
@@ -12,9 +12,18 @@ package org.openlowcode.server.security;
 
 import java.util.Date;
 
+import org.openlowcode.module.system.data.Appuser;
+import org.openlowcode.module.system.data.Usersession;
+import org.openlowcode.server.data.properties.DataObjectId;
+
 /**
  * A session a user has with the server. The session will time-out if not used
- * for a given time
+ * for a given time.<br>
+ * The security manager keeps a cache of the sessions registered in the
+ * database, so that the session does not need to be read from the database at
+ * each action of the user. The activity on the session (number of actions and
+ * time of last action) is kept in memory and written regularly to the
+ * database.
  * 
  * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
  *         SAS</a>
@@ -24,6 +33,12 @@ public class ServerSession {
 	private String ipaddress;
 	private long timelastcontact;
 	private String user;
+	private String cid;
+	private DataObjectId<Appuser> userid;
+	private DataObjectId<Usersession> sessionid;
+	private long timeloaded;
+	private int pendingactions;
+	private long otpvaliduntil;
 
 	/**
 	 * @return the ip address the user connected from
@@ -46,6 +61,30 @@ public class ServerSession {
 		return user;
 	}
 
+	/**
+	 * @return the client id on the user machine
+	 * @since 2.0
+	 */
+	public String getCid() {
+		return cid;
+	}
+
+	/**
+	 * @return the id of the user of the session
+	 * @since 2.0
+	 */
+	public DataObjectId<Appuser> getUserid() {
+		return userid;
+	}
+
+	/**
+	 * @return the id of the session in the database
+	 * @since 2.0
+	 */
+	public DataObjectId<Usersession> getSessionid() {
+		return sessionid;
+	}
+
 	/**
 	 * creates a ServerSession from the given user and ipaddress
 	 * 
@@ -59,6 +98,26 @@ public class ServerSession {
 		this.user = user;
 	}
 
+	/**
+	 * creates a ServerSession from a session just read from the database
+	 * 
+	 * @param ipaddress     ip address the user connected from
+	 * @param cid           client id on the user machine
+	 * @param session       the session read from the database
+	 * @param otpvaliduntil time until which the OTP check done for this client is
+	 *                      valid (0 if no valid OTP check was done)
+	 * @since 2.0
+	 */
+	public ServerSession(String ipaddress, String cid, Usersession session, long otpvaliduntil) {
+		this(ipaddress, session.getLinkedtoparentforsessionuserid().getId());
+		this.cid = cid;
+		this.userid = session.getLinkedtoparentforsessionuserid();
+		this.sessionid = session.getId();
+		this.timeloaded = this.timelastcontact;
+		this.pendingactions = 0;
+		this.otpvaliduntil = otpvaliduntil;
+	}
+
 	/**
 	 * 
 	 */
@@ -77,4 +136,68 @@ public class ServerSession {
 		return false;
 	}
 
+	/**
+	 * registers an action on the session if the session in memory can still be
+	 * used
+	 * 
+	 * @param now          current time
+	 * @param cachetimeout time in ms after which the session has to be read again
+	 *                     from the database
+	 * @param timeoutvalue time in ms without action after which the session times
+	 *                     out
+	 * @return true if the action was registered, false if the session has to be
+	 *         checked again in the database
+	 * @since 2.0
+	 */
+	public synchronized boolean touchIfValid(long now, long cachetimeout, long timeoutvalue) {
+		if (now - timeloaded > cachetimeout)
+			return false;
+		if (now - timelastcontact > timeoutvalue)
+			return false;
+		this.timelastcontact = now;
+		this.pendingactions++;
+		return true;
+	}
+
+	/**
+	 * @param now          current time
+	 * @param cachetimeout time in ms after which the session has to be read again
+	 *                     from the database
+	 * @return true if the session has to be read again from the database
+	 * @since 2.0
+	 */
+	public synchronized boolean isCacheExpired(long now, long cachetimeout) {
+		return (now - timeloaded > cachetimeout);
+	}
+
+	/**
+	 * gets the number of actions not yet written to the database, and resets it
+	 * 
+	 * @return the number of actions not yet written to the database
+	 * @since 2.0
+	 */
+	public synchronized int takePendingActions() {
+		int actions = this.pendingactions;
+		this.pendingactions = 0;
+		return actions;
+	}
+
+	/**
+	 * @param now current time
+	 * @return true if a valid OTP check was performed for this client
+	 * @since 2.0
+	 */
+	public synchronized boolean hasValidOTP(long now) {
+		return (now < otpvaliduntil);
+	}
+
+	/**
+	 * @param otpvaliduntil time until which the OTP check done for this client is
+	 *                      valid
+	 * @since 2.0
+	 */
+	public synchronized void setOTPValidUntil(long otpvaliduntil) {
+		this.otpvaliduntil = otpvaliduntil;
+	}
+
 }
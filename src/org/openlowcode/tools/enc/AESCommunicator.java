@@ -10,20 +10,37 @@
 
 package org.openlowcode.tools.enc;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
 import java.security.KeyFactory;
 import java.security.PublicKey;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.logging.Logger;
 import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 
+import org.openlowcode.tools.messages.MessageBinaryReader;
+import org.openlowcode.tools.messages.MessageBinaryWriter;
 import org.openlowcode.tools.messages.MessageBufferedWriter;
+import org.openlowcode.tools.messages.MessageReader;
 import org.openlowcode.tools.messages.MessageSimpleReader;
+import org.openlowcode.tools.messages.MessageWriter;
 import org.openlowcode.tools.messages.SFile;
 
 /**
@@ -35,13 +52,38 @@ import org.openlowcode.tools.messages.SFile;
  */
 public class AESCommunicator {
 	private static Logger logger = Logger.getLogger(AESCommunicator.class.getName());
-	@SuppressWarnings("unused")
+	/**
+	 * marker of the wire format for encrypted messages. During the handshake, the
+	 * server offers a wire format and the client proposes it back by adding the
+	 * marker to the file name of the keys they send, a file name ignored by
+	 * previous versions. The server then confirms the format with a message of the
+	 * same name.
+	 * 
+	 * @since 2.0
+	 */
+	public static final String WIRE_FORMAT_FIELD = "WFM";
+	/**
+	 * wire format where encrypted messages are sent with the binary encoding
+	 * 
+	 * @since 2.0
+	 */
+	public static final String WIRE_FORMAT_BINARY = "BINARY";
+	/**
+	 * wire format where encrypted messages are sent with the text encoding, used
+	 * with previous versions
+	 * 
+	 * @since 2.0
+	 */
+	public static final String WIRE_FORMAT_TEXT = "TEXT";
+	private static final String WIRE_FORMAT_SEPARATOR = ";" + WIRE_FORMAT_FIELD + "=";
+	private static final int STREAM_BUFFER = 4000;
 	private SecretKey secretkey;
 	private Cipher encryptaescipher;
 	private Cipher decryptaescipher;
 	private Deflater deflater;
 	private Inflater inflater;
 	private boolean messageaudit=false;
+	private boolean binarywireformat=false;
 	/**
 	 * @param secretkey
 	 * @throws Exception
@@ -122,6 +164,159 @@ public class AESCommunicator {
 		}
 	}
 
+	/**
+	 * @return true if the encrypted messages exchanged on the connection use the
+	 *         binary wire format, false if they use the text format
+	 * @since 2.0
+	 */
+	public boolean isBinaryWireFormat() {
+		return this.binarywireformat;
+	}
+
+	/**
+	 * @param binarywireformat true if the encrypted messages exchanged on the
+	 *                         connection use the binary wire format, false if they
+	 *                         use the text format
+	 * @since 2.0
+	 */
+	public void setBinaryWireFormat(boolean binarywireformat) {
+		this.binarywireformat = binarywireformat;
+	}
+
+	/**
+	 * creates a writer for a message to encrypt, in the wire format of the
+	 * connection
+	 * 
+	 * @param output the stream to write the message to before encryption
+	 * @return a writer for the message
+	 * @since 2.0
+	 */
+	public MessageWriter getMessageWriterToEncrypt(OutputStream output) {
+		MessageWriter writer;
+		if (binarywireformat) {
+			writer = new MessageBinaryWriter(output, false);
+		} else {
+			writer = new MessageBufferedWriter(
+					new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)), false);
+		}
+		writer.setAESCommunicator(this);
+		return writer;
+	}
+
+	/**
+	 * decrypts a message and creates a reader on it, in the wire format of the
+	 * connection
+	 * 
+	 * @param encryptedmessage the encrypted message
+	 * @return a reader on the decrypted message
+	 * @throws Exception if any error is encountered during decryption
+	 * @since 2.0
+	 */
+	public MessageReader getDecryptedMessageReader(byte[] encryptedmessage) throws Exception {
+		return getDecryptedMessageReader(new ByteArrayInputStream(encryptedmessage));
+	}
+
+	/**
+	 * creates a reader on an encrypted message. The message is decrypted,
+	 * uncompressed and parsed while it is read, so that it is never stored fully
+	 * in memory
+	 * 
+	 * @param encryptedmessage stream of the encrypted message
+	 * @return a reader on the decrypted message, in the wire format of the
+	 *         connection
+	 * @since 2.0
+	 */
+	public MessageReader getDecryptedMessageReader(InputStream encryptedmessage) {
+		InputStream decryptedmessage = getDecryptingStream(encryptedmessage);
+		MessageReader reader;
+		if (binarywireformat) {
+			reader = new MessageBinaryReader(decryptedmessage);
+		} else {
+			reader = new MessageSimpleReader(
+					new BufferedReader(new InputStreamReader(decryptedmessage, StandardCharsets.UTF_8)));
+		}
+		reader.setAESCommunicator(this);
+		return reader;
+	}
+
+	/**
+	 * creates a stream decrypting and uncompressing a message. Only one message
+	 * should be decrypted at the same time with this communicator.
+	 * 
+	 * @param encryptedmessage stream of the encrypted message
+	 * @return a stream of the decrypted message
+	 * @since 2.0
+	 */
+	public InputStream getDecryptingStream(InputStream encryptedmessage) {
+		try {
+			// the cipher is reset in case the previous message was not read until the end
+			decryptaescipher.init(Cipher.DECRYPT_MODE, secretkey);
+			inflater.reset();
+			return new InflaterInputStream(new CipherInputStream(encryptedmessage, decryptaescipher), inflater,
+					STREAM_BUFFER);
+		} catch (InvalidKeyException e) {
+			throw new RuntimeException("Error in initiating decryption " + e.getMessage());
+		}
+	}
+
+	/**
+	 * creates a stream compressing and encrypting a message. The stream has to be
+	 * closed after the message is written to send the end of the encrypted
+	 * content. Only one message should be encrypted at the same time with this
+	 * communicator.
+	 * 
+	 * @param encryptedmessage the stream to write the encrypted message to
+	 * @return a stream to write the message to encrypt
+	 * @since 2.0
+	 */
+	public OutputStream getEncryptingStream(OutputStream encryptedmessage) {
+		try {
+			// the cipher is reset in case the previous message was not finished
+			encryptaescipher.init(Cipher.ENCRYPT_MODE, secretkey);
+			deflater.reset();
+			return new DeflaterOutputStream(new CipherOutputStream(encryptedmessage, encryptaescipher), deflater,
+					STREAM_BUFFER);
+		} catch (InvalidKeyException e) {
+			throw new RuntimeException("Error in initiating encryption " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @param message a message, in the text or binary format
+	 * @return the message compressed and encrypted
+	 * @throws Exception if any error is encountered during encryption
+	 * @since 2.0
+	 */
+	public byte[] zipandencrypt(byte[] message) throws Exception {
+		try {
+			if (this.messageaudit) {
+				logger.info("--------------------------- FULL MESSAGE AUDIT (before encryption)-----------------------");
+				if (binarywireformat) {
+					logger.info("binary message of " + message.length + " bytes");
+				} else {
+					logger.info(new String(message, StandardCharsets.UTF_8));
+				}
+				logger.info("--------------------------- FULL MESSAGE AUDIT END (after encryption) -------------------");
+			}
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			deflater.setInput(message);
+			deflater.finish();
+			byte[] buffer = new byte[4000];
+			while (!deflater.finished()) {
+				int chars = deflater.deflate(buffer);
+				baos.write(buffer, 0, chars);
+			}
+			deflater.reset();
+			return encryptaescipher.doFinal(baos.toByteArray());
+		} catch (Exception e) {
+			logger.severe(" Exception in  ZipAndEncrypt " + e.getClass().getName() + " - " + e.getMessage());
+			for (int i = 0; i < e.getStackTrace().length; i++)
+				logger.severe("     * " + e.getStackTrace()[i]);
+			deflater.reset();
+			throw new RuntimeException("Error in ZipAndEncrypt " + e.getMessage());
+		}
+	}
+
 	public static void main(String args[]) {
 		try {
 			KeyGenerator keyGen = KeyGenerator.getInstance("AES");
@@ -149,6 +344,52 @@ public class AESCommunicator {
 		}
 	}
 
+	/**
+	 * @param filename   file name of a key sent during the handshake
+	 * @param wireformat the wire format offered or proposed, or null
+	 * @return the file name including the wire format
+	 * @since 2.0
+	 */
+	public static String getFileNameWithWireFormat(String filename, String wireformat) {
+		if (wireformat == null)
+			return filename;
+		return filename + WIRE_FORMAT_SEPARATOR + wireformat;
+	}
+
+	/**
+	 * @param filename file name of a key received during the handshake
+	 * @return the wire format offered or proposed by the other party, or null if
+	 *         the other party is of a previous version
+	 * @since 2.0
+	 */
+	public static String getWireFormatFromFileName(String filename) {
+		if (filename == null)
+			return null;
+		int separatorindex = filename.indexOf(WIRE_FORMAT_SEPARATOR);
+		if (separatorindex == -1)
+			return null;
+		return filename.substring(separatorindex + WIRE_FORMAT_SEPARATOR.length());
+	}
+
+	/**
+	 * sends to the client the wire format chosen by the server. This is sent only
+	 * to clients having proposed a wire format, and they switch to the format once
+	 * they receive it
+	 * 
+	 * @param writer     message writer connected to the client
+	 * @param wireformat the wire format chosen
+	 * @throws Exception if any communication error is encountered
+	 * @since 2.0
+	 */
+	public static void sendWireFormatConfirmation(MessageWriter writer, String wireformat) throws Exception {
+		writer.startNewMessage();
+		writer.startStructure(WIRE_FORMAT_FIELD);
+		writer.addStringField(WIRE_FORMAT_FIELD, wireformat);
+		writer.endStructure(WIRE_FORMAT_FIELD);
+		writer.endMessage();
+		writer.flushMessage();
+	}
+
 	/**
 	 * perform an handshake with the server to get and send back to the server an
 	 * AES Key
@@ -164,7 +405,11 @@ public class AESCommunicator {
 		
 		reader.returnNextMessageStart();
 		reader.returnNextStartStructure("RSAKEY");
-		byte[] rsapublickey = reader.returnNextLargeBinary("PUBLICKEY").getContent();
+		SFile rsapublickeyfile = reader.returnNextLargeBinary("PUBLICKEY");
+		byte[] rsapublickey = rsapublickeyfile.getContent();
+		// only a server offering the binary wire format will confirm it
+		String offeredwireformat = getWireFormatFromFileName(rsapublickeyfile.getFileName());
+		boolean proposebinary = WIRE_FORMAT_BINARY.equals(offeredwireformat);
 		reader.returnNextEndStructure("RSAKEY");
 		reader.returnNextEndMessage();
 
@@ -185,9 +430,19 @@ public class AESCommunicator {
 		byte[] aeskeyencoded = encryptrsacipher.doFinal(aeskey);
 		writer.startNewMessage();
 		writer.startStructure("SESAESKEY");
-		writer.addLongBinaryField("AESKEY", new SFile("Aeskey", aeskeyencoded));
+		writer.addLongBinaryField("AESKEY", new SFile(
+				getFileNameWithWireFormat("Aeskey", (proposebinary ? WIRE_FORMAT_BINARY : null)), aeskeyencoded));
 		writer.endStructure("SESAESKEY");
 		writer.endMessage();
+		writer.flushMessage();
+		if (proposebinary) {
+			reader.returnNextMessageStart();
+			reader.returnNextStartStructure(WIRE_FORMAT_FIELD);
+			String confirmedwireformat = reader.returnNextStringField(WIRE_FORMAT_FIELD);
+			reader.returnNextEndStructure(WIRE_FORMAT_FIELD);
+			reader.returnNextEndMessage();
+			aescommunicator.setBinaryWireFormat(WIRE_FORMAT_BINARY.equals(confirmedwireformat));
+		}
 		return aescommunicator;
 	}
 }
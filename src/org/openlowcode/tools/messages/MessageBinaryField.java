@@ -9,6 +9,10 @@
  ********************************************************************************/
 package org.openlowcode.tools.messages;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Arrays;
 import java.util.Base64;
 
 /**
@@ -16,15 +20,17 @@ import java.util.Base64;
  * server It is transported as pure binary content after a 'D' and then an
  * integer precising the size of the binary content in bytes and then a ':' and
  * then the binary content. e.g B1000:[BinaryContent length = 1000 encoded in
- * base64].When empty, just sent B0:;
+ * base64].When empty, just sent B0:;<br>
+ * When the payload is stored on disk, it can be serialized chunk by chunk
+ * through {@link #serializeStreamed(String, boolean, Writer)}
  * 
  * @author Open Lowcode SAS
  *
  */
 public class MessageBinaryField extends MessageField<MessageFieldTypeBinary> {
 	private static Base64.Encoder base64encoder = Base64.getEncoder();
-	private byte[] payload;
-	private String filename;
+	private static final int STREAMING_CHUNK = 49152;
+	private SFile payloadfile;
 
 	public MessageBinaryField(String fieldname) {
 		super(fieldname);
@@ -39,34 +45,117 @@ public class MessageBinaryField extends MessageField<MessageFieldTypeBinary> {
 	 */
 	public MessageBinaryField(String fieldname, SFile payloadfile) {
 		super(fieldname);
-
-		payload = payloadfile.getContent();
-		this.filename = payloadfile.getFileName();
+		this.payloadfile = payloadfile;
 	}
 
 	public MessageBinaryField(String attributename, byte[] binary, String filename) {
 		super(attributename);
-		this.payload = binary;
-		this.filename = filename;
+		this.payloadfile = new SFile(filename, binary);
+	}
+
+	/**
+	 * @return true if there is no content to send
+	 */
+	private boolean isPayloadEmpty() {
+		if (payloadfile == null)
+			return true;
+		if (payloadfile.isEmpty())
+			return true;
+		if (payloadfile.getLength() == 0)
+			return true;
+		return false;
 	}
 
 	@Override
 	public String serializepayload(String contextstring) {
-		if (payload == null) {
-			return "B0:";
-		}
-		if (payload.length == 0) {
+		if (isPayloadEmpty()) {
 			return "B0:";
 		}
-		String base64payload = base64encoder.encodeToString(payload);
+		String base64payload = base64encoder.encodeToString(payloadfile.getContent());
 
-		String filenameencoded = MessageStringField.serializeStringPayload(filename, null);
+		String filenameencoded = MessageStringField.serializeStringPayload(payloadfile.getFileName(), null);
 		return "B" + base64payload.length() + ":" + filenameencoded + ":" + base64payload;
 
 	}
 
+	/**
+	 * @return true if the payload is stored on disk, and should be sent in chunks
+	 *         through {@link #serializeStreamed(String, boolean, Writer)}
+	 * @since 2.0
+	 */
+	public boolean isStreamed() {
+		if (isPayloadEmpty())
+			return false;
+		return (!payloadfile.isInMemory());
+	}
+
+	/**
+	 * writes the serialization of the field to the writer, encoding the payload
+	 * chunk by chunk so that the payload is never fully loaded in memory. The
+	 * result is the same as {@link #serialize(String, boolean)}
+	 *
+	 * @param padding        padding of the field
+	 * @param firstattribute true if the field is the first of the structure
+	 * @param writer         writer to write the field to
+	 * @throws IOException if any error is encountered while reading the payload or
+	 *                     writing
+	 * @since 2.0
+	 */
+	public void serializeStreamed(String padding, boolean firstattribute, Writer writer) throws IOException {
+		if (!isStreamed()) {
+			writer.write(serialize(padding, firstattribute));
+			return;
+		}
+		writer.write(firstattribute ? MessageField.STRUCTURE_SEPARATOR : MessageField.FIELD_SEPARATOR);
+		writer.write(this.getFieldName());
+		writer.write(MessageField.CONTENT_SEPARATOR);
+		long base64length = ((payloadfile.getLength() + 2) / 3) * 4;
+		writer.write("B" + base64length + ":"
+				+ MessageStringField.serializeStringPayload(payloadfile.getFileName(), null) + ":");
+		InputStream payloadstream = payloadfile.getStream();
+		try {
+			// chunk size is a multiple of 3 so that only the last chunk has padding
+			byte[] chunk = new byte[STREAMING_CHUNK];
+			int chunklength;
+			while ((chunklength = readChunk(payloadstream, chunk)) > 0)
+				writer.write(base64encoder.encodeToString(
+						chunklength == chunk.length ? chunk : Arrays.copyOf(chunk, chunklength)));
+		} finally {
+			payloadstream.close();
+		}
+	}
+
+	/**
+	 * fills the chunk from the stream, except at the end of the stream
+	 *
+	 * @param stream stream to read
+	 * @param chunk  chunk to fill
+	 * @return number of bytes read, 0 at the end of the stream
+	 * @throws IOException if any error is encountered while reading
+	 */
+	private static int readChunk(InputStream stream, byte[] chunk) throws IOException {
+		int total = 0;
+		while (total < chunk.length) {
+			int read = stream.read(chunk, total, chunk.length - total);
+			if (read == -1)
+				break;
+			total += read;
+		}
+		return total;
+	}
+
 	public SFile getFieldContent() {
-		return new SFile(filename, payload);
+		if (payloadfile == null)
+			return new SFile();
+		return payloadfile;
+	}
+
+	@Override
+	public String toString() {
+		if (isStreamed())
+			return MessageField.FIELD_SEPARATOR + this.getFieldName() + MessageField.CONTENT_SEPARATOR + "B["
+					+ payloadfile.getLength() + " bytes stored on disk]";
+		return super.toString();
 	}
 
 }
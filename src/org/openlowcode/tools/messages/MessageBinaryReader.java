@@ -0,0 +1,451 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.tools.messages;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.logging.Logger;
+
+/**
+ * Reader of OLc messages sent in the binary wire format by the
+ * {@link MessageBinaryWriter}. All consistency controls are performed by the
+ * parent {@link MessageReader}, as for the text format.
+ *
+ * @author Open Lowcode SAS
+ * @since 2.0
+ */
+public class MessageBinaryReader extends MessageReader {
+	private static Logger logger = Logger.getLogger(MessageBinaryReader.class.getName());
+	private static final int PAYLOAD_CHUNK = 65536;
+	private InputStream input;
+	private ArrayList<String> labels;
+	private MessageArrayStart activearraystart;
+	private byte[] stringbuffer;
+	private long bytecounter = 0;
+	// recording is done by writing the elements received in the text format
+	private boolean recording = false;
+	private StringWriter recordedstring;
+	private MessageBufferedWriter recordingwriter;
+	private ArrayList<String> recordingpath;
+
+	/**
+	 * Creates a binary message reader that will send a remote exception when error
+	 * is sent back from the remote party
+	 *
+	 * @param input input stream to read
+	 */
+	public MessageBinaryReader(InputStream input) {
+		super();
+		this.input = new BufferedInputStream(input);
+		this.labels = new ArrayList<String>();
+		this.stringbuffer = new byte[256];
+	}
+
+	/**
+	 * @param input                input stream to read
+	 * @param throwremoteexception 'true' if remote exception sent when getting an
+	 *                             error from remote party, 'false' else
+	 */
+	public MessageBinaryReader(InputStream input, boolean throwremoteexception) {
+		super(throwremoteexception);
+		this.input = new BufferedInputStream(input);
+		this.labels = new ArrayList<String>();
+		this.stringbuffer = new byte[256];
+	}
+
+	/**
+	 * Closes the underlying input stream
+	 *
+	 * @throws IOException if any communication issue is encountered
+	 */
+	public void close() throws IOException {
+		this.input.close();
+	}
+
+	@Override
+	protected MessageElement parseNextElement() throws OLcRemoteException, IOException {
+		int code = input.read();
+		if ((code == -1) && (!this.isInMessage()))
+			throw new EOFException("end of stream reached while waiting for a new message");
+		if (code == -1)
+			throw new RuntimeException(String.format("end of stream reached while parsing an element at path %s at %s",
+					this.getCurrentElementPath(), this.returnBufferTrace()));
+		bytecounter++;
+		MessageElement element = parseElementContent(code);
+		if (recording)
+			recordElement(element);
+		return element;
+	}
+
+	/**
+	 * parses the content of the element after its code
+	 *
+	 * @param code code of the element as defined in {@link MessageBinaryWriter}
+	 * @return the element
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private MessageElement parseElementContent(int code) throws IOException {
+		switch (code) {
+		case MessageBinaryWriter.MESSAGE_START:
+			labels.clear();
+			bytecounter = 1;
+			return new MessageStart();
+		case MessageBinaryWriter.MESSAGE_END:
+			return new MessageEnd();
+		case MessageBinaryWriter.STRUCTURE_START:
+			return new MessageStartStructure(readLabel());
+		case MessageBinaryWriter.STRUCTURE_END:
+			return new MessageEndStructure();
+		case MessageBinaryWriter.STRING_FIELD:
+			return new MessageStringField(readLabel(), readString());
+		case MessageBinaryWriter.INTEGER_FIELD:
+			return MessageIntegerField.getCSPMessageIntegerField(readLabel(), (int) readSignedNumber());
+		case MessageBinaryWriter.DECIMAL_FIELD:
+			return new MessageDecimalField(readLabel(), readDecimal());
+		case MessageBinaryWriter.DATE_FIELD:
+			return new MessageDateField(readLabel(), readDate());
+		case MessageBinaryWriter.BOOLEAN_FIELD:
+			return new MessageBooleanField(readLabel(), (readCode() == MessageBinaryWriter.TRUE_VALUE));
+		case MessageBinaryWriter.BINARY_FIELD: {
+			String fieldname = readLabel();
+			long size = readNumber();
+			if (size == 0)
+				return new MessageBinaryField(fieldname);
+			String filename = readString();
+			if (size <= SFile.MEMORY_THRESHOLD) {
+				byte[] payload = new byte[(int) size];
+				readFully(payload, (int) size);
+				return new MessageBinaryField(fieldname, payload, filename);
+			}
+			return new MessageBinaryField(fieldname, readLargePayload(filename, size));
+		}
+		case MessageBinaryWriter.ARRAY_START: {
+			String arrayname = readLabel();
+			int fieldnumber = (int) readNumber();
+			ArrayList<MessageFieldSpec> fieldspecs = new ArrayList<MessageFieldSpec>();
+			for (int i = 0; i < fieldnumber; i++) {
+				String fieldname = readLabel();
+				fieldspecs.add(new MessageFieldSpec(fieldname, readLabel()));
+			}
+			activearraystart = new MessageArrayStart(arrayname, fieldspecs);
+			return activearraystart;
+		}
+		case MessageBinaryWriter.ARRAY_LINE: {
+			if (activearraystart == null)
+				throw new RuntimeException(String.format(
+						"Received a message array line while no array start is active at path %s at %s",
+						this.getCurrentElementPath(), this.returnBufferTrace()));
+			Object[] payload = new Object[activearraystart.getFieldSpecNr()];
+			for (int i = 0; i < payload.length; i++)
+				payload[i] = readArrayValue(activearraystart.getFieldSpecAt(i).getType());
+			return new MessageArrayLine(payload);
+		}
+		case MessageBinaryWriter.ARRAY_END:
+			activearraystart = null;
+			return new MessageArrayEnd();
+		case MessageBinaryWriter.ERROR: {
+			int errorcode = (int) readSignedNumber();
+			String errormessage = readString();
+			labels.clear();
+			activearraystart = null;
+			return new MessageError(errorcode, errormessage);
+		}
+		default:
+			throw new RuntimeException(String.format("invalid element code %d at path %s at %s", code,
+					this.getCurrentElementPath(), this.returnBufferTrace()));
+		}
+	}
+
+	/**
+	 * reads a value in a compact array line
+	 *
+	 * @param type type of the column as specified in the array start
+	 * @return the value, using wrapper classes when necessary
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private Object readArrayValue(MessageFieldType type) throws IOException {
+		if (type == MessageFieldTypeString.singleton)
+			return readString();
+		if (type == MessageFieldTypeInteger.singleton) {
+			if (readCode() == MessageBinaryWriter.NULL_VALUE)
+				return null;
+			return Integer.valueOf((int) readSignedNumber());
+		}
+		if (type == MessageFieldTypeDecimal.singleton)
+			return readDecimal();
+		if (type == MessageFieldTypeBoolean.singleton) {
+			int code = readCode();
+			if (code == MessageBinaryWriter.NULL_VALUE)
+				return null;
+			return Boolean.valueOf(code == MessageBinaryWriter.TRUE_VALUE);
+		}
+		if (type == MessageFieldTypeDate.singleton)
+			return readDate();
+		throw new RuntimeException(String.format("Type %s not supported in compact array at path %s at %s",
+				type.getMessageFieldAcronym(), this.getCurrentElementPath(), this.returnBufferTrace()));
+	}
+
+	/**
+	 * @return the next byte
+	 * @throws IOException if any communication issue is encountered, or the end of
+	 *                     stream is reached
+	 */
+	private int readCode() throws IOException {
+		int code = input.read();
+		if (code == -1)
+			throw new EOFException(String.format("end of stream reached while parsing element content at path %s",
+					this.getCurrentElementPath()));
+		bytecounter++;
+		return code;
+	}
+
+	/**
+	 * reads a label, either as a text after a zero, or as the index plus one of a
+	 * label already received in this message
+	 *
+	 * @return the label
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private String readLabel() throws IOException {
+		int index = (int) readNumber();
+		if (index == 0) {
+			String label = readString();
+			labels.add(label);
+			return label;
+		}
+		if (index > labels.size())
+			throw new RuntimeException(String.format("invalid label index %d, only %d labels received at path %s at %s",
+					index, labels.size(), this.getCurrentElementPath(), this.returnBufferTrace()));
+		return labels.get(index - 1);
+	}
+
+	/**
+	 * @return a string read as UTF-8 bytes prefixed by the number of bytes plus
+	 *         one, or null if the prefix is zero
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private String readString() throws IOException {
+		int length = (int) readNumber();
+		if (length == 0)
+			return null;
+		length--;
+		if (length > stringbuffer.length)
+			stringbuffer = new byte[Math.max(length, stringbuffer.length * 2)];
+		readFully(stringbuffer, length);
+		return new String(stringbuffer, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return a decimal read as the length of the unscaled value, the unscaled
+	 *         value and the scale, or null if the length is zero
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private BigDecimal readDecimal() throws IOException {
+		int length = (int) readNumber();
+		if (length == 0)
+			return null;
+		byte[] unscaled = new byte[length];
+		readFully(unscaled, length);
+		return new BigDecimal(new BigInteger(unscaled), (int) readSignedNumber());
+	}
+
+	/**
+	 * @return a date read as a null marker and the number of seconds since epoch
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private Date readDate() throws IOException {
+		if (readCode() == MessageBinaryWriter.NULL_VALUE)
+			return null;
+		return new Date(readSignedNumber() * 1000L);
+	}
+
+	/**
+	 * @return a signed number using zigzag encoding
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private long readSignedNumber() throws IOException {
+		long number = readNumber();
+		return (number >>> 1) ^ -(number & 1);
+	}
+
+	/**
+	 * @return a positive number written with 7 bits per byte
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private long readNumber() throws IOException {
+		long number = 0;
+		int shift = 0;
+		while (shift < 64) {
+			int nextbyte = readCode();
+			number |= (long) (nextbyte & 0x7F) << shift;
+			if ((nextbyte & 0x80) == 0)
+				return number;
+			shift += 7;
+		}
+		throw new RuntimeException(String.format("invalid number encoding at path %s at %s",
+				this.getCurrentElementPath(), this.returnBufferTrace()));
+	}
+
+	/**
+	 * reads exactly the given number of bytes
+	 *
+	 * @param buffer buffer to fill
+	 * @param length number of bytes to read
+	 * @throws IOException if any communication issue is encountered, or the end of
+	 *                     stream is reached
+	 */
+	private void readFully(byte[] buffer, int length) throws IOException {
+		int read = 0;
+		while (read < length) {
+			int readnow = input.read(buffer, read, length - read);
+			if (readnow == -1)
+				throw new EOFException(String.format("end of stream reached after %d bytes out of %d at path %s",
+						read, length, this.getCurrentElementPath()));
+			read += readnow;
+		}
+		bytecounter += length;
+	}
+
+	/**
+	 * reads a large binary payload chunk by chunk into a file stored on disk
+	 *
+	 * @param filename name of the file
+	 * @param size     size of the payload in bytes
+	 * @return the file
+	 * @throws IOException if any communication issue is encountered, or the end of
+	 *                     stream is reached
+	 */
+	private SFile readLargePayload(String filename, long size) throws IOException {
+		SFileOutputStream payload = new SFileOutputStream();
+		byte[] chunk = new byte[PAYLOAD_CHUNK];
+		long remaining = size;
+		while (remaining > 0) {
+			int chunklength = (int) Math.min(remaining, chunk.length);
+			readFully(chunk, chunklength);
+			payload.write(chunk, 0, chunklength);
+			remaining -= chunklength;
+		}
+		return payload.getSFile(filename);
+	}
+
+	@Override
+	public long charcountsinceStartMessage() {
+		return bytecounter;
+	}
+
+	/**
+	 * starts recording the message. The recording is provided in the text format,
+	 * exactly as a {@link MessageSimpleReader} would record the same message
+	 * written by a {@link MessageBufferedWriter}
+	 */
+	@Override
+	public void startrecord() {
+		try {
+			this.recording = true;
+			this.recordedstring = new StringWriter();
+			this.recordingwriter = new MessageBufferedWriter(new BufferedWriter(recordedstring), false);
+			this.recordingpath = new ArrayList<String>();
+			this.recordingwriter.startNewMessage();
+		} catch (IOException e) {
+			throw new RuntimeException("Error while starting recording " + e.getMessage());
+		}
+	}
+
+	@Override
+	public String endrecord() {
+		if (!this.recording)
+			return null;
+		this.recording = false;
+		try {
+			recordingwriter.endMessage();
+			recordingwriter.close();
+		} catch (IOException e) {
+			throw new RuntimeException("Error while ending recording " + e.getMessage());
+		}
+		String recordedmessage = recordedstring.toString();
+		logger.finest("recorded message of " + recordedmessage.length() + " characters");
+		// removes the message start and message end that the simple reader does not
+		// record
+		return recordedmessage.substring(2, recordedmessage.length() - 3);
+	}
+
+	/**
+	 * writes the element in text format to the recording
+	 *
+	 * @param element the element just parsed
+	 * @throws IOException if any issue is encountered while writing
+	 */
+	private void recordElement(MessageElement element) throws IOException {
+		if (element instanceof MessageStartStructure) {
+			String structurename = ((MessageStartStructure) element).getStructurename();
+			recordingpath.add(structurename);
+			recordingwriter.startStructure(structurename);
+			return;
+		}
+		if (element instanceof MessageEndStructure) {
+			if (recordingpath.size() == 0)
+				throw new RuntimeException("Recording should stop before closing a structure opened before start");
+			recordingwriter.endStructure(recordingpath.remove(recordingpath.size() - 1));
+			return;
+		}
+		if (element instanceof MessageStringField) {
+			MessageStringField field = (MessageStringField) element;
+			recordingwriter.addStringField(field.getFieldName(), field.getFieldcontent());
+			return;
+		}
+		if (element instanceof MessageIntegerField) {
+			MessageIntegerField field = (MessageIntegerField) element;
+			recordingwriter.addIntegerField(field.getFieldName(), field.getFieldContent());
+			return;
+		}
+		if (element instanceof MessageDecimalField) {
+			MessageDecimalField field = (MessageDecimalField) element;
+			recordingwriter.addDecimalField(field.getFieldName(), field.getFieldcontent());
+			return;
+		}
+		if (element instanceof MessageDateField) {
+			MessageDateField field = (MessageDateField) element;
+			recordingwriter.addDateField(field.getFieldName(), field.getFieldcontent());
+			return;
+		}
+		if (element instanceof MessageBooleanField) {
+			MessageBooleanField field = (MessageBooleanField) element;
+			recordingwriter.addBooleanField(field.getFieldName(), field.getFieldContent());
+			return;
+		}
+		if (element instanceof MessageBinaryField) {
+			MessageBinaryField field = (MessageBinaryField) element;
+			recordingwriter.addLongBinaryField(field.getFieldName(), field.getFieldContent());
+			return;
+		}
+		if (element instanceof MessageArrayLine) {
+			((MessageArrayLine) element).setArrayStart(activearraystart);
+			recordingwriter.sendMessageElement(element);
+			return;
+		}
+		if ((element instanceof MessageArrayStart) || (element instanceof MessageArrayEnd)) {
+			recordingwriter.sendMessageElement(element);
+			return;
+		}
+		// errors are treated by the parent reader
+		if (element instanceof MessageError)
+			return;
+		throw new RuntimeException("Element cannot be recorded " + element.getClass());
+	}
+}
@@ -0,0 +1,363 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.tools.messages;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.logging.Logger;
+
+/**
+ * A writer of OLc messages in the binary wire format. The binary format carries
+ * exactly the same message elements as the text format, but each element is
+ * encoded as a one byte code followed by a typed, length-prefixed payload:
+ * <ul>
+ * <li>integers and lengths are sent as variable length integers (7 bits per
+ * byte)</li>
+ * <li>strings are sent as UTF-8 bytes prefixed by their length</li>
+ * <li>decimals are sent as scale and unscaled value, dates as seconds since
+ * epoch</li>
+ * <li>binary payloads are sent as raw bytes, without base64 encoding. Payloads
+ * stored on disk are copied without being loaded in memory</li>
+ * <li>field and structure names are sent once per message, and then referenced
+ * by their index</li>
+ * <li>array lines only carry values, the type of each value being known from
+ * the array start</li>
+ * </ul>
+ * The binary format is read by the {@link MessageBinaryReader}
+ *
+ * @author Open Lowcode SAS
+ * @since 2.0
+ */
+public class MessageBinaryWriter extends MessageWriter {
+	private static Logger logger = Logger.getLogger(MessageBinaryWriter.class.getName());
+
+	public static final int MESSAGE_START = 1;
+	public static final int MESSAGE_END = 2;
+	public static final int STRUCTURE_START = 3;
+	public static final int STRUCTURE_END = 4;
+	public static final int STRING_FIELD = 5;
+	public static final int INTEGER_FIELD = 6;
+	public static final int DECIMAL_FIELD = 7;
+	public static final int DATE_FIELD = 8;
+	public static final int BOOLEAN_FIELD = 9;
+	public static final int BINARY_FIELD = 10;
+	public static final int ARRAY_START = 11;
+	public static final int ARRAY_LINE = 12;
+	public static final int ARRAY_END = 13;
+	public static final int ERROR = 14;
+
+	public static final int NULL_VALUE = 0;
+	public static final int FALSE_VALUE = 1;
+	public static final int TRUE_VALUE = 2;
+
+	private OutputStream output;
+	private boolean messageaudit;
+	private HashMap<String, Integer> labelindex;
+	private long bytecounter;
+
+	/**
+	 * Creates a new writer of messages in binary format
+	 *
+	 * @param output       the output stream to write the message to
+	 * @param messageaudit true if the size of messages should be put in logs
+	 *                     after being sent
+	 */
+	public MessageBinaryWriter(OutputStream output, boolean messageaudit) {
+		super();
+		this.output = new BufferedOutputStream(output);
+		this.messageaudit = messageaudit;
+		this.labelindex = new HashMap<String, Integer>();
+	}
+
+	public boolean getMessageAudit() {
+		return this.messageaudit;
+	}
+
+	@Override
+	public void checkConnection() throws IOException {
+
+	}
+
+	/**
+	 * Closes the underlying output stream
+	 *
+	 * @throws IOException if any communication issue is encountered
+	 */
+	public void close() throws IOException {
+		output.close();
+	}
+
+	@Override
+	public void sendMessageElement(MessageElement messageelement) throws IOException {
+		if (messageelement instanceof MessageStart) {
+			labelindex.clear();
+			bytecounter = 0;
+			writeCode(MESSAGE_START);
+			return;
+		}
+		if (messageelement instanceof MessageEnd) {
+			writeCode(MESSAGE_END);
+			output.flush();
+			if (messageaudit)
+				logger.info("--- BINARY MESSAGE AUDIT: sent message of " + bytecounter + " bytes");
+			return;
+		}
+		if (messageelement instanceof MessageStartStructure) {
+			writeCode(STRUCTURE_START);
+			writeLabel(((MessageStartStructure) messageelement).getStructurename());
+			return;
+		}
+		if (messageelement instanceof MessageEndStructure) {
+			writeCode(STRUCTURE_END);
+			return;
+		}
+		if (messageelement instanceof MessageStringField) {
+			MessageStringField field = (MessageStringField) messageelement;
+			writeCode(STRING_FIELD);
+			writeLabel(field.getFieldName());
+			writeString(field.getFieldcontent());
+			return;
+		}
+		if (messageelement instanceof MessageIntegerField) {
+			MessageIntegerField field = (MessageIntegerField) messageelement;
+			writeCode(INTEGER_FIELD);
+			writeLabel(field.getFieldName());
+			writeSignedNumber(field.getFieldContent());
+			return;
+		}
+		if (messageelement instanceof MessageDecimalField) {
+			MessageDecimalField field = (MessageDecimalField) messageelement;
+			writeCode(DECIMAL_FIELD);
+			writeLabel(field.getFieldName());
+			writeDecimal(field.getFieldcontent());
+			return;
+		}
+		if (messageelement instanceof MessageDateField) {
+			MessageDateField field = (MessageDateField) messageelement;
+			writeCode(DATE_FIELD);
+			writeLabel(field.getFieldName());
+			writeDate(field.getFieldcontent());
+			return;
+		}
+		if (messageelement instanceof MessageBooleanField) {
+			MessageBooleanField field = (MessageBooleanField) messageelement;
+			writeCode(BOOLEAN_FIELD);
+			writeLabel(field.getFieldName());
+			writeCode(field.getFieldContent() ? TRUE_VALUE : FALSE_VALUE);
+			return;
+		}
+		if (messageelement instanceof MessageBinaryField) {
+			MessageBinaryField field = (MessageBinaryField) messageelement;
+			writeCode(BINARY_FIELD);
+			writeLabel(field.getFieldName());
+			SFile file = field.getFieldContent();
+			if (file.isEmpty()) {
+				writeNumber(0);
+				return;
+			}
+			writeNumber(file.getLength());
+			if (file.getLength() > 0) {
+				writeString(file.getFileName());
+				// content stored on disk is copied chunk by chunk
+				file.writeContent(output);
+				bytecounter += file.getLength();
+			}
+			return;
+		}
+		if (messageelement instanceof MessageArrayStart) {
+			MessageArrayStart arraystart = (MessageArrayStart) messageelement;
+			writeCode(ARRAY_START);
+			writeLabel(arraystart.getArrayName());
+			writeNumber(arraystart.getFieldSpecNr());
+			for (int i = 0; i < arraystart.getFieldSpecNr(); i++) {
+				MessageFieldSpec spec = arraystart.getFieldSpecAt(i);
+				writeLabel(spec.getName());
+				writeLabel(spec.getType().getMessageFieldAcronym());
+			}
+			return;
+		}
+		if (messageelement instanceof MessageArrayLine) {
+			MessageArrayLine arrayline = (MessageArrayLine) messageelement;
+			writeCode(ARRAY_LINE);
+			for (int i = 0; i < arrayline.getObjectNumber(); i++)
+				writeArrayValue(arrayline.getPayloadAt(i));
+			return;
+		}
+		if (messageelement instanceof MessageArrayEnd) {
+			writeCode(ARRAY_END);
+			return;
+		}
+		if (messageelement instanceof MessageError) {
+			MessageError error = (MessageError) messageelement;
+			writeCode(ERROR);
+			writeSignedNumber(error.getErrorcode());
+			writeString(error.getErrormessage());
+			output.flush();
+			labelindex.clear();
+			if (messageaudit)
+				logger.info("--- BINARY MESSAGE AUDIT: sent error " + error.getErrorcode() + " - "
+						+ error.getErrormessage());
+			return;
+		}
+		throw new RuntimeException("Message element not supported in binary format " + messageelement.getClass()
+				+ " at path " + this.currentpath());
+	}
+
+	@Override
+	public void flushMessage() throws IOException {
+		output.flush();
+	}
+
+	/**
+	 * writes a value of a compact array line. The type of the value is not written
+	 * as it is specified in the array start.
+	 *
+	 * @param object the value to write
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private void writeArrayValue(Object object) throws IOException {
+		if (object instanceof String) {
+			writeString((String) object);
+			return;
+		}
+		if (object instanceof Integer) {
+			writeCode(TRUE_VALUE);
+			writeSignedNumber(((Integer) object).intValue());
+			return;
+		}
+		if (object instanceof BigDecimal) {
+			writeDecimal((BigDecimal) object);
+			return;
+		}
+		if (object instanceof Boolean) {
+			writeCode(((Boolean) object).booleanValue() ? TRUE_VALUE : FALSE_VALUE);
+			return;
+		}
+		if (object instanceof Date) {
+			writeDate((Date) object);
+			return;
+		}
+		if (object == null) {
+			// a null string, integer, decimal or date are all encoded as a zero byte
+			writeCode(NULL_VALUE);
+			return;
+		}
+		throw new RuntimeException("Object " + object.getClass() + " not supported in GML Compact Array");
+	}
+
+	private void writeCode(int code) throws IOException {
+		output.write(code);
+		bytecounter++;
+	}
+
+	/**
+	 * writes a label. The first time a label is used in a message, its text is
+	 * written after a zero. Afterwards, only its index plus one is written
+	 *
+	 * @param label the label to write
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private void writeLabel(String label) throws IOException {
+		Integer index = labelindex.get(label);
+		if (index != null) {
+			writeNumber(index.intValue() + 1);
+			return;
+		}
+		writeNumber(0);
+		writeString(label);
+		labelindex.put(label, labelindex.size());
+	}
+
+	/**
+	 * writes a string as its UTF-8 bytes, prefixed by the number of bytes plus one.
+	 * A null string is written as zero
+	 *
+	 * @param string the string to write
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private void writeString(String string) throws IOException {
+		if (string == null) {
+			writeNumber(0);
+			return;
+		}
+		byte[] content = string.getBytes(StandardCharsets.UTF_8);
+		writeNumber(content.length + 1);
+		output.write(content);
+		bytecounter += content.length;
+	}
+
+	/**
+	 * writes a decimal as the number of bytes of the unscaled value (zero if the
+	 * decimal is null), the unscaled value, and the scale
+	 *
+	 * @param decimal the decimal to write
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private void writeDecimal(BigDecimal decimal) throws IOException {
+		if (decimal == null) {
+			writeNumber(0);
+			return;
+		}
+		byte[] unscaled = decimal.unscaledValue().toByteArray();
+		writeNumber(unscaled.length);
+		output.write(unscaled);
+		bytecounter += unscaled.length;
+		writeSignedNumber(decimal.scale());
+	}
+
+	/**
+	 * writes a date as a null marker and the number of seconds since epoch. The
+	 * precision is the second, as for the text format
+	 *
+	 * @param date the date to write
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private void writeDate(Date date) throws IOException {
+		if (date == null) {
+			writeCode(NULL_VALUE);
+			return;
+		}
+		writeCode(TRUE_VALUE);
+		writeSignedNumber(Math.floorDiv(date.getTime(), 1000L));
+	}
+
+	/**
+	 * writes a signed number, using zigzag encoding so that small negative numbers
+	 * are also written on few bytes
+	 *
+	 * @param number the number to write
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private void writeSignedNumber(long number) throws IOException {
+		writeNumber((number << 1) ^ (number >> 63));
+	}
+
+	/**
+	 * writes a positive number with 7 bits per byte, the highest bit of each byte
+	 * being set if more bytes follow
+	 *
+	 * @param number the number to write
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private void writeNumber(long number) throws IOException {
+		while ((number & ~0x7FL) != 0) {
+			output.write((int) ((number & 0x7F) | 0x80));
+			number >>>= 7;
+			bytecounter++;
+		}
+		output.write((int) number);
+		bytecounter++;
+	}
+}
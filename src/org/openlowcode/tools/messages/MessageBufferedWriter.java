@@ -75,10 +75,20 @@ public class MessageBufferedWriter extends MessageWriter {
 
 			// if buffer ongoing, do not print
 			if (closestructurebuffer == null) {
-				if (element == null)
-					element = messageelement.serialize(this.getCurrentPadding(), this.isIsfirstelementinstructure());
-				// writer.write(element);
-				messagebuffer.append(element);
+				if ((messageelement instanceof MessageBinaryField) && (((MessageBinaryField) messageelement).isStreamed())) {
+					// large payload stored on disk is sent directly without being buffered
+					flushMessage();
+					((MessageBinaryField) messageelement).serializeStreamed(this.getCurrentPadding(),
+							this.isIsfirstelementinstructure(), writer);
+					if (messageaudit)
+						logger.info("--------------------------- PARTIAL MESSAGE AUDIT: " + messageelement.toString());
+				} else {
+					if (element == null)
+						element = messageelement.serialize(this.getCurrentPadding(),
+								this.isIsfirstelementinstructure());
+					// writer.write(element);
+					messagebuffer.append(element);
+				}
 			}
 			if (messageelement instanceof MessageStartStructure)
 				samelinestructureclose = true;
@@ -125,9 +135,24 @@ public class MessageBufferedWriter extends MessageWriter {
 		this.samelinestructureclose = true;
 	}
 
+	/**
+	 * sends to the underlying writer the part of the current message already
+	 * buffered, and flushes the underlying writer. This allows to send long
+	 * messages in several parts without keeping them fully in memory.
+	 */
 	@Override
 	public void flushMessage() {
 		try {
+			if ((messagebuffer != null) && (messagebuffer.length() > 0)) {
+				String partialmessage = messagebuffer.toString();
+				writer.write(partialmessage);
+				if (messageaudit) {
+					logger.info("--------------------------- PARTIAL MESSAGE AUDIT --------------------");
+					logger.info(partialmessage);
+					logger.info("--------------------------- PARTIAL MESSAGE AUDIT END ----------------");
+				}
+				messagebuffer = new StringBuffer();
+			}
 			writer.flush();
 		} catch (IOException e) {
 			throw new RuntimeException(
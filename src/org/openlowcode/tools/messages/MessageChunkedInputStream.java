@@ -0,0 +1,125 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.tools.messages;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream reading a binary content sent as a succession of binary
+ * fields (chunks) inside a structure of a message, as written by the
+ * {@link MessageChunkedOutputStream}. Chunks are read from the message only
+ * when the content is needed, so that only one chunk is in memory at a given
+ * time. The stream should be created after the start of the structure has been
+ * read, and it reads the end of the structure when all chunks have been
+ * consumed.
+ *
+ * @author Open Lowcode SAS
+ * @since 2.0
+ */
+public class MessageChunkedInputStream extends InputStream {
+	private MessageReader reader;
+	private String structurename;
+	private String chunkfieldname;
+	private byte[] chunk;
+	private int chunkindex;
+	private boolean finished;
+
+	/**
+	 * creates a stream reading chunks from the message
+	 *
+	 * @param reader         reader of the message, positioned just after the
+	 *                       start of the structure
+	 * @param structurename  name of the structure holding the chunks
+	 * @param chunkfieldname name of the binary fields holding the chunks
+	 */
+	public MessageChunkedInputStream(MessageReader reader, String structurename, String chunkfieldname) {
+		this.reader = reader;
+		this.structurename = structurename;
+		this.chunkfieldname = chunkfieldname;
+		this.finished = false;
+	}
+
+	/**
+	 * makes sure a chunk with remaining content is available
+	 *
+	 * @return true if content is available, false if the end of the structure was
+	 *         reached
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private boolean fetchChunk() throws IOException {
+		while ((!finished) && ((chunk == null) || (chunkindex >= chunk.length))) {
+			MessageElement element;
+			try {
+				element = reader.getNextElement();
+			} catch (OLcRemoteException e) {
+				throw new IOException("Remote error while reading chunks of " + structurename + ": " + e.getMessage(),
+						e);
+			}
+			if (element instanceof MessageBinaryField) {
+				MessageBinaryField field = (MessageBinaryField) element;
+				if (field.getFieldName().compareTo(chunkfieldname) != 0)
+					throw new RuntimeException(String.format("incorrect chunk field name, expected %s, found %s at %s",
+							chunkfieldname, field.getFieldName(), reader.getCurrentElementPath()));
+				chunk = field.getFieldContent().getContent();
+				chunkindex = 0;
+				continue;
+			}
+			if (element instanceof MessageEndStructure) {
+				MessageEndStructure endstructure = (MessageEndStructure) element;
+				if (endstructure.getName().compareTo(structurename) != 0)
+					throw new RuntimeException(String.format("incorrect end of chunks, expected %s, found end of %s",
+							structurename, endstructure.getName()));
+				finished = true;
+				chunk = null;
+				continue;
+			}
+			throw new RuntimeException(String.format("expected chunk %s or end of %s, found %s at %s", chunkfieldname,
+					structurename, element, reader.getCurrentElementPath()));
+		}
+		return (!finished);
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!fetchChunk())
+			return -1;
+		return chunk[chunkindex++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		if (length == 0)
+			return 0;
+		if (!fetchChunk())
+			return -1;
+		int copied = Math.min(length, chunk.length - chunkindex);
+		System.arraycopy(chunk, chunkindex, buffer, offset, copied);
+		chunkindex += copied;
+		return copied;
+	}
+
+	@Override
+	public int available() {
+		if (chunk == null)
+			return 0;
+		return chunk.length - chunkindex;
+	}
+
+	/**
+	 * reads and discards the remaining chunks until the end of the structure. The
+	 * underlying message reader is not closed
+	 */
+	@Override
+	public void close() throws IOException {
+		while (fetchChunk())
+			chunkindex = chunk.length;
+	}
+}
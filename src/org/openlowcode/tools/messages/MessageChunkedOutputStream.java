@@ -0,0 +1,119 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.tools.messages;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * An output stream sending a binary content as a new message holding a
+ * structure with a succession of binary fields (chunks). Each chunk is sent to
+ * the remote party as soon as it is full, so that only one chunk is in memory
+ * at a given time. The message is started when the first chunk is sent, and
+ * ended when the stream is closed. If nothing was written to the stream, no
+ * message is sent.<br>
+ * The content is read on the other side by the
+ * {@link MessageChunkedInputStream}
+ *
+ * @author Open Lowcode SAS
+ * @since 2.0
+ */
+public class MessageChunkedOutputStream extends OutputStream {
+	/**
+	 * default size of the chunks
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 65536;
+	private MessageWriter writer;
+	private String structurename;
+	private String chunkfieldname;
+	private byte[] chunk;
+	private int chunkindex;
+	private boolean started;
+	private boolean closed;
+
+	/**
+	 * creates a stream writing chunks to a new message
+	 *
+	 * @param writer         the message writer
+	 * @param structurename  name of the structure holding the chunks
+	 * @param chunkfieldname name of the binary fields holding the chunks
+	 * @param chunksize      maximum size of a chunk in bytes
+	 */
+	public MessageChunkedOutputStream(MessageWriter writer, String structurename, String chunkfieldname,
+			int chunksize) {
+		this.writer = writer;
+		this.structurename = structurename;
+		this.chunkfieldname = chunkfieldname;
+		this.chunk = new byte[chunksize];
+		this.chunkindex = 0;
+		this.started = false;
+		this.closed = false;
+	}
+
+	/**
+	 * sends the current chunk to the message writer, starting the message if
+	 * required
+	 *
+	 * @throws IOException if any communication issue is encountered
+	 */
+	private void sendChunk() throws IOException {
+		if (!started) {
+			writer.startNewMessage();
+			writer.startStructure(structurename);
+			started = true;
+		}
+		if (chunkindex > 0) {
+			writer.addLongBinaryField(chunkfieldname, new SFile("", Arrays.copyOf(chunk, chunkindex)));
+			writer.flushMessage();
+			chunkindex = 0;
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (closed)
+			throw new IOException("Chunked stream " + structurename + " is already closed");
+		if (chunkindex == chunk.length)
+			sendChunk();
+		chunk[chunkindex++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] buffer, int offset, int length) throws IOException {
+		if (closed)
+			throw new IOException("Chunked stream " + structurename + " is already closed");
+		while (length > 0) {
+			if (chunkindex == chunk.length)
+				sendChunk();
+			int copied = Math.min(length, chunk.length - chunkindex);
+			System.arraycopy(buffer, offset, chunk, chunkindex, copied);
+			chunkindex += copied;
+			offset += copied;
+			length -= copied;
+		}
+	}
+
+	/**
+	 * sends the last chunk and ends the message. If nothing was written, no
+	 * message is sent.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		if ((!started) && (chunkindex == 0))
+			return;
+		sendChunk();
+		writer.endStructure(structurename);
+		writer.endMessage();
+	}
+}
@@ -9,6 +9,7 @@
  ********************************************************************************/
 package org.openlowcode.tools.messages;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.Reader;
 import java.math.BigDecimal;
@@ -31,6 +32,7 @@ public class MessageSimpleReader extends MessageReader {
 
 	private static Logger logger = Logger.getLogger(MessageSimpleReader.class.getName());
 	private static Base64.Decoder base64decoder = Base64.getDecoder();
+	private static final int BASE64_CHUNK = 65536;
 
 	private final static int MESSAGE_START = '{';
 	private final static int MESSAGE_END = '}';
@@ -208,6 +210,8 @@ public class MessageSimpleReader extends MessageReader {
 		
 			// remove insignificant stuff
 			removeBlank();
+			if ((currentcharacter == -1) && (!this.isInMessage()))
+				throw new EOFException("end of stream reached while waiting for a new message");
 			if (currentcharacter == -1)
 				throw new RuntimeException(String.format("end of file reached while parsing a token at path %s at %s",
 						this.getCurrentElementPath(), this.returnBufferTrace()));
@@ -432,7 +436,7 @@ public class MessageSimpleReader extends MessageReader {
 						currentcharacter = readOneCharacter();
 
 						String sizetext = getNumberToken();
-						int size = new Integer(sizetext).intValue();
+						long size = Long.parseLong(sizetext);
 						logger.finer("file size  = " + size);
 						if (currentcharacter != BINARY_SEPARATOR)
 							throw new RuntimeException(String.format(
@@ -454,20 +458,24 @@ public class MessageSimpleReader extends MessageReader {
 								throw new RuntimeException(String.format(
 										"Expected to have a separator ':' after filename '%s' in binary field, got '%c' at %s",
 										filename, currentcharacter, this.returnBufferTrace()));
-							char[] base64content = new char[size];
+							if (size > (SFile.MEMORY_THRESHOLD / 3) * 4) {
+								SFile payload = readLargeBase64Payload(filename, size, attributename);
+								currentcharacter = readOneCharacter();
+								return new MessageBinaryField(attributename, payload);
+							}
+							char[] base64content = new char[(int) size];
 							int read = 0;
 							int breaker = 0;
 							while ((read < size) && (breaker < 100000)) {
-								read += br.read(base64content, read, size - read);
+								// read blocks until content is available, no need to wait between reads
+								int readnow = br.read(base64content, read, (int) size - read);
+								if (readnow == -1)
+									throw new EOFException(String.format(
+											"end of stream reached after %d characters out of %d in binary field %s",
+											read, size, attributename));
+								read += readnow;
 								breaker++;
-								logger.fine("total read = " + read);
-								try {
-									Thread.sleep(20);
-
-								} catch (InterruptedException e) {
-									logger.warning(
-											"Error while waiting for file to be completly received " + e.getMessage());
-								}
+								logger.finest("total read = " + read);
 							}
 
 							charcounter += size;
@@ -669,6 +677,42 @@ public class MessageSimpleReader extends MessageReader {
 				this.getCurrentElementPath(), this.returnBufferTrace()));
 	}
 
+	/**
+	 * reads a large base64 payload chunk by chunk, and decodes it into a file
+	 * stored on disk, so that the payload is never fully loaded in memory
+	 * 
+	 * @param filename      name of the file
+	 * @param size          number of base64 characters
+	 * @param attributename name of the attribute (for error messages)
+	 * @return the file
+	 * @throws IOException if any communication issue is encountered, or the end of
+	 *                     stream is reached
+	 * @since 2.0
+	 */
+	private SFile readLargeBase64Payload(String filename, long size, String attributename) throws IOException {
+		SFileOutputStream payload = new SFileOutputStream();
+		// chunk size is a multiple of 4 so that each chunk can be decoded on its own
+		char[] chunk = new char[BASE64_CHUNK];
+		long read = 0;
+		while (read < size) {
+			int chunklength = (int) Math.min(size - read, chunk.length);
+			int chunkread = 0;
+			while (chunkread < chunklength) {
+				int readnow = br.read(chunk, chunkread, chunklength - chunkread);
+				if (readnow == -1)
+					throw new EOFException(String.format(
+							"end of stream reached after %d characters out of %d in binary field %s",
+							read + chunkread, size, attributename));
+				chunkread += readnow;
+			}
+			payload.write(base64decoder.decode(new String(chunk, 0, chunklength)));
+			read += chunklength;
+		}
+		charcounter += size;
+		logger.fine("read large binary field " + attributename + ", base64 length = " + size);
+		return payload.getSFile(filename);
+	}
+
 	private int readOneCharacter() throws IOException {
 		int thischar = br.read();
 		charcounter++;
@@ -678,6 +722,19 @@ public class MessageSimpleReader extends MessageReader {
 		return thischar;
 	}
 
+	/**
+	 * checks if content is available to read without blocking. This is typically
+	 * used to check if the remote party has already sent the start of a new message
+	 * that was buffered while reading the previous message
+	 * 
+	 * @return true if content is available to read without blocking
+	 * @throws IOException if the underlying reader is closed
+	 * @since 2.0
+	 */
+	public boolean hasBufferedContent() throws IOException {
+		return this.br.ready();
+	}
+
 	/**
 	 * Closes the underlying Reader
 	 * @throws IOException
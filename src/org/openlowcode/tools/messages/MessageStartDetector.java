@@ -0,0 +1,82 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.tools.messages;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Detects, on a socket, that the remote party has started sending a new
+ * message. The detection blocks on the socket with a short timeout, so that
+ * the waiting thread can regularly check if it should stop waiting, without
+ * creating a separate thread or polling in a sleep loop. No content is
+ * consumed: the message is then read normally by the message reader.
+ *
+ * @author Open Lowcode SAS
+ * @since 2.0
+ */
+public class MessageStartDetector {
+	private Socket socket;
+	private BufferedInputStream input;
+	private MessageSimpleReader reader;
+	private int polltimeout;
+
+	/**
+	 * creates a message start detector
+	 *
+	 * @param socket      the socket to the remote party
+	 * @param input       the buffered input stream of the socket, that is read by
+	 *                    the reader
+	 * @param reader      the message reader reading the input stream
+	 * @param polltimeout maximum time in milliseconds to block on the socket
+	 *                    before checking again if waiting should continue
+	 */
+	public MessageStartDetector(Socket socket, BufferedInputStream input, MessageSimpleReader reader, int polltimeout) {
+		this.socket = socket;
+		this.input = input;
+		this.reader = reader;
+		this.polltimeout = polltimeout;
+	}
+
+	/**
+	 * waits until content is available on the socket, or the end of the stream is
+	 * reached, or the condition to keep waiting is not true anymore
+	 *
+	 * @param keepwaiting condition checked every poll timeout, waiting stops when
+	 *                    it is false
+	 * @return true if content is available (or end of stream is reached, that will
+	 *         be reported by the reader), false if waiting was stopped
+	 * @throws IOException if any communication issue is encountered
+	 */
+	public boolean waitForMessageStart(BooleanSupplier keepwaiting) throws IOException {
+		if (reader.hasBufferedContent())
+			return true;
+		int previoustimeout = socket.getSoTimeout();
+		socket.setSoTimeout(polltimeout);
+		try {
+			while (keepwaiting.getAsBoolean()) {
+				try {
+					input.mark(1);
+					input.read();
+					input.reset();
+					return true;
+				} catch (SocketTimeoutException e) {
+					// nothing received during the poll period, check again if should keep waiting
+				}
+			}
+			return false;
+		} finally {
+			socket.setSoTimeout(previoustimeout);
+		}
+	}
+}
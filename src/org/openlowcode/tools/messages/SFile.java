@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2019 [Open Lowcode SAS](https://openlowcode.com/)
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
  *
  * This program and the accompanying materials are made available under the
  * terms of the Eclipse Public License 2.0 which is available at
@@ -9,87 +9,408 @@
  ********************************************************************************/
 package org.openlowcode.tools.messages;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
-
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.logging.Logger;
 
 /**
- * A light wrapper around a file, including
- * binary content and a filename
+ * A light wrapper around a file, including binary content and a filename. The
+ * content is either held in memory, or for large files, kept in a file on disk
+ * (typically a temporary file created while reading the content from the
+ * network or the database). Large files should be processed through
+ * {@link #getStream()} or {@link #writeContent(OutputStream)} so that their
+ * content is never fully loaded in memory. The content may also be loaded only
+ * when first accessed, name, length and emptiness being known beforehand.
+ *
  * @author Open Lowcode SAS
  *
  */
 public class SFile {
+	private static Logger logger = Logger.getLogger(SFile.class.getName());
+	/**
+	 * content bigger than this size in bytes is stored in a temporary file when
+	 * read from a stream
+	 *
+	 * @since 2.0
+	 */
+	public static final int MEMORY_THRESHOLD = 1024 * 1024;
+	private static final int COPY_BUFFER = 65536;
 	private boolean empty;
 	private byte[] content;
 	private String filename;
+	private File contentfile;
+	private TemporaryContent temporarycontent;
+	private long length;
+	private ContentLoader loader;
+
+	/**
+	 * Loads the content of a file the first time it is accessed
+	 *
+	 * @since 2.0
+	 */
+	@FunctionalInterface
+	public interface ContentLoader {
+		/**
+		 * @return a file with the content
+		 * @throws IOException if any error is encountered while loading the content
+		 */
+		public SFile load() throws IOException;
+	}
+
+	/**
+	 * loads the content if it has not been loaded yet
+	 */
+	private synchronized void ensureLoaded() {
+		if (loader == null)
+			return;
+		try {
+			SFile loadedfile = loader.load();
+			logger.fine("loaded on demand content of file " + filename + ", size = " + loadedfile.length);
+			this.empty = loadedfile.empty;
+			this.content = loadedfile.content;
+			this.contentfile = loadedfile.contentfile;
+			this.temporarycontent = loadedfile.temporarycontent;
+			this.length = loadedfile.length;
+			this.loader = null;
+		} catch (IOException e) {
+			throw new RuntimeException("Error while loading content of file " + filename + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return true if the content is available, false if it will be loaded when
+	 *         first accessed
+	 * @since 2.0
+	 */
+	public synchronized boolean isLoaded() {
+		return (loader == null);
+	}
+
 	/**
-	 * @return binary content
+	 * @return binary content. For a file stored on disk, the full content is loaded
+	 *         in memory each time this method is called
 	 */
 	public byte[] getContent() {
+		ensureLoaded();
+		if (contentfile != null) {
+			logger.fine("loading in memory content of file " + filename + ", size = " + length);
+			try {
+				return Files.readAllBytes(contentfile.toPath());
+			} catch (IOException e) {
+				throw new RuntimeException("Error while reading content of file " + filename + " from disk: "
+						+ e.getMessage());
+			}
+		}
 		return content;
 	}
+
 	/**
 	 * Creates a new file with no filename or content.
 	 */
 	public SFile() {
-		this.empty=true;
+		this.empty = true;
 	}
-	
+
 	/**
-	 * Creates a new file with no filename or content.
-	 * it will check whether the content is null or not
+	 * Creates a new file with no filename or content. it will check whether the
+	 * content is null or not
+	 *
 	 * @param filename name of the file (it should not include the path)
-	 * @param content binary content
+	 * @param content  binary content
 	 */
-	public SFile(String filename,byte[] content) {
+	public SFile(String filename, byte[] content) {
 		this.content = content;
 		this.filename = filename;
-		if (content!=null) {
-		this.empty=false;
+		if (content != null) {
+			this.empty = false;
+			this.length = content.length;
 		} else {
-			this.empty=true;
+			this.empty = true;
 		}
-		
+
+	}
+
+	/**
+	 * Creates a new file with content stored in a file on disk. The file on disk
+	 * should not be modified or deleted while this object is used.
+	 *
+	 * @param filename    name of the file (it should not include the path)
+	 * @param contentfile the file on disk with the content
+	 * @since 2.0
+	 */
+	public SFile(String filename, File contentfile) {
+		this.filename = filename;
+		this.contentfile = contentfile;
+		this.length = contentfile.length();
+		this.empty = false;
+	}
+
+	/**
+	 * Creates a new file whose content is loaded only when first accessed. The
+	 * name, length and emptiness of the file are available without loading the
+	 * content.
+	 *
+	 * @param filename name of the file (it should not include the path)
+	 * @param length   length of the content
+	 * @param loader   loader of the content
+	 * @since 2.0
+	 */
+	public SFile(String filename, long length, ContentLoader loader) {
+		this.filename = filename;
+		this.length = length;
+		this.loader = loader;
+		this.empty = false;
+	}
+
+	/**
+	 * Creates a new file with the same content as another file, but a different
+	 * filename. The content is not copied.
+	 *
+	 * @param filename name of the file (it should not include the path)
+	 * @param content  file with the content
+	 * @since 2.0
+	 */
+	public SFile(String filename, SFile content) {
+		this.filename = filename;
+		this.empty = content.empty;
+		this.content = content.content;
+		this.contentfile = content.contentfile;
+		this.temporarycontent = content.temporarycontent;
+		this.length = content.length;
+		this.loader = content.loader;
+	}
+
+	/**
+	 * Creates a new file with content stored in a temporary file
+	 *
+	 * @param filename         name of the file
+	 * @param temporarycontent temporary file with the content
+	 * @param length           length of the content
+	 */
+	SFile(String filename, TemporaryContent temporarycontent, long length) {
+		this.filename = filename;
+		this.temporarycontent = temporarycontent;
+		this.contentfile = temporarycontent.file;
+		this.length = length;
+		this.empty = false;
+	}
+
+	/**
+	 * reads the full content of a stream into a new file. Content bigger than
+	 * {@link #MEMORY_THRESHOLD} is stored in a temporary file, that is deleted when
+	 * the file object is not used anymore. The stream is not closed.
+	 *
+	 * @param filename name of the file
+	 * @param stream   stream with the content
+	 * @return the file
+	 * @throws IOException if any error is encountered while reading the stream
+	 * @since 2.0
+	 */
+	public static SFile readFromStream(String filename, InputStream stream) throws IOException {
+		SFileOutputStream output = new SFileOutputStream();
+		byte[] buffer = new byte[COPY_BUFFER];
+		int read;
+		while ((read = stream.read(buffer)) != -1)
+			output.write(buffer, 0, read);
+		return output.getSFile(filename);
 	}
-	
-	
+
 	/**
 	 * @return the file name
 	 */
 	public String getFileName() {
 		return this.filename;
 	}
-	
+
 	/**
 	 * @return an input stream with the content
 	 */
-	public InputStream getStream()  {
-		 return new ByteArrayInputStream(content);
-	
+	public InputStream getStream() {
+		ensureLoaded();
+		if (contentfile != null) {
+			try {
+				final TemporaryContent streamedcontent = this.temporarycontent;
+				return new BufferedInputStream(new FileInputStream(contentfile) {
+					// keeps the temporary file until the stream is not used anymore
+					@SuppressWarnings("unused")
+					private TemporaryContent keptcontent = streamedcontent;
+				}, COPY_BUFFER);
+			} catch (IOException e) {
+				throw new RuntimeException("Error while opening content of file " + filename + " from disk: "
+						+ e.getMessage());
+			}
+		}
+		return new ByteArrayInputStream(content);
+
 	}
-	
+
+	/**
+	 * writes the content of the file to the stream, without loading it fully in
+	 * memory
+	 *
+	 * @param output stream to write the content to
+	 * @throws IOException if any error is encountered during the copy
+	 * @since 2.0
+	 */
+	public void writeContent(OutputStream output) throws IOException {
+		ensureLoaded();
+		if (contentfile == null) {
+			if (content != null)
+				output.write(content);
+			return;
+		}
+		InputStream input = getStream();
+		try {
+			byte[] buffer = new byte[COPY_BUFFER];
+			int read;
+			while ((read = input.read(buffer)) != -1)
+				output.write(buffer, 0, read);
+		} finally {
+			input.close();
+		}
+	}
+
 	/**
 	 * @return the length of the file
 	 */
 	public long getLength() {
-		return content.length;
+		return length;
 	}
+
 	/**
-	 * @return true if the file payload is 
-	 * empty
+	 * @return true if the file payload is empty
 	 */
 	public boolean isEmpty() {
 		return empty;
 	}
 
-@Override
-public boolean equals(Object other) {
-	if (other==null) return false;
-	if (!(other instanceof SFile)) return false;
-	SFile othersfile = (SFile) other;
-	if (this.empty) if (!othersfile.empty) return false;
-	if (!this.filename.equals(othersfile.filename)) return false;
-	return java.util.Arrays.equals(this.content,othersfile.content);
-}
+	/**
+	 * @return true if the content is held in memory, false if it is stored in a
+	 *         file on disk
+	 * @since 2.0
+	 */
+	public boolean isInMemory() {
+		ensureLoaded();
+		return (contentfile == null);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (other == null)
+			return false;
+		if (!(other instanceof SFile))
+			return false;
+		SFile othersfile = (SFile) other;
+		if (this.empty != othersfile.empty)
+			return false;
+		// an empty file may have no filename
+		if (!Objects.equals(this.filename, othersfile.filename))
+			return false;
+		if (this.empty)
+			return true;
+		if ((this.isInMemory()) && (othersfile.isInMemory()))
+			return java.util.Arrays.equals(this.content, othersfile.content);
+		if (this.length != othersfile.length)
+			return false;
+		try {
+			InputStream thisstream = this.getStream();
+			InputStream otherstream = othersfile.getStream();
+			try {
+				int thisbyte;
+				while ((thisbyte = thisstream.read()) != -1)
+					if (thisbyte != otherstream.read())
+						return false;
+				return (otherstream.read() == -1);
+			} finally {
+				thisstream.close();
+				otherstream.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error while comparing content of files " + filename + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * A temporary file holding the content of one or several SFiles. The file is
+	 * deleted by a daemon thread once no SFile or stream uses it anymore. The
+	 * temporary files remaining are deleted when the JVM shuts down.
+	 *
+	 * @since 2.0
+	 */
+	static class TemporaryContent {
+		private static ReferenceQueue<TemporaryContent> unusedcontent = new ReferenceQueue<TemporaryContent>();
+		private static HashMap<Reference<TemporaryContent>, File> temporaryfiles = new HashMap<
+				Reference<TemporaryContent>, File>();
+		private static boolean cleanerstarted = false;
+		private File file;
+
+		/**
+		 * creates a new temporary file
+		 *
+		 * @throws IOException if the temporary file cannot be created
+		 */
+		TemporaryContent() throws IOException {
+			startCleaner();
+			this.file = File.createTempFile("olcfile", ".tmp");
+			synchronized (temporaryfiles) {
+				temporaryfiles.put(new PhantomReference<TemporaryContent>(this, unusedcontent), file);
+			}
+		}
+
+		/**
+		 * starts, at first use, the daemon thread deleting temporary files not used
+		 * anymore, and the shutdown hook deleting the remaining temporary files
+		 */
+		private static void startCleaner() {
+			synchronized (temporaryfiles) {
+				if (cleanerstarted)
+					return;
+				cleanerstarted = true;
+			}
+			Thread cleaner = new Thread(() -> {
+				while (true) {
+					try {
+						Reference<? extends TemporaryContent> unused = unusedcontent.remove();
+						File unusedfile;
+						synchronized (temporaryfiles) {
+							unusedfile = temporaryfiles.remove(unused);
+						}
+						if (unusedfile != null)
+							if (!unusedfile.delete())
+								logger.warning("could not delete temporary file " + unusedfile.getAbsolutePath());
+					} catch (InterruptedException e) {
+						logger.warning("temporary file cleaner interrupted, stopping");
+						return;
+					}
+				}
+			}, "OLcTemporaryFileCleaner");
+			cleaner.setDaemon(true);
+			cleaner.start();
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				synchronized (temporaryfiles) {
+					for (File remainingfile : temporaryfiles.values())
+						remainingfile.delete();
+					temporaryfiles.clear();
+				}
+			}, "OLcTemporaryFileShutdown"));
+		}
+
+		/**
+		 * @return the temporary file
+		 */
+		File getFile() {
+			return file;
+		}
+	}
 }
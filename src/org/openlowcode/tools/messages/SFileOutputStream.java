@@ -0,0 +1,106 @@
+/********************************************************************************
+ * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.tools.messages;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream building the content of a {@link SFile}. The content is
+ * kept in memory as long as it is smaller than {@link SFile#MEMORY_THRESHOLD},
+ * and is moved to a temporary file when it gets bigger.
+ *
+ * @author Open Lowcode SAS
+ * @since 2.0
+ */
+public class SFileOutputStream extends OutputStream {
+	private ByteArrayOutputStream memorycontent;
+	private SFile.TemporaryContent temporarycontent;
+	private OutputStream filecontent;
+	private long length;
+	private boolean closed;
+
+	/**
+	 * creates a new stream, with content initially stored in memory
+	 */
+	public SFileOutputStream() {
+		this.memorycontent = new ByteArrayOutputStream();
+		this.length = 0;
+		this.closed = false;
+	}
+
+	/**
+	 * moves the content to a temporary file if the threshold is exceeded
+	 *
+	 * @param extralength number of bytes about to be written
+	 * @throws IOException if the temporary file cannot be created
+	 */
+	private void checkThreshold(int extralength) throws IOException {
+		if (closed)
+			throw new IOException("Stream already closed");
+		if (memorycontent == null)
+			return;
+		if (length + extralength <= SFile.MEMORY_THRESHOLD)
+			return;
+		temporarycontent = new SFile.TemporaryContent();
+		filecontent = new BufferedOutputStream(new FileOutputStream(temporarycontent.getFile()), 65536);
+		memorycontent.writeTo(filecontent);
+		memorycontent = null;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		checkThreshold(1);
+		if (memorycontent != null) {
+			memorycontent.write(b);
+		} else {
+			filecontent.write(b);
+		}
+		length++;
+	}
+
+	@Override
+	public void write(byte[] buffer, int offset, int bufferlength) throws IOException {
+		checkThreshold(bufferlength);
+		if (memorycontent != null) {
+			memorycontent.write(buffer, offset, bufferlength);
+		} else {
+			filecontent.write(buffer, offset, bufferlength);
+		}
+		length += bufferlength;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		if (filecontent != null)
+			filecontent.close();
+	}
+
+	/**
+	 * closes the stream and returns the file with the content written
+	 *
+	 * @param filename name of the file
+	 * @return the file
+	 * @throws IOException if any error is encountered while finishing writing the
+	 *                     content
+	 */
+	public SFile getSFile(String filename) throws IOException {
+		close();
+		if (memorycontent != null)
+			return new SFile(filename, memorycontent.toByteArray());
+		return new SFile(filename, temporarycontent, length);
+	}
+}
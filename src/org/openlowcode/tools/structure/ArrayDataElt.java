@@ -13,6 +13,7 @@ package org.openlowcode.tools.structure;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 
 import org.openlowcode.tools.messages.MessageReader;
 import org.openlowcode.tools.messages.MessageWriter;
@@ -33,6 +34,8 @@ public class ArrayDataElt<E extends DataElt> extends DataElt {
 	private DataEltType arrayelementtype;
 	private ArrayList<E> arraycontent;
 	private HashMap<String, NamedInterface> hiddenelement;
+	private Iterator<E> streamedcontent;
+	private boolean streamedcontentread;
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public ArrayDataElt(String name, DataEltType arrayelementtype) {
@@ -42,6 +45,43 @@ public class ArrayDataElt<E extends DataElt> extends DataElt {
 		hiddenelement = new HashMap<String, NamedInterface>();
 	}
 
+	/**
+	 * creates an array whose content is only read from the iterator while the
+	 * array is written to the message. This avoids holding all the elements in
+	 * memory for big arrays. Such an array can be written only once, and does not
+	 * allow access to its elements by index.
+	 * 
+	 * @param name             name of the array
+	 * @param arrayelementtype type of the elements
+	 * @param streamedcontent  iterator providing the elements in order
+	 * @since 2.0
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public ArrayDataElt(String name, DataEltType arrayelementtype, Iterator<E> streamedcontent) {
+		super(name, new ArrayDataEltType(arrayelementtype));
+		this.arrayelementtype = arrayelementtype;
+		this.arraycontent = new ArrayList<E>();
+		this.streamedcontent = streamedcontent;
+		hiddenelement = new HashMap<String, NamedInterface>();
+	}
+
+	/**
+	 * @return true if the content of the array is streamed
+	 * @since 2.0
+	 */
+	public boolean isStreamed() {
+		return this.streamedcontent != null;
+	}
+
+	/**
+	 * @param action the action attempted, for the error message
+	 */
+	private void checkNotStreamed(String action) {
+		if (streamedcontent != null)
+			throw new RuntimeException(
+					"Cannot " + action + " on array " + this.getName() + " as its content is streamed");
+	}
+
 	/**
 	 * @return the payload type for this array
 	 */
@@ -73,6 +113,7 @@ public class ArrayDataElt<E extends DataElt> extends DataElt {
 	 * @return the number of objects in the array
 	 */
 	public int getObjectNumber() {
+		checkNotStreamed("count elements");
 		return this.arraycontent.size();
 	}
 
@@ -81,6 +122,7 @@ public class ArrayDataElt<E extends DataElt> extends DataElt {
 	 * @param index a number between 0 (included) and getObjectNumber (excluded)
 	 */
 	public void removeObjectAtIndex(int index) {
+		checkNotStreamed("remove element");
 		this.arraycontent.remove(index);
 	}
 	
@@ -89,6 +131,7 @@ public class ArrayDataElt<E extends DataElt> extends DataElt {
 	 * @return
 	 */
 	public E getObjectAtIndex(int index) {
+		checkNotStreamed("get element");
 		return this.arraycontent.get(index);
 	}
 
@@ -96,6 +139,7 @@ public class ArrayDataElt<E extends DataElt> extends DataElt {
 	 * @param arrayelt adds an element to the array
 	 */
 	public void addElement(E arrayelt) {
+		checkNotStreamed("add element");
 		if (arrayelt.getName().compareTo(this.getName()) != 0)
 			throw new RuntimeException(String.format(
 					"try to add objects with incompatible names in an array, array name : %s, object name: %s",
@@ -114,7 +158,8 @@ public class ArrayDataElt<E extends DataElt> extends DataElt {
 		writer.addStringField("NAM", this.getName());
 		writer.addStringField("TYP", this.getType().printType());
 		writer.addStringField("STP", this.arrayelementtype.printType());
-		if (arraycontent.size() == 0) {
+		Iterator<E> contenttowrite = getContentToWrite();
+		if (!contenttowrite.hasNext()) {
 			writer.addBooleanField("HPL", false);
 		} else {
 			writer.addBooleanField("HPL", true);
@@ -122,14 +167,15 @@ public class ArrayDataElt<E extends DataElt> extends DataElt {
 			if (this.getType() instanceof CompactArrayEltType) {
 				writer.addBooleanField("CPT", true);
 				CompactArrayEltType castedtype = (CompactArrayEltType) this.getType();
-				castedtype.writeCompactArray(arraycontent, writer, hiddenfields);
+				castedtype.writeCompactArray(contenttowrite, writer, hiddenfields);
 
 			} else {
 				writer.addBooleanField("CPT", false);
 				writer.startStructure("FLDS");
-				for (int i = 0; i < arraycontent.size(); i++) {
+				int i = 0;
+				while (contenttowrite.hasNext()) {
 					writer.startStructure("FLD");
-					E thisobject = arraycontent.get(i);
+					E thisobject = contenttowrite.next();
 					if (thisobject instanceof ObjectDataElt) {
 						ObjectDataElt thisobjectasparsed = (ObjectDataElt) thisobject;
 						// treatment for transient objects.
@@ -138,6 +184,7 @@ public class ArrayDataElt<E extends DataElt> extends DataElt {
 					}
 					thisobject.writeToMessage(writer, hiddenelement);
 					writer.endStructure("FLD");
+					i++;
 
 				}
 				writer.endStructure("FLDS");
@@ -147,6 +194,38 @@ public class ArrayDataElt<E extends DataElt> extends DataElt {
 		writer.endStructure("DELT");
 	}
 
+	/**
+	 * @return an iterator on the content to write. For a streamed array, elements
+	 *         are checked and renamed as they are read
+	 */
+	private Iterator<E> getContentToWrite() {
+		if (streamedcontent == null)
+			return arraycontent.iterator();
+		if (streamedcontentread)
+			throw new RuntimeException("Streamed content of array " + this.getName() + " has already been written");
+		streamedcontentread = true;
+		Iterator<E> source = streamedcontent;
+		return new Iterator<E>() {
+
+			@Override
+			public boolean hasNext() {
+				return source.hasNext();
+			}
+
+			@Override
+			public E next() {
+				E arrayelt = source.next();
+				if (!arrayelt.getType().equals(arrayelementtype))
+					throw new RuntimeException(String.format(
+							"try to stream objects with incompatible types in an array with name %s, array type: %s, object type: %s ",
+							getName(), arrayelementtype, arrayelt.getType()));
+				if (arrayelt.getName().compareTo(getName()) != 0)
+					arrayelt.changeName(getName());
+				return arrayelt;
+			}
+		};
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public void addPayload(MessageReader reader) throws OLcRemoteException, IOException {
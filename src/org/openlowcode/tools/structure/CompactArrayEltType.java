@@ -13,6 +13,7 @@ package org.openlowcode.tools.structure;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 
 
 import org.openlowcode.tools.messages.MessageReader;
@@ -36,7 +37,17 @@ public interface CompactArrayEltType<E extends DataElt> {
 	
 	
 	
-	public abstract void writeCompactArray(ArrayList<E> datatowrite, MessageWriter writer,HashMap<String,NamedInterface> hiddenfields) throws IOException;
+	/**
+	 * writes the array in compact form
+	 * 
+	 * @param datatowrite  elements to write, in order. There should be at least
+	 *                     one element
+	 * @param writer       message writer
+	 * @param hiddenfields fields not to write
+	 * @throws IOException if any communication error is encountered
+	 * @since 2.0 the elements are provided as an iterator to allow streaming
+	 */
+	public abstract void writeCompactArray(Iterator<E> datatowrite, MessageWriter writer,HashMap<String,NamedInterface> hiddenfields) throws IOException;
 	
 	public abstract void readCompactArray(ArrayList<E> emptylisttofill,MessageReader reader) throws OLcRemoteException,IOException;
 }
@@ -13,6 +13,7 @@ package org.openlowcode.tools.structure;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 
 import org.openlowcode.tools.messages.MessageArrayEnd;
 import org.openlowcode.tools.messages.MessageArrayLine;
@@ -45,11 +46,11 @@ public class ObjectDataEltType extends DataEltType implements CompactArrayEltTyp
 	}
 
 	@Override
-	public void writeCompactArray(ArrayList<ObjectDataElt> datatowrite, MessageWriter writer,
+	public void writeCompactArray(Iterator<ObjectDataElt> datatowrite, MessageWriter writer,
 			HashMap<String, NamedInterface> hiddenfields) throws IOException {
-		if (datatowrite.size() == 0)
+		if (!datatowrite.hasNext())
 			throw new RuntimeException("cannot write compact array of ObjectDataElt if size is smaller than 1");
-		ObjectDataElt firstobject = datatowrite.get(0);
+		ObjectDataElt firstobject = datatowrite.next();
 
 		ObjectDataElt firstobjectcasted = (ObjectDataElt) firstobject;
 
@@ -59,8 +60,9 @@ public class ObjectDataEltType extends DataEltType implements CompactArrayEltTyp
 		MessageArrayStart header = firstobjectcasted.generateHeader(hiddenfields);
 		writer.sendMessageElement(header);
 
-		for (int i = 0; i < datatowrite.size(); i++) {
-			ObjectDataElt object = datatowrite.get(i);
+		writer.sendMessageElement(firstobject.generateLine(header, hiddenfields));
+		while (datatowrite.hasNext()) {
+			ObjectDataElt object = datatowrite.next();
 
 			writer.sendMessageElement(object.generateLine(header, hiddenfields));
 		}
@@ -101,7 +101,7 @@ public class ObjectTreeDataElt<E extends ObjectDataElt> extends DataElt {
 			writer.addBooleanField("HPL", false);
 		} else {
 			writer.addBooleanField("HPL", true);
-			treeobjecttype.writeCompactArray(new ArrayList<ObjectDataElt>(objectregister.values()), writer,
+			treeobjecttype.writeCompactArray(new ArrayList<ObjectDataElt>(objectregister.values()).iterator(), writer,
 					hiddenfields);
 
 		}